@@ -0,0 +1,518 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Computes count, sum, min, max and mean of numeric fields without materializing them.
+ *
+ * <p>Values are aggregated batch by batch directly on the direct buffers of a {@link BatchReader},
+ * so memory use is bounded by the batch size whatever the number of cells. Null cells of nullable
+ * attributes are skipped. With a parallelism above one, the non-empty domain of the first
+ * dimension is split into partitions that are aggregated concurrently, each with its own query, and
+ * the partial results are combined.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * Aggregation.Result result =
+ *     new Aggregation(array, Arrays.asList("temperature"))
+ *         .setPredicate(Predicate.between("time", t0, t1))
+ *         .setParallelism(4)
+ *         .execute();
+ * double mean = result.getMean("temperature");
+ * }</pre>
+ */
+public class Aggregation {
+
+  private final Array array;
+  private final List<String> fields;
+  private Predicate predicate;
+  private int parallelism;
+  private int batchCells;
+  private CancellationToken token;
+
+  /**
+   * @param array The array to read, opened for reading
+   * @param fields The fixed-sized, single-valued numeric attributes and dimensions to aggregate.
+   *     May be empty to only count cells.
+   */
+  public Aggregation(Array array, Collection<String> fields) {
+    this.array = array;
+    this.fields = new ArrayList<>(fields);
+    this.parallelism = 1;
+    this.batchCells = BatchReader.DEFAULT_BATCH_CELLS;
+  }
+
+  /**
+   * @param predicate Only cells matching the predicate are aggregated, or null for all cells
+   * @return This aggregation
+   */
+  public Aggregation setPredicate(Predicate predicate) {
+    this.predicate = predicate;
+    return this;
+  }
+
+  /**
+   * @param parallelism The number of partitions aggregated concurrently
+   * @return This aggregation
+   * @throws TileDBError if the parallelism is not positive
+   */
+  public Aggregation setParallelism(int parallelism) throws TileDBError {
+    if (parallelism <= 0) {
+      throw new TileDBError("Parallelism must be >= 1, got: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * @param batchCells The number of cells read per batch by each partition
+   * @return This aggregation
+   */
+  public Aggregation setBatchCells(int batchCells) {
+    this.batchCells = batchCells;
+    return this;
+  }
+
+  /**
+   * @param token The token all submissions run under, or null
+   * @return This aggregation
+   */
+  public Aggregation setCancellationToken(CancellationToken token) {
+    this.token = token;
+    return this;
+  }
+
+  /**
+   * Runs the aggregation.
+   *
+   * @return The aggregates
+   * @throws TileDBError A TileDB exception
+   */
+  public Result execute() throws TileDBError {
+    Datatype[] types = new Datatype[fields.size()];
+    String firstDimension;
+    SchemaSnapshot schema = array.getSchemaSnapshot();
+    for (int f = 0; f < fields.size(); f++) {
+      BatchReader.Column column = BatchReader.describe(schema, fields.get(f));
+      if (column.var || column.cellValNum != 1 || !isNumeric(column.type)) {
+        throw new TileDBError(
+            "Cannot aggregate field " + fields.get(f) + ", it is not a single numeric value");
+      }
+      types[f] = column.type;
+    }
+    firstDimension = schema.getDimension(0).getName();
+
+    Predicate base = predicate == null ? Predicate.and() : predicate;
+    List<Callable<Partial>> tasks = new ArrayList<>();
+    for (Predicate p : partitions(array, base, parallelism)) {
+      tasks.add(() -> aggregate(p, types, firstDimension));
+    }
+    Partial total = new Partial(types);
+    for (Partial partial : ParallelTasks.runAll(tasks, parallelism, "tiledb-aggregation-")) {
+      total.combine(partial);
+    }
+    return new Result(fields, total);
+  }
+
+  private static boolean isNumeric(Datatype type) {
+    return type.isIntegerType() || type.isRealType() || type.isDateType();
+  }
+
+  /**
+   * Splits the non-empty domain of the first dimension into up to {@code parallelism} partitions.
+   *
+   * @return One predicate per partition, each the conjunction of base and the partition range
+   */
+  static List<Predicate> partitions(Array array, Predicate base, int parallelism)
+      throws TileDBError {
+    if (parallelism == 1) {
+      return Collections.singletonList(base);
+    }
+    SchemaSnapshot.Field first = array.getSchemaSnapshot().getDimension(0);
+    String dim = first.getName();
+    Datatype type = first.getType();
+    if (first.isVar()) {
+      return Collections.singletonList(base);
+    }
+    Pair<?, ?> bounds = array.getNonEmptyDomainFromIndex(0);
+    if (bounds.getFirst() == null) {
+      return Collections.emptyList();
+    }
+
+    List<Predicate> partitions = new ArrayList<>(parallelism);
+    if (type.isRealType()) {
+      double lo = ((Number) bounds.getFirst()).doubleValue();
+      double hi = ((Number) bounds.getSecond()).doubleValue();
+      for (int i = 0; i < parallelism; i++) {
+        double start = lo + (hi - lo) * i / parallelism;
+        if (i == parallelism - 1) {
+          partitions.add(Predicate.and(base, Predicate.between(dim, start, hi)));
+        } else {
+          double end = lo + (hi - lo) * (i + 1) / parallelism;
+          partitions.add(
+              Predicate.and(base, Predicate.ge(dim, start), Predicate.lt(dim, end)));
+        }
+      }
+      return partitions;
+    }
+
+    long lo = ((Number) bounds.getFirst()).longValue();
+    long hi = ((Number) bounds.getSecond()).longValue();
+    // Offsets from lo, so that the bits of UINT64 bounds split in unsigned order too
+    long span = hi - lo + 1;
+    if (span <= 0) {
+      // The domain spans half the long range or more
+      return Collections.singletonList(base);
+    }
+    long parts = Math.min(parallelism, span);
+    long step = (span + parts - 1) / parts;
+    for (long offset = 0; ; offset += step) {
+      long last = offset + Math.min(span - 1 - offset, step - 1);
+      partitions.add(Predicate.and(base, Predicate.between(dim, lo + offset, lo + last)));
+      if (last == span - 1) {
+        break;
+      }
+    }
+    return partitions;
+  }
+
+  private Partial aggregate(Predicate p, Datatype[] types, String firstDimension)
+      throws TileDBError {
+    Partial partial = new Partial(types);
+    QueryPlan plan = QueryPlan.plan(array, p);
+    if (plan.isEmpty()) {
+      return partial;
+    }
+    Predicate residual = plan.getResidual();
+    Set<String> readFields = new LinkedHashSet<>(fields);
+    if (residual != null) {
+      residual.collectFields(readFields);
+    }
+    if (readFields.isEmpty()) {
+      // Counting cells still needs one buffer to read
+      readFields.add(firstDimension);
+    }
+
+    try (Query query = plan.newQuery(array);
+        BatchReader reader = new BatchReader(query, readFields, batchCells)) {
+      reader.setCancellationToken(token);
+      boolean[] mask = residual == null ? null : new boolean[0];
+      while (reader.next()) {
+        int n = reader.size();
+        if (mask != null) {
+          if (mask.length < n) {
+            mask = new boolean[n];
+          }
+          PredicateEvaluator.evaluate(residual, reader, mask);
+          for (int i = 0; i < n; i++) {
+            if (mask[i]) {
+              partial.cells++;
+            }
+          }
+        } else {
+          partial.cells += n;
+        }
+        for (int f = 0; f < types.length; f++) {
+          String field = fields.get(f);
+          partial.accumulate(f, reader.getData(field), reader.getValidityView(field), n, mask);
+        }
+      }
+    }
+    return partial;
+  }
+
+  /** Running aggregates of every field over a part of the array. */
+  private static final class Partial {
+    private final Datatype[] types;
+    private final boolean[] real;
+    // Long.MIN_VALUE for UINT64 fields, whose minimums and maximums are kept with their sign bit
+    // flipped so that signed order is unsigned order, 0 otherwise
+    private final long[] bias;
+    private long cells;
+    private final long[] count;
+    private final long[] longSum;
+    private final long[] longMin;
+    private final long[] longMax;
+    private final double[] doubleSum;
+    private final double[] doubleMin;
+    private final double[] doubleMax;
+
+    Partial(Datatype[] types) {
+      int n = types.length;
+      this.types = types;
+      this.real = new boolean[n];
+      this.bias = new long[n];
+      this.count = new long[n];
+      this.longSum = new long[n];
+      this.longMin = new long[n];
+      this.longMax = new long[n];
+      this.doubleSum = new double[n];
+      this.doubleMin = new double[n];
+      this.doubleMax = new double[n];
+      for (int f = 0; f < n; f++) {
+        real[f] = types[f].isRealType();
+        bias[f] = types[f] == Datatype.TILEDB_UINT64 ? Long.MIN_VALUE : 0;
+        longMin[f] = Long.MAX_VALUE;
+        longMax[f] = Long.MIN_VALUE;
+        doubleMin[f] = Double.POSITIVE_INFINITY;
+        doubleMax[f] = Double.NEGATIVE_INFINITY;
+      }
+    }
+
+    void accumulate(int f, ByteBuffer data, Validity validity, int n, boolean[] mask) {
+      if (validity != null && !validity.hasNulls()) {
+        validity = null;
+      }
+      if (mask == null && validity == null) {
+        // Dense loops over typed views for the common types
+        switch (types[f]) {
+          case TILEDB_INT32:
+            accumulateInts(f, data.asIntBuffer(), n);
+            return;
+          case TILEDB_INT64:
+            accumulateLongs(f, data.asLongBuffer(), n);
+            return;
+          case TILEDB_FLOAT32:
+            accumulateFloats(f, data.asFloatBuffer(), n);
+            return;
+          case TILEDB_FLOAT64:
+            accumulateDoubles(f, data.asDoubleBuffer(), n);
+            return;
+          default:
+            break;
+        }
+      }
+      Datatype type = types[f];
+      long c = 0;
+      if (real[f]) {
+        double sum = 0;
+        double min = doubleMin[f];
+        double max = doubleMax[f];
+        for (int i = 0; i < n; i++) {
+          if ((mask == null || mask[i]) && (validity == null || validity.isValid(i))) {
+            double v = PredicateEvaluator.readDouble(data, type, i);
+            c++;
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+          }
+        }
+        doubleSum[f] += sum;
+        doubleMin[f] = min;
+        doubleMax[f] = max;
+      } else {
+        long sum = 0;
+        long min = longMin[f];
+        long max = longMax[f];
+        long b = bias[f];
+        for (int i = 0; i < n; i++) {
+          if ((mask == null || mask[i]) && (validity == null || validity.isValid(i))) {
+            long v = PredicateEvaluator.readLong(data, type, i);
+            c++;
+            sum += v;
+            min = Math.min(min, v ^ b);
+            max = Math.max(max, v ^ b);
+          }
+        }
+        longSum[f] += sum;
+        longMin[f] = min;
+        longMax[f] = max;
+      }
+      count[f] += c;
+    }
+
+    private void accumulateInts(int f, IntBuffer values, int n) {
+      long sum = 0;
+      long min = longMin[f];
+      long max = longMax[f];
+      for (int i = 0; i < n; i++) {
+        int v = values.get(i);
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+      update(f, n, sum, min, max);
+    }
+
+    private void accumulateLongs(int f, LongBuffer values, int n) {
+      long sum = 0;
+      long min = longMin[f];
+      long max = longMax[f];
+      for (int i = 0; i < n; i++) {
+        long v = values.get(i);
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+      update(f, n, sum, min, max);
+    }
+
+    private void accumulateFloats(int f, FloatBuffer values, int n) {
+      double sum = 0;
+      double min = doubleMin[f];
+      double max = doubleMax[f];
+      for (int i = 0; i < n; i++) {
+        float v = values.get(i);
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+      update(f, n, sum, min, max);
+    }
+
+    private void accumulateDoubles(int f, DoubleBuffer values, int n) {
+      double sum = 0;
+      double min = doubleMin[f];
+      double max = doubleMax[f];
+      for (int i = 0; i < n; i++) {
+        double v = values.get(i);
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+      }
+      update(f, n, sum, min, max);
+    }
+
+    private void update(int f, long c, long sum, long min, long max) {
+      count[f] += c;
+      longSum[f] += sum;
+      longMin[f] = min;
+      longMax[f] = max;
+    }
+
+    private void update(int f, long c, double sum, double min, double max) {
+      count[f] += c;
+      doubleSum[f] += sum;
+      doubleMin[f] = min;
+      doubleMax[f] = max;
+    }
+
+    void combine(Partial other) {
+      cells += other.cells;
+      for (int f = 0; f < types.length; f++) {
+        count[f] += other.count[f];
+        longSum[f] += other.longSum[f];
+        longMin[f] = Math.min(longMin[f], other.longMin[f]);
+        longMax[f] = Math.max(longMax[f], other.longMax[f]);
+        doubleSum[f] += other.doubleSum[f];
+        doubleMin[f] = Math.min(doubleMin[f], other.doubleMin[f]);
+        doubleMax[f] = Math.max(doubleMax[f], other.doubleMax[f]);
+      }
+    }
+  }
+
+  /**
+   * The aggregates of an {@link Aggregation}. Sums, minimums and maximums are Longs for integer
+   * fields and Doubles for floating point fields. Like in SQL, the aggregates of a field without
+   * any non-null value are null; integer sums wrap around on overflow. As with {@link
+   * NativeArray}, UINT64 aggregates are the bits of the unsigned values, to be read with {@link
+   * Long#toUnsignedString(long)} or {@link Long#compareUnsigned(long, long)}.
+   */
+  public static class Result {
+    private final List<String> fields;
+    private final Partial partial;
+
+    private Result(List<String> fields, Partial partial) {
+      this.fields = fields;
+      this.partial = partial;
+    }
+
+    /** @return The number of cells matching the predicate, null or not */
+    public long getCellNum() {
+      return partial.cells;
+    }
+
+    /**
+     * @param field The field name
+     * @return The number of non-null values of the field
+     * @throws TileDBError if the field was not aggregated
+     */
+    public long getCount(String field) throws TileDBError {
+      return partial.count[index(field)];
+    }
+
+    /**
+     * @param field The field name
+     * @return The sum of the non-null values, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Number getSum(String field) throws TileDBError {
+      int f = index(field);
+      if (partial.count[f] == 0) {
+        return null;
+      }
+      return partial.real[f] ? (Number) partial.doubleSum[f] : (Number) partial.longSum[f];
+    }
+
+    /**
+     * @param field The field name
+     * @return The minimum of the non-null values, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Number getMin(String field) throws TileDBError {
+      int f = index(field);
+      if (partial.count[f] == 0) {
+        return null;
+      }
+      return partial.real[f]
+          ? (Number) partial.doubleMin[f]
+          : (Number) (partial.longMin[f] ^ partial.bias[f]);
+    }
+
+    /**
+     * @param field The field name
+     * @return The maximum of the non-null values, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Number getMax(String field) throws TileDBError {
+      int f = index(field);
+      if (partial.count[f] == 0) {
+        return null;
+      }
+      return partial.real[f]
+          ? (Number) partial.doubleMax[f]
+          : (Number) (partial.longMax[f] ^ partial.bias[f]);
+    }
+
+    /**
+     * @param field The field name
+     * @return The mean of the non-null values, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Double getMean(String field) throws TileDBError {
+      int f = index(field);
+      if (partial.count[f] == 0) {
+        return null;
+      }
+      double sum;
+      if (partial.real[f]) {
+        sum = partial.doubleSum[f];
+      } else if (partial.bias[f] != 0) {
+        sum = PredicateEvaluator.unsignedToDouble(partial.longSum[f]);
+      } else {
+        sum = partial.longSum[f];
+      }
+      return sum / partial.count[f];
+    }
+
+    private int index(String field) throws TileDBError {
+      int f = fields.indexOf(field);
+      if (f < 0) {
+        throw new TileDBError("Field was not aggregated: " + field);
+      }
+      return f;
+    }
+  }
+}
@@ -53,10 +53,12 @@ public class Array implements AutoCloseable {
   private Context ctx;
   private String uri;
   private ArraySchema schema;
+  private volatile SchemaSnapshot schemaSnapshot;
   private QueryType query_type;
 
   private SWIGTYPE_p_tiledb_array_t arrayp;
   private SWIGTYPE_p_p_tiledb_array_t arraypp;
+  private NativeHandles.Registration handle;
 
   /**
    * Constructs an Array object opening the array for reading.
@@ -198,6 +200,8 @@ public class Array implements AutoCloseable {
   private synchronized void openArray(
       Context ctx, String uri, QueryType query_type, EncryptionType encryption_type, byte[] key)
       throws TileDBError {
+    long started = Metrics.start();
+    Object event = FlightRecorderEvents.beginArray();
     SWIGTYPE_p_p_tiledb_array_t _arraypp = tiledb.new_tiledb_array_tpp();
     try {
       ctx.handleError(tiledb.tiledb_array_alloc(ctx.getCtxp(), uri, _arraypp));
@@ -229,6 +233,9 @@ public class Array implements AutoCloseable {
     this.schema = _schema;
     this.arraypp = _arraypp;
     this.arrayp = _arrayp;
+    this.handle = NativeHandles.register(this, "Array", 0, free(ctx, _arrayp, _arraypp));
+    Metrics.record(Metrics.Operation.ARRAY_OPEN, started, 0);
+    FlightRecorderEvents.commitArray(event, "open", uri, query_type.name());
   }
 
   private synchronized void openArray(
@@ -239,6 +246,8 @@ public class Array implements AutoCloseable {
       byte[] key,
       BigInteger timestamp)
       throws TileDBError {
+    long started = Metrics.start();
+    Object event = FlightRecorderEvents.beginArray();
     SWIGTYPE_p_p_tiledb_array_t _arraypp = tiledb.new_tiledb_array_tpp();
     try {
       ctx.handleError(tiledb.tiledb_array_alloc(ctx.getCtxp(), uri, _arraypp));
@@ -271,6 +280,20 @@ public class Array implements AutoCloseable {
     this.schema = _schema;
     this.arraypp = _arraypp;
     this.arrayp = _arrayp;
+    this.handle = NativeHandles.register(this, "Array", 0, free(ctx, _arrayp, _arraypp));
+    Metrics.record(Metrics.Operation.ARRAY_OPEN, started, 0);
+    FlightRecorderEvents.commitArray(event, "open", uri, query_type.name());
+  }
+
+  /** Closes and frees an array, without referring to the Array so that it can be reaped. */
+  private static Runnable free(
+      Context ctx, SWIGTYPE_p_tiledb_array_t arrayp, SWIGTYPE_p_p_tiledb_array_t arraypp) {
+    return () -> {
+      if (ctx.getCtxp() != null) {
+        tiledb.tiledb_array_close(ctx.getCtxp(), arrayp);
+      }
+      tiledb.tiledb_array_free(arraypp);
+    };
   }
 
   private void checkIsOpen() throws TileDBError {
@@ -380,6 +403,8 @@ public class Array implements AutoCloseable {
   public static void consolidate(
       Context ctx, String uri, EncryptionType encryption_type, byte[] key, Config config)
       throws TileDBError {
+    long started = Metrics.start();
+    Object event = FlightRecorderEvents.beginArray();
     try (NativeArray keyArray = new NativeArray(ctx, key, Byte.class)) {
       ctx.handleError(
           tiledb.tiledb_array_consolidate_with_key(
@@ -390,6 +415,8 @@ public class Array implements AutoCloseable {
               keyArray.getSize(),
               config.getConfigp()));
     }
+    Metrics.record(Metrics.Operation.CONSOLIDATE, started, 0);
+    FlightRecorderEvents.commitArray(event, "consolidate", uri, null);
   }
 
   /**
@@ -404,8 +431,10 @@ public class Array implements AutoCloseable {
    * @throws TileDBError A TileDB exception
    */
   public static void vacuum(Context ctx, String arrayURI) throws TileDBError {
+    Object event = FlightRecorderEvents.beginArray();
     ctx.handleError(
         tiledb.tiledb_array_vacuum(ctx.getCtxp(), arrayURI, ctx.getConfig().getConfigp()));
+    FlightRecorderEvents.commitArray(event, "vacuum", arrayURI, null);
   }
 
   /**
@@ -418,7 +447,9 @@ public class Array implements AutoCloseable {
    * @throws TileDBError A TileDB exception
    */
   public static void vacuum(Context ctx, String arrayURI, Config config) throws TileDBError {
+    Object event = FlightRecorderEvents.beginArray();
     ctx.handleError(tiledb.tiledb_array_vacuum(ctx.getCtxp(), arrayURI, config.getConfigp()));
+    FlightRecorderEvents.commitArray(event, "vacuum", arrayURI, null);
   }
 
   /**
@@ -639,10 +670,9 @@ public class Array implements AutoCloseable {
   public Pair<String, String> getNonEmptyDomainVarFromIndex(long index) throws TileDBError {
     SWIGTYPE_p_int emptyp = tiledb.new_intp();
 
-    Dimension dim = this.schema.getDomain().getDimension(index);
+    Datatype dimType = getSchemaSnapshot().getDimension((int) index).getType();
     Pair<BigInteger, BigInteger> size = this.getNonEmptyDomainVarSizeFromIndex(index);
 
-    Datatype dimType = dim.getType();
     int startSize = size.getFirst().intValue();
     int endSize = size.getSecond().intValue();
 
@@ -669,11 +699,9 @@ public class Array implements AutoCloseable {
   public Pair<String, String> getNonEmptyDomainVarFromName(String name) throws TileDBError {
     SWIGTYPE_p_int emptyp = tiledb.new_intp();
 
-    Dimension dim = this.schema.getDomain().getDimension(name);
-
+    Datatype dimType = getSchemaSnapshot().getField(name).getType();
     Pair<BigInteger, BigInteger> size = this.getNonEmptyDomainVarSizeFromName(name);
 
-    Datatype dimType = dim.getType();
     int startSize = size.getFirst().intValue();
     int endSize = size.getSecond().intValue();
 
@@ -996,6 +1024,30 @@ public class Array implements AutoCloseable {
     return _schema;
   }
 
+  /**
+   * Returns an immutable copy of the schema of the open array. It is read from the native schema on
+   * first use and cached until the array is reopened, so lookups of fields and their types are
+   * cheap and need no handle to be closed.
+   *
+   * @return The schema snapshot
+   * @throws TileDBError A TileDB exception
+   */
+  public SchemaSnapshot getSchemaSnapshot() throws TileDBError {
+    SchemaSnapshot snapshot = schemaSnapshot;
+    if (snapshot == null) {
+      synchronized (this) {
+        snapshot = schemaSnapshot;
+        if (snapshot == null) {
+          try (ArraySchema _schema = getSchema()) {
+            snapshot = new SchemaSnapshot(_schema);
+          }
+          schemaSnapshot = snapshot;
+        }
+      }
+    }
+    return snapshot;
+  }
+
   /**
    * Sets the starting timestamp to use when opening (and reopening) the array. This is an inclusive
    * bound. The default value is `0`.
@@ -1004,6 +1056,7 @@ public class Array implements AutoCloseable {
     try {
       ctx.handleError(
           tiledb.tiledb_array_set_open_timestamp_start(ctx.getCtxp(), getArrayp(), timestamp));
+      schemaSnapshot = null;
     } catch (TileDBError err) {
       throw err;
     }
@@ -1018,6 +1071,7 @@ public class Array implements AutoCloseable {
     try {
       ctx.handleError(
           tiledb.tiledb_array_set_open_timestamp_end(ctx.getCtxp(), getArrayp(), timestamp));
+      schemaSnapshot = null;
     } catch (TileDBError err) {
       throw err;
     }
@@ -1089,7 +1143,10 @@ public class Array implements AutoCloseable {
    * @throws TileDBError
    */
   public void reopen() throws TileDBError {
+    Object event = FlightRecorderEvents.beginArray();
     ctx.handleError(tiledb.tiledb_array_reopen(ctx.getCtxp(), getArrayp()));
+    schemaSnapshot = null;
+    FlightRecorderEvents.commitArray(event, "reopen", uri, query_type.name());
   }
 
   /** @return The TileDB QueryType enum value that the Array instance. */
@@ -1105,13 +1162,17 @@ public class Array implements AutoCloseable {
   /** Free's the native objects and closes the Array. */
   public synchronized void close() {
     if (arrayp != null && arraypp != null) {
-      tiledb.tiledb_array_close(ctx.getCtxp(), arrayp);
-      tiledb.tiledb_array_free(arraypp);
+      long started = Metrics.start();
+      Object event = FlightRecorderEvents.beginArray();
+      handle.close();
       arrayp = null;
       arraypp = null;
+      schemaSnapshot = null;
       if (schema != null) {
         schema.close();
       }
+      Metrics.record(Metrics.Operation.ARRAY_CLOSE, started, 0);
+      FlightRecorderEvents.commitArray(event, "close", uri, query_type.name());
     }
   }
 }
@@ -0,0 +1,496 @@
+package io.tiledb.java.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of open arrays, shared by the threads of a service that reads the same arrays again and
+ * again, so the schema and fragment metadata are loaded once rather than on every open.
+ *
+ * <p>Handles are keyed by URI, query type and encryption, and handed out as {@link Lease}s that
+ * count references. A handle that no lease holds stays open for later acquires until it is evicted,
+ * least recently used first, once the pool holds more than {@link #setMaxHandles(int)} handles or
+ * their total weight exceeds {@link #setMaxWeight(long)}. Handles in use are never evicted, so the
+ * limits can be exceeded while every handle is leased.
+ *
+ * <p>By default the weight of a handle is its number of fragments, not bytes: the fragment metadata
+ * a handle loads grows with its fragments, but TileDB does not report its size, so {@link
+ * #setMaxWeight(long)} caps the total fragments held open rather than the memory itself. A {@link
+ * Weigher} that estimates bytes, such as from the schema and the expected metadata per fragment of
+ * the arrays served, turns it into a memory cap.
+ *
+ * <p>Read handles older than the staleness interval are refreshed when next acquired: with {@link
+ * Array#reopen()} if no lease holds them, or else by retiring them, to be closed when their last
+ * lease is released, and opening a new handle. With fragment checks on, a stale handle is only
+ * refreshed if {@link FragmentInfo} shows fragments were added or removed since it was opened.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * ArrayPool pool = new ArrayPool(ctx).setStaleness(30, TimeUnit.SECONDS);
+ * try (ArrayPool.Lease lease = pool.acquire(uri)) {
+ *   Query query = new Query(lease.getArray(), TILEDB_READ);
+ *   ...
+ * }
+ * }</pre>
+ */
+public class ArrayPool implements AutoCloseable {
+
+  /** Weighs a handle for the weight limit of the pool. */
+  @FunctionalInterface
+  public interface Weigher {
+    /**
+     * @param array The newly opened or refreshed array
+     * @param fragmentNum The number of fragments of the array, or -1 if unknown
+     * @return The weight of the handle, such as an estimate of its memory in bytes
+     * @throws TileDBError A TileDB exception
+     */
+    long weigh(Array array, long fragmentNum) throws TileDBError;
+  }
+
+  /**
+   * The default weigher, which weighs a handle by its number of fragments, at least 1, as a proxy
+   * for the memory of its fragment metadata.
+   */
+  public static final Weigher FRAGMENT_WEIGHER =
+      (array, fragmentNum) -> Math.max(1, fragmentNum);
+
+  private final Context ctx;
+  // Access order, so iteration starts from the least recently used handle
+  private final LinkedHashMap<Key, Handle> handles;
+  private int maxHandles;
+  private long maxWeight;
+  private long stalenessNanos;
+  private boolean checkFragments;
+  private Weigher weigher;
+  private long weight;
+  private boolean closed;
+
+  /**
+   * Creates a pool without limits or refresh.
+   *
+   * @param ctx The context arrays are opened with
+   */
+  public ArrayPool(Context ctx) {
+    this.ctx = ctx;
+    this.handles = new LinkedHashMap<>(16, 0.75f, true);
+    this.maxHandles = Integer.MAX_VALUE;
+    this.maxWeight = Long.MAX_VALUE;
+    this.stalenessNanos = Long.MAX_VALUE;
+    this.weigher = FRAGMENT_WEIGHER;
+  }
+
+  /**
+   * @param maxHandles The number of handles above which idle handles are evicted
+   * @return This pool
+   * @throws TileDBError if the limit is not positive
+   */
+  public synchronized ArrayPool setMaxHandles(int maxHandles) throws TileDBError {
+    if (maxHandles <= 0) {
+      throw new TileDBError("Max handles must be >= 1, got: " + maxHandles);
+    }
+    this.maxHandles = maxHandles;
+    evict();
+    return this;
+  }
+
+  /**
+   * Sets the total weight above which idle handles are evicted. With the default {@link
+   * #FRAGMENT_WEIGHER} this is a number of fragments, not bytes.
+   *
+   * @param maxWeight The total weight above which idle handles are evicted
+   * @return This pool
+   * @throws TileDBError if the limit is not positive
+   */
+  public synchronized ArrayPool setMaxWeight(long maxWeight) throws TileDBError {
+    if (maxWeight <= 0) {
+      throw new TileDBError("Max weight must be >= 1, got: " + maxWeight);
+    }
+    this.maxWeight = maxWeight;
+    evict();
+    return this;
+  }
+
+  /**
+   * @param weigher Weighs the handles opened from now on
+   * @return This pool
+   */
+  public synchronized ArrayPool setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+    return this;
+  }
+
+  /**
+   * @param staleness The age from which read handles are refreshed
+   * @param unit The unit of the age
+   * @return This pool
+   */
+  public synchronized ArrayPool setStaleness(long staleness, TimeUnit unit) {
+    this.stalenessNanos = unit.toNanos(staleness);
+    return this;
+  }
+
+  /**
+   * @param checkFragments true to refresh stale handles only if their fragments changed
+   * @return This pool
+   */
+  public synchronized ArrayPool setCheckFragments(boolean checkFragments) {
+    this.checkFragments = checkFragments;
+    return this;
+  }
+
+  /**
+   * Acquires a read handle of an unencrypted array.
+   *
+   * @param uri The array URI
+   * @return The lease, to be closed when the array is no longer used
+   * @throws TileDBError A TileDB exception
+   */
+  public Lease acquire(String uri) throws TileDBError {
+    return acquire(uri, QueryType.TILEDB_READ, EncryptionType.TILEDB_NO_ENCRYPTION, new byte[] {});
+  }
+
+  /**
+   * Acquires a handle of an array.
+   *
+   * @param uri The array URI
+   * @param queryType The query type of the handle
+   * @param encryptionType The encryption type
+   * @param key The encryption key, empty if the array is not encrypted
+   * @return The lease, to be closed when the array is no longer used
+   * @throws TileDBError A TileDB exception
+   */
+  public Lease acquire(String uri, QueryType queryType, EncryptionType encryptionType, byte[] key)
+      throws TileDBError {
+    Key k = new Key(uri, queryType, encryptionType, key);
+    Handle stale = null;
+    synchronized (this) {
+      checkOpen();
+      Handle handle = handles.get(k);
+      while (handle != null && handle.refreshing) {
+        // Not leased while it is reopened; other URIs are not held up meanwhile
+        awaitRefresh();
+        checkOpen();
+        handle = handles.get(k);
+      }
+      if (handle != null) {
+        if (!isStale(handle)) {
+          handle.refs++;
+          return new Lease(handle);
+        }
+        // Refresh outside the lock, holding a reference so the handle is not evicted meanwhile
+        handle.refs++;
+        stale = handle;
+      }
+    }
+    if (stale != null) {
+      return refresh(stale);
+    }
+
+    Handle opened = open(k);
+    synchronized (this) {
+      Handle raced = closed ? null : handles.get(k);
+      if (closed || raced != null) {
+        opened.array.close();
+        checkOpen();
+        raced.refs++;
+        return new Lease(raced);
+      }
+      opened.refs = 1;
+      add(opened);
+      evict();
+      return new Lease(opened);
+    }
+  }
+
+  /** @return The number of handles held by the pool, leased or idle */
+  public synchronized int size() {
+    return handles.size();
+  }
+
+  /** @return The total weight of the handles held by the pool */
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  /** Closes the idle handles of the pool. */
+  public synchronized void evictIdle() {
+    Iterator<Handle> it = handles.values().iterator();
+    while (it.hasNext()) {
+      Handle handle = it.next();
+      if (handle.refs == 0) {
+        it.remove();
+        retire(handle);
+      }
+    }
+  }
+
+  /**
+   * Closes the pool. Idle handles are closed now, and leased handles when their lease is closed.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    for (Handle handle : new ArrayList<>(handles.values())) {
+      retire(handle);
+    }
+    handles.clear();
+  }
+
+  private Lease refresh(Handle handle) throws TileDBError {
+    FragmentState state;
+    try {
+      state = checkFragments ? fragmentState(handle.key) : null;
+    } catch (TileDBError err) {
+      release(handle);
+      throw err;
+    }
+    Weigher w;
+    boolean reopen;
+    synchronized (this) {
+      if (state != null && state.equals(handle.fragments)) {
+        handle.refreshedAt = System.nanoTime();
+        return new Lease(handle);
+      }
+      w = weigher;
+      // Only this acquire holds the handle, so no query uses it while it is reopened. Marked as
+      // refreshing, it is not leased until then, and the reopen is done outside the lock.
+      reopen = handle.refs == 1 && !handle.retired;
+      handle.refreshing = reopen;
+    }
+    if (reopen) {
+      long newWeight;
+      try {
+        handle.array.reopen();
+        if (state == null) {
+          state = fragmentState(handle.key);
+        }
+        newWeight = w.weigh(handle.array, state.fragmentNum);
+      } catch (TileDBError err) {
+        synchronized (this) {
+          handle.refreshing = false;
+          notifyAll();
+        }
+        release(handle);
+        throw err;
+      }
+      synchronized (this) {
+        handle.refreshing = false;
+        notifyAll();
+        handle.refreshedAt = System.nanoTime();
+        handle.fragments = state;
+        if (!handle.retired) {
+          weight += newWeight - handle.weight;
+        }
+        handle.weight = newWeight;
+        evict();
+        return new Lease(handle);
+      }
+    }
+
+    // Other leases use the handle: retire it and open a new one
+    synchronized (this) {
+      if (handles.get(handle.key) == handle) {
+        handles.remove(handle.key);
+        weight -= handle.weight;
+        handle.retired = true;
+      }
+    }
+    release(handle);
+    return acquire(
+        handle.key.uri, handle.key.queryType, handle.key.encryptionType, handle.key.encryptionKey);
+  }
+
+  private Handle open(Key key) throws TileDBError {
+    Array array =
+        new Array(ctx, key.uri, key.queryType, key.encryptionType, key.encryptionKey.clone());
+    try {
+      Handle handle = new Handle(key, array);
+      handle.fragments = key.queryType == QueryType.TILEDB_READ ? fragmentState(key) : null;
+      handle.weight =
+          weigher.weigh(array, handle.fragments != null ? handle.fragments.fragmentNum : -1);
+      return handle;
+    } catch (TileDBError err) {
+      array.close();
+      throw err;
+    }
+  }
+
+  private FragmentState fragmentState(Key key) throws TileDBError {
+    if (key.encryptionType != EncryptionType.TILEDB_NO_ENCRYPTION) {
+      return FragmentState.UNKNOWN;
+    }
+    try (FragmentInfo info = new FragmentInfo(ctx, key.uri)) {
+      long n = info.getFragmentNum();
+      long last = n > 0 ? info.getTimestampRange(n - 1).getSecond() : 0;
+      return new FragmentState(n, last);
+    }
+  }
+
+  private boolean isStale(Handle handle) {
+    return handle.key.queryType == QueryType.TILEDB_READ
+        && stalenessNanos != Long.MAX_VALUE
+        && System.nanoTime() - handle.refreshedAt >= stalenessNanos;
+  }
+
+  private void add(Handle handle) {
+    handles.put(handle.key, handle);
+    weight += handle.weight;
+  }
+
+  /** Evicts idle handles, least recently used first, while over a limit. */
+  private void evict() {
+    Iterator<Handle> it = handles.values().iterator();
+    while ((handles.size() > maxHandles || weight > maxWeight) && it.hasNext()) {
+      Handle handle = it.next();
+      if (handle.refs == 0) {
+        it.remove();
+        retire(handle);
+      }
+    }
+  }
+
+  /** Removes a handle from the accounting, and closes it if no lease holds it. */
+  private void retire(Handle handle) {
+    if (!handle.retired) {
+      weight -= handle.weight;
+      handle.retired = true;
+    }
+    if (handle.refs == 0) {
+      handle.array.close();
+    }
+  }
+
+  private synchronized void release(Handle handle) {
+    handle.refs--;
+    if (handle.refs == 0 && handle.retired) {
+      handle.array.close();
+    } else if (handle.refs == 0) {
+      evict();
+    }
+  }
+
+  private void awaitRefresh() throws TileDBError {
+    try {
+      wait();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new TileDBError("Interrupted waiting for an array handle to be refreshed");
+    }
+  }
+
+  private void checkOpen() throws TileDBError {
+    if (closed) {
+      throw new TileDBError("ArrayPool is closed");
+    }
+  }
+
+  /** A reference to a pooled array handle. */
+  public final class Lease implements AutoCloseable {
+    private Handle handle;
+
+    private Lease(Handle handle) {
+      this.handle = handle;
+    }
+
+    /**
+     * @return The array, to be used only until the lease is closed, and never closed directly
+     * @throws TileDBError if the lease is closed
+     */
+    public Array getArray() throws TileDBError {
+      if (handle == null) {
+        throw new TileDBError("Lease is closed");
+      }
+      return handle.array;
+    }
+
+    /** Releases the reference to the handle. */
+    @Override
+    public void close() {
+      if (handle != null) {
+        release(handle);
+        handle = null;
+      }
+    }
+  }
+
+  private static final class Handle {
+    final Key key;
+    final Array array;
+    int refs;
+    long refreshedAt;
+    long weight;
+    boolean retired;
+    boolean refreshing;
+    FragmentState fragments;
+
+    Handle(Key key, Array array) {
+      this.key = key;
+      this.array = array;
+      this.refreshedAt = System.nanoTime();
+    }
+  }
+
+  private static final class FragmentState {
+    static final FragmentState UNKNOWN = new FragmentState(-1, -1);
+
+    final long fragmentNum;
+    final long lastTimestamp;
+
+    FragmentState(long fragmentNum, long lastTimestamp) {
+      this.fragmentNum = fragmentNum;
+      this.lastTimestamp = lastTimestamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof FragmentState) || this == UNKNOWN) {
+        return false;
+      }
+      FragmentState other = (FragmentState) o;
+      return fragmentNum == other.fragmentNum && lastTimestamp == other.lastTimestamp;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(fragmentNum) * 31 + Long.hashCode(lastTimestamp);
+    }
+  }
+
+  private static final class Key {
+    final String uri;
+    final QueryType queryType;
+    final EncryptionType encryptionType;
+    final byte[] encryptionKey;
+
+    Key(String uri, QueryType queryType, EncryptionType encryptionType, byte[] encryptionKey) {
+      this.uri = uri;
+      this.queryType = queryType;
+      this.encryptionType = encryptionType;
+      this.encryptionKey = encryptionKey.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return uri.equals(other.uri)
+          && queryType == other.queryType
+          && encryptionType == other.encryptionType
+          && Arrays.equals(encryptionKey, other.encryptionKey);
+    }
+
+    @Override
+    public int hashCode() {
+      int h = uri.hashCode();
+      h = h * 31 + queryType.hashCode();
+      h = h * 31 + encryptionType.hashCode();
+      return h * 31 + Arrays.hashCode(encryptionKey);
+    }
+  }
+}
@@ -80,6 +80,7 @@ public class ArraySchema implements AutoCloseable {
 
   private SWIGTYPE_p_tiledb_array_schema_t schemap;
   private SWIGTYPE_p_p_tiledb_array_schema_t schemapp;
+  private NativeHandles.Registration handle;
 
   /**
    * Creates a new TileDB ArraySchema object
@@ -108,12 +109,18 @@ public class ArraySchema implements AutoCloseable {
     this.arrayType = type;
     this.schemap = tiledb.tiledb_array_schema_tpp_value(_schemapp);
     this.schemapp = _schemapp;
+    this.handle =
+        NativeHandles.register(
+            this, "ArraySchema", 0, () -> tiledb.tiledb_array_schema_free(_schemapp));
   }
 
   protected ArraySchema(Context ctx, SWIGTYPE_p_p_tiledb_array_schema_t schemapp) {
     this.ctx = ctx;
     this.schemap = tiledb.tiledb_array_schema_tpp_value(schemapp);
     this.schemapp = schemapp;
+    this.handle =
+        NativeHandles.register(
+            this, "ArraySchema", 0, () -> tiledb.tiledb_array_schema_free(schemapp));
   }
 
   /**
@@ -141,6 +148,9 @@ public class ArraySchema implements AutoCloseable {
     this.ctx = ctx;
     this.schemap = tiledb.tiledb_array_schema_tpp_value(_schemapp);
     this.schemapp = _schemapp;
+    this.handle =
+        NativeHandles.register(
+            this, "ArraySchema", 0, () -> tiledb.tiledb_array_schema_free(_schemapp));
   }
 
   /**
@@ -183,6 +193,9 @@ public class ArraySchema implements AutoCloseable {
     this.ctx = ctx;
     this.schemap = tiledb.tiledb_array_schema_tpp_value(_schemapp);
     this.schemapp = _schemapp;
+    this.handle =
+        NativeHandles.register(
+            this, "ArraySchema", 0, () -> tiledb.tiledb_array_schema_free(_schemapp));
   }
 
   /**
@@ -411,19 +424,19 @@ public class ArraySchema implements AutoCloseable {
   public HashMap<String, Attribute> getAttributes() throws TileDBError {
     if (attributes == null) {
       attributes = new HashMap<String, Attribute>();
-      SWIGTYPE_p_p_tiledb_attribute_t attrpp = tiledb.new_tiledb_attribute_tpp();
       SWIGTYPE_p_unsigned_int nattrp = tiledb.new_uintp();
       try {
         ctx.handleError(
             tiledb.tiledb_array_schema_get_attribute_num(ctx.getCtxp(), schemap, nattrp));
       } catch (TileDBError err) {
-        tiledb.delete_tiledb_attribute_tpp(attrpp);
         tiledb.delete_uintp(nattrp);
         throw err;
       }
       long nattr = tiledb.uintp_value(nattrp);
       tiledb.delete_uintp(nattrp);
       for (long i = 0; i < nattr; ++i) {
+        // Each attribute owns its handle, freed when it is closed or reaped
+        SWIGTYPE_p_p_tiledb_attribute_t attrpp = tiledb.new_tiledb_attribute_tpp();
         try {
           ctx.handleError(
               tiledb.tiledb_array_schema_get_attribute_from_index(
@@ -655,7 +668,7 @@ public class ArraySchema implements AutoCloseable {
   /** Free's native TileDB resources associated with the ArraySchema object */
   public void close() {
     if (schemap != null) {
-      tiledb.tiledb_array_schema_free(schemapp);
+      handle.close();
       schemap = null;
       schemapp = null;
     }
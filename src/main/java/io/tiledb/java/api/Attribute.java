@@ -71,6 +71,7 @@ public class Attribute implements AutoCloseable {
 
   private SWIGTYPE_p_tiledb_attribute_t attributep;
   private SWIGTYPE_p_p_tiledb_attribute_t attributepp;
+  private NativeHandles.Registration handle;
 
   /**
    * Construct an attribute with a name and java class type. `cellValNum` will be set to 1.
@@ -96,6 +97,9 @@ public class Attribute implements AutoCloseable {
     this.type = _type;
     this.attributep = tiledb.tiledb_attribute_tpp_value(_attributepp);
     this.attributepp = _attributepp;
+    this.handle =
+        NativeHandles.register(
+            this, "Attribute", 0, () -> tiledb.tiledb_attribute_free(_attributepp));
   }
 
   /**
@@ -119,6 +123,9 @@ public class Attribute implements AutoCloseable {
     this.type = attrType;
     this.attributep = tiledb.tiledb_attribute_tpp_value(_attributepp);
     this.attributepp = _attributepp;
+    this.handle =
+        NativeHandles.register(
+            this, "Attribute", 0, () -> tiledb.tiledb_attribute_free(_attributepp));
   }
 
   /* Constructor from native object */
@@ -126,6 +133,9 @@ public class Attribute implements AutoCloseable {
     this.ctx = ctx;
     this.attributep = tiledb.tiledb_attribute_tpp_value(attributepp);
     this.attributepp = attributepp;
+    this.handle =
+        NativeHandles.register(
+            this, "Attribute", 0, () -> tiledb.tiledb_attribute_free(attributepp));
   }
 
   protected SWIGTYPE_p_tiledb_attribute_t getAttributep() {
@@ -518,7 +528,7 @@ public class Attribute implements AutoCloseable {
   /** Free's native TileDB resources associated with the Attribute object */
   public void close() {
     if (attributep != null) {
-      tiledb.tiledb_attribute_free(attributepp);
+      handle.close();
       attributep = null;
       attributepp = null;
     }
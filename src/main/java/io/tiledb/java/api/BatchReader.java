@@ -0,0 +1,400 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.Constants.TILEDB_VAR_NUM;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the results of a read query incrementally, one batch at a time, into reusable direct
+ * ByteBuffers. Every call to {@link #next()} submits the query once and exposes the cells it
+ * returned; the query is resubmitted until it completes.
+ *
+ * <p>The buffers are allocated once and grown only when a single cell does not fit, so reading an
+ * array of any size uses a constant amount of memory. Buffers are only valid until the next call to
+ * {@link #next()}.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * try (BatchReader reader = new BatchReader(query, Arrays.asList("a1"))) {
+ *   while (reader.next()) {
+ *     ByteBuffer a1 = reader.getData("a1");
+ *     for (int i = 0; i < reader.size(); i++) {
+ *       sum += a1.getInt(i * 4);
+ *     }
+ *   }
+ * }
+ * }</pre>
+ */
+public class BatchReader implements AutoCloseable {
+
+  /** The default number of cells per batch. */
+  public static final int DEFAULT_BATCH_CELLS = 64 * 1024;
+
+  // Initial guess of the average size of a var-sized cell
+  private static final int VAR_BYTES_PER_CELL = 32;
+
+  private final Query query;
+  private final OffsetsFormat offsetsFormat;
+  private final List<Column> columns;
+  private final Map<String, Column> columnsByName;
+  private CancellationToken token;
+  private int capacity;
+  private int size;
+  private boolean completed;
+
+  /**
+   * Creates a batch reader with the default batch size.
+   *
+   * @param query A read query, with its layout and subarray already set
+   * @param fields The attributes and dimensions to read
+   * @throws TileDBError A TileDB exception
+   */
+  public BatchReader(Query query, Collection<String> fields) throws TileDBError {
+    this(query, fields, DEFAULT_BATCH_CELLS);
+  }
+
+  /**
+   * Creates a batch reader.
+   *
+   * @param query A read query, with its layout and subarray already set
+   * @param fields The attributes and dimensions to read
+   * @param batchCells The number of cells the buffers can hold per batch
+   * @throws TileDBError A TileDB exception
+   */
+  public BatchReader(Query query, Collection<String> fields, int batchCells) throws TileDBError {
+    if (fields.isEmpty()) {
+      throw new TileDBError("At least one field must be read");
+    }
+    if (batchCells <= 0) {
+      throw new TileDBError("Number of batch cells must be >= 1");
+    }
+    this.query = query;
+    this.offsetsFormat = query.getOffsetsFormat();
+    this.capacity = batchCells;
+    this.columns = new ArrayList<>(fields.size());
+    this.columnsByName = new HashMap<>();
+    SchemaSnapshot schema = query.getArray().getSchemaSnapshot();
+    for (String field : fields) {
+      Column column = describe(schema, field);
+      columns.add(column);
+      columnsByName.put(field, column);
+    }
+    allocate();
+  }
+
+  /**
+   * Submits every batch under a cancellation token.
+   *
+   * @param token The token, or null to submit without one
+   * @return This reader
+   */
+  public BatchReader setCancellationToken(CancellationToken token) {
+    this.token = token;
+    return this;
+  }
+
+  /**
+   * Dictionary-encodes a var-sized string field, including Java String attributes, which are
+   * var-sized TILEDB_CHAR. Its values can then be read as int codes with {@link
+   * #getCodes(String)}, into a dictionary shared by all batches.
+   *
+   * @param field The field name
+   * @return This reader
+   * @throws TileDBError if the field is not a var-sized string field read by this reader
+   */
+  public BatchReader setDictionaryEncoded(String field) throws TileDBError {
+    Column column = column(field);
+    if (!column.var || !column.isString()) {
+      throw new TileDBError("Only var-sized string fields can be dictionary-encoded: " + field);
+    }
+    if (column.dictionary == null) {
+      column.dictionary = new DictionaryEncoder();
+    }
+    return this;
+  }
+
+  /**
+   * Reads the next batch.
+   *
+   * @return false if the query has completed and there are no more cells
+   * @throws TileDBError A TileDB exception
+   */
+  public boolean next() throws TileDBError {
+    size = 0;
+    for (Column column : columns) {
+      column.encoded = false;
+      column.offsetsView = null;
+      column.validityView = null;
+    }
+    while (!completed) {
+      QueryStatus status = token == null ? query.submit() : query.submit(token);
+      size = countCells();
+      if (status != QueryStatus.TILEDB_INCOMPLETE) {
+        completed = true;
+      } else if (size == 0) {
+        // Not even a single cell fit in the buffers
+        grow();
+        continue;
+      }
+      return size > 0;
+    }
+    return false;
+  }
+
+  /** @return The number of cells in the current batch */
+  public int size() {
+    return size;
+  }
+
+  /** @return The fields read by this reader, in order */
+  public List<String> getFields() {
+    List<String> names = new ArrayList<>(columns.size());
+    for (Column column : columns) {
+      names.add(column.name);
+    }
+    return names;
+  }
+
+  /**
+   * Returns the data buffer of a field. Values start at position 0 and the limit is the number of
+   * bytes of the current batch; read them with absolute gets.
+   *
+   * @param field The field name
+   * @return The data buffer
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public ByteBuffer getData(String field) throws TileDBError {
+    return column(field).data;
+  }
+
+  /**
+   * Returns the offsets buffer of a var-sized field, in the {@link OffsetsFormat} of the query.
+   * With the default format it holds one 8-byte offset in bytes per cell, and the end of the last
+   * cell is the limit of the data buffer. Use {@link #getOffsetsView(String)} to read offsets
+   * whatever their format.
+   *
+   * @param field The field name
+   * @return The offsets buffer, or null if the field is fixed-sized
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public ByteBuffer getOffsets(String field) throws TileDBError {
+    return column(field).offsets;
+  }
+
+  /**
+   * Returns a view of the offsets of the current batch of a var-sized field, giving the start and
+   * end of every cell in bytes whatever the offsets format.
+   *
+   * @param field The field name
+   * @return The offsets view, or null if the field is fixed-sized
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public OffsetsView getOffsetsView(String field) throws TileDBError {
+    Column column = column(field);
+    if (!column.var) {
+      return null;
+    }
+    if (column.offsetsView == null) {
+      int unit = offsetsFormat.isElementMode() ? column.type.getNativeSize() : 1;
+      column.offsetsView =
+          OffsetsView.of(column.offsets, offsetsFormat, size, column.data.limit(), unit);
+    }
+    return column.offsetsView;
+  }
+
+  /**
+   * Returns the validity bytemap of a nullable attribute, one byte per cell of the batch, where 0
+   * means null.
+   *
+   * @param field The field name
+   * @return The validity bytemap, or null if the field is not nullable
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public ByteBuffer getValidity(String field) throws TileDBError {
+    return column(field).validity;
+  }
+
+  /**
+   * Returns a view of the validity bytemap of the current batch of a nullable attribute.
+   *
+   * @param field The field name
+   * @return The validity view, or null if the field is not nullable
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public Validity getValidityView(String field) throws TileDBError {
+    Column column = column(field);
+    if (column.validity == null) {
+      return null;
+    }
+    if (column.validityView == null) {
+      column.validityView = new Validity(column.validity, size);
+    }
+    return column.validityView;
+  }
+
+  /**
+   * Returns the dictionary codes of the current batch of a dictionary-encoded field. The codes are
+   * computed on the first call for a batch.
+   *
+   * @param field The field name
+   * @return The codes, one per cell, {@link DictionaryEncoder#NULL_CODE} for null cells; the array
+   *     is reused across batches and may be longer than the batch
+   * @throws TileDBError if the field is not dictionary-encoded
+   */
+  public int[] getCodes(String field) throws TileDBError {
+    Column column = column(field);
+    if (column.dictionary == null) {
+      throw new TileDBError("Field is not dictionary-encoded: " + field);
+    }
+    if (!column.encoded) {
+      column.codes = column.dictionary.encode(StringColumn.of(this, field), column.codes);
+      column.encoded = true;
+    }
+    return column.codes;
+  }
+
+  /**
+   * @param field The field name
+   * @return The dictionary of a dictionary-encoded field, shared by all batches
+   * @throws TileDBError if the field is not dictionary-encoded
+   */
+  public DictionaryEncoder getDictionary(String field) throws TileDBError {
+    Column column = column(field);
+    if (column.dictionary == null) {
+      throw new TileDBError("Field is not dictionary-encoded: " + field);
+    }
+    return column.dictionary;
+  }
+
+  /**
+   * @param field The field name
+   * @return The datatype of the field
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public Datatype getType(String field) throws TileDBError {
+    return column(field).type;
+  }
+
+  /**
+   * @param field The field name
+   * @return true if the field is var-sized
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public boolean isVar(String field) throws TileDBError {
+    return column(field).var;
+  }
+
+  /**
+   * @param field The field name
+   * @return The number of values per cell of a fixed-sized field
+   * @throws TileDBError if the field is not read by this reader
+   */
+  public int getCellValNum(String field) throws TileDBError {
+    return column(field).cellValNum;
+  }
+
+  /** Releases the batch buffers. The query itself is left open. */
+  @Override
+  public void close() {
+    for (Column column : columns) {
+      column.data = null;
+      column.offsets = null;
+      column.validity = null;
+    }
+  }
+
+  private Column column(String field) throws TileDBError {
+    Column column = columnsByName.get(field);
+    if (column == null) {
+      throw new TileDBError("Field is not read by this batch reader: " + field);
+    }
+    return column;
+  }
+
+  private int countCells() {
+    Column first = columns.get(0);
+    if (first.var) {
+      return offsetsFormat.cellNum(first.offsets.limit());
+    }
+    return first.data.limit() / first.cellSize;
+  }
+
+  private void grow() throws TileDBError {
+    if (capacity > Integer.MAX_VALUE / 2) {
+      throw new TileDBError("Cannot grow batch buffers beyond " + capacity + " cells");
+    }
+    capacity *= 2;
+    allocate();
+  }
+
+  private void allocate() throws TileDBError {
+    for (Column column : columns) {
+      int dataBytes = column.var ? capacity * VAR_BYTES_PER_CELL : capacity * column.cellSize;
+      column.data = allocateDirect(dataBytes);
+      column.offsets =
+          column.var ? allocateDirect((int) offsetsFormat.offsetsBytes(capacity)) : null;
+      column.validity = column.nullable ? allocateDirect(capacity) : null;
+      if (column.var && column.nullable) {
+        query.setBufferNullableNIO(column.name, column.offsets, column.data, column.validity);
+      } else if (column.var) {
+        query.setBuffer(column.name, column.offsets, column.data);
+      } else if (column.nullable) {
+        query.setBufferNullableNIO(column.name, column.data, column.validity);
+      } else {
+        query.setBuffer(column.name, column.data);
+      }
+    }
+  }
+
+  /** Looks up the type information of an attribute or dimension. */
+  static Column describe(SchemaSnapshot schema, String field) throws TileDBError {
+    SchemaSnapshot.Field f = schema.getField(field);
+    return new Column(field, f.getType(), f.getCellValNum(), f.isVar(), f.isNullable());
+  }
+
+  private ByteBuffer allocateDirect(int bytes) throws TileDBError {
+    return NativeMemory.allocateDirect(query.getArray().getUri(), bytes);
+  }
+
+  /** The type information and batch buffers of a field. */
+  static final class Column {
+    final String name;
+    final Datatype type;
+    final int cellValNum;
+    final boolean var;
+    final boolean nullable;
+    final int cellSize;
+    ByteBuffer data;
+    ByteBuffer offsets;
+    ByteBuffer validity;
+    OffsetsView offsetsView;
+    Validity validityView;
+    DictionaryEncoder dictionary;
+    int[] codes;
+    boolean encoded;
+
+    Column(String name, Datatype type, long cellValNum, boolean var, boolean nullable)
+        throws TileDBError {
+      this.name = name;
+      this.type = type;
+      this.cellValNum = var ? 1 : (int) cellValNum;
+      this.var = var || cellValNum == TILEDB_VAR_NUM;
+      this.nullable = nullable;
+      this.cellSize = this.cellValNum * type.getNativeSize();
+    }
+
+    /**
+     * @return true for string fields: the string types, and var-sized TILEDB_CHAR, the type of
+     *     Java String attributes
+     */
+    boolean isString() {
+      return type.isStringType() || (type == Datatype.TILEDB_CHAR && var);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense integer codes, in order of first appearance, to distinct byte strings.
+ *
+ * <p>Values are copied once into a single growable byte arena and looked up through an
+ * open-addressing hash table, so interning a value that is already known does not allocate.
+ */
+final class ByteDictionary {
+
+  private static final int EMPTY = -1;
+
+  private byte[] arena;
+  private int arenaSize;
+  // Start of every value in the arena; the end is the start of the next value
+  private int[] starts;
+  private int[] hashes;
+  private int size;
+  // Codes by hash slot, EMPTY for free slots
+  private int[] slots;
+  private int mask;
+
+  ByteDictionary() {
+    this(16);
+  }
+
+  ByteDictionary(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1;
+    this.arena = new byte[capacity * 8];
+    this.starts = new int[capacity + 1];
+    this.hashes = new int[capacity];
+    this.slots = new int[capacity];
+    this.mask = capacity - 1;
+    Arrays.fill(slots, EMPTY);
+  }
+
+  /** @return The number of distinct values */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the code of a value, adding it if it is new.
+   *
+   * @param buffer The buffer holding the value, read with absolute gets
+   * @param offset The offset of the first byte of the value
+   * @param length The number of bytes of the value
+   * @return The code of the value
+   */
+  int add(ByteBuffer buffer, int offset, int length) {
+    int hash = hash(buffer, offset, length);
+    int slot = hash & mask;
+    while (true) {
+      int code = slots[slot];
+      if (code == EMPTY) {
+        break;
+      }
+      if (hashes[code] == hash && equals(code, buffer, offset, length)) {
+        return code;
+      }
+      slot = (slot + 1) & mask;
+    }
+    ensureArena(length);
+    for (int i = 0; i < length; i++) {
+      arena[arenaSize + i] = buffer.get(offset + i);
+    }
+    return insert(slot, hash, length);
+  }
+
+  /**
+   * Returns the code of a value, adding it if it is new.
+   *
+   * @param bytes The value
+   * @return The code of the value
+   */
+  int add(byte[] bytes) {
+    return add(ByteBuffer.wrap(bytes), 0, bytes.length);
+  }
+
+  /**
+   * Returns the code of a value without adding it.
+   *
+   * @param bytes The value
+   * @return The code of the value, or -1 if it is unknown
+   */
+  int find(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    int hash = hash(buffer, 0, bytes.length);
+    for (int slot = hash & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+      int code = slots[slot];
+      if (hashes[code] == hash && equals(code, buffer, 0, bytes.length)) {
+        return code;
+      }
+    }
+    return EMPTY;
+  }
+
+  /** @return The number of bytes of the value of a code */
+  int length(int code) {
+    return starts[code + 1] - starts[code];
+  }
+
+  /** @return A copy of the bytes of the value of a code */
+  byte[] getBytes(int code) {
+    return Arrays.copyOfRange(arena, starts[code], starts[code + 1]);
+  }
+
+  /** Copies the bytes of the value of a code into a buffer at its current position. */
+  void copyTo(int code, ByteBuffer out) {
+    out.put(arena, starts[code], length(code));
+  }
+
+  /** @return The value of a code decoded as UTF-8 */
+  String getString(int code) {
+    return new String(arena, starts[code], length(code), StandardCharsets.UTF_8);
+  }
+
+  private int insert(int slot, int hash, int length) {
+    int code = size++;
+    if (code + 1 >= starts.length) {
+      starts = Arrays.copyOf(starts, starts.length * 2);
+    }
+    if (code >= hashes.length) {
+      hashes = Arrays.copyOf(hashes, hashes.length * 2);
+    }
+    arenaSize += length;
+    starts[code + 1] = arenaSize;
+    hashes[code] = hash;
+    slots[slot] = code;
+    // Keep the load factor at or below one half
+    if (size * 2 > slots.length) {
+      rehash();
+    }
+    return code;
+  }
+
+  private void rehash() {
+    slots = new int[slots.length * 2];
+    mask = slots.length - 1;
+    Arrays.fill(slots, EMPTY);
+    for (int code = 0; code < size; code++) {
+      int slot = hashes[code] & mask;
+      while (slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = code;
+    }
+  }
+
+  private void ensureArena(int length) {
+    long needed = (long) arenaSize + length;
+    if (needed > arena.length) {
+      if (needed > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Dictionary exceeds 2GB of values");
+      }
+      arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, needed * 2));
+    }
+  }
+
+  private boolean equals(int code, ByteBuffer buffer, int offset, int length) {
+    int start = starts[code];
+    if (starts[code + 1] - start != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (arena[start + i] != buffer.get(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash(ByteBuffer buffer, int offset, int length) {
+    // FNV-1a, then mixed so that linear probing sees well spread low bits
+    int h = 0x811c9dc5;
+    for (int i = 0; i < length; i++) {
+      h = (h ^ buffer.get(offset + i)) * 0x01000193;
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    return h;
+  }
+}
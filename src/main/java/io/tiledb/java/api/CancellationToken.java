@@ -0,0 +1,129 @@
+package io.tiledb.java.api;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A cancellation handle shared by one or more query submissions. Cancelling the token cancels the
+ * tasks of every Context that currently has a query submitted under it, and makes any later
+ * submission under the token fail immediately.
+ *
+ * <p>TileDB cancels tasks per Context, so cancelling a token also interrupts any other query
+ * running on the same Context at that time. Use a dedicated Context for queries that must be shed
+ * independently.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * try (CancellationToken token = CancellationToken.withTimeout(Duration.ofSeconds(2))) {
+ *   query.submit(token);
+ * }
+ * }</pre>
+ */
+public class CancellationToken implements AutoCloseable {
+
+  private final AtomicBoolean cancelled;
+  private final List<Context> active;
+  private volatile String reason;
+  private volatile ScheduledFuture<?> deadline;
+
+  /** Creates a token which is only cancelled through {@link #cancel()}. */
+  public CancellationToken() {
+    this.cancelled = new AtomicBoolean(false);
+    this.active = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Creates a token which is cancelled automatically by the query watchdog once the timeout
+   * elapses.
+   *
+   * @param timeout The maximum time work submitted under the token may run
+   * @return The token
+   * @throws TileDBError if the timeout is negative
+   */
+  public static CancellationToken withTimeout(Duration timeout) throws TileDBError {
+    if (timeout.isNegative()) {
+      throw new TileDBError("Query timeout must be >= 0, got: " + timeout);
+    }
+    CancellationToken token = new CancellationToken();
+    token.deadline = QueryWatchdog.schedule(token, timeout);
+    return token;
+  }
+
+  /**
+   * Cancels the token, and the tasks of all contexts with queries running under it.
+   *
+   * @exception TileDBError A TileDB exception
+   */
+  public void cancel() throws TileDBError {
+    cancel("Query cancelled");
+  }
+
+  /** @return true if the token has been cancelled, either explicitly or by its deadline */
+  public boolean isCancelled() {
+    return cancelled.get();
+  }
+
+  /**
+   * Throws if the token has been cancelled.
+   *
+   * @throws TileDBError if the token has been cancelled
+   */
+  public void throwIfCancelled() throws TileDBError {
+    if (cancelled.get()) {
+      throw new TileDBError("[TileDB::JavaAPI] " + reason);
+    }
+  }
+
+  /** Stops the deadline timer of the token, if any. The token itself is left untouched. */
+  @Override
+  public void close() {
+    ScheduledFuture<?> timer = deadline;
+    if (timer != null) {
+      timer.cancel(false);
+      deadline = null;
+    }
+  }
+
+  synchronized void cancel(String reason) throws TileDBError {
+    if (cancelled.get()) {
+      return;
+    }
+    // Publish the reason before the flag, so readers observing the flag also see the reason
+    this.reason = reason;
+    cancelled.set(true);
+    TileDBError first = null;
+    for (Context ctx : active) {
+      try {
+        ctx.cancelTasks();
+      } catch (TileDBError err) {
+        if (first == null) {
+          first = err;
+        }
+      }
+    }
+    if (first != null) {
+      throw first;
+    }
+  }
+
+  /**
+   * Registers a context with work in flight under the token. The context is registered before the
+   * cancelled flag is checked, so a concurrent cancel either sees the context or the caller sees
+   * the flag.
+   */
+  void register(Context ctx) throws TileDBError {
+    active.add(ctx);
+    if (cancelled.get()) {
+      active.remove(ctx);
+      throwIfCancelled();
+    }
+  }
+
+  void unregister(Context ctx) {
+    active.remove(ctx);
+  }
+}
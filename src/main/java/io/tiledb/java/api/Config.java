@@ -47,7 +47,10 @@ import java.util.Map;
 public class Config implements AutoCloseable {
 
   private SWIGTYPE_p_p_tiledb_config_t configpp;
+  private NativeHandles.Registration handle;
   private SWIGTYPE_p_tiledb_config_t configp;
+  // The parameters as a ContextRegistry key, computed on first use and reset by set and unset
+  private ContextRegistry.Key registryKey;
 
   /**
    * Constructor from native object handle
@@ -56,6 +59,8 @@ public class Config implements AutoCloseable {
    */
   protected Config(SWIGTYPE_p_p_tiledb_config_t configpp) {
     this.configpp = configpp;
+    this.handle =
+        NativeHandles.register(this, "Config", 0, () -> tiledb.tiledb_config_free(configpp));
     this.configp = tiledb.tiledb_config_tpp_value(configpp);
   }
 
@@ -77,6 +82,8 @@ public class Config implements AutoCloseable {
     }
     tiledb.delete_tiledb_error_tpp(_errorpp);
     this.configpp = _configpp;
+    this.handle =
+        NativeHandles.register(this, "Config", 0, () -> tiledb.tiledb_config_free(_configpp));
     this.configp = tiledb.tiledb_config_tpp_value(_configpp);
   }
 
@@ -157,6 +164,8 @@ public class Config implements AutoCloseable {
     tiledb.delete_tiledb_error_tpp(_errorpp);
     this.configp = _configp;
     this.configpp = _configpp;
+    this.handle =
+        NativeHandles.register(this, "Config", 0, () -> tiledb.tiledb_config_free(_configpp));
   }
 
   /**
@@ -200,6 +209,7 @@ public class Config implements AutoCloseable {
       int rc = tiledb.tiledb_config_set(configp, parameter, value, errorpp);
       checkConfigError(rc, errorpp);
     } finally {
+      registryKey = null;
       tiledb.delete_tiledb_error_tpp(errorpp);
     }
   }
@@ -216,6 +226,7 @@ public class Config implements AutoCloseable {
       int rc = tiledb.tiledb_config_unset(configp, parameter, errorpp);
       checkConfigError(rc, errorpp);
     } finally {
+      registryKey = null;
       tiledb.delete_tiledb_error_tpp(errorpp);
     }
   }
@@ -345,6 +356,20 @@ public class Config implements AutoCloseable {
     }
   }
 
+  /**
+   * @return The parameters as a {@link ContextRegistry} key, only read from TileDB again after a
+   *     parameter is set or unset
+   * @throws TileDBError A TileDB exception
+   */
+  ContextRegistry.Key registryKey() throws TileDBError {
+    ContextRegistry.Key key = registryKey;
+    if (key == null) {
+      key = new ContextRegistry.Key(parameters());
+      registryKey = key;
+    }
+    return key;
+  }
+
   /** @return Swig wrapper object to a tiledb_config_t pointer */
   protected SWIGTYPE_p_tiledb_config_t getConfigp() {
     return configp;
@@ -354,7 +379,7 @@ public class Config implements AutoCloseable {
   @Override
   public void close() {
     if (configp != null) {
-      tiledb.tiledb_config_free(configpp);
+      handle.close();
       configp = null;
       configpp = null;
     }
@@ -57,6 +57,7 @@ import java.util.Map;
 public class Context implements AutoCloseable {
 
   private SWIGTYPE_p_p_tiledb_ctx_t ctxpp;
+  private NativeHandles.Registration handle;
   private SWIGTYPE_p_tiledb_ctx_t ctxp;
   private ContextCallback errorHandler;
 
@@ -161,6 +162,19 @@ public class Context implements AutoCloseable {
     return isSupported;
   }
 
+  /**
+   * Cancels all background and async tasks associated with the context, e.g. in-flight query
+   * submissions. Queries interrupted by a cancellation fail with a TileDBError.
+   *
+   * <p>Cancellation applies to the whole context, so every query currently running on it is
+   * affected.
+   *
+   * @exception TileDBError A TileDB exception
+   */
+  public void cancelTasks() throws TileDBError {
+    handleError(tiledb.tiledb_ctx_cancel_tasks(ctxp));
+  }
+
   private void createContext(Config config) throws TileDBError {
     SWIGTYPE_p_p_tiledb_ctx_t _ctxpp = tiledb.new_tiledb_ctx_tpp();
     if (tiledb.tiledb_ctx_alloc(config.getConfigp(), _ctxpp) != tiledb.TILEDB_OK) {
@@ -168,6 +182,8 @@ public class Context implements AutoCloseable {
       throw new TileDBError("[TileDB::JavaAPI] Error: Failed to create context");
     }
     this.ctxpp = _ctxpp;
+    this.handle =
+        NativeHandles.register(this, "Context", 0, () -> tiledb.tiledb_ctx_free(_ctxpp));
     this.ctxp = tiledb.tiledb_ctx_tpp_value(_ctxpp);
     this.errorHandler = new ContextCallback();
 
@@ -246,7 +262,7 @@ public class Context implements AutoCloseable {
    */
   public void close() {
     if (ctxp != null) {
-      tiledb.tiledb_ctx_free(ctxpp);
+      handle.close();
       ctxp = null;
       ctxpp = null;
     }
@@ -0,0 +1,257 @@
+package io.tiledb.java.api;
+
+import io.tiledb.libtiledb.tiledb;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hands out contexts shared by all code using the same configuration, so services do not create a
+ * context, and its compute and IO thread pools, per request.
+ *
+ * <p>Contexts are keyed by their effective configuration, every parameter including defaults, so
+ * two configs that differ only in parameters set to their default values share a context. The key
+ * of a {@link Config} is read from TileDB once and kept until one of its parameters is set, so a
+ * config should be reused across calls; the key of the default configuration is read once per
+ * registry.
+ *
+ * <p>TileDB keeps the last error of a context in one slot, which {@link Context#handleError(int)}
+ * reads after a failed call. When threads share a context, a failure on one thread can overwrite
+ * the message of a failure on another before it is read. With {@link Affinity#PER_THREAD} each
+ * thread gets its own context per configuration, so every error is read from the context of the
+ * call that failed. {@link Affinity#SHARED} shares one context per configuration across threads:
+ * fewer thread pools, at the cost of error messages that may belong to a concurrent call when two
+ * calls fail at once.
+ *
+ * <p>The registry owns its contexts: closing one is a no-op, and they are all freed when the
+ * registry is closed. Objects created from a context, such as arrays and queries, must be closed
+ * before.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * ContextRegistry contexts = new ContextRegistry(ContextRegistry.Affinity.PER_THREAD);
+ * // In each worker thread
+ * Context ctx = contexts.get(config);
+ * try (Array array = new Array(ctx, uri)) {
+ *   ...
+ * }
+ * }</pre>
+ */
+public class ContextRegistry implements AutoCloseable {
+
+  /** How contexts are shared between threads. */
+  public enum Affinity {
+    /** One context per configuration, shared by all threads. */
+    SHARED,
+    /** One context per configuration and per thread. */
+    PER_THREAD
+  }
+
+  private final Affinity affinity;
+  private final Map<Key, RegisteredContext> shared;
+  private final ThreadLocal<Map<Key, RegisteredContext>> perThread;
+  private final List<RegisteredContext> all;
+  private volatile Key defaultKey;
+  private boolean closed;
+
+  /**
+   * Creates a registry.
+   *
+   * @param affinity How contexts are shared between threads
+   */
+  public ContextRegistry(Affinity affinity) {
+    this.affinity = affinity;
+    this.shared = new HashMap<>();
+    this.perThread = ThreadLocal.withInitial(HashMap::new);
+    this.all = new ArrayList<>();
+  }
+
+  /** @return How contexts are shared between threads */
+  public Affinity getAffinity() {
+    return affinity;
+  }
+
+  /**
+   * @return The context of the default configuration
+   * @throws TileDBError if the registry is closed or the context cannot be created
+   */
+  public Context get() throws TileDBError {
+    Key key = defaultKey;
+    if (key != null) {
+      return get(key, null);
+    }
+    try (Config config = new Config()) {
+      key = config.registryKey();
+      defaultKey = key;
+      return get(key, config);
+    }
+  }
+
+  /**
+   * @param config TileDB setting, value string pairs
+   * @return The context of the configuration
+   * @throws TileDBError if the registry is closed or the context cannot be created
+   */
+  public Context get(Map<String, String> config) throws TileDBError {
+    try (Config tiledbConfig = new Config(config)) {
+      return get(tiledbConfig);
+    }
+  }
+
+  /**
+   * @param config The configuration, which may be closed afterwards
+   * @return The context of the configuration
+   * @throws TileDBError if the registry is closed or the context cannot be created
+   */
+  public Context get(Config config) throws TileDBError {
+    return get(config.registryKey(), config);
+  }
+
+  /**
+   * @param key The key of the configuration
+   * @param config The configuration, or null for the default configuration
+   */
+  private Context get(Key key, Config config) throws TileDBError {
+    if (affinity == Affinity.SHARED) {
+      synchronized (this) {
+        checkOpen();
+        RegisteredContext ctx = shared.get(key);
+        if (ctx == null) {
+          ctx = create(config, true);
+          shared.put(key, ctx);
+          all.add(ctx);
+        }
+        return ctx;
+      }
+    }
+    Map<Key, RegisteredContext> contexts = perThread.get();
+    RegisteredContext ctx = contexts.get(key);
+    if (ctx == null) {
+      synchronized (this) {
+        checkOpen();
+        ctx = create(config, false);
+        all.add(ctx);
+      }
+      contexts.put(key, ctx);
+    } else if (ctx.released) {
+      throw new TileDBError("ContextRegistry is closed");
+    }
+    return ctx;
+  }
+
+  /**
+   * Frees the contexts of the current thread, for a thread that will not use the registry anymore.
+   * Objects created from them must be closed before. Does nothing for a shared registry.
+   */
+  public void releaseCurrentThread() {
+    if (affinity == Affinity.SHARED) {
+      return;
+    }
+    Map<Key, RegisteredContext> contexts = perThread.get();
+    synchronized (this) {
+      for (RegisteredContext ctx : contexts.values()) {
+        all.remove(ctx);
+        ctx.release();
+      }
+    }
+    contexts.clear();
+    perThread.remove();
+  }
+
+  /** @return The number of live contexts */
+  public synchronized int size() {
+    return all.size();
+  }
+
+  /** Frees every context of the registry. Objects created from them must be closed before. */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    for (RegisteredContext ctx : all) {
+      ctx.release();
+    }
+    all.clear();
+    shared.clear();
+  }
+
+  private static RegisteredContext create(Config config, boolean shared) throws TileDBError {
+    if (config != null) {
+      return new RegisteredContext(config, shared);
+    }
+    try (Config defaults = new Config()) {
+      return new RegisteredContext(defaults, shared);
+    }
+  }
+
+  private void checkOpen() throws TileDBError {
+    if (closed) {
+      throw new TileDBError("ContextRegistry is closed");
+    }
+  }
+
+  /** The effective parameters of a configuration, with their hash computed once. */
+  static final class Key {
+    private final Map<String, String> parameters;
+    private final int hash;
+
+    Key(Map<String, String> parameters) {
+      this.parameters = Collections.unmodifiableMap(new TreeMap<>(parameters));
+      this.hash = this.parameters.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hash == other.hash && parameters.equals(other.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** A context owned by the registry, which callers cannot close. */
+  private static final class RegisteredContext extends Context {
+    private final boolean shared;
+    private volatile boolean released;
+
+    RegisteredContext(Config config, boolean shared) throws TileDBError {
+      super(config);
+      this.shared = shared;
+    }
+
+    @Override
+    public void handleError(int rc) throws TileDBError {
+      if (rc == tiledb.TILEDB_OK) {
+        return;
+      }
+      if (!shared) {
+        super.handleError(rc);
+        return;
+      }
+      // Read and free the last error as a whole, so concurrent failures do not interleave
+      synchronized (this) {
+        super.handleError(rc);
+      }
+    }
+
+    @Override
+    public void close() {}
+
+    void release() {
+      released = true;
+      super.close();
+    }
+  }
+}
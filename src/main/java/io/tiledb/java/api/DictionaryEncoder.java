@@ -0,0 +1,143 @@
+package io.tiledb.java.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes the values of a string field as dense int codes into a dictionary of distinct values.
+ *
+ * <p>Values are hashed and compared on their raw UTF-8 bytes in the result buffers, so encoding a
+ * value that is already in the dictionary does not allocate. Each distinct value is decoded to a
+ * String at most once, on request, and the same String instance is returned for every cell with
+ * that value. The dictionary is kept across calls, so the codes of successive batches of a
+ * {@link BatchReader} share it and can be grouped or joined on directly.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * reader.setDictionaryEncoded("country");
+ * while (reader.next()) {
+ *   int[] codes = reader.getCodes("country");
+ *   for (int i = 0; i < reader.size(); i++) {
+ *     counts[codes[i]]++;
+ *   }
+ * }
+ * String first = reader.getDictionary("country").getValue(0);
+ * }</pre>
+ */
+public class DictionaryEncoder {
+
+  /** The code of null cells. */
+  public static final int NULL_CODE = -1;
+
+  private final ByteDictionary dictionary;
+  private final int maxSize;
+  private String[] values;
+
+  /** Creates an encoder without a limit on the number of distinct values. */
+  public DictionaryEncoder() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates an encoder that fails once the number of distinct values exceeds a limit, for fields
+   * that turn out not to be low-cardinality.
+   *
+   * @param maxSize The maximum number of distinct values
+   */
+  public DictionaryEncoder(int maxSize) {
+    this.dictionary = new ByteDictionary();
+    this.maxSize = maxSize;
+    this.values = new String[16];
+  }
+
+  /**
+   * Encodes every row of a column.
+   *
+   * @param column The column
+   * @param codes An array to reuse for the codes, or null
+   * @return The codes, {@link #NULL_CODE} for null rows; the array may be longer than the column
+   * @throws TileDBError if the number of distinct values exceeds the limit
+   */
+  public int[] encode(StringColumn column, int[] codes) throws TileDBError {
+    int n = column.size();
+    if (codes == null || codes.length < n) {
+      codes = new int[n];
+    }
+    for (int i = 0; i < n; i++) {
+      codes[i] = encode(column, i);
+    }
+    return codes;
+  }
+
+  /**
+   * Encodes a row of a column.
+   *
+   * @param column The column
+   * @param row The row index
+   * @return The code, {@link #NULL_CODE} if the row is null
+   * @throws TileDBError if the number of distinct values exceeds the limit
+   */
+  public int encode(StringColumn column, int row) throws TileDBError {
+    if (column.isNull(row)) {
+      return NULL_CODE;
+    }
+    int start = column.start(row);
+    int code = dictionary.add(column.getData(), start, column.end(row) - start);
+    if (code >= maxSize) {
+      throw new TileDBError("Dictionary exceeds " + maxSize + " distinct values");
+    }
+    return code;
+  }
+
+  /** @return The number of distinct values */
+  public int size() {
+    return dictionary.size();
+  }
+
+  /**
+   * @param code The code
+   * @return The value of the code, decoded once and interned
+   */
+  public String getValue(int code) {
+    if (code == NULL_CODE) {
+      return null;
+    }
+    if (code >= values.length) {
+      values = Arrays.copyOf(values, Math.max(code + 1, values.length * 2));
+    }
+    String value = values[code];
+    if (value == null) {
+      value = dictionary.getString(code);
+      values[code] = value;
+    }
+    return value;
+  }
+
+  /**
+   * @param code The code
+   * @return A copy of the UTF-8 bytes of the value of the code
+   */
+  public byte[] getBytes(int code) {
+    return dictionary.getBytes(code);
+  }
+
+  /**
+   * Looks up the code of a value without adding it.
+   *
+   * @param value The value
+   * @return The code, or {@link #NULL_CODE} if the value has not been seen
+   */
+  public int getCode(String value) {
+    return dictionary.find(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** @return All values, indexed by code */
+  public String[] getValues() {
+    String[] all = new String[size()];
+    for (int code = 0; code < all.length; code++) {
+      all[code] = getValue(code);
+    }
+    return all;
+  }
+}
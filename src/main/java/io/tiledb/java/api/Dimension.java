@@ -50,6 +50,7 @@ public class Dimension<T> implements AutoCloseable {
 
   private SWIGTYPE_p_tiledb_dimension_t dimensionp;
   private SWIGTYPE_p_p_tiledb_dimension_t dimensionpp;
+  private NativeHandles.Registration handle;
 
   /**
    * Constructor from native object
@@ -60,6 +61,9 @@ public class Dimension<T> implements AutoCloseable {
   protected Dimension(Context ctx, SWIGTYPE_p_p_tiledb_dimension_t dimensionpp) {
     this.ctx = ctx;
     this.dimensionpp = dimensionpp;
+    this.handle =
+        NativeHandles.register(
+            this, "Dimension", 0, () -> tiledb.tiledb_dimension_free(dimensionpp));
     this.dimensionp = tiledb.tiledb_dimension_tpp_value(dimensionpp);
   }
 
@@ -128,6 +132,9 @@ public class Dimension<T> implements AutoCloseable {
     this.type = dimType;
     this.dimensionp = tiledb.tiledb_dimension_tpp_value(dimensionpp);
     this.dimensionpp = dimensionpp;
+    this.handle =
+        NativeHandles.register(
+            this, "Dimension", 0, () -> tiledb.tiledb_dimension_free(dimensionpp));
   }
 
   protected SWIGTYPE_p_tiledb_dimension_t getDimensionp() {
@@ -309,7 +316,7 @@ public class Dimension<T> implements AutoCloseable {
   /** Free's native TileDB resources associated with the Dimension object */
   public void close() {
     if (dimensionp != null) {
-      tiledb.tiledb_dimension_free(dimensionpp);
+      handle.close();
       dimensionp = null;
       dimensionpp = null;
     }
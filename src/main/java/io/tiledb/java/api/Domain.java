@@ -64,10 +64,13 @@ public class Domain implements AutoCloseable {
 
   private SWIGTYPE_p_p_tiledb_domain_t domainpp;
   private SWIGTYPE_p_tiledb_domain_t domainp;
+  private NativeHandles.Registration handle;
 
   protected Domain(Context ctx, SWIGTYPE_p_p_tiledb_domain_t domainpp) {
     this.ctx = ctx;
     this.domainpp = domainpp;
+    this.handle =
+        NativeHandles.register(this, "Domain", 0, () -> tiledb.tiledb_domain_free(domainpp));
     this.domainp = tiledb.tiledb_domain_tpp_value(domainpp);
   }
 
@@ -82,6 +85,8 @@ public class Domain implements AutoCloseable {
     this.ctx = ctx;
     this.domainp = tiledb.tiledb_domain_tpp_value(_domainpp);
     this.domainpp = _domainpp;
+    this.handle =
+        NativeHandles.register(this, "Domain", 0, () -> tiledb.tiledb_domain_free(_domainpp));
   }
 
   protected SWIGTYPE_p_tiledb_domain_t getDomainp() {
@@ -288,7 +293,7 @@ public class Domain implements AutoCloseable {
   /** Free's native TileDB resources associated with the Domain object */
   public void close() {
     if (domainp != null) {
-      tiledb.tiledb_domain_free(domainpp);
+      handle.close();
     }
     if (dimensions != null) {
       for (Dimension d : dimensions) {
@@ -0,0 +1,77 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+/**
+ * A zero-copy view of the results of a FLOAT64 field.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * DoubleColumn a1 = query.getDoubleColumn("a1");
+ * double sum = 0;
+ * for (int i = 0; i < a1.size(); i++) {
+ *   sum += a1.get(i);
+ * }
+ * }</pre>
+ */
+public final class DoubleColumn extends NumericColumn {
+
+  private final DoubleBuffer values;
+
+  /**
+   * Creates a view over result buffers, with one value per 8 bytes up to the data limit.
+   *
+   * @param data The data buffer
+   * @param validity The validity bytemap, or null if the field is not nullable
+   */
+  public DoubleColumn(ByteBuffer data, ByteBuffer validity) {
+    super(data.limit() / Double.BYTES, validity);
+    this.values = nativeOrder(data).asDoubleBuffer();
+  }
+
+  /**
+   * Creates a view over the current batch of a field of a batch reader.
+   *
+   * @param reader The batch reader
+   * @param field The field name
+   * @return The view
+   * @throws TileDBError if the field is not FLOAT64, or not read by the reader
+   */
+  public static DoubleColumn of(BatchReader reader, String field) throws TileDBError {
+    Datatype type = reader.getType(field);
+    checkFixed(reader, field);
+    checkType(field, type, type == Datatype.TILEDB_FLOAT64, "DoubleColumn");
+    return new DoubleColumn(reader.getData(field), reader.getValidity(field));
+  }
+
+  /**
+   * @param i The value index
+   * @return The value
+   */
+  public double get(int i) {
+    return values.get(i);
+  }
+
+  /**
+   * Copies values to an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void copyTo(int from, double[] dst, int offset, int length) {
+    DoubleBuffer view = values.duplicate();
+    view.position(from);
+    view.get(dst, offset, length);
+  }
+
+  /** @return A copy of the values */
+  public double[] toArray() {
+    double[] array = new double[size()];
+    copyTo(0, array, 0, array.length);
+    return array;
+  }
+}
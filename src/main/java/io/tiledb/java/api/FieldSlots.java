@@ -0,0 +1,140 @@
+package io.tiledb.java.api;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The attributes and dimensions of a query, described once from the array schema and numbered by
+ * slot. A slot indexes plain arrays, so code that resolves names to slots up front looks fields up
+ * without hashing names or opening the schema again.
+ *
+ * <p>A FieldSlots is immutable and can be shared across threads and queries on the same array.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * FieldSlots slots = FieldSlots.of(array, "d1", "a1");
+ * int a1 = slots.slot("a1");
+ * }</pre>
+ */
+public final class FieldSlots {
+
+  private final String[] names;
+  private final Datatype[] types;
+  private final int[] cellValNums;
+  private final boolean[] var;
+  private final boolean[] nullable;
+  private final Map<String, Integer> slotsByName;
+
+  /**
+   * Describes fields of an array.
+   *
+   * @param array The array
+   * @param fields The attribute and dimension names, numbered in this order
+   * @throws TileDBError if a field is not in the array schema, or is listed twice
+   */
+  public FieldSlots(Array array, Collection<String> fields) throws TileDBError {
+    int n = fields.size();
+    this.names = fields.toArray(new String[0]);
+    this.types = new Datatype[n];
+    this.cellValNums = new int[n];
+    this.var = new boolean[n];
+    this.nullable = new boolean[n];
+    this.slotsByName = new HashMap<>(n * 2);
+    SchemaSnapshot schema = array.getSchemaSnapshot();
+    for (int slot = 0; slot < n; slot++) {
+      String name = names[slot];
+      if (slotsByName.put(name, slot) != null) {
+        throw new TileDBError("Field is listed twice: " + name);
+      }
+      if (!schema.hasField(name)) {
+        throw new TileDBError("Field is not in the array schema: " + name);
+      }
+      SchemaSnapshot.Field field = schema.getField(name);
+      types[slot] = field.getType();
+      var[slot] = field.isVar();
+      cellValNums[slot] = field.isVar() ? 0 : (int) field.getCellValNum();
+      nullable[slot] = field.isNullable();
+    }
+  }
+
+  /**
+   * Describes fields of an array.
+   *
+   * @param array The array
+   * @param fields The attribute and dimension names, numbered in this order
+   * @return The slots
+   * @throws TileDBError if a field is not in the array schema, or is listed twice
+   */
+  public static FieldSlots of(Array array, String... fields) throws TileDBError {
+    return new FieldSlots(array, Arrays.asList(fields));
+  }
+
+  /** @return The number of fields */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Resolves a field name, once, to its slot.
+   *
+   * @param name The field name
+   * @return The slot
+   * @throws TileDBError if the field is not one of these fields
+   */
+  public int slot(String name) throws TileDBError {
+    Integer slot = slotsByName.get(name);
+    if (slot == null) {
+      throw new TileDBError("Field has no slot: " + name);
+    }
+    return slot;
+  }
+
+  /** @return The field names, in slot order */
+  public List<String> getNames() {
+    return Arrays.asList(names.clone());
+  }
+
+  /**
+   * @param slot The slot
+   * @return The field name
+   */
+  public String getName(int slot) {
+    return names[slot];
+  }
+
+  /**
+   * @param slot The slot
+   * @return The datatype of the field
+   */
+  public Datatype getType(int slot) {
+    return types[slot];
+  }
+
+  /**
+   * @param slot The slot
+   * @return The number of values per cell, or 0 if the field is var-sized
+   */
+  public int getCellValNum(int slot) {
+    return cellValNums[slot];
+  }
+
+  /**
+   * @param slot The slot
+   * @return true if the field is var-sized
+   */
+  public boolean isVar(int slot) {
+    return var[slot];
+  }
+
+  /**
+   * @param slot The slot
+   * @return true if the field is a nullable attribute
+   */
+  public boolean isNullable(int slot) {
+    return nullable[slot];
+  }
+}
@@ -8,6 +8,7 @@ public class FilterList implements AutoCloseable {
 
   private SWIGTYPE_p_tiledb_filter_list_t filter_listp;
   private SWIGTYPE_p_p_tiledb_filter_list_t filter_listpp;
+  private NativeHandles.Registration handle;
 
   public FilterList(Context ctx) throws TileDBError {
     SWIGTYPE_p_p_tiledb_filter_list_t _filter_listpp = tiledb.new_tiledb_filter_list_tpp();
@@ -20,12 +21,18 @@ public class FilterList implements AutoCloseable {
     this.ctx = ctx;
     this.filter_listp = tiledb.tiledb_filter_list_tpp_value(_filter_listpp);
     this.filter_listpp = _filter_listpp;
+    this.handle =
+        NativeHandles.register(
+            this, "FilterList", 0, () -> tiledb.tiledb_filter_list_free(_filter_listpp));
   }
 
   protected FilterList(Context ctx, SWIGTYPE_p_p_tiledb_filter_list_t filter_listpp) {
     this.ctx = ctx;
     this.filter_listp = tiledb.tiledb_filter_list_tpp_value(filter_listpp);
     this.filter_listpp = filter_listpp;
+    this.handle =
+        NativeHandles.register(
+            this, "FilterList", 0, () -> tiledb.tiledb_filter_list_free(filter_listpp));
   }
 
   protected SWIGTYPE_p_tiledb_filter_list_t getFilterListp() {
@@ -128,7 +135,7 @@ public class FilterList implements AutoCloseable {
 
   public void close() {
     if (filter_listp != null && filter_listpp != null) {
-      tiledb.tiledb_filter_list_free(filter_listpp);
+      handle.close();
       filter_listp = null;
       filter_listpp = null;
     }
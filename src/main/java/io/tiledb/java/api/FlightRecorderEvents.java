@@ -0,0 +1,74 @@
+package io.tiledb.java.api;
+
+/**
+ * Emits Java Flight Recorder events for array, query and VFS operations, so that TileDB work lines
+ * up with GC and thread events on the recording timeline.
+ *
+ * <p>This is the Java 8 version, which emits nothing. The multi-release jar carries a Java 11
+ * version under META-INF/versions/11 which emits {@code jdk.jfr} events, named io.tiledb.Array,
+ * io.tiledb.Query and io.tiledb.VFS, whenever a recording enables them.
+ *
+ * <p>A begin method returns an event, or null if the event is not enabled, in which case callers
+ * skip gathering the details of the event and the commit methods do nothing.
+ */
+final class FlightRecorderEvents {
+
+  private FlightRecorderEvents() {}
+
+  /** @return An array event, or null if not enabled */
+  static Object beginArray() {
+    return null;
+  }
+
+  /** @return A query event, or null if not enabled */
+  static Object beginQuery() {
+    return null;
+  }
+
+  /** @return A VFS event, or null if not enabled */
+  static Object beginVfs() {
+    return null;
+  }
+
+  /**
+   * Commits an array event.
+   *
+   * @param event The event, or null
+   * @param operation The operation, such as "open"
+   * @param uri The array URI
+   * @param queryType The query type the array is open for, or null
+   */
+  static void commitArray(Object event, String operation, String uri, String queryType) {}
+
+  /**
+   * Commits a query event.
+   *
+   * @param event The event, or null
+   * @param operation The operation, such as "submit"
+   * @param uri The array URI
+   * @param queryType The query type
+   * @param layout The layout, or null
+   * @param fields The fields with buffers set, comma separated
+   * @param bytes The bytes of the buffers set
+   * @param status The status after the operation, or null
+   */
+  static void commitQuery(
+      Object event,
+      String operation,
+      String uri,
+      String queryType,
+      String layout,
+      String fields,
+      long bytes,
+      String status) {}
+
+  /**
+   * Commits a VFS event.
+   *
+   * @param event The event, or null
+   * @param operation The operation, such as "read"
+   * @param uri The file URI
+   * @param bytes The bytes read or written
+   */
+  static void commitVfs(Object event, String operation, String uri, long bytes) {}
+}
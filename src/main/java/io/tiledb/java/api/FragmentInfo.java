@@ -3,7 +3,7 @@ package io.tiledb.java.api;
 import io.tiledb.libtiledb.*;
 import io.tiledb.libtiledb.SWIGTYPE_p_tiledb_fragment_info_t;
 
-public class FragmentInfo {
+public class FragmentInfo implements AutoCloseable {
   private SWIGTYPE_p_tiledb_fragment_info_t fragmentInfop;
   private SWIGTYPE_p_p_tiledb_fragment_info_t fragmentInfopp;
   private Context ctx;
@@ -35,6 +35,8 @@ public class FragmentInfo {
     this.ctx = ctx;
     this.uri = uri;
     this.fragmentInfopp = tiledb.new_tiledb_fragment_info_tpp();
+    ctx.handleError(tiledb.tiledb_fragment_info_alloc(ctx.getCtxp(), uri, fragmentInfopp));
+    fragmentInfop = tiledb.tiledb_fragment_info_tpp_value(this.fragmentInfopp);
 
     try (NativeArray keyArray = new NativeArray(ctx, key, Byte.class)) {
       ctx.handleError(
@@ -419,4 +421,13 @@ public class FragmentInfo {
 
     return tiledb.charpp_value(uri);
   }
+
+  /** Frees the native fragment info. */
+  @Override
+  public void close() {
+    if (fragmentInfop != null) {
+      tiledb.tiledb_fragment_info_free(fragmentInfopp);
+      fragmentInfop = null;
+    }
+  }
 }
@@ -0,0 +1,654 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Groups the cells of an array by one or two attributes or dimensions and computes count, sum, min,
+ * max and mean of numeric fields per group.
+ *
+ * <p>Keys are never boxed while grouping: integer keys are used as longs, floating point keys by
+ * their bits and string keys by their code in a dictionary of their UTF-8 bytes, and groups are
+ * found in an open-addressing hash table over those primitive keys. Accumulators are primitive
+ * arrays indexed by group. With a parallelism above one, every partition of the array is grouped by
+ * its own worker into its own tables, which are merged at the end.
+ *
+ * <p>Null keys of nullable attributes form their own group. Null values are not aggregated.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * GroupBy.Result result =
+ *     new GroupBy(array, Arrays.asList("sensor"), Arrays.asList("temperature"))
+ *         .setParallelism(4)
+ *         .execute();
+ * for (int g = 0; g < result.size(); g++) {
+ *   System.out.println(result.getKey("sensor", g) + ": " + result.getMean("temperature", g));
+ * }
+ * }</pre>
+ */
+public class GroupBy {
+
+  /** The maximum number of key fields. */
+  public static final int MAX_KEYS = 2;
+
+  private static final int INTEGER_KEY = 0;
+  private static final int REAL_KEY = 1;
+  private static final int STRING_KEY = 2;
+
+  private final Array array;
+  private final List<String> keys;
+  private final List<String> fields;
+  private Predicate predicate;
+  private int parallelism;
+  private int batchCells;
+  private CancellationToken token;
+
+  /**
+   * @param array The array to read, opened for reading
+   * @param keys The one or two attributes or dimensions to group by
+   * @param fields The fixed-sized, single-valued numeric attributes and dimensions to aggregate.
+   *     May be empty to only count cells per group.
+   */
+  public GroupBy(Array array, List<String> keys, Collection<String> fields) {
+    this.array = array;
+    this.keys = new ArrayList<>(keys);
+    this.fields = new ArrayList<>(fields);
+    this.parallelism = 1;
+    this.batchCells = BatchReader.DEFAULT_BATCH_CELLS;
+  }
+
+  /**
+   * @param predicate Only cells matching the predicate are grouped, or null for all cells
+   * @return This group-by
+   */
+  public GroupBy setPredicate(Predicate predicate) {
+    this.predicate = predicate;
+    return this;
+  }
+
+  /**
+   * @param parallelism The number of partitions grouped concurrently
+   * @return This group-by
+   * @throws TileDBError if the parallelism is not positive
+   */
+  public GroupBy setParallelism(int parallelism) throws TileDBError {
+    if (parallelism <= 0) {
+      throw new TileDBError("Parallelism must be >= 1, got: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * @param batchCells The number of cells read per batch by each partition
+   * @return This group-by
+   */
+  public GroupBy setBatchCells(int batchCells) {
+    this.batchCells = batchCells;
+    return this;
+  }
+
+  /**
+   * @param token The token all submissions run under, or null
+   * @return This group-by
+   */
+  public GroupBy setCancellationToken(CancellationToken token) {
+    this.token = token;
+    return this;
+  }
+
+  /**
+   * Runs the group-by.
+   *
+   * @return The groups and their aggregates
+   * @throws TileDBError A TileDB exception
+   */
+  public Result execute() throws TileDBError {
+    if (keys.isEmpty() || keys.size() > MAX_KEYS) {
+      throw new TileDBError("Group by needs 1 to " + MAX_KEYS + " keys, got: " + keys.size());
+    }
+    int[] keyKinds = new int[keys.size()];
+    Datatype[] types = new Datatype[fields.size()];
+    SchemaSnapshot schema = array.getSchemaSnapshot();
+    for (int k = 0; k < keyKinds.length; k++) {
+      BatchReader.Column column = BatchReader.describe(schema, keys.get(k));
+      if (column.isString()) {
+        keyKinds[k] = STRING_KEY;
+      } else if (column.var || column.cellValNum != 1) {
+        throw new TileDBError("Cannot group by multi-valued field " + keys.get(k));
+      } else {
+        keyKinds[k] = column.type.isRealType() ? REAL_KEY : INTEGER_KEY;
+      }
+    }
+    for (int f = 0; f < types.length; f++) {
+      BatchReader.Column column = BatchReader.describe(schema, fields.get(f));
+      if (column.var || column.cellValNum != 1 || column.isString()) {
+        throw new TileDBError(
+            "Cannot aggregate field " + fields.get(f) + ", it is not a single numeric value");
+      }
+      types[f] = column.type;
+    }
+
+    Predicate base = predicate == null ? Predicate.and() : predicate;
+    List<Callable<Groups>> tasks = new ArrayList<>();
+    for (Predicate p : Aggregation.partitions(array, base, parallelism)) {
+      tasks.add(() -> group(p, keyKinds, types));
+    }
+    List<Groups> partials = ParallelTasks.runAll(tasks, parallelism, "tiledb-group-by-");
+    if (partials.size() == 1) {
+      return new Result(keys, fields, partials.get(0));
+    }
+    Groups total = new Groups(keyKinds, types);
+    for (Groups partial : partials) {
+      total.merge(partial);
+    }
+    return new Result(keys, fields, total);
+  }
+
+  private Groups group(Predicate p, int[] keyKinds, Datatype[] types) throws TileDBError {
+    Groups groups = new Groups(keyKinds, types);
+    QueryPlan plan = QueryPlan.plan(array, p);
+    if (plan.isEmpty()) {
+      return groups;
+    }
+    Predicate residual = plan.getResidual();
+    Set<String> readFields = new LinkedHashSet<>(keys);
+    readFields.addAll(fields);
+    if (residual != null) {
+      residual.collectFields(readFields);
+    }
+
+    try (Query query = plan.newQuery(array);
+        BatchReader reader = new BatchReader(query, readFields, batchCells)) {
+      reader.setCancellationToken(token);
+      KeyReader first = new KeyReader(keyKinds[0], groups.dictionaries[0]);
+      KeyReader second =
+          keyKinds.length > 1 ? new KeyReader(keyKinds[1], groups.dictionaries[1]) : null;
+      ByteBuffer[] data = new ByteBuffer[types.length];
+      ByteBuffer[] validity = new ByteBuffer[types.length];
+      boolean[] mask = residual == null ? null : new boolean[0];
+      while (reader.next()) {
+        int n = reader.size();
+        if (mask != null) {
+          if (mask.length < n) {
+            mask = new boolean[n];
+          }
+          PredicateEvaluator.evaluate(residual, reader, mask);
+        }
+        first.bind(reader, keys.get(0));
+        if (second != null) {
+          second.bind(reader, keys.get(1));
+        }
+        for (int f = 0; f < types.length; f++) {
+          data[f] = reader.getData(fields.get(f));
+          validity[f] = reader.getValidity(fields.get(f));
+        }
+        for (int i = 0; i < n; i++) {
+          if (mask != null && !mask[i]) {
+            continue;
+          }
+          long a = first.read(i);
+          int nulls = first.isNull(i) ? 1 : 0;
+          long b = 0;
+          if (second != null) {
+            b = second.read(i);
+            nulls |= second.isNull(i) ? 2 : 0;
+          }
+          int g = groups.find(a, b, nulls);
+          groups.cells[g]++;
+          for (int f = 0; f < types.length; f++) {
+            if (validity[f] == null || validity[f].get(i) != 0) {
+              groups.add(f, g, data[f], i);
+            }
+          }
+        }
+      }
+    }
+    return groups;
+  }
+
+  /** Reads the primitive key of every cell of a key field of a batch. */
+  private static final class KeyReader {
+    private final int kind;
+    private final ByteDictionary dictionary;
+    private Datatype type;
+    private int cellSize;
+    private ByteBuffer data;
+    private OffsetsView offsets;
+    private ByteBuffer validity;
+
+    KeyReader(int kind, ByteDictionary dictionary) {
+      this.kind = kind;
+      this.dictionary = dictionary;
+    }
+
+    void bind(BatchReader reader, String field) throws TileDBError {
+      type = reader.getType(field);
+      cellSize = reader.getCellValNum(field) * type.getNativeSize();
+      data = reader.getData(field);
+      offsets = reader.getOffsetsView(field);
+      validity = reader.getValidity(field);
+    }
+
+    boolean isNull(int i) {
+      return validity != null && validity.get(i) == 0;
+    }
+
+    long read(int i) {
+      if (isNull(i)) {
+        return 0;
+      }
+      switch (kind) {
+        case STRING_KEY:
+          if (offsets == null) {
+            return dictionary.add(data, i * cellSize, cellSize);
+          }
+          int start = (int) offsets.startByte(i);
+          return dictionary.add(data, start, (int) offsets.endByte(i) - start);
+        case REAL_KEY:
+          double v = PredicateEvaluator.readDouble(data, type, i);
+          // -0.0 and 0.0 are the same key, and so are all NaNs
+          return Double.doubleToLongBits(v == 0 ? 0.0 : v);
+        default:
+          return PredicateEvaluator.readLong(data, type, i);
+      }
+    }
+  }
+
+  /** An open-addressing hash table of groups and their accumulators. */
+  private static final class Groups {
+    private static final int EMPTY = -1;
+
+    private final int[] keyKinds;
+    private final ByteDictionary[] dictionaries;
+    private final Datatype[] types;
+    private final boolean[] real;
+    // Long.MIN_VALUE for UINT64 fields, whose minimums and maximums are kept with their sign bit
+    // flipped so that signed order is unsigned order, 0 otherwise
+    private final long[] bias;
+    private int size;
+    private int capacity;
+    // Group ids by hash slot
+    private int[] slots;
+    private int mask;
+    // Keys and accumulators by group id
+    private long[] firstKeys;
+    private long[] secondKeys;
+    private byte[] nullKeys;
+    private long[] cells;
+    private final long[][] count;
+    private final long[][] longSum;
+    private final long[][] longMin;
+    private final long[][] longMax;
+    private final double[][] doubleSum;
+    private final double[][] doubleMin;
+    private final double[][] doubleMax;
+
+    Groups(int[] keyKinds, Datatype[] types) {
+      this.keyKinds = keyKinds;
+      this.types = types;
+      this.dictionaries = new ByteDictionary[keyKinds.length];
+      for (int k = 0; k < keyKinds.length; k++) {
+        dictionaries[k] = keyKinds[k] == STRING_KEY ? new ByteDictionary() : null;
+      }
+      int n = types.length;
+      this.real = new boolean[n];
+      this.bias = new long[n];
+      this.count = new long[n][];
+      this.longSum = new long[n][];
+      this.longMin = new long[n][];
+      this.longMax = new long[n][];
+      this.doubleSum = new double[n][];
+      this.doubleMin = new double[n][];
+      this.doubleMax = new double[n][];
+      this.capacity = 16;
+      this.slots = new int[capacity * 2];
+      this.mask = slots.length - 1;
+      Arrays.fill(slots, EMPTY);
+      this.firstKeys = new long[capacity];
+      this.secondKeys = new long[capacity];
+      this.nullKeys = new byte[capacity];
+      this.cells = new long[capacity];
+      for (int f = 0; f < n; f++) {
+        real[f] = types[f].isRealType();
+        bias[f] = types[f] == Datatype.TILEDB_UINT64 ? Long.MIN_VALUE : 0;
+        count[f] = new long[capacity];
+        if (real[f]) {
+          doubleSum[f] = new double[capacity];
+          doubleMin[f] = new double[capacity];
+          doubleMax[f] = new double[capacity];
+        } else {
+          longSum[f] = new long[capacity];
+          longMin[f] = new long[capacity];
+          longMax[f] = new long[capacity];
+        }
+      }
+    }
+
+    /** @return The id of the group of a key, added if it is new */
+    int find(long a, long b, int nulls) {
+      int slot = hash(a, b, nulls) & mask;
+      while (true) {
+        int g = slots[slot];
+        if (g == EMPTY) {
+          break;
+        }
+        if (firstKeys[g] == a && secondKeys[g] == b && nullKeys[g] == nulls) {
+          return g;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if (size == capacity) {
+        grow();
+      }
+      int g = size++;
+      slots[slot] = g;
+      firstKeys[g] = a;
+      secondKeys[g] = b;
+      nullKeys[g] = (byte) nulls;
+      for (int f = 0; f < types.length; f++) {
+        if (real[f]) {
+          doubleMin[f][g] = Double.POSITIVE_INFINITY;
+          doubleMax[f][g] = Double.NEGATIVE_INFINITY;
+        } else {
+          longMin[f][g] = Long.MAX_VALUE;
+          longMax[f][g] = Long.MIN_VALUE;
+        }
+      }
+      // Keep the load factor at or below one half
+      if (size * 2 > slots.length) {
+        rehash();
+      }
+      return g;
+    }
+
+    void add(int f, int g, ByteBuffer data, int i) {
+      count[f][g]++;
+      if (real[f]) {
+        double v = PredicateEvaluator.readDouble(data, types[f], i);
+        doubleSum[f][g] += v;
+        doubleMin[f][g] = Math.min(doubleMin[f][g], v);
+        doubleMax[f][g] = Math.max(doubleMax[f][g], v);
+      } else {
+        long v = PredicateEvaluator.readLong(data, types[f], i);
+        longSum[f][g] += v;
+        longMin[f][g] = Math.min(longMin[f][g], v ^ bias[f]);
+        longMax[f][g] = Math.max(longMax[f][g], v ^ bias[f]);
+      }
+    }
+
+    /** Adds the groups and accumulators of a partial result of another worker. */
+    void merge(Groups other) {
+      for (int og = 0; og < other.size; og++) {
+        long a = translate(0, other, other.firstKeys[og], other.nullKeys[og] & 1);
+        long b = translate(1, other, other.secondKeys[og], other.nullKeys[og] & 2);
+        int g = find(a, b, other.nullKeys[og]);
+        cells[g] += other.cells[og];
+        for (int f = 0; f < types.length; f++) {
+          count[f][g] += other.count[f][og];
+          if (real[f]) {
+            doubleSum[f][g] += other.doubleSum[f][og];
+            doubleMin[f][g] = Math.min(doubleMin[f][g], other.doubleMin[f][og]);
+            doubleMax[f][g] = Math.max(doubleMax[f][g], other.doubleMax[f][og]);
+          } else {
+            longSum[f][g] += other.longSum[f][og];
+            longMin[f][g] = Math.min(longMin[f][g], other.longMin[f][og]);
+            longMax[f][g] = Math.max(longMax[f][g], other.longMax[f][og]);
+          }
+        }
+      }
+    }
+
+    /** Maps a string key code of another worker to the code in this dictionary. */
+    private long translate(int k, Groups other, long key, int isNull) {
+      if (k >= keyKinds.length || keyKinds[k] != STRING_KEY || isNull != 0) {
+        return key;
+      }
+      return dictionaries[k].add(other.dictionaries[k].getBytes((int) key));
+    }
+
+    private void grow() {
+      capacity *= 2;
+      firstKeys = Arrays.copyOf(firstKeys, capacity);
+      secondKeys = Arrays.copyOf(secondKeys, capacity);
+      nullKeys = Arrays.copyOf(nullKeys, capacity);
+      cells = Arrays.copyOf(cells, capacity);
+      for (int f = 0; f < types.length; f++) {
+        count[f] = Arrays.copyOf(count[f], capacity);
+        if (real[f]) {
+          doubleSum[f] = Arrays.copyOf(doubleSum[f], capacity);
+          doubleMin[f] = Arrays.copyOf(doubleMin[f], capacity);
+          doubleMax[f] = Arrays.copyOf(doubleMax[f], capacity);
+        } else {
+          longSum[f] = Arrays.copyOf(longSum[f], capacity);
+          longMin[f] = Arrays.copyOf(longMin[f], capacity);
+          longMax[f] = Arrays.copyOf(longMax[f], capacity);
+        }
+      }
+    }
+
+    private void rehash() {
+      slots = new int[slots.length * 2];
+      mask = slots.length - 1;
+      Arrays.fill(slots, EMPTY);
+      for (int g = 0; g < size; g++) {
+        int slot = hash(firstKeys[g], secondKeys[g], nullKeys[g]) & mask;
+        while (slots[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = g;
+      }
+    }
+
+    private static int hash(long a, long b, int nulls) {
+      long h = a * 0x9E3779B97F4A7C15L;
+      h ^= Long.rotateLeft(b * 0xC2B2AE3D27D4EB4FL, 31) ^ nulls;
+      h ^= h >>> 33;
+      h *= 0xFF51AFD7ED558CCDL;
+      h ^= h >>> 33;
+      return (int) h;
+    }
+  }
+
+  /**
+   * The groups of a {@link GroupBy}, in no particular order. Groups are addressed by their index
+   * from 0 to {@link #size()} - 1.
+   *
+   * <p>Integer keys are returned as Longs, floating point keys as Doubles, string keys as Strings
+   * and null keys as null. Sums, minimums and maximums are Longs for integer fields and Doubles for
+   * floating point fields; the aggregates of a group without any non-null value are null. As with
+   * {@link NativeArray}, UINT64 keys and aggregates are the bits of the unsigned values.
+   */
+  public static class Result {
+    private final List<String> keys;
+    private final List<String> fields;
+    private final Groups groups;
+
+    private Result(List<String> keys, List<String> fields, Groups groups) {
+      this.keys = keys;
+      this.fields = fields;
+      this.groups = groups;
+    }
+
+    /** @return The number of groups */
+    public int size() {
+      return groups.size;
+    }
+
+    /** @return The key fields */
+    public List<String> getKeyFields() {
+      return keys;
+    }
+
+    /**
+     * @param keyField The key field
+     * @param group The group index
+     * @return The value of the key field of the group
+     * @throws TileDBError if the field is not a key
+     */
+    public Object getKey(String keyField, int group) throws TileDBError {
+      int k = keys.indexOf(keyField);
+      if (k < 0) {
+        throw new TileDBError("Not a group by key: " + keyField);
+      }
+      if ((groups.nullKeys[group] & (1 << k)) != 0) {
+        return null;
+      }
+      long key = k == 0 ? groups.firstKeys[group] : groups.secondKeys[group];
+      switch (groups.keyKinds[k]) {
+        case STRING_KEY:
+          return groups.dictionaries[k].getString((int) key);
+        case REAL_KEY:
+          return Double.longBitsToDouble(key);
+        default:
+          return key;
+      }
+    }
+
+    /**
+     * Looks up a group by its key values, given in the order of the key fields.
+     *
+     * @param values The key values, null for null keys
+     * @return The group index, or -1 if there is no such group
+     * @throws TileDBError if the number of values does not match the number of keys
+     */
+    public int getGroup(Object... values) throws TileDBError {
+      if (values.length != keys.size()) {
+        throw new TileDBError("Expected " + keys.size() + " key values, got: " + values.length);
+      }
+      long[] encoded = new long[MAX_KEYS];
+      int nulls = 0;
+      for (int k = 0; k < values.length; k++) {
+        Object value = values[k];
+        if (value == null) {
+          nulls |= 1 << k;
+        } else if (groups.keyKinds[k] == STRING_KEY) {
+          int code =
+              groups.dictionaries[k].find(value.toString().getBytes(StandardCharsets.UTF_8));
+          if (code < 0) {
+            return -1;
+          }
+          encoded[k] = code;
+        } else if (groups.keyKinds[k] == REAL_KEY) {
+          double v = ((Number) value).doubleValue();
+          encoded[k] = Double.doubleToLongBits(v == 0 ? 0.0 : v);
+        } else {
+          encoded[k] = ((Number) value).longValue();
+        }
+      }
+      int slot = Groups.hash(encoded[0], encoded[1], nulls) & groups.mask;
+      for (int g = groups.slots[slot]; g != Groups.EMPTY; g = groups.slots[slot]) {
+        if (groups.firstKeys[g] == encoded[0]
+            && groups.secondKeys[g] == encoded[1]
+            && groups.nullKeys[g] == nulls) {
+          return g;
+        }
+        slot = (slot + 1) & groups.mask;
+      }
+      return -1;
+    }
+
+    /**
+     * @param group The group index
+     * @return The number of cells in the group
+     */
+    public long getCellNum(int group) {
+      return groups.cells[group];
+    }
+
+    /**
+     * @param field The field name
+     * @param group The group index
+     * @return The number of non-null values of the field in the group
+     * @throws TileDBError if the field was not aggregated
+     */
+    public long getCount(String field, int group) throws TileDBError {
+      return groups.count[index(field)][group];
+    }
+
+    /**
+     * @param field The field name
+     * @param group The group index
+     * @return The sum of the non-null values in the group, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Number getSum(String field, int group) throws TileDBError {
+      int f = index(field);
+      if (groups.count[f][group] == 0) {
+        return null;
+      }
+      return groups.real[f] ? (Number) groups.doubleSum[f][group] : groups.longSum[f][group];
+    }
+
+    /**
+     * @param field The field name
+     * @param group The group index
+     * @return The minimum of the non-null values in the group, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Number getMin(String field, int group) throws TileDBError {
+      int f = index(field);
+      if (groups.count[f][group] == 0) {
+        return null;
+      }
+      return groups.real[f]
+          ? (Number) groups.doubleMin[f][group]
+          : (Number) (groups.longMin[f][group] ^ groups.bias[f]);
+    }
+
+    /**
+     * @param field The field name
+     * @param group The group index
+     * @return The maximum of the non-null values in the group, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Number getMax(String field, int group) throws TileDBError {
+      int f = index(field);
+      if (groups.count[f][group] == 0) {
+        return null;
+      }
+      return groups.real[f]
+          ? (Number) groups.doubleMax[f][group]
+          : (Number) (groups.longMax[f][group] ^ groups.bias[f]);
+    }
+
+    /**
+     * @param field The field name
+     * @param group The group index
+     * @return The mean of the non-null values in the group, or null if there are none
+     * @throws TileDBError if the field was not aggregated
+     */
+    public Double getMean(String field, int group) throws TileDBError {
+      int f = index(field);
+      long n = groups.count[f][group];
+      if (n == 0) {
+        return null;
+      }
+      double sum;
+      if (groups.real[f]) {
+        sum = groups.doubleSum[f][group];
+      } else if (groups.bias[f] != 0) {
+        sum = PredicateEvaluator.unsignedToDouble(groups.longSum[f][group]);
+      } else {
+        sum = groups.longSum[f][group];
+      }
+      return sum / n;
+    }
+
+    private int index(String field) throws TileDBError {
+      int f = fields.indexOf(field);
+      if (f < 0) {
+        throw new TileDBError("Field was not aggregated: " + field);
+      }
+      return f;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package io.tiledb.java.api;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A {@link MetricsRecorder} keeping, for every operation, its count, the bytes it handled and a
+ * {@link LatencyHistogram} of its latency in nanoseconds. The measurements can be exported over
+ * JMX with {@link #registerMXBeans()}, as one {@link OperationMetricsMXBean} per operation.
+ */
+public class HistogramRecorder implements MetricsRecorder {
+
+  /** The domain and type of the MXBeans, completed by the operation key. */
+  public static final String MXBEAN_NAME_PREFIX = "io.tiledb.java.api:type=Metrics,operation=";
+
+  private final Map<Metrics.Operation, OperationMetrics> operations;
+
+  /** Creates a recorder with empty measurements. */
+  public HistogramRecorder() {
+    this.operations = new EnumMap<>(Metrics.Operation.class);
+    for (Metrics.Operation operation : Metrics.Operation.values()) {
+      operations.put(operation, new OperationMetrics());
+    }
+  }
+
+  @Override
+  public void record(Metrics.Operation operation, long nanos, long bytes) {
+    OperationMetrics metrics = operations.get(operation);
+    metrics.count.increment();
+    metrics.bytes.add(bytes);
+    metrics.latency.record(nanos);
+  }
+
+  /**
+   * @param operation An operation
+   * @return The number of operations recorded
+   */
+  public long getCount(Metrics.Operation operation) {
+    return operations.get(operation).count.sum();
+  }
+
+  /**
+   * @param operation An operation
+   * @return The bytes handled by the operations recorded
+   */
+  public long getBytes(Metrics.Operation operation) {
+    return operations.get(operation).bytes.sum();
+  }
+
+  /**
+   * @param operation An operation
+   * @return The histogram of the latencies of the operation, in nanoseconds
+   */
+  public LatencyHistogram getLatency(Metrics.Operation operation) {
+    return operations.get(operation).latency;
+  }
+
+  /** Clears the measurements of all operations. */
+  public void reset() {
+    for (OperationMetrics metrics : operations.values()) {
+      metrics.reset();
+    }
+  }
+
+  /**
+   * Registers an {@link OperationMetricsMXBean} per operation with the platform MBean server,
+   * named {@value #MXBEAN_NAME_PREFIX} followed by the operation in lower case. Operations whose
+   * MXBean is already registered, such as by another recorder, are skipped.
+   *
+   * @throws TileDBError if an MXBean cannot be registered
+   */
+  public void registerMXBeans() throws TileDBError {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (Map.Entry<Metrics.Operation, OperationMetrics> e : operations.entrySet()) {
+      String name = MXBEAN_NAME_PREFIX + e.getKey().name().toLowerCase(Locale.ROOT);
+      try {
+        server.registerMBean(e.getValue(), new ObjectName(name));
+      } catch (InstanceAlreadyExistsException err) {
+        // Already registered
+      } catch (Exception err) {
+        throw new TileDBError("Cannot register the MXBean " + name + ": " + err.getMessage());
+      }
+    }
+  }
+
+  /** The measurements of one operation. */
+  private static final class OperationMetrics implements OperationMetricsMXBean {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    @Override
+    public long getCount() {
+      return count.sum();
+    }
+
+    @Override
+    public long getBytes() {
+      return bytes.sum();
+    }
+
+    @Override
+    public double getMeanNanos() {
+      return latency.getMean();
+    }
+
+    @Override
+    public long getP50Nanos() {
+      return latency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getP90Nanos() {
+      return latency.getValueAtPercentile(90);
+    }
+
+    @Override
+    public long getP99Nanos() {
+      return latency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+      return latency.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+      return latency.getMax();
+    }
+
+    @Override
+    public void reset() {
+      count.reset();
+      bytes.reset();
+      latency.reset();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A zero-copy view of the results of an INT32 field.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * IntColumn a1 = query.getIntColumn("a1");
+ * long sum = 0;
+ * for (int i = 0; i < a1.size(); i++) {
+ *   sum += a1.get(i);
+ * }
+ * }</pre>
+ */
+public final class IntColumn extends NumericColumn {
+
+  private final IntBuffer values;
+
+  /**
+   * Creates a view over result buffers, with one value per 4 bytes up to the data limit.
+   *
+   * @param data The data buffer
+   * @param validity The validity bytemap, or null if the field is not nullable
+   */
+  public IntColumn(ByteBuffer data, ByteBuffer validity) {
+    super(data.limit() / Integer.BYTES, validity);
+    this.values = nativeOrder(data).asIntBuffer();
+  }
+
+  /**
+   * Creates a view over the current batch of a field of a batch reader.
+   *
+   * @param reader The batch reader
+   * @param field The field name
+   * @return The view
+   * @throws TileDBError if the field is not INT32, or not read by the reader
+   */
+  public static IntColumn of(BatchReader reader, String field) throws TileDBError {
+    Datatype type = reader.getType(field);
+    checkFixed(reader, field);
+    checkType(field, type, type == Datatype.TILEDB_INT32, "IntColumn");
+    return new IntColumn(reader.getData(field), reader.getValidity(field));
+  }
+
+  /**
+   * @param i The value index
+   * @return The value
+   */
+  public int get(int i) {
+    return values.get(i);
+  }
+
+  /**
+   * Copies values to an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void copyTo(int from, int[] dst, int offset, int length) {
+    IntBuffer view = values.duplicate();
+    view.position(from);
+    view.get(dst, offset, length);
+  }
+
+  /** @return A copy of the values */
+  public int[] toArray() {
+    int[] array = new int[size()];
+    copyTo(0, array, 0, array.length);
+    return array;
+  }
+}
@@ -0,0 +1,142 @@
+package io.tiledb.java.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of non-negative values, such as latencies in nanoseconds, with a bounded
+ * relative error and a fixed footprint, in the manner of an HDR histogram.
+ *
+ * <p>Values below 32 are counted exactly. Larger values are counted in 32 linear buckets per power
+ * of two, so a reported percentile is at most about 3% above the recorded value. Recording is lock
+ * free and does not allocate.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final LongAdder count;
+  private final LongAdder sum;
+  private final AtomicLong min;
+  private final AtomicLong max;
+
+  /** Creates an empty histogram. */
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.count = new LongAdder();
+    this.sum = new LongAdder();
+    this.min = new AtomicLong(Long.MAX_VALUE);
+    this.max = new AtomicLong(Long.MIN_VALUE);
+  }
+
+  /**
+   * Records a value. Negative values are recorded as 0.
+   *
+   * @param value The value
+   */
+  public void record(long value) {
+    long v = Math.max(value, 0);
+    counts.incrementAndGet(index(v));
+    count.increment();
+    sum.add(v);
+    min.accumulateAndGet(v, Math::min);
+    max.accumulateAndGet(v, Math::max);
+  }
+
+  /** @return The number of values recorded */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /** @return The smallest value recorded, or 0 if none */
+  public long getMin() {
+    long m = min.get();
+    return m == Long.MAX_VALUE ? 0 : m;
+  }
+
+  /** @return The largest value recorded, or 0 if none */
+  public long getMax() {
+    long m = max.get();
+    return m == Long.MIN_VALUE ? 0 : m;
+  }
+
+  /** @return The mean of the values recorded, or 0 if none */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * @param percentile The percentile, from 0 to 100
+   * @return The value at or below which the percentile of the values fall, rounded up to the
+   *     bucket bound, or 0 if none were recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long n = 0;
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      n += snapshot[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    double p = Math.min(Math.max(percentile, 0), 100);
+    long rank = Math.max(1, (long) Math.ceil(p / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /** Clears the histogram. Values recorded concurrently may be kept or lost. */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.reset();
+    sum.reset();
+    min.set(Long.MAX_VALUE);
+    max.set(Long.MIN_VALUE);
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram<count="
+        + getCount()
+        + ",p50="
+        + getValueAtPercentile(50)
+        + ",p99="
+        + getValueAtPercentile(99)
+        + ",max="
+        + getMax()
+        + ">";
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
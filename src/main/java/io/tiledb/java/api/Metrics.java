@@ -0,0 +1,134 @@
+package io.tiledb.java.api;
+
+/**
+ * Instrumentation of the API: the time spent in, and bytes handled by, opening and closing arrays,
+ * submitting queries, setting up buffers and ranges, copying between Java and native arrays,
+ * reading and writing through the VFS and consolidating, so the cost of the JNI layer can be told
+ * apart from the native work.
+ *
+ * <p>Measurements go to the installed {@link MetricsRecorder}, and to the {@link QueryTrace} of a
+ * query while {@link QueryTracer} is enabled. By default neither is on and operations are not
+ * timed at all.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * HistogramRecorder recorder = new HistogramRecorder();
+ * Metrics.setRecorder(recorder);
+ * recorder.registerMXBeans();
+ * }</pre>
+ */
+public final class Metrics {
+
+  /** The instrumented operations. */
+  public enum Operation {
+    /** Opening an array, including loading its schema. */
+    ARRAY_OPEN,
+    /** Closing an array. */
+    ARRAY_CLOSE,
+    /** A blocking query submission, including setting the result sizes of NIO buffers. */
+    QUERY_SUBMIT,
+    /** An asynchronous query submission, from the submission until its callback runs. */
+    QUERY_SUBMIT_ASYNC,
+    /** Setting a query buffer; bytes are the size of the buffers set. */
+    BUFFER_SETUP,
+    /** Adding a subarray range to a query. */
+    ADD_RANGE,
+    /** Copying a Java array into a NativeArray, or a NativeArray out to a Java array. */
+    NATIVE_ARRAY_COPY,
+    /** Reading a file through the VFS. */
+    VFS_READ,
+    /** Writing a file through the VFS. */
+    VFS_WRITE,
+    /** Consolidating the fragments of an array. */
+    CONSOLIDATE
+  }
+
+  /** The start time returned while no recorder is installed. */
+  static final long DISABLED = Long.MIN_VALUE;
+
+  private static volatile MetricsRecorder recorder = MetricsRecorder.NOOP;
+
+  private Metrics() {}
+
+  /**
+   * Installs a recorder, replacing the previous one.
+   *
+   * @param recorder The recorder, or {@link MetricsRecorder#NOOP} to stop recording
+   */
+  public static void setRecorder(MetricsRecorder recorder) {
+    Metrics.recorder = recorder == null ? MetricsRecorder.NOOP : recorder;
+  }
+
+  /** @return The installed recorder */
+  public static MetricsRecorder getRecorder() {
+    return recorder;
+  }
+
+  /** @return true if a recorder is installed */
+  public static boolean isEnabled() {
+    return recorder != MetricsRecorder.NOOP;
+  }
+
+  /**
+   * Starts timing an operation.
+   *
+   * @return The start time, or {@link #DISABLED} if no recorder is installed and no trace is
+   *     current on the calling thread
+   */
+  static long start() {
+    return recorder == MetricsRecorder.NOOP && QueryTracer.current() == null
+        ? DISABLED
+        : System.nanoTime();
+  }
+
+  /**
+   * Starts timing an operation of a query.
+   *
+   * @param trace The trace of the query, or null
+   * @return The start time, or {@link #DISABLED} if no recorder is installed and no trace is given
+   *     nor current on the calling thread
+   */
+  static long start(QueryTrace trace) {
+    return trace == null ? start() : System.nanoTime();
+  }
+
+  /**
+   * Records an operation started with {@link #start()}, and adds it to the trace current on the
+   * calling thread, if any.
+   *
+   * @param operation The operation
+   * @param started The start time
+   * @param bytes The bytes handled, or 0
+   */
+  static void record(Operation operation, long started, long bytes) {
+    if (started != DISABLED) {
+      record(operation, started, bytes, QueryTracer.current(), null);
+    }
+  }
+
+  /**
+   * Records an operation of a query started with {@link #start(QueryTrace)}.
+   *
+   * @param operation The operation
+   * @param started The start time
+   * @param bytes The bytes handled, or 0
+   * @param trace The trace to add the operation to, or null
+   * @param field The field operated on, or null
+   */
+  static void record(
+      Operation operation, long started, long bytes, QueryTrace trace, String field) {
+    if (started == DISABLED) {
+      return;
+    }
+    long ended = System.nanoTime();
+    try {
+      recorder.record(operation, ended - started, bytes);
+      if (trace != null) {
+        trace.add(operation, started, ended, bytes, field);
+      }
+    } catch (RuntimeException err) {
+      // Instrumentation must not fail the operation
+    }
+  }
+}
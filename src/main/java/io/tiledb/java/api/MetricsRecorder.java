@@ -0,0 +1,25 @@
+package io.tiledb.java.api;
+
+/**
+ * Receives the measurements of the operations of the API, once installed with {@link
+ * Metrics#setRecorder(MetricsRecorder)}. {@link HistogramRecorder} keeps them in latency
+ * histograms; other implementations may forward them to a metrics library.
+ *
+ * <p>Recorders are called on the thread that performed the operation, for every operation, so they
+ * must be thread-safe and fast. An exception thrown by a recorder is ignored.
+ */
+@FunctionalInterface
+public interface MetricsRecorder {
+
+  /** The recorder that records nothing, installed by default. */
+  MetricsRecorder NOOP = (operation, nanos, bytes) -> {};
+
+  /**
+   * Records one operation.
+   *
+   * @param operation The operation
+   * @param nanos Its duration in nanoseconds
+   * @param bytes The bytes it handled, or 0 if not applicable
+   */
+  void record(Metrics.Operation operation, long nanos, long bytes);
+}
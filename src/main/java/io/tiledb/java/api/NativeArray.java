@@ -51,6 +51,9 @@ public class NativeArray implements AutoCloseable {
   private uint32_tArray uint32_tArray;
   private int64_tArray uint64_tArray;
   private int size;
+  private NativeHandles.Registration handle;
+  // The reserved bytes, null if the array was not allocated by this NativeArray
+  private NativeMemory.Reservation memory;
   //  private charArray charArray;
 
   /**
@@ -66,7 +69,7 @@ public class NativeArray implements AutoCloseable {
     this.javaType = Types.getJavaType(nativeType);
     this.nativeType = nativeType;
     this.nativeTypeSize = tiledb.tiledb_datatype_size(nativeType.toSwigEnum()).intValue();
-    allocateEmptyArray();
+    allocate(null);
   }
 
   /**
@@ -82,7 +85,7 @@ public class NativeArray implements AutoCloseable {
     this.javaType = javaType;
     this.nativeType = Types.getNativeType(javaType);
     this.nativeTypeSize = tiledb.tiledb_datatype_size(this.nativeType.toSwigEnum()).intValue();
-    allocateEmptyArray();
+    allocate(null);
   }
 
   /**
@@ -99,7 +102,7 @@ public class NativeArray implements AutoCloseable {
     this.nativeType = Types.getNativeType(javaType);
     this.nativeTypeSize = tiledb.tiledb_datatype_size(this.nativeType.toSwigEnum()).intValue();
     this.size = getSize(buffer);
-    createNativeArrayFromBuffer(buffer);
+    allocate(buffer);
   }
 
   /**
@@ -117,7 +120,7 @@ public class NativeArray implements AutoCloseable {
     this.nativeType = nativeType;
     this.nativeTypeSize = tiledb.tiledb_datatype_size(this.nativeType.toSwigEnum()).intValue();
     this.size = size;
-    createNativeArrayFromBuffer(buffer);
+    allocate(buffer);
   }
 
   /**
@@ -134,7 +137,7 @@ public class NativeArray implements AutoCloseable {
     this.nativeType = nativeType;
     this.nativeTypeSize = tiledb.tiledb_datatype_size(this.nativeType.toSwigEnum()).intValue();
     this.size = getSize(buffer);
-    createNativeArrayFromBuffer(buffer);
+    allocate(buffer);
   }
 
   protected NativeArray(Context ctx, Datatype nativeType, SWIGTYPE_p_p_void pointer, int nelements)
@@ -760,6 +763,13 @@ public class NativeArray implements AutoCloseable {
     if (position + elements > size || position < 0 || elements < 0) {
       throw new ArrayIndexOutOfBoundsException(position + elements);
     }
+    long started = Metrics.start();
+    Object array = copyToJavaArray(position, elements);
+    Metrics.record(Metrics.Operation.NATIVE_ARRAY_COPY, started, (long) elements * nativeTypeSize);
+    return array;
+  }
+
+  private Object copyToJavaArray(int position, int elements) throws TileDBError {
     switch (nativeType) {
       case TILEDB_FLOAT32:
         {
@@ -1010,37 +1020,98 @@ public class NativeArray implements AutoCloseable {
     return ((long) size) * nativeTypeSize;
   }
 
+  /**
+   * Counts the bytes of the array for an array URI, once it is known which array they are for.
+   *
+   * @param uri The array URI
+   */
+  void attributeTo(String uri) {
+    if (memory != null) {
+      memory.attribute(uri);
+    }
+  }
+
   /** Free's NativeArray off heap allocated resources */
   public void close() {
-    if (floatArray != null) {
-      floatArray.delete();
-    }
-    if (doubleArray != null) {
-      doubleArray.delete();
-    }
-    if (int8_tArray != null) {
-      int8_tArray.delete();
-    }
-    if (int16_tArray != null) {
-      int16_tArray.delete();
+    if (handle != null) {
+      handle.close();
+    } else {
+      delete(getSwigArray());
     }
-    if (int32_tArray != null) {
-      int32_tArray.delete();
-    }
-    if (int64_tArray != null) {
-      int64_tArray.delete();
-    }
-    if (uint8_tArray != null) {
-      uint8_tArray.delete();
-    }
-    if (uint16_tArray != null) {
-      uint16_tArray.delete();
+  }
+
+  /**
+   * Allocates the array of a constructor within the native memory budget, empty or copied from a
+   * Java buffer, and registers it to be freed if it is never closed.
+   */
+  private void allocate(Object buffer) throws TileDBError {
+    NativeMemory.Reservation memory =
+        NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, getNBytes());
+    try {
+      if (buffer == null) {
+        allocateEmptyArray();
+      } else {
+        long started = Metrics.start();
+        createNativeArrayFromBuffer(buffer);
+        Metrics.record(Metrics.Operation.NATIVE_ARRAY_COPY, started, getNBytes());
+      }
+    } catch (TileDBError | RuntimeException err) {
+      memory.release();
+      throw err;
     }
-    if (uint32_tArray != null) {
-      uint32_tArray.delete();
+    this.memory = memory;
+    Object array = getSwigArray();
+    this.handle =
+        NativeHandles.register(
+            this,
+            "NativeArray",
+            getNBytes(),
+            () -> {
+              delete(array);
+              memory.release();
+            });
+  }
+
+  private Object getSwigArray() {
+    Object[] arrays = {
+      floatArray,
+      doubleArray,
+      int8_tArray,
+      int16_tArray,
+      int32_tArray,
+      int64_tArray,
+      uint8_tArray,
+      uint16_tArray,
+      uint32_tArray,
+      uint64_tArray
+    };
+    for (Object array : arrays) {
+      if (array != null) {
+        return array;
+      }
     }
-    if (uint64_tArray != null) {
-      uint64_tArray.delete();
+    return null;
+  }
+
+  private static void delete(Object array) {
+    if (array instanceof floatArray) {
+      ((floatArray) array).delete();
+    } else if (array instanceof doubleArray) {
+      ((doubleArray) array).delete();
+    } else if (array instanceof int8_tArray) {
+      ((int8_tArray) array).delete();
+    } else if (array instanceof int16_tArray) {
+      ((int16_tArray) array).delete();
+    } else if (array instanceof int32_tArray) {
+      ((int32_tArray) array).delete();
+    } else if (array instanceof int64_tArray) {
+      ((int64_tArray) array).delete();
+    } else if (array instanceof uint8_tArray) {
+      ((uint8_tArray) array).delete();
+    } else if (array instanceof uint16_tArray) {
+      ((uint16_tArray) array).delete();
+    } else if (array instanceof uint32_tArray) {
+      ((uint32_tArray) array).delete();
     }
   }
 
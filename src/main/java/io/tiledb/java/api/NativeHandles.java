@@ -0,0 +1,401 @@
+package io.tiledb.java.api;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the native handles of the API objects, {@link Context}, {@link Config}, {@link Array},
+ * {@link ArraySchema}, {@link Domain}, {@link Dimension}, {@link Attribute}, {@link FilterList},
+ * {@link Query} and {@link NativeArray}, and frees the handles of objects that become unreachable
+ * without being closed.
+ *
+ * <p>Objects should still be closed: the reaper only runs after a garbage collection noticed the
+ * object, which may be long after its native memory was needed. Unreachable objects are freed by a
+ * {@code java.lang.ref.Cleaner} on Java 9 and later, and by a phantom reference queue drained by a
+ * daemon thread on Java 8.
+ *
+ * <p>Counters of live handles by type and of the bytes of live NativeArrays are always kept. In
+ * debug mode, enabled with {@link #setDebug(boolean)} or the system property {@value
+ * #DEBUG_PROPERTY}, every handle records the stack trace of its allocation. {@link #getUnclosed()}
+ * then lists the live handles.
+ *
+ * <p>Every handle freed by the reaper is reported to the {@link LeakListener} installed with
+ * {@link #setLeakListener(LeakListener)}, with the trace of the code that leaked it if traced. By
+ * default leaks are ignored, unless debug mode is enabled by the system property, in which case
+ * they are printed on standard error.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * NativeHandles.setDebug(true);
+ * runWorkload();
+ * for (NativeHandles.Unclosed handle : NativeHandles.getUnclosed()) {
+ *   handle.getAllocationTrace().printStackTrace();
+ * }
+ * }</pre>
+ */
+public final class NativeHandles {
+
+  /** The system property enabling debug mode on startup. */
+  public static final String DEBUG_PROPERTY = "io.tiledb.java.api.debugHandles";
+
+  private static final Reaper REAPER = Reaper.create();
+  private static final Map<String, LongAdder> LIVE = new ConcurrentHashMap<>();
+  private static final AtomicLong LIVE_BYTES = new AtomicLong();
+  private static final LongAdder RECLAIMED = new LongAdder();
+  private static final Set<Registration> TRACED = ConcurrentHashMap.newKeySet();
+  private static volatile boolean debug = Boolean.getBoolean(DEBUG_PROPERTY);
+  private static volatile LeakListener leakListener =
+      debug ? LeakListener.STDERR : LeakListener.NOOP;
+
+  private NativeHandles() {}
+
+  /**
+   * Enables or disables debug mode. Only handles allocated while it is enabled are traced.
+   *
+   * @param enabled true to record the allocation of every handle
+   */
+  public static void setDebug(boolean enabled) {
+    debug = enabled;
+  }
+
+  /** @return true in debug mode */
+  public static boolean isDebug() {
+    return debug;
+  }
+
+  /**
+   * Installs the listener of the handles freed by the reaper, replacing the previous one.
+   *
+   * @param listener The listener, or {@link LeakListener#NOOP} to ignore leaks
+   */
+  public static void setLeakListener(LeakListener listener) {
+    leakListener = listener == null ? LeakListener.NOOP : listener;
+  }
+
+  /** @return The installed leak listener */
+  public static LeakListener getLeakListener() {
+    return leakListener;
+  }
+
+  /** @return The number of live handles by type, sorted by type */
+  public static Map<String, Long> getLiveCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> e : LIVE.entrySet()) {
+      long count = e.getValue().sum();
+      if (count != 0) {
+        counts.put(e.getKey(), count);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * @param type A type name, for instance "Query"
+   * @return The number of live handles of the type
+   */
+  public static long getLiveCount(String type) {
+    LongAdder count = LIVE.get(type);
+    return count == null ? 0 : count.sum();
+  }
+
+  /** @return The bytes of the live NativeArrays */
+  public static long getLiveBytes() {
+    return LIVE_BYTES.get();
+  }
+
+  /** @return The number of handles freed by the reaper because they were never closed */
+  public static long getReclaimedCount() {
+    return RECLAIMED.sum();
+  }
+
+  /** @return The live handles allocated in debug mode, with the trace of their allocation */
+  public static List<Unclosed> getUnclosed() {
+    List<Unclosed> unclosed = new ArrayList<>();
+    for (Registration registration : TRACED) {
+      unclosed.add(new Unclosed(registration));
+    }
+    return unclosed;
+  }
+
+  /**
+   * Registers the native handle of an object, to be freed by the reaper if the object becomes
+   * unreachable before it is closed. The free action must not refer to the object, or it never
+   * becomes unreachable.
+   *
+   * @param owner The object owning the handle
+   * @param type The type name counted
+   * @param bytes The native bytes of the handle, or 0
+   * @param free Frees the handle
+   * @return The registration, closed by the owner instead of freeing the handle itself
+   */
+  static Registration register(Object owner, String type, long bytes, Runnable free) {
+    Registration registration = new Registration(type, bytes, free);
+    registration.token = REAPER.register(owner, registration::reap);
+    return registration;
+  }
+
+  /**
+   * Runs an action once an object becomes unreachable, without counting it as a handle. The
+   * action must not refer to the object.
+   *
+   * @param owner The object
+   * @param action The action
+   */
+  static void onUnreachable(Object owner, Runnable action) {
+    REAPER.register(owner, action);
+  }
+
+  /** The registration of a native handle. */
+  static final class Registration {
+    private final String type;
+    private final long bytes;
+    private final Runnable free;
+    private final Throwable allocation;
+    private final AtomicBoolean freed;
+    private volatile Object token;
+
+    private Registration(String type, long bytes, Runnable free) {
+      this.type = type;
+      this.bytes = bytes;
+      this.free = free;
+      this.freed = new AtomicBoolean();
+      LIVE.computeIfAbsent(type, t -> new LongAdder()).increment();
+      LIVE_BYTES.addAndGet(bytes);
+      if (debug) {
+        this.allocation = new Throwable("Allocation of a TileDB " + type);
+        TRACED.add(this);
+      } else {
+        this.allocation = null;
+      }
+    }
+
+    /** Frees the handle, once. Further calls do nothing. */
+    void close() {
+      if (release()) {
+        REAPER.deregister(token);
+      }
+    }
+
+    private void reap() {
+      if (release()) {
+        RECLAIMED.increment();
+        LeakListener listener = leakListener;
+        if (listener != LeakListener.NOOP) {
+          try {
+            listener.onReclaimed(new Unclosed(this));
+          } catch (RuntimeException err) {
+            // A failing listener must not stop the reaper
+          }
+        }
+      }
+    }
+
+    private boolean release() {
+      if (!freed.compareAndSet(false, true)) {
+        return false;
+      }
+      try {
+        free.run();
+      } finally {
+        LIVE.get(type).decrement();
+        LIVE_BYTES.addAndGet(-bytes);
+        if (allocation != null) {
+          TRACED.remove(this);
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Receives the handles freed by the reaper because they were never closed. Listeners are called
+   * on the reaper thread, so they must be thread-safe and fast. An exception thrown by a listener
+   * is ignored.
+   */
+  @FunctionalInterface
+  public interface LeakListener {
+
+    /** The listener that ignores leaks, installed by default. */
+    LeakListener NOOP = handle -> {};
+
+    /**
+     * The listener that prints leaks on standard error, with the trace of their allocation if
+     * traced, installed by default when debug mode is enabled by the system property.
+     */
+    LeakListener STDERR =
+        handle -> {
+          System.err.println(
+              "[TileDB::JavaAPI] A "
+                  + handle.getType()
+                  + " of "
+                  + handle.getBytes()
+                  + " bytes was freed without close()");
+          if (handle.getAllocationTrace() != null) {
+            handle.getAllocationTrace().printStackTrace();
+          }
+        };
+
+    /**
+     * Reports a handle freed by the reaper.
+     *
+     * @param handle The handle, whose allocation trace is null unless allocated in debug mode
+     */
+    void onReclaimed(Unclosed handle);
+  }
+
+  /** A handle that was not closed: live and allocated in debug mode, or freed by the reaper. */
+  public static final class Unclosed {
+    private final String type;
+    private final long bytes;
+    private final Throwable allocation;
+
+    private Unclosed(Registration registration) {
+      this.type = registration.type;
+      this.bytes = registration.bytes;
+      this.allocation = registration.allocation;
+    }
+
+    /** @return The type name, for instance "Query" */
+    public String getType() {
+      return type;
+    }
+
+    /** @return The native bytes of the handle, or 0 if unknown */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * @return A throwable whose stack trace is the allocation of the handle, or null if not
+     *     allocated in debug mode
+     */
+    public Throwable getAllocationTrace() {
+      return allocation;
+    }
+
+    @Override
+    public String toString() {
+      return "Unclosed<" + type + "," + bytes + " bytes>";
+    }
+  }
+
+  /** Runs an action once an object becomes unreachable. */
+  private abstract static class Reaper {
+
+    abstract Object register(Object owner, Runnable action);
+
+    abstract void deregister(Object token);
+
+    static Reaper create() {
+      try {
+        return new CleanerReaper();
+      } catch (ReflectiveOperationException err) {
+        return new PhantomReaper();
+      }
+    }
+  }
+
+  /** Java 9 and later: a shared java.lang.ref.Cleaner, reached by reflection to build on Java 8. */
+  private static final class CleanerReaper extends Reaper {
+    private final Object cleaner;
+    private final MethodHandle register;
+    private final MethodHandle clean;
+
+    CleanerReaper() throws ReflectiveOperationException {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> cleanerClass = Class.forName("java.lang.ref.Cleaner");
+      Class<?> cleanableClass = Class.forName("java.lang.ref.Cleaner$Cleanable");
+      this.cleaner = cleanerClass.getMethod("create").invoke(null);
+      this.register =
+          lookup.findVirtual(
+              cleanerClass,
+              "register",
+              MethodType.methodType(cleanableClass, Object.class, Runnable.class));
+      this.clean = lookup.findVirtual(cleanableClass, "clean", MethodType.methodType(void.class));
+    }
+
+    @Override
+    Object register(Object owner, Runnable action) {
+      try {
+        return register.invoke(cleaner, owner, action);
+      } catch (Throwable err) {
+        throw new IllegalStateException(err);
+      }
+    }
+
+    @Override
+    void deregister(Object token) {
+      try {
+        // Runs the action, which does nothing as the handle is already freed
+        clean.invoke(token);
+      } catch (Throwable err) {
+        throw new IllegalStateException(err);
+      }
+    }
+  }
+
+  /** Java 8: phantom references drained by a daemon thread. */
+  private static final class PhantomReaper extends Reaper {
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Set<Phantom> pending = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    PhantomReaper() {
+      Thread thread = new Thread(this::drain, "tiledb-native-reaper");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    Object register(Object owner, Runnable action) {
+      Phantom phantom = new Phantom(owner, queue, action);
+      pending.add(phantom);
+      return phantom;
+    }
+
+    @Override
+    void deregister(Object token) {
+      Phantom phantom = (Phantom) token;
+      phantom.clear();
+      pending.remove(phantom);
+    }
+
+    private void drain() {
+      while (true) {
+        try {
+          Reference<?> ref = queue.remove();
+          if (pending.remove(ref)) {
+            ((Phantom) ref).action.run();
+          }
+        } catch (InterruptedException err) {
+          return;
+        } catch (Throwable err) {
+          // Keep reaping, a failed free must not stop the others
+        }
+      }
+    }
+
+    private static final class Phantom extends PhantomReference<Object> {
+      private final Runnable action;
+
+      Phantom(Object owner, ReferenceQueue<Object> queue, Runnable action) {
+        super(owner, queue);
+        this.action = action;
+      }
+    }
+  }
+}
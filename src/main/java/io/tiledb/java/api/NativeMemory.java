@@ -0,0 +1,447 @@
+package io.tiledb.java.api;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Accounts for the off-heap memory held by the API across the JVM, and optionally caps it.
+ *
+ * <p>Every {@link NativeArray} and every direct buffer the API allocates for query results, such
+ * as by {@link Query#setBuffer(String, long)}, reserves its bytes here before it is allocated and
+ * releases them once freed. Bytes are counted by {@link Category} and, for buffers of a query, by
+ * array URI; a NativeArray is counted for an array once it is set as a buffer of a query on it.
+ * The totals are exposed over JMX by {@link #registerMXBean()}.
+ *
+ * <p>With a budget set, an allocation that would exceed it either fails with a TileDBError, or
+ * with {@link Policy#BLOCK} waits until enough memory is released, so an overloaded process sheds
+ * work instead of being killed for running out of memory. Direct buffers are only released once
+ * collected, so {@link #setCollectOnBlock} can let blocked allocations request a garbage
+ * collection. Memory TileDB allocates internally is not counted.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * NativeMemory.setBudget(4L << 30, NativeMemory.Policy.BLOCK, 30, TimeUnit.SECONDS);
+ * NativeMemory.registerMXBean();
+ * }</pre>
+ */
+public final class NativeMemory {
+
+  /** The name the MXBean is registered under. */
+  public static final String MXBEAN_NAME = "io.tiledb.java.api:type=NativeMemory";
+
+  /** The kinds of off-heap allocations. */
+  public enum Category {
+    /** The native arrays of {@link NativeArray}. */
+    NATIVE_ARRAY,
+    /** The direct buffers allocated for query results. */
+    DIRECT_BUFFER
+  }
+
+  /** What an allocation does when it would exceed the budget. */
+  public enum Policy {
+    /** Fail at once with a TileDBError. */
+    FAIL_FAST,
+    /** Wait for memory to be released, up to the timeout, then fail. */
+    BLOCK
+  }
+
+  private static final ReentrantLock LOCK = new ReentrantLock();
+  private static final Condition RELEASED = LOCK.newCondition();
+  private static final AtomicLong LIVE = new AtomicLong();
+  private static final AtomicLong PEAK = new AtomicLong();
+  private static final LongAdder ALLOCATED = new LongAdder();
+  private static final LongAdder FREED = new LongAdder();
+  private static final LongAdder BLOCKED = new LongAdder();
+  private static final LongAdder REJECTED = new LongAdder();
+  private static final Map<Category, LongAdder> BY_CATEGORY = new ConcurrentHashMap<>();
+  // Entries are removed once they drop back to 0, so the map only holds URIs with live bytes
+  private static final Map<String, Long> BY_URI = new ConcurrentHashMap<>();
+
+  private static volatile long budget;
+  private static volatile Policy policy = Policy.FAIL_FAST;
+  private static volatile long timeoutNanos;
+  // 0 if blocked allocations do not request a collection
+  private static volatile long gcIntervalNanos;
+  private static final AtomicLong LAST_GC = new AtomicLong();
+
+  private NativeMemory() {}
+
+  /**
+   * Sets a JVM-wide budget of off-heap bytes.
+   *
+   * @param bytes The budget, or 0 for unlimited
+   * @param policy What an allocation does when it would exceed the budget
+   * @param timeout How long a blocked allocation waits before failing
+   * @param unit The unit of the timeout
+   */
+  public static void setBudget(long bytes, Policy policy, long timeout, TimeUnit unit) {
+    NativeMemory.policy = policy;
+    NativeMemory.timeoutNanos = unit.toNanos(timeout);
+    setBudget(bytes);
+  }
+
+  /**
+   * Sets a JVM-wide budget of off-heap bytes, keeping the policy.
+   *
+   * @param bytes The budget, or 0 for unlimited
+   */
+  public static void setBudget(long bytes) {
+    LOCK.lock();
+    try {
+      budget = Math.max(bytes, 0);
+      // A larger budget may let blocked allocations through
+      RELEASED.signalAll();
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /**
+   * Makes allocations blocked by the budget request a garbage collection, so that unreachable
+   * direct buffers release their bytes, at most once per interval across the JVM. Off by default.
+   *
+   * @param interval The minimum time between two requested collections, or 0 to request none
+   * @param unit The unit of the interval
+   */
+  public static void setCollectOnBlock(long interval, TimeUnit unit) {
+    gcIntervalNanos = Math.max(unit.toNanos(interval), 0);
+  }
+
+  /** @return The budget in bytes, or 0 if unlimited */
+  public static long getBudget() {
+    return budget;
+  }
+
+  /** @return What an allocation does when it would exceed the budget */
+  public static Policy getPolicy() {
+    return policy;
+  }
+
+  /** @return The bytes currently held off-heap */
+  public static long getLiveBytes() {
+    return LIVE.get();
+  }
+
+  /** @return The highest number of bytes held off-heap at once */
+  public static long getPeakBytes() {
+    return PEAK.get();
+  }
+
+  /** @return The bytes allocated since startup */
+  public static long getAllocatedBytes() {
+    return ALLOCATED.sum();
+  }
+
+  /** @return The bytes freed since startup */
+  public static long getFreedBytes() {
+    return FREED.sum();
+  }
+
+  /**
+   * @param category A category
+   * @return The bytes currently held in the category
+   */
+  public static long getLiveBytes(Category category) {
+    LongAdder bytes = BY_CATEGORY.get(category);
+    return bytes == null ? 0 : bytes.sum();
+  }
+
+  /**
+   * @param uri An array URI
+   * @return The bytes currently held for the array
+   */
+  public static long getLiveBytes(String uri) {
+    Long bytes = BY_URI.get(uri);
+    return bytes == null ? 0 : bytes;
+  }
+
+  /** @return The number of allocations that waited for memory to be released */
+  public static long getBlockedCount() {
+    return BLOCKED.sum();
+  }
+
+  /** @return The number of allocations refused because of the budget */
+  public static long getRejectedCount() {
+    return REJECTED.sum();
+  }
+
+  /**
+   * Registers the {@link NativeMemoryMXBean} with the platform MBean server under {@value
+   * #MXBEAN_NAME}. Registering again does nothing.
+   *
+   * @throws TileDBError if the MXBean cannot be registered
+   */
+  public static void registerMXBean() throws TileDBError {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(new MXBean(), new ObjectName(MXBEAN_NAME));
+    } catch (InstanceAlreadyExistsException err) {
+      // Already registered
+    } catch (Exception err) {
+      throw new TileDBError("Cannot register the NativeMemory MXBean: " + err.getMessage());
+    }
+  }
+
+  /**
+   * Reserves bytes before allocating them, waiting or failing per the policy if the budget would
+   * be exceeded.
+   *
+   * @param category The category of the allocation
+   * @param uri The array URI the allocation is for, or null
+   * @param bytes The bytes to allocate
+   * @return The reservation, to release once the bytes are freed
+   * @throws TileDBError if the budget does not allow the allocation
+   */
+  static Reservation reserve(Category category, String uri, long bytes) throws TileDBError {
+    long live = admit(bytes);
+    long peak = PEAK.get();
+    while (live > peak && !PEAK.compareAndSet(peak, live)) {
+      peak = PEAK.get();
+    }
+    ALLOCATED.add(bytes);
+    BY_CATEGORY.computeIfAbsent(category, c -> new LongAdder()).add(bytes);
+    if (uri != null) {
+      BY_URI.merge(uri, bytes, Long::sum);
+    }
+    return new Reservation(category, uri, bytes);
+  }
+
+  /**
+   * Allocates a direct buffer in native byte order, whose bytes are released once it becomes
+   * unreachable, when the JVM frees it.
+   *
+   * @param uri The array URI the buffer is for, or null
+   * @param bytes The capacity
+   * @return The buffer
+   * @throws TileDBError if the budget does not allow the allocation
+   */
+  static ByteBuffer allocateDirect(String uri, int bytes) throws TileDBError {
+    Reservation reservation = reserve(Category.DIRECT_BUFFER, uri, bytes);
+    ByteBuffer buffer;
+    try {
+      buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    } catch (OutOfMemoryError err) {
+      reservation.release();
+      throw err;
+    }
+    NativeHandles.onUnreachable(buffer, reservation::release);
+    return buffer;
+  }
+
+  /**
+   * Adds bytes to the live bytes if the budget allows it, waiting or failing per the policy
+   * otherwise.
+   *
+   * @return The live bytes, including the bytes admitted
+   */
+  private static long admit(long bytes) throws TileDBError {
+    long limit = budget;
+    if (limit > 0 && bytes > limit) {
+      REJECTED.increment();
+      throw new TileDBError(
+          "Allocation of " + bytes + " bytes exceeds the native memory budget of " + limit);
+    }
+    long live = tryAdmit(bytes, limit);
+    if (live >= 0) {
+      return live;
+    }
+    if (policy == Policy.FAIL_FAST) {
+      REJECTED.increment();
+      throw exceeded(bytes);
+    }
+    BLOCKED.increment();
+    maybeCollect();
+    long remaining = timeoutNanos;
+    LOCK.lock();
+    try {
+      // Releases signal under the lock, so none is missed between an attempt and the wait
+      while ((live = tryAdmit(bytes, budget)) < 0) {
+        if (remaining <= 0) {
+          REJECTED.increment();
+          throw exceeded(bytes);
+        }
+        remaining = RELEASED.awaitNanos(remaining);
+      }
+      return live;
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new TileDBError("Interrupted waiting for native memory");
+    } finally {
+      LOCK.unlock();
+    }
+  }
+
+  /** Requests a garbage collection if enabled and none was requested within the interval. */
+  private static void maybeCollect() {
+    long interval = gcIntervalNanos;
+    if (interval == 0) {
+      return;
+    }
+    long now = System.nanoTime();
+    long last = LAST_GC.get();
+    if ((last == 0 || now - last >= interval) && LAST_GC.compareAndSet(last, now)) {
+      System.gc();
+    }
+  }
+
+  /**
+   * Adds bytes to the live bytes only if they stay within the limit, so that concurrent
+   * allocations cannot overshoot it together.
+   *
+   * @param limit The budget, or 0 for unlimited
+   * @return The live bytes, including the bytes admitted, or -1 if the limit does not allow them
+   */
+  private static long tryAdmit(long bytes, long limit) {
+    while (true) {
+      long live = LIVE.get();
+      long next = live + bytes;
+      if (limit > 0 && next > limit) {
+        return -1;
+      }
+      if (LIVE.compareAndSet(live, next)) {
+        return next;
+      }
+    }
+  }
+
+  private static TileDBError exceeded(long bytes) {
+    return new TileDBError(
+        "Native memory budget of "
+            + budget
+            + " bytes exceeded: "
+            + LIVE.get()
+            + " bytes held, "
+            + bytes
+            + " requested");
+  }
+
+  /** Bytes reserved by an allocation. */
+  static final class Reservation {
+    private final Category category;
+    // Guarded by this, set later for allocations made before their array is known
+    private String uri;
+    private final long bytes;
+    private final AtomicBoolean released;
+
+    private Reservation(Category category, String uri, long bytes) {
+      this.category = category;
+      this.uri = uri;
+      this.bytes = bytes;
+      this.released = new AtomicBoolean();
+    }
+
+    /**
+     * Counts the bytes for an array, if they are not counted for one yet and not released.
+     *
+     * @param uri The array URI
+     */
+    synchronized void attribute(String uri) {
+      if (this.uri == null && uri != null && !released.get()) {
+        this.uri = uri;
+        BY_URI.merge(uri, bytes, Long::sum);
+      }
+    }
+
+    /** Releases the bytes, once. Further calls do nothing. */
+    void release() {
+      if (!released.compareAndSet(false, true)) {
+        return;
+      }
+      LIVE.addAndGet(-bytes);
+      FREED.add(bytes);
+      BY_CATEGORY.get(category).add(-bytes);
+      String uri;
+      synchronized (this) {
+        uri = this.uri;
+      }
+      if (uri != null) {
+        BY_URI.computeIfPresent(uri, (u, held) -> held == bytes ? null : held - bytes);
+      }
+      if (budget > 0) {
+        LOCK.lock();
+        try {
+          RELEASED.signalAll();
+        } finally {
+          LOCK.unlock();
+        }
+      }
+    }
+  }
+
+  private static Map<String, Long> snapshot(Map<?, ? extends Number> counters) {
+    Map<String, Long> snapshot = new TreeMap<>();
+    for (Map.Entry<?, ? extends Number> e : counters.entrySet()) {
+      long bytes = e.getValue().longValue();
+      if (bytes != 0) {
+        snapshot.put(e.getKey().toString(), bytes);
+      }
+    }
+    return snapshot;
+  }
+
+  private static final class MXBean implements NativeMemoryMXBean {
+    @Override
+    public long getLiveBytes() {
+      return NativeMemory.getLiveBytes();
+    }
+
+    @Override
+    public long getPeakBytes() {
+      return NativeMemory.getPeakBytes();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+      return NativeMemory.getAllocatedBytes();
+    }
+
+    @Override
+    public long getFreedBytes() {
+      return NativeMemory.getFreedBytes();
+    }
+
+    @Override
+    public Map<String, Long> getLiveBytesByCategory() {
+      return snapshot(BY_CATEGORY);
+    }
+
+    @Override
+    public Map<String, Long> getLiveBytesByUri() {
+      return snapshot(BY_URI);
+    }
+
+    @Override
+    public long getBudget() {
+      return NativeMemory.getBudget();
+    }
+
+    @Override
+    public void setBudget(long bytes) {
+      NativeMemory.setBudget(bytes);
+    }
+
+    @Override
+    public long getBlockedCount() {
+      return NativeMemory.getBlockedCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+      return NativeMemory.getRejectedCount();
+    }
+  }
+}
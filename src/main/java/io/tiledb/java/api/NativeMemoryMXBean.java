@@ -0,0 +1,40 @@
+package io.tiledb.java.api;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link NativeMemory}, registered with {@link
+ * NativeMemory#registerMXBean()}.
+ */
+public interface NativeMemoryMXBean {
+
+  /** @return The bytes currently held off-heap */
+  long getLiveBytes();
+
+  /** @return The highest number of bytes held off-heap at once */
+  long getPeakBytes();
+
+  /** @return The bytes allocated since startup */
+  long getAllocatedBytes();
+
+  /** @return The bytes freed since startup */
+  long getFreedBytes();
+
+  /** @return The bytes currently held, by category */
+  Map<String, Long> getLiveBytesByCategory();
+
+  /** @return The bytes currently held, by array URI, for allocations made for an array */
+  Map<String, Long> getLiveBytesByUri();
+
+  /** @return The budget in bytes, or 0 if unlimited */
+  long getBudget();
+
+  /** @param bytes The budget in bytes, or 0 for unlimited */
+  void setBudget(long bytes);
+
+  /** @return The number of allocations that waited for memory to be freed */
+  long getBlockedCount();
+
+  /** @return The number of allocations refused because of the budget */
+  long getRejectedCount();
+}
@@ -0,0 +1,74 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A zero-copy view of the values of a fixed-sized numeric field, read straight from a direct
+ * result buffer. Subclasses read one primitive type without boxing and without dispatching on the
+ * datatype per value, so loops over them can be compiled to plain memory loads.
+ *
+ * <p>A column holds one value per element, so a field of {@code n} values per cell has {@code n}
+ * consecutive values per cell. Null checks are per cell, and only meaningful when there is one
+ * value per cell.
+ */
+public abstract class NumericColumn {
+
+  private final int size;
+  private final Validity validity;
+
+  NumericColumn(int size, ByteBuffer validity) {
+    this.size = size;
+    this.validity = validity == null ? null : new Validity(validity, size);
+  }
+
+  /** @return The number of values */
+  public final int size() {
+    return size;
+  }
+
+  /**
+   * @param i The value index
+   * @return true if the cell is null
+   */
+  public final boolean isNull(int i) {
+    return validity != null && validity.isNull(i);
+  }
+
+  /** @return The validity of the cells, or null if the field is not nullable */
+  public final Validity getValidity() {
+    return validity;
+  }
+
+  /** Returns the data buffer from the start, in native order, as typed views need. */
+  static ByteBuffer nativeOrder(ByteBuffer data) {
+    ByteBuffer view = data.duplicate();
+    view.position(0);
+    return view.order(ByteOrder.nativeOrder());
+  }
+
+  /** Checks a bulk copy up front, so the copy loop itself needs no bounds checks. */
+  static void checkRange(int from, int length, int size, int offset, int dstLength) {
+    if (from < 0 || length < 0 || from > size - length) {
+      throw new IndexOutOfBoundsException(
+          "Values [" + from + ", " + (from + length) + ") out of " + size);
+    }
+    if (offset < 0 || offset > dstLength - length) {
+      throw new IndexOutOfBoundsException(
+          "Array range [" + offset + ", " + (offset + length) + ") out of " + dstLength);
+    }
+  }
+
+  static void checkType(String field, Datatype type, boolean matches, String column)
+      throws TileDBError {
+    if (!matches) {
+      throw new TileDBError("Cannot read field " + field + " of type " + type + " as " + column);
+    }
+  }
+
+  static void checkFixed(BatchReader reader, String field) throws TileDBError {
+    if (reader.isVar(field)) {
+      throw new TileDBError("Field is var-sized: " + field);
+    }
+  }
+}
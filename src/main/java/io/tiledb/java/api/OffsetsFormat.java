@@ -0,0 +1,148 @@
+package io.tiledb.java.api;
+
+/**
+ * The format of the offsets of var-sized attributes and dimensions, set by the {@code
+ * sm.var_offsets.bitsize}, {@code sm.var_offsets.mode} and {@code sm.var_offsets.extra_element}
+ * config parameters.
+ *
+ * <p>Offsets are 64-bit (the default) or 32-bit unsigned integers, counting bytes (the default) or
+ * elements of the field's datatype. With the extra element, one more offset follows the offsets of
+ * the cells and holds the end of the last cell, so the end of every cell is the next offset.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * Config config = new Config();
+ * new OffsetsFormat(32, false, true).applyTo(config);
+ * Context ctx = new Context(config);
+ * }</pre>
+ */
+public final class OffsetsFormat {
+
+  /** The default format: 64-bit byte offsets without an extra element. */
+  public static final OffsetsFormat DEFAULT = new OffsetsFormat(64, false, false);
+
+  static final String BITSIZE_KEY = "sm.var_offsets.bitsize";
+  static final String MODE_KEY = "sm.var_offsets.mode";
+  static final String EXTRA_ELEMENT_KEY = "sm.var_offsets.extra_element";
+
+  private final int bitsize;
+  private final boolean elements;
+  private final boolean extraElement;
+
+  /**
+   * @param bitsize The width of an offset, 32 or 64
+   * @param elements true if offsets count elements, false if they count bytes
+   * @param extraElement true if an extra offset holds the end of the last cell
+   * @throws IllegalArgumentException if the bitsize is not 32 or 64
+   */
+  public OffsetsFormat(int bitsize, boolean elements, boolean extraElement) {
+    if (bitsize != 32 && bitsize != 64) {
+      throw new IllegalArgumentException("Offsets bitsize must be 32 or 64, got: " + bitsize);
+    }
+    this.bitsize = bitsize;
+    this.elements = elements;
+    this.extraElement = extraElement;
+  }
+
+  /**
+   * Reads the format from a config.
+   *
+   * @param config The config of a context or query
+   * @return The format
+   * @throws TileDBError if a parameter has an invalid value
+   */
+  public static OffsetsFormat fromConfig(Config config) throws TileDBError {
+    String bitsize = config.get(BITSIZE_KEY);
+    String mode = config.get(MODE_KEY);
+    String extra = config.get(EXTRA_ELEMENT_KEY);
+    if (!bitsize.equals("32") && !bitsize.equals("64")) {
+      throw new TileDBError("Invalid " + BITSIZE_KEY + ": " + bitsize);
+    }
+    if (!mode.equals("bytes") && !mode.equals("elements")) {
+      throw new TileDBError("Invalid " + MODE_KEY + ": " + mode);
+    }
+    if (!extra.equals("true") && !extra.equals("false")) {
+      throw new TileDBError("Invalid " + EXTRA_ELEMENT_KEY + ": " + extra);
+    }
+    OffsetsFormat format =
+        new OffsetsFormat(Integer.parseInt(bitsize), mode.equals("elements"), extra.equals("true"));
+    return format.equals(DEFAULT) ? DEFAULT : format;
+  }
+
+  /**
+   * Sets the format on a config.
+   *
+   * @param config The config
+   * @throws TileDBError A TileDB exception
+   */
+  public void applyTo(Config config) throws TileDBError {
+    config.set(BITSIZE_KEY, Integer.toString(bitsize));
+    config.set(MODE_KEY, elements ? "elements" : "bytes");
+    config.set(EXTRA_ELEMENT_KEY, Boolean.toString(extraElement));
+  }
+
+  /** @return The width of an offset in bits, 32 or 64 */
+  public int getBitsize() {
+    return bitsize;
+  }
+
+  /** @return The width of an offset in bytes, 4 or 8 */
+  public int getBytesPerOffset() {
+    return bitsize / 8;
+  }
+
+  /** @return true if offsets count elements, false if they count bytes */
+  public boolean isElementMode() {
+    return elements;
+  }
+
+  /** @return true if an extra offset holds the end of the last cell */
+  public boolean hasExtraElement() {
+    return extraElement;
+  }
+
+  /**
+   * @param cells A number of cells
+   * @return The number of bytes of the offsets of that many cells
+   */
+  public long offsetsBytes(long cells) {
+    return (cells + (extraElement ? 1 : 0)) * getBytesPerOffset();
+  }
+
+  /**
+   * @param offsetsBytes The number of bytes of offsets
+   * @return The number of cells they are the offsets of
+   */
+  public int cellNum(long offsetsBytes) {
+    long offsets = offsetsBytes / getBytesPerOffset();
+    return (int) Math.max(0, extraElement ? offsets - 1 : offsets);
+  }
+
+  /** @return The datatype of NativeArray offsets in this format */
+  Datatype offsetsType() {
+    return bitsize == 64 ? Datatype.TILEDB_UINT64 : Datatype.TILEDB_UINT32;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof OffsetsFormat)) {
+      return false;
+    }
+    OffsetsFormat other = (OffsetsFormat) o;
+    return bitsize == other.bitsize
+        && elements == other.elements
+        && extraElement == other.extraElement;
+  }
+
+  @Override
+  public int hashCode() {
+    return bitsize * 4 + (elements ? 2 : 0) + (extraElement ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    String unit = elements ? "element" : "byte";
+    return bitsize + "-bit " + unit + " offsets" + (extraElement ? " with extra element" : "");
+  }
+}
@@ -0,0 +1,167 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only view of the offsets of a var-sized field in any {@link OffsetsFormat}, giving the
+ * start and end of every cell in bytes of the data buffer.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * OffsetsView offsets = query.getOffsetsView("a1");
+ * for (int i = 0; i < offsets.size(); i++) {
+ *   int length = (int) (offsets.endByte(i) - offsets.startByte(i));
+ * }
+ * }</pre>
+ */
+public abstract class OffsetsView {
+
+  private final OffsetsFormat format;
+  private final boolean extraElement;
+  private final int unit;
+  private final int size;
+  private final long dataBytes;
+
+  OffsetsView(OffsetsFormat format, int unit, int size, long dataBytes) {
+    this.format = format;
+    this.extraElement = format.hasExtraElement();
+    this.unit = unit;
+    this.size = size;
+    this.dataBytes = dataBytes;
+  }
+
+  /**
+   * Creates a view over buffers of results. The number of cells is derived from the limit of the
+   * offsets buffer, and the end of the last cell without an extra element from the limit of the
+   * data buffer.
+   *
+   * @param offsets The offsets buffer, read with absolute gets
+   * @param data The data buffer
+   * @param format The format of the offsets
+   * @param type The datatype of the field, whose size is the unit of element offsets
+   * @return The view
+   * @throws TileDBError A TileDB exception
+   */
+  public static OffsetsView of(
+      ByteBuffer offsets, ByteBuffer data, OffsetsFormat format, Datatype type)
+      throws TileDBError {
+    int unit = format.isElementMode() ? type.getNativeSize() : 1;
+    return of(offsets, format, format.cellNum(offsets.limit()), data.limit(), unit);
+  }
+
+  /**
+   * Creates a view over 64-bit byte offsets, the default format, as returned by {@link
+   * Query#getVarBuffer(String)}.
+   *
+   * @param offsets The offsets
+   * @param dataBytes The number of bytes of data, the end of the last cell
+   * @return The view
+   */
+  public static OffsetsView of(long[] offsets, long dataBytes) {
+    return new ArrayOffsets(offsets, dataBytes);
+  }
+
+  static OffsetsView of(
+      ByteBuffer offsets, OffsetsFormat format, int size, long dataBytes, int unit) {
+    if (format.getBitsize() == 64) {
+      return new WideOffsets(offsets, format, unit, size, dataBytes);
+    }
+    return new NarrowOffsets(offsets, format, unit, size, dataBytes);
+  }
+
+  /** @return The number of cells */
+  public final int size() {
+    return size;
+  }
+
+  /** @return The format of the offsets */
+  public final OffsetsFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * @param i The offset index, up to {@link #size()} included with the extra element
+   * @return The offset as stored, in bytes or elements
+   */
+  public abstract long get(int i);
+
+  /**
+   * @param cell The cell index
+   * @return The offset of the first byte of the cell in the data buffer
+   */
+  public final long startByte(int cell) {
+    return get(cell) * unit;
+  }
+
+  /**
+   * @param cell The cell index
+   * @return The offset after the last byte of the cell in the data buffer
+   */
+  public final long endByte(int cell) {
+    if (extraElement || cell + 1 < size) {
+      return get(cell + 1) * unit;
+    }
+    return dataBytes;
+  }
+
+  /** @return The offsets as stored, widened to longs, including the extra element if any */
+  public final long[] toArray() {
+    long[] values = new long[size + (extraElement && size > 0 ? 1 : 0)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = get(i);
+    }
+    return values;
+  }
+
+  /** @return The start of every cell as 64-bit byte offsets, the default format */
+  public final long[] toByteOffsets() {
+    long[] values = new long[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = startByte(i);
+    }
+    return values;
+  }
+
+  private static final class WideOffsets extends OffsetsView {
+    private final ByteBuffer offsets;
+
+    WideOffsets(ByteBuffer offsets, OffsetsFormat format, int unit, int size, long dataBytes) {
+      super(format, unit, size, dataBytes);
+      this.offsets = offsets;
+    }
+
+    @Override
+    public long get(int i) {
+      return offsets.getLong(i << 3);
+    }
+  }
+
+  private static final class NarrowOffsets extends OffsetsView {
+    private final ByteBuffer offsets;
+
+    NarrowOffsets(ByteBuffer offsets, OffsetsFormat format, int unit, int size, long dataBytes) {
+      super(format, unit, size, dataBytes);
+      this.offsets = offsets;
+    }
+
+    @Override
+    public long get(int i) {
+      return offsets.getInt(i << 2) & 0xFFFFFFFFL;
+    }
+  }
+
+  private static final class ArrayOffsets extends OffsetsView {
+    private final long[] offsets;
+
+    ArrayOffsets(long[] offsets, long dataBytes) {
+      super(OffsetsFormat.DEFAULT, 1, offsets.length, dataBytes);
+      this.offsets = offsets;
+    }
+
+    @Override
+    public long get(int i) {
+      return offsets[i];
+    }
+  }
+}
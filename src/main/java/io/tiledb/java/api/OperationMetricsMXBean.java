@@ -0,0 +1,35 @@
+package io.tiledb.java.api;
+
+/**
+ * The management interface of the measurements of one {@link Metrics.Operation}, registered with
+ * {@link HistogramRecorder#registerMXBeans()}. Latencies are in nanoseconds.
+ */
+public interface OperationMetricsMXBean {
+
+  /** @return The number of operations recorded */
+  long getCount();
+
+  /** @return The bytes handled by the operations recorded */
+  long getBytes();
+
+  /** @return The mean latency */
+  double getMeanNanos();
+
+  /** @return The median latency */
+  long getP50Nanos();
+
+  /** @return The 90th percentile latency */
+  long getP90Nanos();
+
+  /** @return The 99th percentile latency */
+  long getP99Nanos();
+
+  /** @return The 99.9th percentile latency */
+  long getP999Nanos();
+
+  /** @return The highest latency */
+  long getMaxNanos();
+
+  /** Clears the measurements. */
+  void reset();
+}
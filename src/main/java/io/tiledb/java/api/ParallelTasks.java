@@ -0,0 +1,114 @@
+package io.tiledb.java.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Runs the tasks an operation is split into, such as partitions or chunks, concurrently. */
+final class ParallelTasks {
+
+  /** The time after which an idle thread of a pool from {@link #newPool} stops. */
+  static final long KEEP_ALIVE_SECONDS = 30;
+
+  private ParallelTasks() {}
+
+  /**
+   * Creates a pool of daemon threads, which stop once idle for {@link #KEEP_ALIVE_SECONDS}, so that
+   * a pool kept for reuse holds no thread between bursts of work.
+   *
+   * @param threads The maximum number of threads
+   * @param threadPrefix The prefix of the thread names
+   * @return The pool
+   */
+  static ExecutorService newPool(int threads, String threadPrefix) {
+    AtomicInteger count = new AtomicInteger();
+    ThreadPoolExecutor pool =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+              Thread t = new Thread(r, threadPrefix + count.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  /**
+   * Runs tasks on a pool of up to {@code parallelism} threads created for the call, or on the
+   * calling thread if there is only one task.
+   *
+   * @return The results of the tasks, in order
+   */
+  static <T> List<T> runAll(List<Callable<T>> tasks, int parallelism, String threadPrefix)
+      throws TileDBError {
+    if (tasks.size() <= 1 || parallelism <= 1) {
+      return runAll(tasks, null);
+    }
+    ExecutorService pool = newPool(Math.min(parallelism, tasks.size()), threadPrefix);
+    try {
+      return runAll(tasks, pool);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs tasks on an executor, or on the calling thread if the executor is null or there is only
+   * one task. The executor is left running; the tasks not done yet when one fails are cancelled.
+   *
+   * @return The results of the tasks, in order
+   */
+  static <T> List<T> runAll(List<Callable<T>> tasks, ExecutorService executor)
+      throws TileDBError {
+    List<T> results = new ArrayList<>(tasks.size());
+    if (executor == null || tasks.size() <= 1) {
+      for (Callable<T> task : tasks) {
+        try {
+          results.add(task.call());
+        } catch (TileDBError | RuntimeException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new TileDBError(e.toString());
+        }
+      }
+      return results;
+    }
+
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TileDBError) {
+        throw (TileDBError) e.getCause();
+      }
+      throw new TileDBError("Partition failed: " + e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TileDBError("Interrupted while waiting for partitions");
+    } finally {
+      if (results.size() < futures.size() || futures.size() < tasks.size()) {
+        for (Future<T> future : futures) {
+          future.cancel(true);
+        }
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,331 @@
+package io.tiledb.java.api;
+
+import io.tiledb.libtiledb.tiledb_query_condition_op_t;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A filter expression over the dimensions and attributes of an array. Predicates are immutable and
+ * are built with the static factory methods of this class.
+ *
+ * <p>Predicates are turned into subarray ranges and QueryConditions by {@link QueryPlan}, so that
+ * dimension predicates only read the tiles they need.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * Predicate p =
+ *     Predicate.and(
+ *         Predicate.or(Predicate.between("rows", 1, 10), Predicate.in("rows", 20, 30)),
+ *         Predicate.gt("a1", 15.0f));
+ * }</pre>
+ */
+public abstract class Predicate {
+
+  /** Comparison operators supported by predicates. */
+  enum Op {
+    LT("<", tiledb_query_condition_op_t.TILEDB_LT),
+    LE("<=", tiledb_query_condition_op_t.TILEDB_LE),
+    GT(">", tiledb_query_condition_op_t.TILEDB_GT),
+    GE(">=", tiledb_query_condition_op_t.TILEDB_GE),
+    EQ("=", tiledb_query_condition_op_t.TILEDB_EQ),
+    NE("!=", tiledb_query_condition_op_t.TILEDB_NE);
+
+    private final String symbol;
+    private final tiledb_query_condition_op_t nativeOp;
+
+    Op(String symbol, tiledb_query_condition_op_t nativeOp) {
+      this.symbol = symbol;
+      this.nativeOp = nativeOp;
+    }
+
+    Op negate() {
+      switch (this) {
+        case LT:
+          return GE;
+        case LE:
+          return GT;
+        case GT:
+          return LE;
+        case GE:
+          return LT;
+        case EQ:
+          return NE;
+        default:
+          return EQ;
+      }
+    }
+
+    tiledb_query_condition_op_t toNative() {
+      return nativeOp;
+    }
+  }
+
+  Predicate() {}
+
+  public static Predicate eq(String field, Object value) {
+    return new Comparison(field, Op.EQ, value);
+  }
+
+  public static Predicate ne(String field, Object value) {
+    return new Comparison(field, Op.NE, value);
+  }
+
+  public static Predicate lt(String field, Object value) {
+    return new Comparison(field, Op.LT, value);
+  }
+
+  public static Predicate le(String field, Object value) {
+    return new Comparison(field, Op.LE, value);
+  }
+
+  public static Predicate gt(String field, Object value) {
+    return new Comparison(field, Op.GT, value);
+  }
+
+  public static Predicate ge(String field, Object value) {
+    return new Comparison(field, Op.GE, value);
+  }
+
+  /** Matches cells whose field lies in the inclusive range [low, high]. */
+  public static Predicate between(String field, Object low, Object high) {
+    return new Between(field, low, high);
+  }
+
+  /** Matches cells whose field is equal to one of the values. */
+  public static Predicate in(String field, Object... values) {
+    if (values.length == 0) {
+      throw new IllegalArgumentException("IN list of field '" + field + "' is empty");
+    }
+    return new In(field, Arrays.asList(values.clone()));
+  }
+
+  public static Predicate isNull(String field) {
+    return new NullTest(field, true);
+  }
+
+  public static Predicate isNotNull(String field) {
+    return new NullTest(field, false);
+  }
+
+  public static Predicate and(Predicate... operands) {
+    return operands.length == 1 ? operands[0] : new And(Arrays.asList(operands.clone()));
+  }
+
+  public static Predicate or(Predicate... operands) {
+    return operands.length == 1 ? operands[0] : new Or(Arrays.asList(operands.clone()));
+  }
+
+  public static Predicate not(Predicate operand) {
+    return operand.negate();
+  }
+
+  /** Adds the names of all fields the predicate refers to. */
+  abstract void collectFields(Set<String> fields);
+
+  /**
+   * Returns the logical negation of the predicate, with the negation pushed down to the
+   * comparisons, so predicates never contain an explicit NOT node. Comparisons on null values
+   * never match, before or after negation.
+   */
+  abstract Predicate negate();
+
+  static final class Comparison extends Predicate {
+    final String field;
+    final Op op;
+    final Object value;
+
+    Comparison(String field, Op op, Object value) {
+      if (value == null) {
+        throw new IllegalArgumentException(
+            "Cannot compare field '" + field + "' with null, use isNull/isNotNull");
+      }
+      this.field = field;
+      this.op = op;
+      this.value = value;
+    }
+
+    @Override
+    void collectFields(Set<String> fields) {
+      fields.add(field);
+    }
+
+    @Override
+    Predicate negate() {
+      return new Comparison(field, op.negate(), value);
+    }
+
+    @Override
+    public String toString() {
+      return field + " " + op.symbol + " " + literal(value);
+    }
+  }
+
+  static final class Between extends Predicate {
+    final String field;
+    final Object low;
+    final Object high;
+
+    Between(String field, Object low, Object high) {
+      if (low == null || high == null) {
+        throw new IllegalArgumentException("BETWEEN bounds of field '" + field + "' are null");
+      }
+      this.field = field;
+      this.low = low;
+      this.high = high;
+    }
+
+    @Override
+    void collectFields(Set<String> fields) {
+      fields.add(field);
+    }
+
+    @Override
+    Predicate negate() {
+      return new Or(
+          Arrays.<Predicate>asList(
+              new Comparison(field, Op.LT, low), new Comparison(field, Op.GT, high)));
+    }
+
+    @Override
+    public String toString() {
+      return field + " BETWEEN " + literal(low) + " AND " + literal(high);
+    }
+  }
+
+  static final class In extends Predicate {
+    final String field;
+    final List<Object> values;
+
+    In(String field, List<Object> values) {
+      for (Object value : values) {
+        if (value == null) {
+          throw new IllegalArgumentException("IN list of field '" + field + "' contains null");
+        }
+      }
+      this.field = field;
+      this.values = Collections.unmodifiableList(values);
+    }
+
+    @Override
+    void collectFields(Set<String> fields) {
+      fields.add(field);
+    }
+
+    @Override
+    Predicate negate() {
+      List<Predicate> operands = new ArrayList<>(values.size());
+      for (Object value : values) {
+        operands.add(new Comparison(field, Op.NE, value));
+      }
+      return operands.size() == 1 ? operands.get(0) : new And(operands);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(field).append(" IN (");
+      for (int i = 0; i < values.size(); i++) {
+        sb.append(i == 0 ? "" : ", ").append(literal(values.get(i)));
+      }
+      return sb.append(")").toString();
+    }
+  }
+
+  static final class NullTest extends Predicate {
+    final String field;
+    final boolean isNull;
+
+    NullTest(String field, boolean isNull) {
+      this.field = field;
+      this.isNull = isNull;
+    }
+
+    @Override
+    void collectFields(Set<String> fields) {
+      fields.add(field);
+    }
+
+    @Override
+    Predicate negate() {
+      return new NullTest(field, !isNull);
+    }
+
+    @Override
+    public String toString() {
+      return field + (isNull ? " IS NULL" : " IS NOT NULL");
+    }
+  }
+
+  static final class And extends Predicate {
+    final List<Predicate> operands;
+
+    And(List<Predicate> operands) {
+      this.operands = Collections.unmodifiableList(operands);
+    }
+
+    @Override
+    void collectFields(Set<String> fields) {
+      for (Predicate p : operands) {
+        p.collectFields(fields);
+      }
+    }
+
+    @Override
+    Predicate negate() {
+      List<Predicate> negated = new ArrayList<>(operands.size());
+      for (Predicate p : operands) {
+        negated.add(p.negate());
+      }
+      return new Or(negated);
+    }
+
+    @Override
+    public String toString() {
+      return join(operands, " AND ");
+    }
+  }
+
+  static final class Or extends Predicate {
+    final List<Predicate> operands;
+
+    Or(List<Predicate> operands) {
+      this.operands = Collections.unmodifiableList(operands);
+    }
+
+    @Override
+    void collectFields(Set<String> fields) {
+      for (Predicate p : operands) {
+        p.collectFields(fields);
+      }
+    }
+
+    @Override
+    Predicate negate() {
+      List<Predicate> negated = new ArrayList<>(operands.size());
+      for (Predicate p : operands) {
+        negated.add(p.negate());
+      }
+      return new And(negated);
+    }
+
+    @Override
+    public String toString() {
+      return join(operands, " OR ");
+    }
+  }
+
+  private static String literal(Object value) {
+    return value instanceof CharSequence ? "'" + value + "'" : String.valueOf(value);
+  }
+
+  private static String join(List<Predicate> operands, String separator) {
+    StringBuilder sb = new StringBuilder("(");
+    for (int i = 0; i < operands.size(); i++) {
+      sb.append(i == 0 ? "" : separator).append(operands.get(i));
+    }
+    return sb.append(")").toString();
+  }
+}
@@ -0,0 +1,209 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates a {@link Predicate} on the current batch of a {@link BatchReader}, one column at a
+ * time, directly on the batch buffers. Comparisons with null cells never match.
+ */
+final class PredicateEvaluator {
+
+  private PredicateEvaluator() {}
+
+  /**
+   * Evaluates a predicate on every cell of the current batch.
+   *
+   * @param p The predicate
+   * @param batch The batch, which must read every field the predicate refers to
+   * @param out Receives the result of each cell, must hold at least batch.size() values
+   * @throws TileDBError if a field is not read or a value does not match the field type
+   */
+  static void evaluate(Predicate p, BatchReader batch, boolean[] out) throws TileDBError {
+    int n = batch.size();
+    if (p instanceof Predicate.And || p instanceof Predicate.Or) {
+      boolean and = p instanceof Predicate.And;
+      List<Predicate> operands = and ? ((Predicate.And) p).operands : ((Predicate.Or) p).operands;
+      evaluate(operands.get(0), batch, out);
+      boolean[] tmp = new boolean[n];
+      for (int k = 1; k < operands.size(); k++) {
+        evaluate(operands.get(k), batch, tmp);
+        for (int i = 0; i < n; i++) {
+          out[i] = and ? out[i] && tmp[i] : out[i] || tmp[i];
+        }
+      }
+    } else if (p instanceof Predicate.Comparison) {
+      Predicate.Comparison cmp = (Predicate.Comparison) p;
+      compare(batch, cmp.field, cmp.op, cmp.value, out, n);
+    } else if (p instanceof Predicate.Between) {
+      Predicate.Between between = (Predicate.Between) p;
+      compare(batch, between.field, Predicate.Op.GE, between.low, out, n);
+      boolean[] tmp = new boolean[n];
+      compare(batch, between.field, Predicate.Op.LE, between.high, tmp, n);
+      for (int i = 0; i < n; i++) {
+        out[i] &= tmp[i];
+      }
+    } else if (p instanceof Predicate.In) {
+      Predicate.In in = (Predicate.In) p;
+      Arrays.fill(out, 0, n, false);
+      boolean[] tmp = new boolean[n];
+      for (Object value : in.values) {
+        compare(batch, in.field, Predicate.Op.EQ, value, tmp, n);
+        for (int i = 0; i < n; i++) {
+          out[i] |= tmp[i];
+        }
+      }
+    } else {
+      Predicate.NullTest test = (Predicate.NullTest) p;
+      Validity validity = batch.getValidityView(test.field);
+      Arrays.fill(out, 0, n, !test.isNull);
+      if (validity != null) {
+        for (int i = validity.nextNull(0); i >= 0; i = validity.nextNull(i + 1)) {
+          out[i] = test.isNull;
+        }
+      }
+    }
+  }
+
+  private static void compare(
+      BatchReader batch, String field, Predicate.Op op, Object literal, boolean[] out, int n)
+      throws TileDBError {
+    Datatype type = batch.getType(field);
+    ByteBuffer data = batch.getData(field);
+    boolean stringField =
+        batch.isVar(field) || type.isStringType() || batch.getCellValNum(field) > 1;
+    if (stringField) {
+      if (!(literal instanceof CharSequence)) {
+        throw typeError(field, type, literal);
+      }
+      byte[] lit = literal.toString().getBytes(StandardCharsets.UTF_8);
+      OffsetsView offsets = batch.getOffsetsView(field);
+      int cellSize = offsets == null ? batch.getCellValNum(field) * type.getNativeSize() : 0;
+      for (int i = 0; i < n; i++) {
+        int start;
+        int end;
+        if (offsets != null) {
+          start = (int) offsets.startByte(i);
+          end = (int) offsets.endByte(i);
+        } else {
+          start = i * cellSize;
+          end = start + cellSize;
+        }
+        out[i] = matches(op, compareBytes(data, start, end, lit));
+      }
+    } else if (!(literal instanceof Number)) {
+      throw typeError(field, type, literal);
+    } else if (type.isRealType() || isFractional((Number) literal)) {
+      double lit = ((Number) literal).doubleValue();
+      for (int i = 0; i < n; i++) {
+        out[i] = matches(op, Double.compare(readDouble(data, type, i), lit));
+      }
+    } else {
+      long lit = ((Number) literal).longValue();
+      if (type == Datatype.TILEDB_UINT64) {
+        for (int i = 0; i < n; i++) {
+          out[i] = matches(op, Long.compareUnsigned(data.getLong(i * 8), lit));
+        }
+      } else {
+        for (int i = 0; i < n; i++) {
+          out[i] = matches(op, Long.compare(readLong(data, type, i), lit));
+        }
+      }
+    }
+
+    Validity validity = batch.getValidityView(field);
+    if (validity != null) {
+      for (int i = validity.nextNull(0); i >= 0; i = validity.nextNull(i + 1)) {
+        out[i] = false;
+      }
+    }
+  }
+
+  static boolean matches(Predicate.Op op, int cmp) {
+    switch (op) {
+      case LT:
+        return cmp < 0;
+      case LE:
+        return cmp <= 0;
+      case GT:
+        return cmp > 0;
+      case GE:
+        return cmp >= 0;
+      case EQ:
+        return cmp == 0;
+      default:
+        return cmp != 0;
+    }
+  }
+
+  /** Reads the i-th value of an integer column, widening unsigned types. */
+  static long readLong(ByteBuffer data, Datatype type, int i) {
+    switch (type) {
+      case TILEDB_CHAR:
+      case TILEDB_INT8:
+        return data.get(i);
+      case TILEDB_UINT8:
+        return data.get(i) & 0xFFL;
+      case TILEDB_INT16:
+        return data.getShort(i * 2);
+      case TILEDB_UINT16:
+        return data.getShort(i * 2) & 0xFFFFL;
+      case TILEDB_INT32:
+        return data.getInt(i * 4);
+      case TILEDB_UINT32:
+        return data.getInt(i * 4) & 0xFFFFFFFFL;
+      default:
+        return data.getLong(i * 8);
+    }
+  }
+
+  /** Reads the i-th value of a numeric column as a double. */
+  static double readDouble(ByteBuffer data, Datatype type, int i) {
+    switch (type) {
+      case TILEDB_FLOAT32:
+        return data.getFloat(i * 4);
+      case TILEDB_FLOAT64:
+        return data.getDouble(i * 8);
+      case TILEDB_UINT64:
+        return unsignedToDouble(data.getLong(i * 8));
+      default:
+        return readLong(data, type, i);
+    }
+  }
+
+  /** Converts the bits of a UINT64 value to a double. */
+  static double unsignedToDouble(long v) {
+    return v >= 0 ? v : (v >>> 1) * 2.0 + (v & 1);
+  }
+
+  private static int compareBytes(ByteBuffer data, int start, int end, byte[] lit) {
+    int len = end - start;
+    int common = Math.min(len, lit.length);
+    for (int k = 0; k < common; k++) {
+      int cmp = Integer.compare(data.get(start + k) & 0xFF, lit[k] & 0xFF);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return Integer.compare(len, lit.length);
+  }
+
+  private static boolean isFractional(Number n) {
+    return (n instanceof Double || n instanceof Float)
+        && n.doubleValue() != Math.rint(n.doubleValue());
+  }
+
+  private static TileDBError typeError(String field, Datatype type, Object literal) {
+    return new TileDBError(
+        "Value "
+            + literal
+            + " of type "
+            + literal.getClass().getSimpleName()
+            + " cannot be compared with field '"
+            + field
+            + "' of type "
+            + type);
+  }
+}
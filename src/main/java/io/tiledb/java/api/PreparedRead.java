@@ -0,0 +1,403 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A read query prepared once and executed many times, for many small reads of the same fields of
+ * an array.
+ *
+ * <p>The native query, its layout, the result buffers and the storage of the condition literals are
+ * allocated when the read is prepared. An execution only writes the subarray, resets the buffer
+ * sizes and submits, so it allocates nothing per read as long as the bound literals stay the same.
+ * TileDB copies the literals into the native condition, so after new values are bound the next
+ * execution builds and sets the condition once. Results are valid until the next execution.
+ *
+ * <p>A PreparedRead is not thread-safe. Use one per thread, for instance from a {@link PerThread}.
+ * The subarray is limited to fixed-sized dimensions.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * QueryConditionTemplate template = new QueryConditionTemplate(array, "a1 > ?");
+ * try (PreparedRead read =
+ *     new PreparedRead(array, Arrays.asList("d1", "a1"), TILEDB_ROW_MAJOR, template, 1024)) {
+ *   int a1 = read.slot("a1");
+ *   read.setRange(0, 1, 100);
+ *   read.getBindings().setInt(0, 5);
+ *   read.execute();
+ *   IntColumn values = new IntColumn(read.getData(a1), read.getValidity(a1));
+ * }
+ * }</pre>
+ */
+public class PreparedRead implements AutoCloseable {
+
+  /** The default number of bytes allocated per cell for the data of var-sized fields. */
+  public static final int DEFAULT_VAR_BYTES_PER_CELL = 32;
+
+  private final FieldSlots slots;
+  private final SingleThreadQuery query;
+  private final QueryConditionTemplate.Bindings bindings;
+  private final int[] cellBytes;
+  private final ByteBuffer subarray;
+  private final Datatype[] dimTypes;
+  private final int[] dimOffsets;
+  private final int[] dimSizes;
+  private final int capacity;
+  // The version of the bindings whose condition is set on the query
+  private long appliedVersion = -1;
+
+  /**
+   * Prepares a read.
+   *
+   * @param array The array, open for reading
+   * @param fields The attributes and dimensions to read
+   * @param layout The layout of the results
+   * @param condition The shape of the query condition, or null
+   * @param capacity The number of cells the buffers can hold per execution
+   * @throws TileDBError A TileDB exception
+   */
+  public PreparedRead(
+      Array array,
+      Collection<String> fields,
+      Layout layout,
+      QueryConditionTemplate condition,
+      int capacity)
+      throws TileDBError {
+    this(array, fields, layout, condition, capacity, DEFAULT_VAR_BYTES_PER_CELL);
+  }
+
+  /**
+   * Prepares a read.
+   *
+   * @param array The array, open for reading
+   * @param fields The attributes and dimensions to read
+   * @param layout The layout of the results
+   * @param condition The shape of the query condition, or null
+   * @param capacity The number of cells the buffers can hold per execution
+   * @param varBytesPerCell The number of bytes allocated per cell for var-sized data
+   * @throws TileDBError A TileDB exception
+   */
+  public PreparedRead(
+      Array array,
+      Collection<String> fields,
+      Layout layout,
+      QueryConditionTemplate condition,
+      int capacity,
+      int varBytesPerCell)
+      throws TileDBError {
+    if (capacity <= 0) {
+      throw new TileDBError("Capacity must be >= 1, got: " + capacity);
+    }
+    if (varBytesPerCell <= 0) {
+      throw new TileDBError("Var bytes per cell must be >= 1, got: " + varBytesPerCell);
+    }
+    this.capacity = capacity;
+    this.slots = new FieldSlots(array, fields);
+    this.cellBytes = new int[slots.size()];
+
+    List<SchemaSnapshot.Field> dims = array.getSchemaSnapshot().getDimensions();
+    this.dimTypes = new Datatype[dims.size()];
+    for (int d = 0; d < dimTypes.length; d++) {
+      SchemaSnapshot.Field dim = dims.get(d);
+      if (dim.isVar()) {
+        throw new TileDBError(
+            "PreparedRead supports fixed-sized dimensions only: " + dim.getName());
+      }
+      dimTypes[d] = dim.getType();
+    }
+    this.dimOffsets = new int[dimTypes.length];
+    this.dimSizes = new int[dimTypes.length];
+    int subarrayBytes = 0;
+    for (int d = 0; d < dimTypes.length; d++) {
+      dimOffsets[d] = subarrayBytes;
+      dimSizes[d] = dimTypes[d].getNativeSize();
+      subarrayBytes += 2 * dimSizes[d];
+    }
+    this.subarray = ByteBuffer.allocateDirect(subarrayBytes).order(ByteOrder.nativeOrder());
+
+    SingleThreadQuery query = new SingleThreadQuery(array, QueryType.TILEDB_READ, slots);
+    QueryConditionTemplate.Bindings bindings = null;
+    try {
+      query.setLayout(layout);
+      OffsetsFormat format = query.getOffsetsFormat();
+      String uri = array.getUri();
+      for (int slot = 0; slot < slots.size(); slot++) {
+        ByteBuffer offsets = null;
+        ByteBuffer data;
+        if (slots.isVar(slot)) {
+          offsets = allocate(uri, format.offsetsBytes(capacity));
+          data = allocate(uri, (long) capacity * varBytesPerCell);
+        } else {
+          cellBytes[slot] = slots.getCellValNum(slot) * slots.getType(slot).getNativeSize();
+          data = allocate(uri, (long) capacity * cellBytes[slot]);
+        }
+        ByteBuffer validity = slots.isNullable(slot) ? allocate(uri, capacity) : null;
+        if (validity == null) {
+          if (offsets == null) {
+            query.setBuffer(slot, data);
+          } else {
+            query.setBuffer(slot, offsets, data);
+          }
+        } else if (offsets == null) {
+          query.setBufferNullable(slot, data, validity);
+        } else {
+          query.setBufferNullable(slot, offsets, data, validity);
+        }
+      }
+      if (condition != null) {
+        bindings = condition.newBindings();
+      }
+    } catch (TileDBError err) {
+      query.close();
+      throw err;
+    }
+    this.query = query;
+    this.bindings = bindings;
+  }
+
+  /**
+   * Resolves a field name to the slot of its results.
+   *
+   * @param field The field name
+   * @return The slot
+   * @throws TileDBError if the field is not read
+   */
+  public int slot(String field) throws TileDBError {
+    return slots.slot(field);
+  }
+
+  /** @return The fields read */
+  public FieldSlots getSlots() {
+    return slots;
+  }
+
+  /** @return The number of cells the buffers can hold per execution */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the bindings of the literals of the condition, to be bound before every execution.
+   *
+   * @return The bindings
+   * @throws TileDBError if the read was prepared without a condition
+   */
+  public QueryConditionTemplate.Bindings getBindings() throws TileDBError {
+    if (bindings == null) {
+      throw new TileDBError("PreparedRead has no condition");
+    }
+    return bindings;
+  }
+
+  /**
+   * Sets the range of an integer or datetime dimension for the next executions.
+   *
+   * @param dimIdx The dimension index
+   * @param start The range start, inclusive
+   * @param end The range end, inclusive
+   * @return This read
+   * @throws TileDBError if the dimension is a floating point dimension
+   */
+  public PreparedRead setRange(int dimIdx, long start, long end) throws TileDBError {
+    Datatype type = dimTypes[dimIdx];
+    if (type.isRealType()) {
+      throw new TileDBError("Dimension " + dimIdx + " has type " + type + ", set a double range");
+    }
+    int offset = dimOffsets[dimIdx];
+    int size = dimSizes[dimIdx];
+    putInteger(offset, size, start);
+    putInteger(offset + size, size, end);
+    return this;
+  }
+
+  /**
+   * Sets the range of a floating point dimension for the next executions.
+   *
+   * @param dimIdx The dimension index
+   * @param start The range start, inclusive
+   * @param end The range end, inclusive
+   * @return This read
+   * @throws TileDBError if the dimension is not a floating point dimension
+   */
+  public PreparedRead setRange(int dimIdx, double start, double end) throws TileDBError {
+    Datatype type = dimTypes[dimIdx];
+    int offset = dimOffsets[dimIdx];
+    if (type == Datatype.TILEDB_FLOAT32) {
+      subarray.putFloat(offset, (float) start).putFloat(offset + 4, (float) end);
+    } else if (type == Datatype.TILEDB_FLOAT64) {
+      subarray.putDouble(offset, start).putDouble(offset + 8, end);
+    } else {
+      throw new TileDBError("Dimension " + dimIdx + " has type " + type + ", set a long range");
+    }
+    return this;
+  }
+
+  /**
+   * Executes the read with the current ranges and bindings.
+   *
+   * @return The query status; on {@link QueryStatus#TILEDB_INCOMPLETE}, call {@link #next()} for
+   *     the following results
+   * @throws TileDBError A TileDB exception
+   */
+  public QueryStatus execute() throws TileDBError {
+    query.setSubarray(subarray);
+    if (bindings != null && bindings.getVersion() != appliedVersion) {
+      bindings.applyTo(query);
+      appliedVersion = bindings.getVersion();
+    }
+    return next();
+  }
+
+  /**
+   * Reads the following results of an incomplete execution into the same buffers.
+   *
+   * @return The query status
+   * @throws TileDBError A TileDB exception
+   */
+  public QueryStatus next() throws TileDBError {
+    query.resetBufferSizes();
+    return query.submit();
+  }
+
+  /**
+   * @return The number of cells of the results of the last submit
+   * @throws TileDBError A TileDB exception
+   */
+  public int size() throws TileDBError {
+    if (slots.isVar(0)) {
+      return query.getOffsetsFormat().cellNum(query.getOffsets(0).limit());
+    }
+    return query.getData(0).limit() / cellBytes[0];
+  }
+
+  /**
+   * @param slot The slot of a field
+   * @return The data of the results of the last submit
+   */
+  public ByteBuffer getData(int slot) {
+    return query.getData(slot);
+  }
+
+  /**
+   * @param slot The slot of a nullable attribute
+   * @return The validity bytemap of the results of the last submit, or null if not nullable
+   */
+  public ByteBuffer getValidity(int slot) {
+    return query.getValidity(slot);
+  }
+
+  /**
+   * @param slot The slot of a var-sized field
+   * @return A view of the offsets of the results of the last submit
+   * @throws TileDBError if the field is not var-sized
+   */
+  public OffsetsView getOffsetsView(int slot) throws TileDBError {
+    return query.getOffsetsView(slot);
+  }
+
+  /** @return The underlying query */
+  public SingleThreadQuery getQuery() {
+    return query;
+  }
+
+  /** Frees the native query and the literal storage. */
+  @Override
+  public void close() {
+    if (bindings != null) {
+      bindings.close();
+    }
+    query.close();
+  }
+
+  private void putInteger(int offset, int size, long value) {
+    switch (size) {
+      case 1:
+        subarray.put(offset, (byte) value);
+        break;
+      case 2:
+        subarray.putShort(offset, (short) value);
+        break;
+      case 4:
+        subarray.putInt(offset, (int) value);
+        break;
+      default:
+        subarray.putLong(offset, value);
+    }
+  }
+
+  private static ByteBuffer allocate(String uri, long bytes) throws TileDBError {
+    if (bytes > Integer.MAX_VALUE) {
+      throw new TileDBError("Buffer of " + bytes + " bytes exceeds 2GB, lower the capacity");
+    }
+    return NativeMemory.allocateDirect(uri, (int) bytes);
+  }
+
+  /** Creates a PreparedRead. */
+  @FunctionalInterface
+  public interface Factory {
+    PreparedRead create() throws TileDBError;
+  }
+
+  /**
+   * One PreparedRead per thread, created on first use in each thread, and all closed together.
+   *
+   * <p><b>Example:</b>
+   *
+   * <pre>{@code
+   * PreparedRead.PerThread reads =
+   *     new PreparedRead.PerThread(() -> new PreparedRead(array, fields, layout, template, 1024));
+   * // In any thread
+   * PreparedRead read = reads.get();
+   * }</pre>
+   */
+  public static class PerThread implements AutoCloseable {
+    private final Factory factory;
+    private final ThreadLocal<PreparedRead> reads;
+    private final List<PreparedRead> all;
+    private volatile boolean closed;
+
+    /** @param factory Creates the read of a thread */
+    public PerThread(Factory factory) {
+      this.factory = factory;
+      this.reads = new ThreadLocal<>();
+      this.all = new ArrayList<>();
+    }
+
+    /**
+     * @return The read of the current thread
+     * @throws TileDBError if the reads are closed, or the read cannot be created
+     */
+    public PreparedRead get() throws TileDBError {
+      if (closed) {
+        throw new TileDBError("PreparedRead.PerThread is closed");
+      }
+      PreparedRead read = reads.get();
+      if (read == null) {
+        read = factory.create();
+        synchronized (this) {
+          if (closed) {
+            read.close();
+            throw new TileDBError("PreparedRead.PerThread is closed");
+          }
+          all.add(read);
+        }
+        reads.set(read);
+      }
+      return read;
+    }
+
+    /** Closes the reads of all threads, which must not be in use anymore. */
+    @Override
+    public synchronized void close() {
+      closed = true;
+      for (PreparedRead read : all) {
+        read.close();
+      }
+      all.clear();
+    }
+  }
+}
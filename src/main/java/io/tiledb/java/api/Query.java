@@ -24,13 +24,12 @@
 
 package io.tiledb.java.api;
 
-import static io.tiledb.java.api.Datatype.TILEDB_UINT64;
-
 import io.tiledb.libtiledb.*;
 import java.math.BigInteger;
 import java.nio.*;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -64,6 +63,10 @@ public class Query implements AutoCloseable {
   private Map<String, NativeArray> validityByteMaps_;
   private Map<String, ByteBuffer> validityByteMapsByteBuffers_;
   private Map<String, uint64_tArray> validityByteMapSizes_;
+  private OffsetsFormat offsetsFormat_;
+  private Config config_;
+  private NativeHandles.Registration handle;
+  private QueryTrace trace;
 
   public Query(Array array, QueryType type) throws TileDBError {
     Context _ctx = array.getCtx();
@@ -80,6 +83,7 @@ public class Query implements AutoCloseable {
     this.type = type;
     this.array = array;
     this.querypp = _querypp;
+    this.handle = NativeHandles.register(this, "Query", 0, () -> free(array, _querypp));
     this.queryp = tiledb.tiledb_query_tpp_value(_querypp);
     this.buffers_ = Collections.synchronizedMap(new HashMap<>());
     this.byteBuffers_ = Collections.synchronizedMap(new HashMap<>());
@@ -87,6 +91,7 @@ public class Query implements AutoCloseable {
     this.validityByteMaps_ = Collections.synchronizedMap(new HashMap<>());
     this.validityByteMapsByteBuffers_ = Collections.synchronizedMap(new HashMap<>());
     this.validityByteMapSizes_ = Collections.synchronizedMap(new HashMap<>());
+    this.trace = QueryTracer.begin(array.getUri(), type);
   }
 
   public Query(Array array) throws TileDBError {
@@ -104,6 +109,22 @@ public class Query implements AutoCloseable {
     return this;
   }
 
+  /**
+   * @return The data layout of the buffers.
+   * @exception TileDBError A TileDB exception
+   */
+  public Layout getLayout() throws TileDBError {
+    Layout layout;
+    SWIGTYPE_p_tiledb_layout_t layoutp = tiledb.new_tiledb_layout_tp();
+    try {
+      ctx.handleError(tiledb.tiledb_query_get_layout(ctx.getCtxp(), queryp, layoutp));
+      layout = Layout.fromSwigEnum(tiledb.tiledb_layout_tp_value(layoutp));
+    } finally {
+      tiledb.delete_tiledb_layout_tp(layoutp);
+    }
+    return layout;
+  }
+
   /**
    * @return The query Status.
    * @exception TileDBError A TileDB exception
@@ -127,36 +148,80 @@ public class Query implements AutoCloseable {
    * @exception TileDBError A TileDB exception
    */
   public QueryStatus submit() throws TileDBError {
-    ctx.handleError(tiledb.tiledb_query_submit(ctx.getCtxp(), queryp));
-
-    // Set the actual number of bytes received to each ByteBuffer
-    for (String attribute : byteBuffers_.keySet()) {
-      boolean isVar;
+    QueryTrace previous = QueryTracer.enter(trace);
+    try {
+      StatsSnapshot before = traceStats();
+      long started = Metrics.start(trace);
+      Object event = FlightRecorderEvents.beginQuery();
+      ctx.handleError(tiledb.tiledb_query_submit(ctx.getCtxp(), queryp));
+
+      // Set the actual number of bytes received to each ByteBuffer. Only var-sized fields have
+      // offsets, so there is no need to read the array schema.
+      for (Map.Entry<String, Pair<ByteBuffer, ByteBuffer>> entry : byteBuffers_.entrySet()) {
+        String attribute = entry.getKey();
+        Pair<ByteBuffer, ByteBuffer> buffers = entry.getValue();
+        Pair<uint64_tArray, uint64_tArray> sizes = this.buffer_sizes_.get(attribute);
+        if (buffers.getFirst() != null) {
+          buffers.getFirst().limit(sizes.getFirst().getitem(0).intValue());
+        }
+        buffers.getSecond().limit(sizes.getSecond().getitem(0).intValue());
 
-      try (ArraySchema arraySchema = array.getSchema()) {
-        if (arraySchema.hasAttribute(attribute)) {
-          try (Attribute attr = arraySchema.getAttribute(attribute)) {
-            isVar = attr.isVar();
-          }
-        } else {
-          try (Dimension dim = arraySchema.getDomain().getDimension(attribute)) {
-            isVar = dim.isVar();
-          }
+        ByteBuffer bytemap = this.validityByteMapsByteBuffers_.get(attribute);
+        if (bytemap != null) {
+          bytemap.limit(this.validityByteMapSizes_.get(attribute).getitem(0).intValue());
         }
       }
 
-      if (isVar) {
-        int offset_nbytes = this.buffer_sizes_.get(attribute).getFirst().getitem(0).intValue();
-        int data_nbytes = this.buffer_sizes_.get(attribute).getSecond().getitem(0).intValue();
-        this.byteBuffers_.get(attribute).getFirst().limit(offset_nbytes);
-        this.byteBuffers_.get(attribute).getSecond().limit(data_nbytes);
-      } else {
-        int nbytes = this.buffer_sizes_.get(attribute).getSecond().getitem(0).intValue();
-        this.byteBuffers_.get(attribute).getSecond().limit(nbytes);
+      QueryStatus status = getQueryStatus();
+      if (started != Metrics.DISABLED) {
+        long bytes = getBufferBytes();
+        Metrics.record(Metrics.Operation.QUERY_SUBMIT, started, bytes, null, null);
+        traceSubmit(started, bytes, status, before);
       }
+      commitEvent(event, "submit", status);
+      return status;
+    } finally {
+      QueryTracer.exit(trace, previous);
     }
+  }
 
-    return getQueryStatus();
+  /**
+   * Submits the query and blocks until it completes or the timeout expires. When the timeout
+   * expires the tasks of the query's Context are cancelled and a TileDBError is thrown.
+   *
+   * @param timeout The maximum time the query may run
+   * @return The query Status.
+   * @exception TileDBError A TileDB exception, or the query exceeded its deadline
+   */
+  public QueryStatus submit(Duration timeout) throws TileDBError {
+    try (CancellationToken token = CancellationToken.withTimeout(timeout)) {
+      return submit(token);
+    }
+  }
+
+  /**
+   * Submits the query under a cancellation token. Call will block until query is complete or the
+   * token is cancelled, in which case a TileDBError is thrown.
+   *
+   * @param token The cancellation token
+   * @return The query Status.
+   * @exception TileDBError A TileDB exception, or the token was cancelled
+   */
+  public QueryStatus submit(CancellationToken token) throws TileDBError {
+    token.register(ctx);
+    QueryStatus status;
+    try {
+      status = submit();
+    } catch (TileDBError err) {
+      token.throwIfCancelled();
+      throw err;
+    } finally {
+      token.unregister(ctx);
+    }
+    if (status != QueryStatus.TILEDB_COMPLETED) {
+      token.throwIfCancelled();
+    }
+    return status;
   }
 
   /**
@@ -175,7 +240,95 @@ public class Query implements AutoCloseable {
    * @exception TileDBError A TileDB exception
    */
   public void submitAsync(Callback callback) throws TileDBError {
-    ctx.handleError(Utils.tiledb_query_submit_async(ctx.getCtxp(), queryp, callback));
+    ctx.handleError(Utils.tiledb_query_submit_async(ctx.getCtxp(), queryp, timed(callback)));
+  }
+
+  /** Wraps a callback to record the asynchronous submission it completes, if recording. */
+  private Callback timed(Callback callback) {
+    StatsSnapshot before = traceStats();
+    long started = Metrics.start(trace);
+    Object event = FlightRecorderEvents.beginQuery();
+    if (started == Metrics.DISABLED && event == null) {
+      return callback;
+    }
+    return () -> {
+      Metrics.record(Metrics.Operation.QUERY_SUBMIT_ASYNC, started, 0, null, null);
+      if (trace != null) {
+        QueryStatus status = null;
+        try {
+          status = getQueryStatus();
+        } catch (TileDBError err) {
+          // Leave the status out of the trace
+        }
+        traceSubmit(started, 0, status, before);
+      }
+      commitEvent(event, "submitAsync", null);
+      callback.call();
+    };
+  }
+
+  /** @return The statistics of the query if traced, to tell the work of a submission, or null */
+  private StatsSnapshot traceStats() {
+    if (trace == null) {
+      return null;
+    }
+    try {
+      return StatsSnapshot.of(this);
+    } catch (TileDBError err) {
+      return null;
+    }
+  }
+
+  /**
+   * Adds a submission to the trace of the query, if traced.
+   *
+   * @param started The start time
+   * @param bytes The bytes of the buffers set
+   * @param status The status after the submission, or null
+   * @param before The statistics before the submission, or null
+   */
+  private void traceSubmit(long started, long bytes, QueryStatus status, StatsSnapshot before) {
+    if (trace == null) {
+      return;
+    }
+    long ended = System.nanoTime();
+    StatsSnapshot after = traceStats();
+    StatsSnapshot stats = before == null || after == null ? null : after.minus(before);
+    trace.addSubmit(started, ended, bytes, status, stats);
+  }
+
+  /**
+   * @return The trace of the query, recorded if {@link QueryTracer} was enabled when it was
+   *     created, or null
+   */
+  public QueryTrace getTrace() {
+    return trace;
+  }
+
+  /**
+   * Submit an async query under a cancellation token, with callback. The callback is invoked once
+   * the query completes, fails or is cancelled; use {@link #getQueryStatus()} and {@link
+   * CancellationToken#isCancelled()} to tell these apart.
+   *
+   * @param callback Callback function.
+   * @param token The cancellation token
+   * @exception TileDBError A TileDB exception, or the token was already cancelled
+   */
+  public void submitAsync(Callback callback, CancellationToken token) throws TileDBError {
+    token.register(ctx);
+    Callback release =
+        timed(
+            () -> {
+              token.unregister(ctx);
+              callback.call();
+            });
+    try {
+      ctx.handleError(Utils.tiledb_query_submit_async(ctx.getCtxp(), queryp, release));
+    } catch (TileDBError err) {
+      token.unregister(ctx);
+      token.throwIfCancelled();
+      throw err;
+    }
   }
 
   /**
@@ -185,7 +338,7 @@ public class Query implements AutoCloseable {
    * @exception TileDBError A TileDB exception
    */
   public synchronized Query setSubarray(NativeArray subarray) throws TileDBError {
-    Types.typeCheck(subarray.getNativeType(), array.getSchema().getDomain().getType());
+    Types.typeCheck(subarray.getNativeType(), array.getSchemaSnapshot().getDomainType());
     ctx.handleError(
         tiledb.tiledb_query_set_subarray(ctx.getCtxp(), queryp, subarray.toVoidPointer()));
     if (this.subarray != null) {
@@ -217,11 +370,8 @@ public class Query implements AutoCloseable {
    * @throws TileDBError A TileDB exception
    */
   public synchronized Query addRange(int dimIdx, Object start, Object end) throws TileDBError {
-    Datatype dimType;
-    try (ArraySchema schema = array.getSchema();
-        Domain domain = schema.getDomain()) {
-      dimType = domain.getDimension(dimIdx).getType();
-    }
+    long started = Metrics.start(trace);
+    Datatype dimType = array.getSchemaSnapshot().getDimension(dimIdx).getType();
 
     // We use java type check here because we can not tell the difference between unsigned and
     // signed
@@ -244,6 +394,7 @@ public class Query implements AutoCloseable {
               null));
     }
 
+    Metrics.record(Metrics.Operation.ADD_RANGE, started, 0, trace, null);
     return this;
   }
 
@@ -258,11 +409,8 @@ public class Query implements AutoCloseable {
    * @throws TileDBError A TileDB exception
    */
   public synchronized Query addRangeVar(int dimIdx, String start, String end) throws TileDBError {
-    Datatype dimType;
-    try (ArraySchema schema = array.getSchema();
-        Domain domain = schema.getDomain()) {
-      dimType = domain.getDimension(dimIdx).getType();
-    }
+    long started = Metrics.start(trace);
+    Datatype dimType = array.getSchemaSnapshot().getDimension(dimIdx).getType();
 
     Types.javaTypeCheck(start.getClass(), dimType.javaClass());
     Types.javaTypeCheck(end.getClass(), dimType.javaClass());
@@ -283,6 +431,7 @@ public class Query implements AutoCloseable {
               BigInteger.valueOf(end.length())));
     }
 
+    Metrics.record(Metrics.Operation.ADD_RANGE, started, 0, trace, null);
     return this;
   }
 
@@ -319,11 +468,7 @@ public class Query implements AutoCloseable {
    */
   public synchronized Pair<String, String> getRangeVar(int dimIdx, BigInteger rangeIdx)
       throws TileDBError {
-    Datatype dimType;
-    try (ArraySchema schema = array.getSchema();
-        Domain domain = schema.getDomain()) {
-      dimType = domain.getDimension(dimIdx).getType();
-    }
+    Datatype dimType = array.getSchemaSnapshot().getDimension(dimIdx).getType();
 
     Pair<Long, Long> size = this.getRangeVarSize(dimIdx, rangeIdx);
 
@@ -450,11 +595,7 @@ public class Query implements AutoCloseable {
    * @throws TileDBError A TileDB exception
    */
   public Pair<Object, Object> getRange(int dimIdx, long rangeIdx) throws TileDBError {
-    Datatype dimType;
-    try (ArraySchema schema = array.getSchema();
-        Domain domain = schema.getDomain()) {
-      dimType = domain.getDimension(dimIdx).getType();
-    }
+    Datatype dimType = array.getSchemaSnapshot().getDimension(dimIdx).getType();
 
     SWIGTYPE_p_p_void startArrpp = tiledb.new_voidpArray(1);
     SWIGTYPE_p_p_void endArrpp = tiledb.new_voidpArray(1);
@@ -493,19 +634,8 @@ public class Query implements AutoCloseable {
    * @exception TileDBError A TileDB exception
    */
   public synchronized Query setBuffer(String attr, NativeArray buffer) throws TileDBError {
-    try (ArraySchema schema = array.getSchema()) {
-      try (Domain domain = schema.getDomain()) {
-        if (attr.equals(tiledb.tiledb_coords())) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else if (domain.hasDimension(attr)) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else {
-          try (Attribute attribute = schema.getAttribute(attr)) {
-            Types.typeCheck(attribute.getType(), buffer.getNativeType());
-          }
-        }
-      }
-    }
+    long started = Metrics.start(trace);
+    Types.typeCheck(Util.getFieldDatatype(array, attr), buffer.getNativeType());
 
     uint64_tArray offsets_array_size = new uint64_tArray(1);
     uint64_tArray values_array_size = new uint64_tArray(1);
@@ -530,7 +660,8 @@ public class Query implements AutoCloseable {
         tiledb.tiledb_query_set_buffer(
             ctx.getCtxp(), queryp, attr, buffer.toVoidPointer(), buffer_size.cast()));
 
-    return this;
+    attribute(buffer);
+    return bufferSet(attr, started);
   }
 
   /**
@@ -543,6 +674,7 @@ public class Query implements AutoCloseable {
    */
   public synchronized Query setBuffer(String attr, NativeArray buffer, long bufferElements)
       throws TileDBError {
+    long started = Metrics.start(trace);
     if (bufferElements <= 0) {
       throw new TileDBError("Number of buffer elements must be >= 1");
     }
@@ -554,19 +686,7 @@ public class Query implements AutoCloseable {
               + buffer.getSize());
     }
 
-    try (ArraySchema schema = array.getSchema()) {
-      try (Domain domain = schema.getDomain()) {
-        if (attr.equals(tiledb.tiledb_coords())) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else if (domain.hasDimension(attr)) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else {
-          try (Attribute attribute = schema.getAttribute(attr)) {
-            Types.typeCheck(attribute.getType(), buffer.getNativeType());
-          }
-        }
-      }
-    }
+    Types.typeCheck(Util.getFieldDatatype(array, attr), buffer.getNativeType());
 
     uint64_tArray offsets_array_size = new uint64_tArray(1);
     uint64_tArray values_array_size = new uint64_tArray(1);
@@ -592,7 +712,8 @@ public class Query implements AutoCloseable {
         tiledb.tiledb_query_set_buffer(
             ctx.getCtxp(), queryp, attr, buffer.toVoidPointer(), buffer_size.cast()));
 
-    return this;
+    attribute(buffer);
+    return bufferSet(attr, started);
   }
 
   /**
@@ -605,20 +726,9 @@ public class Query implements AutoCloseable {
    */
   public synchronized Query setBufferNullable(String attr, NativeArray buffer, NativeArray bytemap)
       throws TileDBError {
+    long started = Metrics.start(trace);
 
-    try (ArraySchema schema = array.getSchema()) {
-      try (Domain domain = schema.getDomain()) {
-        if (attr.equals(tiledb.tiledb_coords())) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else if (domain.hasDimension(attr)) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else {
-          try (Attribute attribute = schema.getAttribute(attr)) {
-            Types.typeCheck(attribute.getType(), buffer.getNativeType());
-          }
-        }
-      }
-    }
+    Types.typeCheck(Util.getFieldDatatype(array, attr), buffer.getNativeType());
 
     uint64_tArray offsets_array_size = new uint64_tArray(1);
     uint64_tArray values_array_size = new uint64_tArray(1);
@@ -654,7 +764,8 @@ public class Query implements AutoCloseable {
             bytemap.getUint8_tArray().cast(),
             buffer_validity_bytemap_size.cast()));
 
-    return this;
+    attribute(buffer, bytemap);
+    return bufferSet(attr, started);
   }
 
   /**
@@ -667,6 +778,7 @@ public class Query implements AutoCloseable {
    */
   public synchronized Query setBufferNullableNIO(String attr, ByteBuffer buffer, ByteBuffer bytemap)
       throws TileDBError {
+    long started = Metrics.start(trace);
 
     if (buffer.capacity() <= 0) {
       throw new TileDBError("Number of buffer elements must be >= 1");
@@ -701,6 +813,8 @@ public class Query implements AutoCloseable {
 
     buffer_sizes_.put(attr, buffer_sizes);
     validityByteMapsByteBuffers_.put(attr, bytemap);
+    // TileDB keeps a pointer to the size, keep it reachable for the lifetime of the query
+    validityByteMapSizes_.put(attr, buffer_validity_bytemap_size);
 
     // Set the actual TileDB buffer
     uint64_tArray buffer_size = buffer_sizes.getSecond();
@@ -715,7 +829,7 @@ public class Query implements AutoCloseable {
             bytemap,
             buffer_validity_bytemap_size.cast()));
 
-    return this;
+    return bufferSet(attr, started);
   }
 
   /**
@@ -730,31 +844,16 @@ public class Query implements AutoCloseable {
   public synchronized Query setBufferNullable(
       String attr, NativeArray offsets, NativeArray buffer, NativeArray bytemap)
       throws TileDBError {
+    long started = Metrics.start(trace);
 
     if (attr.equals(tiledb.tiledb_coords())) {
       throw new TileDBError("Cannot set coordinate buffer as variable sized.");
     }
 
-    if (!offsets.getNativeType().equals(TILEDB_UINT64)) {
-      throw new TileDBError(
-          "Buffer offsets should be of getType TILEDB_UINT64 or Long. Found getType: "
-              + offsets.getNativeType());
-    }
+    checkOffsetsType(offsets);
 
     // Type check the buffer native type matches the schema attribute type
-    try (ArraySchema schema = array.getSchema()) {
-      try (Domain domain = schema.getDomain()) {
-        if (attr.equals(tiledb.tiledb_coords())) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else if (domain.hasDimension(attr)) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else {
-          try (Attribute attribute = schema.getAttribute(attr)) {
-            Types.typeCheck(attribute.getType(), buffer.getNativeType());
-          }
-        }
-      }
-    }
+    Types.typeCheck(Util.getFieldDatatype(array, attr), buffer.getNativeType());
 
     uint64_tArray offsets_array = PointerUtils.uint64_tArrayFromVoid(offsets.toVoidPointer());
     uint64_tArray offsets_array_size = new uint64_tArray(1);
@@ -793,7 +892,8 @@ public class Query implements AutoCloseable {
             bytemap.getUint8_tArray().cast(),
             buffer_validity_bytemap_size.cast()));
 
-    return this;
+    attribute(offsets, buffer, bytemap);
+    return bufferSet(attr, started);
   }
 
   /**
@@ -806,6 +906,7 @@ public class Query implements AutoCloseable {
    */
   public synchronized Query setBufferNullableNIO(
       String attr, ByteBuffer offsets, ByteBuffer buffer, ByteBuffer bytemap) throws TileDBError {
+    long started = Metrics.start(trace);
 
     if (attr.equals(tiledb.tiledb_coords())) {
       throw new TileDBError("Cannot set coordinate buffer as variable sized.");
@@ -823,10 +924,11 @@ public class Query implements AutoCloseable {
 
     offsets.order(ByteOrder.nativeOrder());
     buffer.order(ByteOrder.nativeOrder());
+    checkOffsetsCapacity(offsets);
 
-    uint64_tArray offsets_array_size = new uint64_tArray(0);
-    uint64_tArray values_array_size = new uint64_tArray(0);
-    uint64_tArray buffer_validity_bytemap_size = new uint64_tArray(0);
+    uint64_tArray offsets_array_size = new uint64_tArray(1);
+    uint64_tArray values_array_size = new uint64_tArray(1);
+    uint64_tArray buffer_validity_bytemap_size = new uint64_tArray(1);
 
     offsets_array_size.setitem(0, BigInteger.valueOf(offsets.capacity()));
     values_array_size.setitem(0, BigInteger.valueOf(buffer.capacity()));
@@ -844,6 +946,9 @@ public class Query implements AutoCloseable {
 
     buffer_sizes_.put(attr, buffer_sizes);
     this.byteBuffers_.put(attr, new Pair(offsets, buffer));
+    validityByteMapsByteBuffers_.put(attr, bytemap);
+    // TileDB keeps a pointer to the size, keep it reachable for the lifetime of the query
+    validityByteMapSizes_.put(attr, buffer_validity_bytemap_size);
 
     ctx.handleError(
         Utils.tiledb_query_set_buffer_var_nullable_nio(
@@ -857,7 +962,7 @@ public class Query implements AutoCloseable {
             bytemap,
             buffer_validity_bytemap_size.cast()));
 
-    return this;
+    return bufferSet(attr, started);
   }
 
   /**
@@ -877,7 +982,7 @@ public class Query implements AutoCloseable {
 
     int size = Util.castLongToInt(bufferElements * dt.getNativeSize());
 
-    ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    ByteBuffer buffer = NativeMemory.allocateDirect(array.getUri(), size);
 
     this.setBuffer(attr, buffer);
 
@@ -893,6 +998,7 @@ public class Query implements AutoCloseable {
    * @throws TileDBError
    */
   public synchronized Query setBuffer(String attr, ByteBuffer buffer) throws TileDBError {
+    long started = Metrics.start(trace);
     if (buffer.capacity() <= 0) {
       throw new TileDBError("Number of buffer elements must be >= 1");
     }
@@ -921,7 +1027,7 @@ public class Query implements AutoCloseable {
         Utils.tiledb_query_set_buffer_nio(
             ctx.getCtxp(), queryp, attr, buffer, values_array_size.cast()));
 
-    return this;
+    return bufferSet(attr, started);
   }
 
   /**
@@ -934,31 +1040,16 @@ public class Query implements AutoCloseable {
    */
   public synchronized Query setBuffer(String attr, NativeArray offsets, NativeArray buffer)
       throws TileDBError {
+    long started = Metrics.start(trace);
 
     if (attr.equals(tiledb.tiledb_coords())) {
       throw new TileDBError("Cannot set coordinate buffer as variable sized.");
     }
 
-    if (!offsets.getNativeType().equals(TILEDB_UINT64)) {
-      throw new TileDBError(
-          "Buffer offsets should be of getType TILEDB_UINT64 or Long. Found getType: "
-              + offsets.getNativeType());
-    }
+    checkOffsetsType(offsets);
 
     // Type check the buffer native type matches the schema attribute type
-    try (ArraySchema schema = array.getSchema()) {
-      try (Domain domain = schema.getDomain()) {
-        if (attr.equals(tiledb.tiledb_coords())) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else if (domain.hasDimension(attr)) {
-          Types.typeCheck(domain.getDimension(attr).getType(), buffer.getNativeType());
-        } else {
-          try (Attribute attribute = schema.getAttribute(attr)) {
-            Types.typeCheck(attribute.getType(), buffer.getNativeType());
-          }
-        }
-      }
-    }
+    Types.typeCheck(Util.getFieldDatatype(array, attr), buffer.getNativeType());
 
     uint64_tArray offsets_array = PointerUtils.uint64_tArrayFromVoid(offsets.toVoidPointer());
     uint64_tArray offsets_array_size = new uint64_tArray(1);
@@ -990,7 +1081,8 @@ public class Query implements AutoCloseable {
             buffer.toVoidPointer(),
             values_array_size.cast()));
 
-    return this;
+    attribute(offsets, buffer);
+    return bufferSet(attr, started);
   }
 
   /**
@@ -1003,6 +1095,7 @@ public class Query implements AutoCloseable {
    */
   public synchronized Query setBuffer(String attr, ByteBuffer offsets, ByteBuffer buffer)
       throws TileDBError {
+    long started = Metrics.start(trace);
 
     if (attr.equals(tiledb.tiledb_coords())) {
       throw new TileDBError("Cannot set coordinate buffer as variable sized.");
@@ -1020,6 +1113,7 @@ public class Query implements AutoCloseable {
 
     offsets.order(ByteOrder.nativeOrder());
     buffer.order(ByteOrder.nativeOrder());
+    checkOffsetsCapacity(offsets);
 
     uint64_tArray offsets_array_size = new uint64_tArray(1);
     uint64_tArray values_array_size = new uint64_tArray(1);
@@ -1050,7 +1144,7 @@ public class Query implements AutoCloseable {
             buffer,
             values_array_size.cast()));
 
-    return this;
+    return bufferSet(attr, started);
   }
 
   /**
@@ -1070,6 +1164,7 @@ public class Query implements AutoCloseable {
       long offsetElements,
       long bufferElements)
       throws TileDBError {
+    long started = Metrics.start(trace);
     Integer offsetSize = buffer.getSize();
     Integer bufferSize = buffer.getSize();
 
@@ -1091,20 +1186,13 @@ public class Query implements AutoCloseable {
       throw new TileDBError("Cannot set coordinate buffer as variable sized.");
     }
 
-    if (!offsets.getNativeType().equals(TILEDB_UINT64)) {
-      throw new TileDBError(
-          "Buffer offsets should be of getType TILEDB_UINT64 or Long. Found getType: "
-              + offsets.getNativeType());
-    }
+    checkOffsetsType(offsets);
     if (offsetElements <= 0 || bufferElements <= 0) {
       throw new TileDBError("Number of buffer elements must be >= 1");
     }
 
     // Type check the buffer native type matches the schema attribute type
-    try (ArraySchema schema = array.getSchema();
-        Attribute attribute = schema.getAttribute(attr)) {
-      Types.typeCheck(attribute.getType(), buffer.getNativeType());
-    }
+    Types.typeCheck(Util.getFieldDatatype(array, attr), buffer.getNativeType());
 
     uint64_tArray offsets_array = PointerUtils.uint64_tArrayFromVoid(offsets.toVoidPointer());
     uint64_tArray offsets_array_size = new uint64_tArray(1);
@@ -1136,7 +1224,8 @@ public class Query implements AutoCloseable {
             buffer.toVoidPointer(),
             values_array_size.cast()));
 
-    return this;
+    attribute(offsets, buffer);
+    return bufferSet(attr, started);
   }
 
   private Query setBufferSizeUnsafe(String attribute, long offsetSize, long bufferSize) {
@@ -1390,7 +1479,7 @@ public class Query implements AutoCloseable {
                   .getitem(0)
                   .divide(BigInteger.valueOf(buffer.getNativeTypeSize())))
               .intValue();
-      return buffer.toJavaArray(nelements);
+      return toJavaArray(buffer, nelements);
     } else if (buffers_.containsKey(bufferName)) {
       NativeArray buffer = buffers_.get(bufferName).getSecond();
       Integer nelements =
@@ -1400,12 +1489,22 @@ public class Query implements AutoCloseable {
                   .getitem(0)
                   .divide(BigInteger.valueOf(buffer.getNativeTypeSize())))
               .intValue();
-      return buffer.toJavaArray(nelements);
+      return toJavaArray(buffer, nelements);
     } else {
       throw new TileDBError("Query attribute buffer does not exist: " + bufferName);
     }
   }
 
+  /** Copies the first elements of a buffer into a Java array, on the trace of the query. */
+  private Object toJavaArray(NativeArray buffer, int nelements) throws TileDBError {
+    QueryTrace previous = QueryTracer.enter(trace);
+    try {
+      return buffer.toJavaArray(nelements);
+    } finally {
+      QueryTracer.exit(trace, previous);
+    }
+  }
+
   /**
    * Retrieves the ByteBuffer of attribute attr
    *
@@ -1437,7 +1536,7 @@ public class Query implements AutoCloseable {
                 .getitem(0)
                 .divide(BigInteger.valueOf(buffer.getNativeTypeSize())))
             .intValue();
-    return (long[]) buffer.toJavaArray(nelements);
+    return (long[]) toJavaArray(buffer, nelements);
   }
 
   /**
@@ -1457,7 +1556,7 @@ public class Query implements AutoCloseable {
     Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
     if (byteBuffers_.containsKey(bufferName)) {
       LongBuffer offsets = null;
-      if (buffer.getFirst() != null) offsets = buffer.getFirst().asLongBuffer();
+      offsets = offsetsBuffer(buffer.getFirst());
       return new Pair(offsets, buffer.getSecond().asIntBuffer());
     } else throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
   }
@@ -1478,7 +1577,7 @@ public class Query implements AutoCloseable {
 
     Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
     if (byteBuffers_.containsKey(bufferName))
-      return new Pair(buffer.getFirst().asLongBuffer(), buffer.getSecond().asLongBuffer());
+      return new Pair(offsetsBuffer(buffer.getFirst()), buffer.getSecond().asLongBuffer());
     else throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
   }
 
@@ -1499,7 +1598,7 @@ public class Query implements AutoCloseable {
     Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
     if (byteBuffers_.containsKey(bufferName)) {
       LongBuffer offsets = null;
-      if (buffer.getFirst() != null) offsets = buffer.getFirst().asLongBuffer();
+      offsets = offsetsBuffer(buffer.getFirst());
       return new Pair(offsets, buffer.getSecond().asShortBuffer());
     } else throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
   }
@@ -1521,7 +1620,7 @@ public class Query implements AutoCloseable {
     Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
     if (byteBuffers_.containsKey(bufferName)) {
       LongBuffer offsets = null;
-      if (buffer.getFirst() != null) offsets = buffer.getFirst().asLongBuffer();
+      offsets = offsetsBuffer(buffer.getFirst());
 
       // Set the US_ASCII charset and decode, so each character is treated as a single byte instead
       // of two.
@@ -1531,6 +1630,179 @@ public class Query implements AutoCloseable {
     } else throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
   }
 
+  /**
+   * Retrieves a zero-copy view of the results of a var-sized string attribute set with NIO
+   * buffers. Unlike {@link #getCharBuffer(String)}, nothing is decoded until asked for.
+   *
+   * @param bufferName The attribute name
+   * @return The StringColumn
+   * @throws TileDBError A TileDB exception
+   */
+  public StringColumn getStringColumn(String bufferName) throws TileDBError {
+    return new StringColumn(
+        getOffsetsView(bufferName),
+        this.byteBuffers_.get(bufferName).getSecond(),
+        validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  /**
+   * Retrieves a zero-copy view of the results of a fixed-sized INT32 field set with NIO buffers.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The IntColumn
+   * @throws TileDBError A TileDB exception
+   */
+  public IntColumn getIntColumn(String bufferName) throws TileDBError {
+    Datatype type = Util.getFieldDatatype(array, bufferName);
+    NumericColumn.checkType(bufferName, type, type == Datatype.TILEDB_INT32, "IntColumn");
+    return new IntColumn(fixedData(bufferName), validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  /**
+   * Retrieves a zero-copy view of the results of a fixed-sized INT64 or datetime field set with NIO
+   * buffers.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The LongColumn
+   * @throws TileDBError A TileDB exception
+   */
+  public LongColumn getLongColumn(String bufferName) throws TileDBError {
+    Datatype type = Util.getFieldDatatype(array, bufferName);
+    boolean matches = type == Datatype.TILEDB_INT64 || type.isDateType();
+    NumericColumn.checkType(bufferName, type, matches, "LongColumn");
+    return new LongColumn(fixedData(bufferName), validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  /**
+   * Retrieves a zero-copy view of the results of a fixed-sized FLOAT64 field set with NIO buffers.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The DoubleColumn
+   * @throws TileDBError A TileDB exception
+   */
+  public DoubleColumn getDoubleColumn(String bufferName) throws TileDBError {
+    Datatype type = Util.getFieldDatatype(array, bufferName);
+    NumericColumn.checkType(bufferName, type, type == Datatype.TILEDB_FLOAT64, "DoubleColumn");
+    return new DoubleColumn(fixedData(bufferName), validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  /**
+   * Retrieves a zero-copy view of the results of a fixed-sized UINT8 field set with NIO buffers.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The UInt8Column
+   * @throws TileDBError A TileDB exception
+   */
+  public UInt8Column getUInt8Column(String bufferName) throws TileDBError {
+    Datatype type = Util.getFieldDatatype(array, bufferName);
+    NumericColumn.checkType(bufferName, type, type == Datatype.TILEDB_UINT8, "UInt8Column");
+    return new UInt8Column(fixedData(bufferName), validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  /**
+   * Retrieves a zero-copy view of the results of a fixed-sized UINT16 field set with NIO buffers.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The UInt16Column
+   * @throws TileDBError A TileDB exception
+   */
+  public UInt16Column getUInt16Column(String bufferName) throws TileDBError {
+    Datatype type = Util.getFieldDatatype(array, bufferName);
+    NumericColumn.checkType(bufferName, type, type == Datatype.TILEDB_UINT16, "UInt16Column");
+    return new UInt16Column(fixedData(bufferName), validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  /**
+   * Retrieves a zero-copy view of the results of a fixed-sized UINT32 field set with NIO buffers.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The UInt32Column
+   * @throws TileDBError A TileDB exception
+   */
+  public UInt32Column getUInt32Column(String bufferName) throws TileDBError {
+    Datatype type = Util.getFieldDatatype(array, bufferName);
+    NumericColumn.checkType(bufferName, type, type == Datatype.TILEDB_UINT32, "UInt32Column");
+    return new UInt32Column(fixedData(bufferName), validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  /**
+   * Retrieves a zero-copy view of the results of a fixed-sized UINT64 field set with NIO buffers.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The UInt64Column
+   * @throws TileDBError A TileDB exception
+   */
+  public UInt64Column getUInt64Column(String bufferName) throws TileDBError {
+    Datatype type = Util.getFieldDatatype(array, bufferName);
+    NumericColumn.checkType(bufferName, type, type == Datatype.TILEDB_UINT64, "UInt64Column");
+    return new UInt64Column(fixedData(bufferName), validityByteMapsByteBuffers_.get(bufferName));
+  }
+
+  private ByteBuffer fixedData(String bufferName) throws TileDBError {
+    Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
+    if (buffer == null)
+      throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
+    if (buffer.getFirst() != null) throw new TileDBError("Field is var-sized: " + bufferName);
+    return buffer.getSecond();
+  }
+
+  /**
+   * Retrieves a view of the offsets of a var-sized attribute or dimension set with NIO buffers,
+   * which reads them in the {@link OffsetsFormat} of the query.
+   *
+   * @param bufferName The attribute or dimension name
+   * @return The OffsetsView
+   * @throws TileDBError A TileDB exception
+   */
+  public OffsetsView getOffsetsView(String bufferName) throws TileDBError {
+    Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
+    if (buffer == null)
+      throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
+    if (buffer.getFirst() == null)
+      throw new TileDBError("Offsets requested, but " + bufferName + " is not var-sized");
+
+    return OffsetsView.of(
+        buffer.getFirst(),
+        buffer.getSecond(),
+        getOffsetsFormat(),
+        Util.getFieldDatatype(array, bufferName));
+  }
+
+  /** Widens offsets to a LongBuffer, copying them if they are 32-bit. */
+  private LongBuffer offsetsBuffer(ByteBuffer offsets) throws TileDBError {
+    if (offsets == null) return null;
+    if (getOffsetsFormat().getBitsize() == 64) return offsets.asLongBuffer();
+
+    IntBuffer narrow = offsets.asIntBuffer();
+    long[] wide = new long[narrow.limit()];
+    for (int i = 0; i < wide.length; i++) wide[i] = narrow.get(i) & 0xFFFFFFFFL;
+    return LongBuffer.wrap(wide);
+  }
+
+  private void checkOffsetsType(NativeArray offsets) throws TileDBError {
+    Datatype expected = getOffsetsFormat().offsetsType();
+    if (!offsets.getNativeType().equals(expected)) {
+      throw new TileDBError(
+          "Buffer offsets should be of getType "
+              + expected
+              + " for "
+              + getOffsetsFormat()
+              + ". Found getType: "
+              + offsets.getNativeType());
+    }
+  }
+
+  private void checkOffsetsCapacity(ByteBuffer offsets) throws TileDBError {
+    int width = getOffsetsFormat().getBytesPerOffset();
+    if (offsets.capacity() % width != 0) {
+      throw new TileDBError(
+          "The capacity of the offsets ByteBuffer should be a multiple of "
+              + width
+              + " bytes for "
+              + getOffsetsFormat());
+    }
+  }
+
   /**
    * Retrieves the an FloatBuffer of an attribute bufferName of type Float
    *
@@ -1548,7 +1820,7 @@ public class Query implements AutoCloseable {
     Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
     if (byteBuffers_.containsKey(bufferName)) {
       LongBuffer offsets = null;
-      if (buffer.getFirst() != null) offsets = buffer.getFirst().asLongBuffer();
+      offsets = offsetsBuffer(buffer.getFirst());
       return new Pair(offsets, buffer.getSecond().asFloatBuffer());
     } else throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
   }
@@ -1570,7 +1842,7 @@ public class Query implements AutoCloseable {
     Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
     if (byteBuffers_.containsKey(bufferName)) {
       LongBuffer offsets = null;
-      if (buffer.getFirst() != null) offsets = buffer.getFirst().asLongBuffer();
+      offsets = offsetsBuffer(buffer.getFirst());
       return new Pair(offsets, buffer.getSecond().asDoubleBuffer());
     } else throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
   }
@@ -1600,25 +1872,17 @@ public class Query implements AutoCloseable {
   }
 
   /**
-   * Drains a variable-sized buffer and returns its offsets as a byte[] Array
+   * Drains a variable-sized buffer and returns its offsets as stored, in the {@link
+   * OffsetsFormat} of the query and including the extra element if any, widened to a long[] array
    *
    * @param bufferName The attribute name
-   * @return The byte[] array
+   * @return The long[] array
    * @throws TileDBError A TileDB exception
    */
   public long[] getOffsetArray(String bufferName) throws TileDBError {
     Pair<ByteBuffer, ByteBuffer> buffer = this.byteBuffers_.get(bufferName);
-    if (byteBuffers_.containsKey(bufferName)) {
-      LongBuffer offsets = null;
-      if (buffer.getFirst() != null) {
-        offsets = buffer.getFirst().asLongBuffer();
-
-        long[] offsetArr = new long[offsets.limit()];
-        int idx = 0;
-        while (offsets.hasRemaining()) offsetArr[idx++] = offsets.get();
-
-        return offsetArr;
-      }
+    if (buffer != null && buffer.getFirst() != null) {
+      return getOffsetsView(bufferName).toArray();
     }
 
     throw new TileDBError("ByteBuffer does not exist for attribute: " + bufferName);
@@ -1633,7 +1897,32 @@ public class Query implements AutoCloseable {
               .getitem(0)
               .divide(BigInteger.valueOf(Datatype.TILEDB_UINT8.getNativeSize()))
               .intValue();
-      return (short[]) this.validityByteMaps_.get(attribute).toJavaArray(nelements);
+      return (short[]) toJavaArray(this.validityByteMaps_.get(attribute), nelements);
+    }
+
+    throw new TileDBError("Attribute " + attribute + " is not nullable");
+  }
+
+  /**
+   * Retrieves a view of the validity bytemap of a nullable attribute. The view reads the bytemap
+   * in place when it was set with an NIO buffer, and copies it otherwise.
+   *
+   * @param attribute The attribute name
+   * @return The Validity
+   * @throws TileDBError A TileDB exception
+   */
+  public Validity getValidityView(String attribute) throws TileDBError {
+    ByteBuffer bytemap = this.validityByteMapsByteBuffers_.get(attribute);
+    if (bytemap != null) {
+      return Validity.of(bytemap);
+    }
+    if (this.validityByteMaps_.containsKey(attribute)) {
+      short[] values = getValidityByteMap(attribute);
+      Validity validity = Validity.allocate(values.length);
+      for (int i = 0; i < values.length; i++) {
+        validity.set(i, values[i] != 0);
+      }
+      return validity;
     }
 
     throw new TileDBError("Attribute " + attribute + " is not nullable");
@@ -1649,29 +1938,134 @@ public class Query implements AutoCloseable {
    */
   public HashMap<String, Pair<Integer, Integer>> getResultEstimations() throws TileDBError {
     HashMap<String, Pair<Integer, Integer>> estimations = new HashMap<>();
-    String name;
-    try (ArraySchema schema = this.array.getSchema();
-        Domain domain = schema.getDomain(); ) {
-      for (Dimension dimension : domain.getDimensions()) {
-        name = dimension.getName();
-        if (dimension.isVar()) {
-          estimations.put(name, this.getEstResultSizeVar(ctx, name));
-        } else {
-          estimations.put(name, new Pair<>(null, this.getEstResultSize(ctx, name)));
-        }
+    SchemaSnapshot schema = this.array.getSchemaSnapshot();
+    List<SchemaSnapshot.Field> fields = new ArrayList<>(schema.getDimensions());
+    fields.addAll(schema.getAttributes());
+    for (SchemaSnapshot.Field field : fields) {
+      String name = field.getName();
+      if (field.isVar()) {
+        estimations.put(name, this.getEstResultSizeVar(ctx, name));
+      } else {
+        estimations.put(name, new Pair<>(null, this.getEstResultSize(ctx, name)));
       }
+    }
 
-      for (Attribute attribute : schema.getAttributes().values()) {
-        name = attribute.getName();
-        if (attribute.isVar()) {
-          estimations.put(name, this.getEstResultSizeVar(ctx, name));
+    return estimations;
+  }
+
+  /**
+   * Estimates the bytes a submission of the query handles: for a read, the estimated result size of
+   * the fields with buffers set, and for a write, the size of the buffers set.
+   *
+   * @return The estimated bytes
+   * @throws TileDBError A TileDB exception
+   */
+  long estimateBytes() throws TileDBError {
+    List<String> fields;
+    synchronized (buffer_sizes_) {
+      fields = new ArrayList<>(buffer_sizes_.keySet());
+    }
+    long bytes = 0;
+    for (String name : fields) {
+      if (type == QueryType.TILEDB_READ) {
+        SchemaSnapshot schema = array.getSchemaSnapshot();
+        // Coordinates set through the legacy zipped buffer are not a field of the schema
+        SchemaSnapshot.Field field = schema.hasField(name) ? schema.getField(name) : null;
+        if (field == null) {
+          bytes += getEstResultSize(ctx, name);
+        } else if (field.isVar() && field.isNullable()) {
+          Pair<Pair<Integer, Integer>, Integer> est = getEstResultSizeVarNullable(ctx, name);
+          bytes += (long) est.getFirst().getFirst() + est.getFirst().getSecond() + est.getSecond();
+        } else if (field.isVar()) {
+          Pair<Integer, Integer> est = getEstResultSizeVar(ctx, name);
+          bytes += (long) est.getFirst() + est.getSecond();
+        } else if (field.isNullable()) {
+          Pair<Integer, Integer> est = getEstResultSizeNullable(ctx, name);
+          bytes += (long) est.getFirst() + est.getSecond();
         } else {
-          estimations.put(name, new Pair<>(null, this.getEstResultSize(ctx, name)));
+          bytes += getEstResultSize(ctx, name);
         }
+      } else {
+        bytes += getBufferBytes(name);
       }
     }
+    return bytes;
+  }
 
-    return estimations;
+  /** @return The size in bytes of the buffers set for a field */
+  private long getBufferBytes(String name) {
+    Pair<uint64_tArray, uint64_tArray> sizes = buffer_sizes_.get(name);
+    long bytes = 0;
+    if (sizes.getFirst() != null) {
+      bytes += sizes.getFirst().getitem(0).longValue();
+    }
+    bytes += sizes.getSecond().getitem(0).longValue();
+    uint64_tArray validity = validityByteMapSizes_.get(name);
+    if (validity != null) {
+      bytes += validity.getitem(0).longValue();
+    }
+    return bytes;
+  }
+
+  /** @return The size in bytes of all the buffers set */
+  private long getBufferBytes() {
+    long bytes = 0;
+    synchronized (buffer_sizes_) {
+      for (String name : buffer_sizes_.keySet()) {
+        bytes += getBufferBytes(name);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Commits a flight recorder event of the query, begun before an operation.
+   *
+   * @param event The event, or null if not enabled
+   * @param operation The operation
+   * @param status The status after the operation, or null to look it up
+   */
+  private void commitEvent(Object event, String operation, QueryStatus status) {
+    if (event == null) {
+      return;
+    }
+    String fields;
+    synchronized (buffer_sizes_) {
+      fields = String.join(",", buffer_sizes_.keySet());
+    }
+    String layout = null;
+    try {
+      layout = getLayout().name();
+      if (status == null) {
+        status = getQueryStatus();
+      }
+    } catch (TileDBError err) {
+      // Leave out what cannot be looked up
+    }
+    FlightRecorderEvents.commitQuery(
+        event,
+        operation,
+        array.getUri(),
+        type.name(),
+        layout,
+        fields,
+        getBufferBytes(),
+        status == null ? null : status.name());
+  }
+
+  /** Records the setup of the buffers of a field, started at the given time. */
+  /** Counts the bytes of native arrays set on the query for its array. */
+  private void attribute(NativeArray... buffers) {
+    for (NativeArray buffer : buffers) {
+      buffer.attributeTo(array.getUri());
+    }
+  }
+
+  private Query bufferSet(String attr, long started) {
+    if (started != Metrics.DISABLED) {
+      Metrics.record(Metrics.Operation.BUFFER_SETUP, started, getBufferBytes(attr), trace, attr);
+    }
+    return this;
   }
 
   /**
@@ -1682,7 +2076,9 @@ public class Query implements AutoCloseable {
    * @throws TileDBError A TileDB excdeption
    */
   public Query finalizeQuery() throws TileDBError {
+    Object event = FlightRecorderEvents.beginQuery();
     ctx.handleError(tiledb.tiledb_query_finalize(ctx.getCtxp(), queryp));
+    commitEvent(event, "finalize", null);
     return this;
   }
 
@@ -1744,6 +2140,14 @@ public class Query implements AutoCloseable {
     return queryp;
   }
 
+  protected Array getArray() {
+    return array;
+  }
+
+  protected Context getCtx() {
+    return ctx;
+  }
+
   /**
    * @return Retrieves the stats from a Query.
    * @exception TileDBError A TileDB exception
@@ -1776,6 +2180,42 @@ public class Query implements AutoCloseable {
     }
   }
 
+  /**
+   * Sets the config of the Query, which overrides the config of the Context for this query, e.g.
+   * to read with another {@link OffsetsFormat}. Set it before setting buffers.
+   *
+   * @param config The config
+   * @return This query
+   * @exception TileDBError A TileDB exception
+   */
+  public synchronized Query setConfig(Config config) throws TileDBError {
+    OffsetsFormat format = OffsetsFormat.fromConfig(config);
+    ctx.handleError(tiledb.tiledb_query_set_config(ctx.getCtxp(), queryp, config.getConfigp()));
+    this.config_ = config;
+    this.offsetsFormat_ = format;
+    return this;
+  }
+
+  /**
+   * Returns the format of the offsets of var-sized buffers, set by the {@code sm.var_offsets.*}
+   * parameters of the config of the Query if one was set, or else of the Context.
+   *
+   * @return The offsets format
+   * @exception TileDBError A TileDB exception
+   */
+  public synchronized OffsetsFormat getOffsetsFormat() throws TileDBError {
+    if (offsetsFormat_ == null) {
+      if (config_ != null) {
+        offsetsFormat_ = OffsetsFormat.fromConfig(config_);
+      } else {
+        try (Config config = ctx.getConfig()) {
+          offsetsFormat_ = OffsetsFormat.fromConfig(config);
+        }
+      }
+    }
+    return offsetsFormat_;
+  }
+
   /**
    * @return Retrieves the config from a Query.
    * @exception TileDBError A TileDB exception
@@ -1793,6 +2233,14 @@ public class Query implements AutoCloseable {
     return config;
   }
 
+  /**
+   * Frees a query. The array is passed so that it stays reachable, and is not reaped, until the
+   * query that refers to it is freed.
+   */
+  private static void free(Array array, SWIGTYPE_p_p_tiledb_query_t querypp) {
+    tiledb.tiledb_query_free(querypp);
+  }
+
   /** Free's native TileDB resources associated with the Query object */
   @Override
   public synchronized void close() {
@@ -1808,8 +2256,9 @@ public class Query implements AutoCloseable {
       if (subarray != null) {
         subarray.close();
       }
-      tiledb.tiledb_query_free(querypp);
+      handle.close();
       queryp = null;
+      QueryTracer.end(trace);
     }
   }
 }
@@ -60,6 +60,88 @@ public class QueryCondition implements AutoCloseable {
     this.ctx = ctx;
   }
 
+  /**
+   * Allocates and initializes a native condition. The caller owns the returned handle and frees it
+   * with tiledb_query_condition_free.
+   *
+   * @param ctx The TileDB context
+   * @param attributeName The attribute the condition applies to
+   * @param value The condition value, or null to compare against null
+   * @param valueSize The size of the value in bytes
+   * @param op The comparison operator
+   * @return The native condition
+   * @throws TileDBError A TileDB exception
+   */
+  static SWIGTYPE_p_p_tiledb_query_condition_t allocCondition(
+      Context ctx,
+      String attributeName,
+      SWIGTYPE_p_void value,
+      long valueSize,
+      tiledb_query_condition_op_t op)
+      throws TileDBError {
+    SWIGTYPE_p_p_tiledb_query_condition_t conditionpp = tiledb.new_tiledb_query_condition_tpp();
+    try {
+      ctx.handleError(tiledb.tiledb_query_condition_alloc(ctx.getCtxp(), conditionpp));
+    } catch (TileDBError err) {
+      tiledb.delete_tiledb_query_condition_tpp(conditionpp);
+      throw err;
+    }
+    try {
+      ctx.handleError(
+          tiledb.tiledb_query_condition_init(
+              ctx.getCtxp(),
+              tiledb.tiledb_query_condition_tpp_value(conditionpp),
+              attributeName,
+              value,
+              // Same size the public constructor passes for comparisons against null
+              BigInteger.valueOf(value == null ? 4 : valueSize),
+              op));
+    } catch (TileDBError err) {
+      tiledb.tiledb_query_condition_free(conditionpp);
+      throw err;
+    }
+    return conditionpp;
+  }
+
+  /**
+   * Combines two native conditions into a new one. Both operands are freed, whether or not the
+   * combination succeeds.
+   *
+   * @param ctx The TileDB context
+   * @param leftpp The left operand
+   * @param rightpp The right operand, null for TILEDB_NOT
+   * @param op The combination operator
+   * @return The combined native condition
+   * @throws TileDBError A TileDB exception
+   */
+  static SWIGTYPE_p_p_tiledb_query_condition_t combineConditions(
+      Context ctx,
+      SWIGTYPE_p_p_tiledb_query_condition_t leftpp,
+      SWIGTYPE_p_p_tiledb_query_condition_t rightpp,
+      tiledb_query_condition_combination_op_t op)
+      throws TileDBError {
+    SWIGTYPE_p_p_tiledb_query_condition_t combinedpp = tiledb.new_tiledb_query_condition_tpp();
+    try {
+      ctx.handleError(
+          tiledb.tiledb_query_condition_combine(
+              ctx.getCtxp(),
+              tiledb.tiledb_query_condition_tpp_value(leftpp),
+              rightpp == null ? null : tiledb.tiledb_query_condition_tpp_value(rightpp),
+              op,
+              combinedpp));
+    } catch (TileDBError err) {
+      tiledb.delete_tiledb_query_condition_tpp(combinedpp);
+      throw err;
+    } finally {
+      // The combined condition holds copies of both operands
+      tiledb.tiledb_query_condition_free(leftpp);
+      if (rightpp != null) {
+        tiledb.tiledb_query_condition_free(rightpp);
+      }
+    }
+    return combinedpp;
+  }
+
   public SWIGTYPE_p_tiledb_query_condition_t getConditionp() {
     return this.conditionp;
   }
@@ -0,0 +1,574 @@
+package io.tiledb.java.api;
+
+import io.tiledb.libtiledb.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A pre-compiled QueryCondition shape with positional bind parameters.
+ *
+ * <p>The expression is parsed and type-checked against the array schema once. Each thread then
+ * creates its own {@link Bindings}, which own preallocated native storage for the literals, and
+ * binds new values for every execution without any per-request parsing, schema lookups, reflection
+ * or boxing. TileDB copies the literals into the native condition, so the condition is rebuilt
+ * once after the bound values change and reused as long as they do not.
+ *
+ * <p>The grammar supports comparisons of an attribute with a {@code ?} parameter ({@code <, <=, >,
+ * >=, =, !=}), {@code IS NULL} / {@code IS NOT NULL} tests, {@code AND} and parentheses. Attribute
+ * names that are not plain identifiers can be quoted with backticks. TileDB only combines query
+ * conditions with AND, so {@code OR} and {@code NOT} are rejected.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * QueryConditionTemplate template =
+ *     new QueryConditionTemplate(array, "a2 > ? AND a1 IS NOT NULL");
+ * try (QueryConditionTemplate.Bindings bindings = template.newBindings()) {
+ *   bindings.setFloat(0, 15.0f);
+ *   bindings.applyTo(query);
+ *   query.submit();
+ * }
+ * }</pre>
+ */
+public class QueryConditionTemplate {
+
+  private final Context ctx;
+  private final String expression;
+  private final Node root;
+  private final List<Leaf> parameters;
+
+  /**
+   * Compiles a condition template against the schema of an array.
+   *
+   * @param array The array the condition will be applied to
+   * @param expression The condition expression
+   * @throws TileDBError if the expression is malformed, uses OR or NOT, or refers to unknown
+   *     attributes
+   */
+  public QueryConditionTemplate(Array array, String expression) throws TileDBError {
+    this.ctx = array.getCtx();
+    this.expression = expression;
+    List<Leaf> params = new ArrayList<>();
+    this.root = new Parser(array, expression, params).parse();
+    this.parameters = Collections.unmodifiableList(params);
+  }
+
+  /** @return The expression the template was compiled from */
+  public String getExpression() {
+    return expression;
+  }
+
+  /** @return The number of {@code ?} parameters of the template */
+  public int getParameterNum() {
+    return parameters.size();
+  }
+
+  /**
+   * @param idx The parameter index
+   * @return The name of the attribute compared with the parameter
+   */
+  public String getParameterName(int idx) {
+    return parameters.get(idx).attribute;
+  }
+
+  /**
+   * @param idx The parameter index
+   * @return The datatype that values bound to the parameter must have
+   */
+  public Datatype getParameterType(int idx) {
+    return parameters.get(idx).type;
+  }
+
+  /**
+   * Allocates the native literal storage for one user of the template. Bindings are not thread-safe
+   * and are meant to be kept per thread and reused across executions.
+   *
+   * @return The bindings
+   * @throws TileDBError A TileDB exception
+   */
+  public Bindings newBindings() throws TileDBError {
+    return new Bindings(this);
+  }
+
+  /** Per-thread literal storage for a {@link QueryConditionTemplate}. */
+  public static class Bindings implements AutoCloseable {
+    private final QueryConditionTemplate template;
+    private final NativeArray[] values;
+    private final long[] sizes;
+    private final boolean[] bound;
+    // The condition built from the current values, null until built or after a value changes
+    private QueryCondition condition;
+    // Incremented whenever a value is bound
+    private long version;
+
+    private Bindings(QueryConditionTemplate template) throws TileDBError {
+      this.template = template;
+      int n = template.parameters.size();
+      this.values = new NativeArray[n];
+      this.sizes = new long[n];
+      this.bound = new boolean[n];
+      try {
+        for (int i = 0; i < n; i++) {
+          Datatype type = template.parameters.get(i).type;
+          if (!isStringType(type)) {
+            values[i] = new NativeArray(template.ctx, 1, type);
+            sizes[i] = type.getNativeSize();
+          }
+        }
+      } catch (TileDBError err) {
+        close();
+        throw err;
+      }
+    }
+
+    /**
+     * Binds a byte value to a parameter compared with an INT8 attribute.
+     *
+     * @param idx The parameter index
+     * @param value The value
+     * @return These bindings
+     * @throws TileDBError if the parameter does not have type INT8
+     */
+    public Bindings setByte(int idx, byte value) throws TileDBError {
+      NativeArray storage = storage(idx, Byte.class);
+      storage.getInt8_tArray().setitem(0, value);
+      return this;
+    }
+
+    /**
+     * Binds a short value to a parameter compared with an INT16 or UINT8 attribute.
+     *
+     * @param idx The parameter index
+     * @param value The value
+     * @return These bindings
+     * @throws TileDBError if the parameter does not have type INT16 or UINT8
+     */
+    public Bindings setShort(int idx, short value) throws TileDBError {
+      NativeArray storage = storage(idx, Short.class);
+      if (storage.getNativeType() == Datatype.TILEDB_UINT8) {
+        storage.getUint8_tArray().setitem(0, value);
+      } else {
+        storage.getInt16_tArray().setitem(0, value);
+      }
+      return this;
+    }
+
+    /**
+     * Binds an int value to a parameter compared with an INT32 or UINT16 attribute.
+     *
+     * @param idx The parameter index
+     * @param value The value
+     * @return These bindings
+     * @throws TileDBError if the parameter does not have type INT32 or UINT16
+     */
+    public Bindings setInt(int idx, int value) throws TileDBError {
+      NativeArray storage = storage(idx, Integer.class);
+      if (storage.getNativeType() == Datatype.TILEDB_UINT16) {
+        storage.getUint16_tArray().setitem(0, value);
+      } else {
+        storage.getInt32_tArray().setitem(0, value);
+      }
+      return this;
+    }
+
+    /**
+     * Binds a long value to a parameter compared with an INT64, UINT32, UINT64 or DATETIME
+     * attribute.
+     *
+     * @param idx The parameter index
+     * @param value The value
+     * @return These bindings
+     * @throws TileDBError if the parameter does not have type INT64, UINT32, UINT64 or DATETIME
+     */
+    public Bindings setLong(int idx, long value) throws TileDBError {
+      NativeArray storage = storage(idx, Long.class);
+      switch (storage.getNativeType()) {
+        case TILEDB_UINT32:
+          storage.getUint32_tArray().setitem(0, value);
+          break;
+        case TILEDB_UINT64:
+          storage.getUint64_tArray().setitem(0, value);
+          break;
+        default:
+          storage.getInt64_tArray().setitem(0, value);
+      }
+      return this;
+    }
+
+    /**
+     * Binds a float value to a parameter compared with a FLOAT32 attribute.
+     *
+     * @param idx The parameter index
+     * @param value The value
+     * @return These bindings
+     * @throws TileDBError if the parameter does not have type FLOAT32
+     */
+    public Bindings setFloat(int idx, float value) throws TileDBError {
+      storage(idx, Float.class).getFloatArray().setitem(0, value);
+      return this;
+    }
+
+    /**
+     * Binds a double value to a parameter compared with a FLOAT64 attribute.
+     *
+     * @param idx The parameter index
+     * @param value The value
+     * @return These bindings
+     * @throws TileDBError if the parameter does not have type FLOAT64
+     */
+    public Bindings setDouble(int idx, double value) throws TileDBError {
+      storage(idx, Double.class).getDoubleArray().setitem(0, value);
+      return this;
+    }
+
+    /**
+     * Binds a string literal. The native storage of the parameter is reused when it can hold the
+     * string, and reallocated otherwise.
+     */
+    public Bindings setString(int idx, String value) throws TileDBError {
+      Datatype type = template.parameters.get(idx).type;
+      if (!isStringType(type)) {
+        throw new TileDBError(
+            "Parameter " + idx + " has type " + type + ", a String value cannot be bound to it");
+      }
+      byte[] bytes =
+          value.getBytes(
+              type == Datatype.TILEDB_STRING_UTF8
+                  ? StandardCharsets.UTF_8
+                  : StandardCharsets.ISO_8859_1);
+      if (bytes.length == 0) {
+        throw new TileDBError("Cannot bind an empty string to parameter " + idx);
+      }
+      changed();
+      NativeArray storage = values[idx];
+      if (storage != null && storage.getSize() >= bytes.length) {
+        int8_tArray chars = storage.getInt8_tArray();
+        for (int i = 0; i < bytes.length; i++) {
+          chars.setitem(i, bytes[i]);
+        }
+      } else {
+        if (storage != null) {
+          storage.close();
+          values[idx] = null;
+        }
+        values[idx] = new NativeArray(template.ctx, bytes, Datatype.TILEDB_INT8);
+      }
+      sizes[idx] = bytes.length;
+      bound[idx] = true;
+      return this;
+    }
+
+    /**
+     * Creates a new native QueryCondition from the currently bound values, owned by the caller. The
+     * condition is copied by TileDB when it is set on a query, so it can be closed right after
+     * {@link Query#setCondition(QueryCondition)}.
+     *
+     * @return The QueryCondition
+     * @throws TileDBError if a parameter is unbound
+     */
+    public QueryCondition toCondition() throws TileDBError {
+      for (int i = 0; i < bound.length; i++) {
+        if (!bound[i]) {
+          throw new TileDBError("Parameter " + i + " of condition template is not bound");
+        }
+      }
+      SWIGTYPE_p_p_tiledb_query_condition_t conditionpp = template.root.build(template.ctx, this);
+      return new QueryCondition(template.ctx, conditionpp);
+    }
+
+    /**
+     * Sets the condition of the currently bound values on the query. The condition is only built
+     * again if a value was bound since it was last built.
+     *
+     * @param query The query
+     * @throws TileDBError A TileDB exception
+     */
+    public void applyTo(Query query) throws TileDBError {
+      query.setCondition(condition());
+    }
+
+    /**
+     * Sets the condition of the currently bound values on a single-threaded query. The condition is
+     * only built again if a value was bound since it was last built.
+     *
+     * @param query The query
+     * @throws TileDBError A TileDB exception
+     */
+    public void applyTo(SingleThreadQuery query) throws TileDBError {
+      query.setCondition(condition());
+    }
+
+    /**
+     * @return A number that changes whenever a value is bound, to tell whether a condition set on
+     *     a query is still current
+     */
+    long getVersion() {
+      return version;
+    }
+
+    private QueryCondition condition() throws TileDBError {
+      if (condition == null) {
+        condition = toCondition();
+      }
+      return condition;
+    }
+
+    private void changed() {
+      if (condition != null) {
+        condition.close();
+        condition = null;
+      }
+      version++;
+    }
+
+    private NativeArray storage(int idx, Class<?> javaType) throws TileDBError {
+      NativeArray storage = values[idx];
+      if (storage == null || storage.getJavaType() != javaType) {
+        throw new TileDBError(
+            "Parameter "
+                + idx
+                + " has type "
+                + template.parameters.get(idx).type
+                + ", a "
+                + javaType.getSimpleName()
+                + " value cannot be bound to it");
+      }
+      changed();
+      bound[idx] = true;
+      return storage;
+    }
+
+    /** Frees the native literal storage and the condition built from it. */
+    @Override
+    public void close() {
+      if (condition != null) {
+        condition.close();
+        condition = null;
+      }
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] != null) {
+          values[i].close();
+          values[i] = null;
+        }
+      }
+    }
+  }
+
+  private static boolean isStringType(Datatype type) {
+    return type == Datatype.TILEDB_CHAR
+        || type == Datatype.TILEDB_STRING_ASCII
+        || type == Datatype.TILEDB_STRING_UTF8;
+  }
+
+  private abstract static class Node {
+    /** Allocates a native condition for the subtree; the caller owns the returned handle. */
+    abstract SWIGTYPE_p_p_tiledb_query_condition_t build(Context ctx, Bindings bindings)
+        throws TileDBError;
+  }
+
+  private static final class Leaf extends Node {
+    private final String attribute;
+    private final tiledb_query_condition_op_t op;
+    private final Datatype type;
+    // Index into the bindings, or -1 for IS [NOT] NULL tests
+    private final int slot;
+
+    private Leaf(String attribute, tiledb_query_condition_op_t op, Datatype type, int slot) {
+      this.attribute = attribute;
+      this.op = op;
+      this.type = type;
+      this.slot = slot;
+    }
+
+    @Override
+    SWIGTYPE_p_p_tiledb_query_condition_t build(Context ctx, Bindings bindings)
+        throws TileDBError {
+      if (slot < 0) {
+        return QueryCondition.allocCondition(ctx, attribute, null, 0, op);
+      }
+      return QueryCondition.allocCondition(
+          ctx, attribute, bindings.values[slot].toVoidPointer(), bindings.sizes[slot], op);
+    }
+  }
+
+  private static final class Combination extends Node {
+    private final tiledb_query_condition_combination_op_t op;
+    private final Node left;
+    private final Node right;
+
+    private Combination(tiledb_query_condition_combination_op_t op, Node left, Node right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    SWIGTYPE_p_p_tiledb_query_condition_t build(Context ctx, Bindings bindings)
+        throws TileDBError {
+      SWIGTYPE_p_p_tiledb_query_condition_t leftpp = left.build(ctx, bindings);
+      SWIGTYPE_p_p_tiledb_query_condition_t rightpp;
+      try {
+        rightpp = right.build(ctx, bindings);
+      } catch (TileDBError err) {
+        tiledb.tiledb_query_condition_free(leftpp);
+        throw err;
+      }
+      return QueryCondition.combineConditions(ctx, leftpp, rightpp, op);
+    }
+  }
+
+  /** Recursive-descent parser producing the compiled condition tree. */
+  private static final class Parser {
+    private final Array array;
+    private final String input;
+    private final List<Leaf> params;
+    private int pos;
+
+    private Parser(Array array, String input, List<Leaf> params) {
+      this.array = array;
+      this.input = input;
+      this.params = params;
+    }
+
+    private Node parse() throws TileDBError {
+      Node node = parseAnd();
+      skipWhitespace();
+      if (pos != input.length()) {
+        throw error("Unexpected input");
+      }
+      return node;
+    }
+
+    private Node parseAnd() throws TileDBError {
+      Node node = parseUnary();
+      while (true) {
+        if (acceptKeyword("AND") || accept("&&")) {
+          node =
+              new Combination(
+                  tiledb_query_condition_combination_op_t.TILEDB_AND, node, parseUnary());
+        } else if (acceptKeyword("OR") || accept("||")) {
+          throw unsupported("OR");
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseUnary() throws TileDBError {
+      if (acceptKeyword("NOT") || accept("!")) {
+        throw unsupported("NOT");
+      }
+      if (accept("(")) {
+        Node node = parseAnd();
+        expect(")");
+        return node;
+      }
+      return parseComparison();
+    }
+
+    private Node parseComparison() throws TileDBError {
+      String attribute = parseIdentifier();
+      SchemaSnapshot schema = array.getSchemaSnapshot();
+      if (!schema.hasAttribute(attribute)) {
+        throw error("Unknown attribute '" + attribute + "'");
+      }
+      Datatype type = schema.getField(attribute).getType();
+
+      if (acceptKeyword("IS")) {
+        tiledb_query_condition_op_t op =
+            acceptKeyword("NOT")
+                ? tiledb_query_condition_op_t.TILEDB_NE
+                : tiledb_query_condition_op_t.TILEDB_EQ;
+        if (!acceptKeyword("NULL")) {
+          throw error("Expected NULL");
+        }
+        return new Leaf(attribute, op, type, -1);
+      }
+
+      tiledb_query_condition_op_t op = parseOperator();
+      expect("?");
+      Leaf leaf = new Leaf(attribute, op, type, params.size());
+      params.add(leaf);
+      return leaf;
+    }
+
+    private tiledb_query_condition_op_t parseOperator() throws TileDBError {
+      if (accept("<=")) return tiledb_query_condition_op_t.TILEDB_LE;
+      if (accept(">=")) return tiledb_query_condition_op_t.TILEDB_GE;
+      if (accept("!=") || accept("<>")) return tiledb_query_condition_op_t.TILEDB_NE;
+      if (accept("==") || accept("=")) return tiledb_query_condition_op_t.TILEDB_EQ;
+      if (accept("<")) return tiledb_query_condition_op_t.TILEDB_LT;
+      if (accept(">")) return tiledb_query_condition_op_t.TILEDB_GT;
+      throw error("Expected a comparison operator");
+    }
+
+    private String parseIdentifier() throws TileDBError {
+      skipWhitespace();
+      if (pos < input.length() && input.charAt(pos) == '`') {
+        int end = input.indexOf('`', pos + 1);
+        if (end < 0) {
+          throw error("Unterminated quoted attribute name");
+        }
+        String name = input.substring(pos + 1, end);
+        pos = end + 1;
+        return name;
+      }
+      int start = pos;
+      while (pos < input.length() && isIdentifierChar(input.charAt(pos))) {
+        pos++;
+      }
+      if (start == pos) {
+        throw error("Expected an attribute name");
+      }
+      return input.substring(start, pos);
+    }
+
+    private boolean acceptKeyword(String keyword) {
+      skipWhitespace();
+      int end = pos + keyword.length();
+      if (end <= input.length()
+          && input.regionMatches(true, pos, keyword, 0, keyword.length())
+          && (end == input.length() || !isIdentifierChar(input.charAt(end)))) {
+        pos = end;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean accept(String token) {
+      skipWhitespace();
+      if (input.startsWith(token, pos)) {
+        pos += token.length();
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String token) throws TileDBError {
+      if (!accept(token)) {
+        throw error("Expected '" + token + "'");
+      }
+    }
+
+    private void skipWhitespace() {
+      while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private static boolean isIdentifierChar(char c) {
+      return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private TileDBError unsupported(String operator) {
+      return error(operator + " is not supported, TileDB only combines query conditions with AND");
+    }
+
+    private TileDBError error(String msg) {
+      return new TileDBError(
+          msg + " at position " + pos + " of condition expression: " + input);
+    }
+  }
+}
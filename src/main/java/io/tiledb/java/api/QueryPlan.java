@@ -0,0 +1,672 @@
+package io.tiledb.java.api;
+
+import io.tiledb.libtiledb.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The pushdown plan of a {@link Predicate} over an array.
+ *
+ * <p>The top-level conjuncts of the predicate are split three ways:
+ *
+ * <ul>
+ *   <li>Conjuncts on a single dimension become subarray ranges. Conjuncts on the same dimension are
+ *       intersected, disjunctions become unions of ranges, and overlapping or adjacent ranges are
+ *       merged.
+ *   <li>Comparisons and null tests on fixed-sized attributes become a QueryCondition.
+ *   <li>Everything else (disjunctions across fields or over attributes, var-sized attributes) is
+ *       kept as the residual predicate, which the caller evaluates on the results.
+ * </ul>
+ *
+ * A conjunct whose ranges are only a superset of the cells it matches (e.g. a strict bound on a
+ * floating point dimension) is pushed down as ranges and also kept in the residual.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * QueryPlan plan = QueryPlan.plan(array, predicate);
+ * if (!plan.isEmpty()) {
+ *   plan.apply(query);
+ *   query.submit();
+ * }
+ * }</pre>
+ */
+public class QueryPlan {
+
+  private final Context ctx;
+  private final Map<String, Field> dimensions;
+  private final Map<String, Field> attributes;
+  private final Map<String, RangeSet> ranges;
+  private final List<Predicate> pushed;
+  private final List<Predicate> residual;
+  private boolean empty;
+
+  // Set to false while converting a conjunct whose ranges over-approximate it
+  private boolean exact;
+
+  private QueryPlan(Array array) throws TileDBError {
+    this.ctx = array.getCtx();
+    this.dimensions = new LinkedHashMap<>();
+    this.attributes = new LinkedHashMap<>();
+    this.ranges = new LinkedHashMap<>();
+    this.pushed = new ArrayList<>();
+    this.residual = new ArrayList<>();
+    SchemaSnapshot schema = array.getSchemaSnapshot();
+    for (SchemaSnapshot.Field dim : schema.getDimensions()) {
+      Field field = new Field(dim.getName(), dim.getIndex(), dim.getType(), dim.isVar(), false);
+      if (!dim.isVar()) {
+        Pair<Object, Object> bounds = dim.getDomain();
+        field.min = field.toRangeValue(bounds.getFirst());
+        field.max = field.toRangeValue(bounds.getSecond());
+      }
+      dimensions.put(field.name, field);
+    }
+    for (SchemaSnapshot.Field a : schema.getAttributes()) {
+      Field field = new Field(a.getName(), -1, a.getType(), a.isVar(), a.isNullable());
+      attributes.put(field.name, field);
+    }
+  }
+
+  /**
+   * Plans the pushdown of a predicate.
+   *
+   * @param array The array the predicate applies to
+   * @param predicate The predicate
+   * @return The plan
+   * @throws TileDBError if the predicate refers to unknown fields or has ill-typed values
+   */
+  public static QueryPlan plan(Array array, Predicate predicate) throws TileDBError {
+    QueryPlan plan = new QueryPlan(array);
+    List<Predicate> conjuncts = new ArrayList<>();
+    flatten(predicate, conjuncts);
+    for (Predicate conjunct : conjuncts) {
+      plan.add(conjunct);
+    }
+    return plan;
+  }
+
+  /** @return true if the predicate provably matches no cell, so nothing needs to be read */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * @param dimension The dimension name
+   * @return The merged, sorted ranges of the dimension, or null if the dimension is unconstrained
+   * @throws TileDBError A TileDB exception
+   */
+  public List<Pair<Object, Object>> getRanges(String dimension) throws TileDBError {
+    RangeSet set = ranges.get(dimension);
+    if (set == null) {
+      return null;
+    }
+    Field field = dimensions.get(dimension);
+    List<Pair<Object, Object>> result = new ArrayList<>(set.size());
+    for (int i = 0; i < set.size(); i++) {
+      result.add(
+          new Pair<>(
+              field.fromRangeValue(set.getStart(i)), field.fromRangeValue(set.getEnd(i))));
+    }
+    return result;
+  }
+
+  /** @return The conjunction pushed down as a QueryCondition, or null if there is none */
+  public Predicate getPushedCondition() {
+    return conjunction(pushed);
+  }
+
+  /** @return The part of the predicate which is not handled by TileDB, or null if there is none */
+  public Predicate getResidual() {
+    return conjunction(residual);
+  }
+
+  /**
+   * Adds the ranges and the condition of the plan to a read query.
+   *
+   * @param query The query
+   * @throws TileDBError if the plan is empty, or on a TileDB error
+   */
+  public void apply(Query query) throws TileDBError {
+    if (empty) {
+      throw new TileDBError("Cannot apply an empty query plan, the predicate matches no cells");
+    }
+    for (Map.Entry<String, RangeSet> entry : ranges.entrySet()) {
+      addRanges(query, dimensions.get(entry.getKey()), entry.getValue());
+    }
+    if (!pushed.isEmpty()) {
+      try (QueryCondition condition = buildCondition()) {
+        query.setCondition(condition);
+      }
+    }
+  }
+
+  /**
+   * Creates a read query for the plan, with the ranges and condition applied. Sparse arrays are
+   * read unordered and dense arrays in row-major order.
+   */
+  Query newQuery(Array array) throws TileDBError {
+    Query query = new Query(array, QueryType.TILEDB_READ);
+    try {
+      boolean sparse = array.getSchemaSnapshot().isSparse();
+      query.setLayout(sparse ? Layout.TILEDB_UNORDERED : Layout.TILEDB_ROW_MAJOR);
+      apply(query);
+    } catch (TileDBError err) {
+      query.close();
+      throw err;
+    }
+    return query;
+  }
+
+  /** Narrows the ranges of a dimension to the given set. */
+  void restrict(String dimension, RangeSet set) {
+    RangeSet current = ranges.get(dimension);
+    set = current == null ? set : current.intersect(set);
+    ranges.put(dimension, set);
+    if (set.size() == 0) {
+      empty = true;
+    }
+  }
+
+  /** @return The names of the dimensions of the array, in order */
+  List<String> getDimensionNames() {
+    return new ArrayList<>(dimensions.keySet());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("QueryPlan{");
+    if (empty) {
+      return sb.append("empty}").toString();
+    }
+    for (Map.Entry<String, RangeSet> entry : ranges.entrySet()) {
+      sb.append(entry.getKey()).append(entry.getValue()).append(", ");
+    }
+    return sb.append("condition=")
+        .append(getPushedCondition())
+        .append(", residual=")
+        .append(getResidual())
+        .append("}")
+        .toString();
+  }
+
+  private static void flatten(Predicate predicate, List<Predicate> conjuncts) {
+    if (predicate instanceof Predicate.And) {
+      for (Predicate operand : ((Predicate.And) predicate).operands) {
+        flatten(operand, conjuncts);
+      }
+    } else {
+      conjuncts.add(predicate);
+    }
+  }
+
+  private static Predicate conjunction(List<Predicate> conjuncts) {
+    if (conjuncts.isEmpty()) {
+      return null;
+    }
+    return Predicate.and(conjuncts.toArray(new Predicate[0]));
+  }
+
+  private void add(Predicate conjunct) throws TileDBError {
+    Set<String> names = new HashSet<>();
+    conjunct.collectFields(names);
+    Field dim = null;
+    boolean allAttributes = true;
+    for (String name : names) {
+      if (dimensions.containsKey(name)) {
+        dim = dimensions.get(name);
+        allAttributes = false;
+      } else if (!attributes.containsKey(name)) {
+        throw new TileDBError("Predicate refers to unknown field '" + name + "'");
+      }
+    }
+
+    if (dim != null && names.size() == 1) {
+      exact = true;
+      RangeSet set = toRanges(conjunct, dim);
+      if (set != null) {
+        restrict(dim.name, set);
+        if (!exact) {
+          residual.add(conjunct);
+        }
+        return;
+      }
+    } else if (allAttributes && pushAttribute(conjunct)) {
+      return;
+    }
+    residual.add(conjunct);
+  }
+
+  /** Converts a predicate on a single dimension to ranges, or returns null if it cannot be. */
+  private RangeSet toRanges(Predicate p, Field dim) throws TileDBError {
+    if (p instanceof Predicate.And) {
+      RangeSet result = null;
+      for (Predicate operand : ((Predicate.And) p).operands) {
+        RangeSet set = toRanges(operand, dim);
+        if (set == null) {
+          return null;
+        }
+        result = result == null ? set : result.intersect(set);
+      }
+      return result;
+    }
+    if (p instanceof Predicate.Or) {
+      RangeSet result = null;
+      for (Predicate operand : ((Predicate.Or) p).operands) {
+        RangeSet set = toRanges(operand, dim);
+        if (set == null) {
+          return null;
+        }
+        result = result == null ? set : result.union(set);
+      }
+      return result;
+    }
+    if (p instanceof Predicate.In) {
+      RangeSet result = new RangeSet(dim.integral);
+      for (Object value : ((Predicate.In) p).values) {
+        Object v = dim.toRangeValue(value);
+        result = result.union(dim.range(v, v));
+      }
+      return result;
+    }
+    if (p instanceof Predicate.Between) {
+      Predicate.Between between = (Predicate.Between) p;
+      return dim.range(dim.toRangeValue(between.low), dim.toRangeValue(between.high));
+    }
+    if (p instanceof Predicate.NullTest) {
+      // Dimensions are never null
+      return ((Predicate.NullTest) p).isNull ? new RangeSet(dim.integral) : dim.full();
+    }
+    Predicate.Comparison cmp = (Predicate.Comparison) p;
+    Object v = dim.toRangeValue(cmp.value);
+    if (dim.min == null) {
+      // Var-sized dimensions have no domain: only bounded ranges, starting at "" at the lowest
+      switch (cmp.op) {
+        case EQ:
+          return dim.range(v, v);
+        case LT:
+          exact = false;
+          return dim.range("", v);
+        case LE:
+          return dim.range("", v);
+        default:
+          return null;
+      }
+    }
+    switch (cmp.op) {
+      case EQ:
+        return dim.range(v, v);
+      case LE:
+        return dim.range(dim.min, v);
+      case GE:
+        return dim.range(v, dim.max);
+      case LT:
+        if (dim.integral) {
+          long l = (Long) v;
+          return l == Long.MIN_VALUE ? new RangeSet(true) : dim.range(dim.min, l - 1);
+        }
+        exact = false;
+        return dim.range(dim.min, v);
+      case GT:
+        if (dim.integral) {
+          long l = (Long) v;
+          return l == Long.MAX_VALUE ? new RangeSet(true) : dim.range(l + 1, dim.max);
+        }
+        exact = false;
+        return dim.range(v, dim.max);
+      default:
+        if (dim.integral) {
+          long l = (Long) v;
+          RangeSet result = new RangeSet(true);
+          if (l != Long.MIN_VALUE) {
+            result = result.union(dim.range(dim.min, l - 1));
+          }
+          if (l != Long.MAX_VALUE) {
+            result = result.union(dim.range(l + 1, dim.max));
+          }
+          return result;
+        }
+        exact = false;
+        return dim.full();
+    }
+  }
+
+  /** Adds a conjunct on attributes to the pushed condition, if TileDB can evaluate it. */
+  private boolean pushAttribute(Predicate p) throws TileDBError {
+    if (p instanceof Predicate.Comparison) {
+      Predicate.Comparison cmp = (Predicate.Comparison) p;
+      Field attr = attributes.get(cmp.field);
+      if (attr.var) {
+        return false;
+      }
+      pushed.add(new Predicate.Comparison(cmp.field, cmp.op, attr.toJavaValue(cmp.value)));
+      return true;
+    }
+    if (p instanceof Predicate.Between) {
+      Predicate.Between between = (Predicate.Between) p;
+      Field attr = attributes.get(between.field);
+      if (attr.var) {
+        return false;
+      }
+      pushed.add(
+          new Predicate.Comparison(between.field, Predicate.Op.GE, attr.toJavaValue(between.low)));
+      pushed.add(
+          new Predicate.Comparison(
+              between.field, Predicate.Op.LE, attr.toJavaValue(between.high)));
+      return true;
+    }
+    if (p instanceof Predicate.In && ((Predicate.In) p).values.size() == 1) {
+      Predicate.In in = (Predicate.In) p;
+      return pushAttribute(new Predicate.Comparison(in.field, Predicate.Op.EQ, in.values.get(0)));
+    }
+    if (p instanceof Predicate.NullTest) {
+      Predicate.NullTest test = (Predicate.NullTest) p;
+      if (!attributes.get(test.field).nullable) {
+        // Always true or always false on non-nullable attributes
+        empty |= test.isNull;
+        return true;
+      }
+      pushed.add(test);
+      return true;
+    }
+    return false;
+  }
+
+  private QueryCondition buildCondition() throws TileDBError {
+    SWIGTYPE_p_p_tiledb_query_condition_t conditionpp = null;
+    for (Predicate p : pushed) {
+      SWIGTYPE_p_p_tiledb_query_condition_t leafpp;
+      try {
+        leafpp = buildLeaf(p);
+      } catch (TileDBError err) {
+        if (conditionpp != null) {
+          tiledb.tiledb_query_condition_free(conditionpp);
+        }
+        throw err;
+      }
+      conditionpp =
+          conditionpp == null
+              ? leafpp
+              : QueryCondition.combineConditions(
+                  ctx,
+                  conditionpp,
+                  leafpp,
+                  tiledb_query_condition_combination_op_t.TILEDB_AND);
+    }
+    return new QueryCondition(ctx, conditionpp);
+  }
+
+  private SWIGTYPE_p_p_tiledb_query_condition_t buildLeaf(Predicate p) throws TileDBError {
+    if (p instanceof Predicate.NullTest) {
+      Predicate.NullTest test = (Predicate.NullTest) p;
+      return QueryCondition.allocCondition(
+          ctx,
+          test.field,
+          null,
+          0,
+          test.isNull
+              ? tiledb_query_condition_op_t.TILEDB_EQ
+              : tiledb_query_condition_op_t.TILEDB_NE);
+    }
+    Predicate.Comparison cmp = (Predicate.Comparison) p;
+    Field attr = attributes.get(cmp.field);
+    try (NativeArray value = new NativeArray(ctx, 1, attr.type)) {
+      value.setItem(0, cmp.value);
+      return QueryCondition.allocCondition(
+          ctx, cmp.field, value.toVoidPointer(), value.getNBytes(), cmp.op.toNative());
+    }
+  }
+
+  private void addRanges(Query query, Field dim, RangeSet set) throws TileDBError {
+    if (dim.var) {
+      for (int i = 0; i < set.size(); i++) {
+        query.addRangeVar(dim.index, (String) set.getStart(i), (String) set.getEnd(i));
+      }
+      return;
+    }
+    // Reuse the same native storage for all ranges instead of Query.addRange's per-call lookups
+    try (NativeArray start = new NativeArray(ctx, 1, dim.type);
+        NativeArray end = new NativeArray(ctx, 1, dim.type)) {
+      for (int i = 0; i < set.size(); i++) {
+        start.setItem(0, dim.fromRangeValue(set.getStart(i)));
+        end.setItem(0, dim.fromRangeValue(set.getEnd(i)));
+        ctx.handleError(
+            tiledb.tiledb_query_add_range(
+                ctx.getCtxp(),
+                query.getQueryp(),
+                dim.index,
+                start.toVoidPointer(),
+                end.toVoidPointer(),
+                null));
+      }
+    }
+  }
+
+  /** Type information of a dimension or attribute, with value conversions. */
+  private static final class Field {
+    final String name;
+    final int index;
+    final Datatype type;
+    final boolean var;
+    final boolean nullable;
+    final boolean integral;
+    final boolean string;
+    // UINT64 range values have their sign bit flipped, see RangeSet
+    final boolean unsigned;
+    // Domain bounds, null for var-sized dimensions and attributes
+    Object min;
+    Object max;
+
+    Field(String name, int index, Datatype type, boolean var, boolean nullable) {
+      this.name = name;
+      this.index = index;
+      this.type = type;
+      this.var = var;
+      this.nullable = nullable;
+      this.string = type.isStringType() || (type == Datatype.TILEDB_CHAR && var);
+      this.integral = !string && (type.isIntegerType() || type.isDateType());
+      this.unsigned = type == Datatype.TILEDB_UINT64;
+    }
+
+    RangeSet range(Object start, Object end) {
+      RangeSet set = new RangeSet(integral, start, end);
+      return min == null ? set : set.intersect(new RangeSet(integral, min, max));
+    }
+
+    /** @return The full domain, or null if it cannot be expressed as a range */
+    RangeSet full() {
+      return min == null ? null : new RangeSet(integral, min, max);
+    }
+
+    /**
+     * Normalizes a value to Long, Double or String for range arithmetic. UINT64 values are given,
+     * like NativeArray returns them, as the bits of a Long or as a BigInteger.
+     */
+    Object toRangeValue(Object value) throws TileDBError {
+      if (string) {
+        if (!(value instanceof CharSequence)) {
+          throw typeError(value);
+        }
+        return value.toString();
+      }
+      if (!(value instanceof Number)) {
+        throw typeError(value);
+      }
+      Number n = (Number) value;
+      if (!integral) {
+        return n.doubleValue();
+      }
+      if ((value instanceof Double || value instanceof Float)
+          && n.doubleValue() != Math.rint(n.doubleValue())) {
+        throw new TileDBError(
+            "Value " + value + " is not an integer, cannot compare it with field '" + name + "'");
+      }
+      return unsigned ? RangeSet.flipSign(n.longValue()) : n.longValue();
+    }
+
+    /** Converts a value to the boxed Java class NativeArray expects for the field type. */
+    Object toJavaValue(Object value) throws TileDBError {
+      return fromRangeValue(toRangeValue(value));
+    }
+
+    /** Converts a range value back to the boxed Java class NativeArray expects. */
+    Object fromRangeValue(Object v) throws TileDBError {
+      if (string) {
+        return v;
+      }
+      Class<?> javaClass = type.javaClass();
+      if (javaClass == Float.class) {
+        return ((Double) v).floatValue();
+      }
+      if (javaClass == Double.class) {
+        return v;
+      }
+      long l = unsigned ? RangeSet.flipSign((Long) v) : (Long) v;
+      if (javaClass == Byte.class && l == (byte) l) {
+        return (byte) l;
+      }
+      if (javaClass == Short.class && l == (short) l) {
+        return (short) l;
+      }
+      if (javaClass == Integer.class && l == (int) l) {
+        return (int) l;
+      }
+      if (javaClass == Long.class) {
+        return l;
+      }
+      throw new TileDBError("Value " + v + " is out of range for field '" + name + "'");
+    }
+
+    private TileDBError typeError(Object value) {
+      return new TileDBError(
+          "Value "
+              + value
+              + " of type "
+              + value.getClass().getSimpleName()
+              + " cannot be compared with field '"
+              + name
+              + "' of type "
+              + type);
+    }
+  }
+
+  /**
+   * An immutable union of disjoint, sorted, inclusive ranges of Long, Double or String values.
+   *
+   * <p>UINT64 values are stored with their sign bit flipped by {@link #flipSign(long)}, so that
+   * their signed order is their unsigned order and values of 2^63 and more sort after the others.
+   */
+  static final class RangeSet {
+    private final boolean integral;
+    private final List<Object[]> ranges;
+
+    RangeSet(boolean integral) {
+      this.integral = integral;
+      this.ranges = Collections.emptyList();
+    }
+
+    RangeSet(boolean integral, Object start, Object end) {
+      this.integral = integral;
+      this.ranges =
+          compare(start, end) > 0
+              ? Collections.<Object[]>emptyList()
+              : Collections.singletonList(new Object[] {start, end});
+    }
+
+    /** Creates a set from ranges that are already sorted, disjoint and not adjacent. */
+    RangeSet(boolean integral, List<? extends Object[]> ranges) {
+      this.integral = integral;
+      this.ranges = Collections.unmodifiableList(ranges);
+    }
+
+    int size() {
+      return ranges.size();
+    }
+
+    Object getStart(int i) {
+      return ranges.get(i)[0];
+    }
+
+    Object getEnd(int i) {
+      return ranges.get(i)[1];
+    }
+
+    RangeSet union(RangeSet other) {
+      List<Object[]> all = new ArrayList<>(ranges.size() + other.ranges.size());
+      all.addAll(ranges);
+      all.addAll(other.ranges);
+      all.sort((a, b) -> compare(a[0], b[0]));
+      List<Object[]> merged = new ArrayList<>(all.size());
+      for (Object[] r : all) {
+        Object[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+        if (last != null && touches(last[1], r[0])) {
+          if (compare(r[1], last[1]) > 0) {
+            merged.set(merged.size() - 1, new Object[] {last[0], r[1]});
+          }
+        } else {
+          merged.add(r);
+        }
+      }
+      return new RangeSet(integral, merged);
+    }
+
+    RangeSet intersect(RangeSet other) {
+      List<Object[]> result = new ArrayList<>();
+      int i = 0;
+      int j = 0;
+      while (i < ranges.size() && j < other.ranges.size()) {
+        Object[] a = ranges.get(i);
+        Object[] b = other.ranges.get(j);
+        Object start = compare(a[0], b[0]) >= 0 ? a[0] : b[0];
+        Object end = compare(a[1], b[1]) <= 0 ? a[1] : b[1];
+        if (compare(start, end) <= 0) {
+          result.add(new Object[] {start, end});
+        }
+        if (compare(a[1], b[1]) < 0) {
+          i++;
+        } else {
+          j++;
+        }
+      }
+      return new RangeSet(integral, result);
+    }
+
+    /** @return true if a range ending at end and one starting at start can be merged */
+    private boolean touches(Object end, Object start) {
+      if (compare(start, end) <= 0) {
+        return true;
+      }
+      return integral && (Long) end != Long.MAX_VALUE && (Long) end + 1 == (Long) start;
+    }
+
+    /**
+     * Maps the bits of a UINT64 value to a long whose signed order is the unsigned order of the
+     * values, and back.
+     */
+    static long flipSign(long value) {
+      return value ^ Long.MIN_VALUE;
+    }
+
+    /** Compares two range values of the same class, Long, Double or String. */
+    @SuppressWarnings("unchecked")
+    static int compare(Object a, Object b) {
+      return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i < ranges.size(); i++) {
+        sb.append(i == 0 ? "" : ", ")
+            .append(ranges.get(i)[0])
+            .append("..")
+            .append(ranges.get(i)[1]);
+      }
+      return sb.append("]").toString();
+    }
+  }
+}
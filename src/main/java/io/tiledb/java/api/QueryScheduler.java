@@ -0,0 +1,413 @@
+package io.tiledb.java.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of {@link Query#submit()} and {@link Query#submitAsync(Callback)},
+ * so that a burst of bulk scans cannot starve small interactive queries of TileDB's threads and
+ * memory.
+ *
+ * <p>Each submission names a tenant and a {@link Priority}, and is admitted once fewer than the
+ * maximum number of queries run and the estimated bytes of the running queries leave room for it.
+ * A query's cost is the estimated result size of the fields it reads, from {@link
+ * Query#getEstResultSize(Context, String)} and its variants, or the size of the buffers it writes.
+ * A query costlier than the memory limit is admitted once no other query runs.
+ *
+ * <p>Waiting submissions are admitted by weighted fair queuing: every tenant and priority is a
+ * flow, served in proportion to the tenant's weight, set with {@link #setWeight(String, int)},
+ * times the share of the priority, and charged by the cost of its queries. A tenant submitting
+ * large scans thus gets fewer admissions than one submitting small reads, and high priority
+ * queries of a tenant are not queued behind its low priority ones. Within a flow, submissions are
+ * admitted in order.
+ *
+ * <p>A read that returns {@link QueryStatus#TILEDB_INCOMPLETE} is admitted again on every
+ * resubmission.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * QueryScheduler scheduler = new QueryScheduler(8, 2L << 30).setWeight("dashboards", 4);
+ * scheduler.submit(query, "dashboards", QueryScheduler.Priority.HIGH);
+ * }</pre>
+ */
+public class QueryScheduler {
+
+  /** The priority of a submission within its tenant. */
+  public enum Priority {
+    HIGH(4),
+    NORMAL(2),
+    LOW(1);
+
+    private final int share;
+
+    Priority(int share) {
+      this.share = share;
+    }
+
+    /** @return The share of the priority, multiplying the weight of the tenant */
+    public int getShare() {
+      return share;
+    }
+  }
+
+  private final int maxConcurrent;
+  private final long maxBytes;
+  private final Map<String, Integer> weights;
+  private final Map<String, Flow[]> flows;
+  private final Map<String, TenantStats> stats;
+  private double virtualTime;
+  private long sequence;
+  private int queued;
+  private int running;
+  private long runningBytes;
+  private long admitted;
+  private long totalWaitNanos;
+  private long maxWaitNanos;
+
+  /**
+   * Creates a scheduler.
+   *
+   * @param maxConcurrent The number of queries that may run at once
+   * @param maxBytes The estimated bytes the running queries may handle at once
+   * @throws TileDBError if a limit is not positive
+   */
+  public QueryScheduler(int maxConcurrent, long maxBytes) throws TileDBError {
+    if (maxConcurrent <= 0) {
+      throw new TileDBError("Maximum concurrent queries must be >= 1, got: " + maxConcurrent);
+    }
+    if (maxBytes <= 0) {
+      throw new TileDBError("Maximum bytes must be >= 1, got: " + maxBytes);
+    }
+    this.maxConcurrent = maxConcurrent;
+    this.maxBytes = maxBytes;
+    this.weights = new HashMap<>();
+    this.flows = new HashMap<>();
+    this.stats = new HashMap<>();
+  }
+
+  /**
+   * Sets the weight of a tenant, 1 by default. It applies to submissions queued afterwards.
+   *
+   * @param tenant The tenant
+   * @param weight The weight
+   * @return This scheduler
+   * @throws TileDBError if the weight is not positive
+   */
+  public synchronized QueryScheduler setWeight(String tenant, int weight) throws TileDBError {
+    if (weight <= 0) {
+      throw new TileDBError("Tenant weight must be >= 1, got: " + weight);
+    }
+    weights.put(tenant, weight);
+    return this;
+  }
+
+  /**
+   * Submits a query once admitted. Blocks until the query is admitted and complete.
+   *
+   * @param query The query
+   * @param tenant The tenant submitting it
+   * @param priority The priority of the query
+   * @return The query status
+   * @throws TileDBError A TileDB exception, or the thread was interrupted while waiting
+   */
+  public QueryStatus submit(Query query, String tenant, Priority priority) throws TileDBError {
+    Permit permit = acquire(tenant, priority, query.estimateBytes());
+    try {
+      return query.submit();
+    } finally {
+      permit.close();
+    }
+  }
+
+  /**
+   * Submits a query asynchronously once admitted, without blocking. The callback is invoked once
+   * the query completes or fails, including if it fails to be submitted after waiting for
+   * admission; use {@link Query#getQueryStatus()} to tell these apart.
+   *
+   * @param query The query
+   * @param tenant The tenant submitting it
+   * @param priority The priority of the query
+   * @param callback The callback
+   * @throws TileDBError if the cost of the query cannot be estimated
+   */
+  public void submitAsync(Query query, String tenant, Priority priority, Callback callback)
+      throws TileDBError {
+    Permit permit = new Permit(tenant, priority, query.estimateBytes());
+    permit.onAdmit =
+        () -> {
+          try {
+            query.submitAsync(
+                () -> {
+                  permit.close();
+                  callback.call();
+                });
+          } catch (TileDBError err) {
+            permit.close();
+            callback.call();
+          }
+        };
+    enqueue(permit);
+    dispatch();
+  }
+
+  /**
+   * Waits for admission of work of the given cost, for work that is not a single query submission.
+   * The permit must be closed once the work is done.
+   *
+   * @param tenant The tenant
+   * @param priority The priority of the work
+   * @param bytes The estimated bytes of the work
+   * @return The permit
+   * @throws TileDBError if the thread was interrupted while waiting
+   */
+  public Permit acquire(String tenant, Priority priority, long bytes) throws TileDBError {
+    Permit permit = new Permit(tenant, priority, bytes);
+    enqueue(permit);
+    dispatch();
+    boolean interrupted = false;
+    boolean withdrawn = false;
+    synchronized (this) {
+      while (!permit.admitted && !interrupted) {
+        try {
+          wait();
+        } catch (InterruptedException err) {
+          interrupted = true;
+        }
+      }
+      if (!permit.admitted) {
+        remove(permit);
+        withdrawn = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (withdrawn) {
+      // The withdrawn submission may have held back the ones behind it
+      dispatch();
+      throw new TileDBError("Interrupted waiting for query admission");
+    }
+    return permit;
+  }
+
+  /** @return The number of submissions waiting for admission */
+  public synchronized int getQueueDepth() {
+    return queued;
+  }
+
+  /**
+   * @param tenant A tenant
+   * @return The number of submissions of the tenant waiting for admission
+   */
+  public synchronized int getQueueDepth(String tenant) {
+    TenantStats s = stats.get(tenant);
+    return s == null ? 0 : s.queued;
+  }
+
+  /** @return The number of admitted submissions still running */
+  public synchronized int getRunningCount() {
+    return running;
+  }
+
+  /** @return The estimated bytes of the admitted submissions still running */
+  public synchronized long getRunningBytes() {
+    return runningBytes;
+  }
+
+  /** @return The number of submissions admitted so far */
+  public synchronized long getAdmittedCount() {
+    return admitted;
+  }
+
+  /**
+   * @param tenant A tenant
+   * @return The number of submissions of the tenant admitted so far
+   */
+  public synchronized long getAdmittedCount(String tenant) {
+    TenantStats s = stats.get(tenant);
+    return s == null ? 0 : s.admitted;
+  }
+
+  /**
+   * @param unit The unit of the result
+   * @return The time admitted submissions spent waiting, in total
+   */
+  public synchronized long getTotalWait(TimeUnit unit) {
+    return unit.convert(totalWaitNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param tenant A tenant
+   * @param unit The unit of the result
+   * @return The time admitted submissions of the tenant spent waiting, in total
+   */
+  public synchronized long getTotalWait(String tenant, TimeUnit unit) {
+    TenantStats s = stats.get(tenant);
+    return s == null ? 0 : unit.convert(s.waitNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param unit The unit of the result
+   * @return The longest time an admitted submission spent waiting
+   */
+  public synchronized long getMaxWait(TimeUnit unit) {
+    return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private synchronized void enqueue(Permit permit) {
+    Flow[] tenantFlows =
+        flows.computeIfAbsent(permit.tenant, t -> new Flow[Priority.values().length]);
+    Flow flow = tenantFlows[permit.priority.ordinal()];
+    if (flow == null) {
+      flow = new Flow();
+      tenantFlows[permit.priority.ordinal()] = flow;
+    }
+    int weight = weights.getOrDefault(permit.tenant, 1) * permit.priority.share;
+    double start = Math.max(virtualTime, flow.lastFinish);
+    permit.finish = start + (double) Math.max(permit.bytes, 1) / weight;
+    permit.sequence = sequence++;
+    flow.lastFinish = permit.finish;
+    flow.queue.add(permit);
+    queued++;
+    stats.computeIfAbsent(permit.tenant, t -> new TenantStats()).queued++;
+  }
+
+  /** Admits the waiting submissions that fit, then starts the asynchronous ones. */
+  private void dispatch() {
+    List<Permit> started = new ArrayList<>();
+    synchronized (this) {
+      Permit next;
+      while ((next = peek()) != null && fits(next)) {
+        admit(next);
+        if (next.onAdmit != null) {
+          started.add(next);
+        }
+      }
+      notifyAll();
+    }
+    for (Permit permit : started) {
+      permit.onAdmit.run();
+    }
+  }
+
+  /** @return The waiting submission with the earliest finish tag, or null */
+  private Permit peek() {
+    Permit next = null;
+    for (Flow[] tenantFlows : flows.values()) {
+      for (Flow flow : tenantFlows) {
+        Permit head = flow == null ? null : flow.queue.peek();
+        if (head != null
+            && (next == null
+                || head.finish < next.finish
+                || (head.finish == next.finish && head.sequence < next.sequence))) {
+          next = head;
+        }
+      }
+    }
+    return next;
+  }
+
+  private boolean fits(Permit permit) {
+    return running < maxConcurrent && (running == 0 || runningBytes + permit.bytes <= maxBytes);
+  }
+
+  private void admit(Permit permit) {
+    virtualTime = Math.max(virtualTime, permit.finish);
+    remove(permit);
+    permit.admitted = true;
+    running++;
+    runningBytes += permit.bytes;
+    long wait = System.nanoTime() - permit.enqueuedNanos;
+    admitted++;
+    totalWaitNanos += wait;
+    maxWaitNanos = Math.max(maxWaitNanos, wait);
+    TenantStats s = stats.get(permit.tenant);
+    s.admitted++;
+    s.waitNanos += wait;
+  }
+
+  private void remove(Permit permit) {
+    Flow[] tenantFlows = flows.get(permit.tenant);
+    tenantFlows[permit.priority.ordinal()].queue.remove(permit);
+    queued--;
+    stats.get(permit.tenant).queued--;
+    // Drop idle flows, so that tenants seen once are not kept forever
+    boolean idle = true;
+    for (int i = 0; i < tenantFlows.length; i++) {
+      Flow flow = tenantFlows[i];
+      if (flow != null && flow.queue.isEmpty() && flow.lastFinish <= virtualTime) {
+        tenantFlows[i] = null;
+      }
+      idle &= tenantFlows[i] == null;
+    }
+    if (idle) {
+      flows.remove(permit.tenant);
+    }
+  }
+
+  /** The admission of a submission, closed once its work is done. */
+  public final class Permit implements AutoCloseable {
+    private final String tenant;
+    private final Priority priority;
+    private final long bytes;
+    private final long enqueuedNanos;
+    private double finish;
+    private long sequence;
+    private boolean admitted;
+    private boolean closed;
+    private Runnable onAdmit;
+
+    private Permit(String tenant, Priority priority, long bytes) {
+      this.tenant = tenant;
+      this.priority = priority;
+      this.bytes = bytes;
+      this.enqueuedNanos = System.nanoTime();
+    }
+
+    /** @return The tenant */
+    public String getTenant() {
+      return tenant;
+    }
+
+    /** @return The priority */
+    public Priority getPriority() {
+      return priority;
+    }
+
+    /** @return The estimated bytes the permit was admitted for */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /** Releases the capacity held by the permit, once. Further calls do nothing. */
+    @Override
+    public void close() {
+      synchronized (QueryScheduler.this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        running--;
+        runningBytes -= bytes;
+      }
+      dispatch();
+    }
+  }
+
+  /** The waiting submissions of a tenant at a priority. */
+  private static final class Flow {
+    private final ArrayDeque<Permit> queue = new ArrayDeque<>();
+    private double lastFinish;
+  }
+
+  private static final class TenantStats {
+    private int queued;
+    private long admitted;
+    private long waitNanos;
+  }
+}
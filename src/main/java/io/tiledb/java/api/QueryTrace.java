@@ -0,0 +1,321 @@
+package io.tiledb.java.api;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The timeline of one query: spans for setting up buffers and ranges, every submission, including
+ * the resubmissions of an INCOMPLETE read, copies of results into Java arrays, and VFS reads and
+ * writes during submissions, on the threads they ran.
+ *
+ * <p>Traces are recorded for queries created while {@link QueryTracer} is enabled, and returned by
+ * {@link Query#getTrace()}. With {@link Stats#enable()} on, the span of a submission carries, as
+ * arguments, the TileDB timers and counters it added up to.
+ *
+ * <p>A trace is written in the Chrome trace event format, which chrome://tracing and the Perfetto
+ * UI open. Times are in microseconds since the query was created.
+ */
+public final class QueryTrace {
+
+  /** The most spans kept in a trace; later spans are counted as dropped. */
+  static final int MAX_SPANS = 100_000;
+
+  private final long id;
+  private final String uri;
+  private final String queryType;
+  private final long created;
+  private final List<Span> spans;
+  private long dropped;
+  private int submitCount;
+  private long submitNanos;
+  private volatile boolean ended;
+
+  QueryTrace(long id, String uri, String queryType) {
+    this.id = id;
+    this.uri = uri;
+    this.queryType = queryType;
+    this.created = System.nanoTime();
+    this.spans = new ArrayList<>();
+  }
+
+  /** @return The id of the trace, unique in the process */
+  public long getId() {
+    return id;
+  }
+
+  /** @return The URI of the array queried */
+  public String getUri() {
+    return uri;
+  }
+
+  /** @return true once the query is closed */
+  public boolean isEnded() {
+    return ended;
+  }
+
+  /** Marks the query closed, after which the trace is no longer made current. */
+  void end() {
+    ended = true;
+  }
+
+  /** @return The number of spans recorded */
+  public synchronized int getSpanCount() {
+    return spans.size();
+  }
+
+  /** @return The number of submissions of the query */
+  public synchronized int getSubmitCount() {
+    return submitCount;
+  }
+
+  /** @return The time spent in submissions of the query, in nanoseconds */
+  public synchronized long getSubmitNanos() {
+    return submitNanos;
+  }
+
+  /**
+   * Adds the span of an instrumented operation.
+   *
+   * @param operation The operation
+   * @param started The start time
+   * @param ended The end time
+   * @param bytes The bytes handled, or 0
+   * @param field The field operated on, or null
+   */
+  void add(Metrics.Operation operation, long started, long ended, long bytes, String field) {
+    Map<String, Object> args = new LinkedHashMap<>();
+    if (field != null) {
+      args.put("field", field);
+    }
+    if (bytes > 0) {
+      args.put("bytes", bytes);
+    }
+    add(operation.name().toLowerCase(Locale.ROOT), "java", started, ended, args);
+  }
+
+  /**
+   * Adds the span of a submission.
+   *
+   * @param started The start time
+   * @param ended The end time
+   * @param bytes The bytes of the buffers set
+   * @param status The status after the submission, or null
+   * @param stats The statistics the submission added up to, or null
+   */
+  void addSubmit(long started, long ended, long bytes, QueryStatus status, StatsSnapshot stats) {
+    Map<String, Object> args = new LinkedHashMap<>();
+    int attempt;
+    synchronized (this) {
+      attempt = ++submitCount;
+      submitNanos += ended - started;
+    }
+    args.put("attempt", attempt);
+    args.put("bytes", bytes);
+    if (status != null) {
+      args.put("status", status.name());
+    }
+    if (stats != null) {
+      Map<String, Object> timers = new LinkedHashMap<>();
+      for (Map.Entry<String, Double> e : stats.getTimers().entrySet()) {
+        if (e.getValue() > 0) {
+          timers.put(e.getKey(), e.getValue());
+        }
+      }
+      Map<String, Object> counters = new LinkedHashMap<>();
+      for (Map.Entry<String, Long> e : stats.getCounters().entrySet()) {
+        if (e.getValue() > 0) {
+          counters.put(e.getKey(), e.getValue());
+        }
+      }
+      args.put("timers", timers);
+      args.put("counters", counters);
+    }
+    add(attempt == 1 ? "submit" : "resubmit", "native", started, ended, args);
+  }
+
+  private void add(
+      String name, String category, long started, long ended, Map<String, Object> args) {
+    Thread thread = Thread.currentThread();
+    Span span = new Span(name, category, started, ended, thread.getId(), thread.getName(), args);
+    synchronized (this) {
+      if (spans.size() < MAX_SPANS) {
+        spans.add(span);
+      } else {
+        dropped++;
+      }
+    }
+  }
+
+  /**
+   * Writes the trace in the Chrome trace event format.
+   *
+   * @param out The stream, left open
+   * @throws IOException if the trace cannot be written
+   */
+  public void write(OutputStream out) throws IOException {
+    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    writer.write(toJson());
+    writer.flush();
+  }
+
+  /**
+   * Writes the trace in the Chrome trace event format to a file.
+   *
+   * @param file The file, replaced if it exists
+   * @throws IOException if the trace cannot be written
+   */
+  public void write(File file) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      write(out);
+    }
+  }
+
+  /** @return The trace in the Chrome trace event format */
+  public String toJson() {
+    List<Span> copy;
+    Map<String, Object> process = new LinkedHashMap<>();
+    synchronized (this) {
+      copy = new ArrayList<>(spans);
+      process.put("name", "TileDB " + queryType + " query " + uri);
+      if (dropped > 0) {
+        process.put("dropped_spans", dropped);
+      }
+    }
+    StringBuilder json = new StringBuilder("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[");
+    appendEvent(json, "process_name", null, "M", null, null, 0, process);
+    Map<Long, String> threads = new LinkedHashMap<>();
+    for (Span span : copy) {
+      threads.putIfAbsent(span.threadId, span.threadName);
+    }
+    for (Map.Entry<Long, String> thread : threads.entrySet()) {
+      Map<String, Object> args = new LinkedHashMap<>();
+      args.put("name", thread.getValue());
+      json.append(',');
+      appendEvent(json, "thread_name", null, "M", null, null, thread.getKey(), args);
+    }
+    for (Span span : copy) {
+      json.append(',');
+      appendEvent(
+          json,
+          span.name,
+          span.category,
+          "X",
+          micros(span.started - created),
+          micros(span.ended - span.started),
+          span.threadId,
+          span.args);
+    }
+    return json.append("]}").toString();
+  }
+
+  private void appendEvent(
+      StringBuilder json,
+      String name,
+      String category,
+      String phase,
+      String ts,
+      String dur,
+      long tid,
+      Map<String, Object> args) {
+    json.append("{\"name\":");
+    appendValue(json, name);
+    if (category != null) {
+      json.append(",\"cat\":");
+      appendValue(json, category);
+    }
+    json.append(",\"ph\":\"").append(phase).append('"');
+    if (ts != null) {
+      json.append(",\"ts\":").append(ts).append(",\"dur\":").append(dur);
+    }
+    json.append(",\"pid\":").append(id).append(",\"tid\":").append(tid);
+    if (!args.isEmpty()) {
+      json.append(",\"args\":");
+      appendValue(json, args);
+    }
+    json.append('}');
+  }
+
+  private static String micros(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void appendValue(StringBuilder json, Object value) {
+    if (value instanceof Map) {
+      json.append('{');
+      boolean first = true;
+      for (Map.Entry<String, Object> e : ((Map<String, Object>) value).entrySet()) {
+        if (!first) {
+          json.append(',');
+        }
+        first = false;
+        appendValue(json, e.getKey());
+        json.append(':');
+        appendValue(json, e.getValue());
+      }
+      json.append('}');
+    } else if (value instanceof Double) {
+      double d = (Double) value;
+      json.append(Double.isFinite(d) ? Double.toString(d) : "null");
+    } else if (value instanceof Number) {
+      json.append(value);
+    } else {
+      String s = String.valueOf(value);
+      json.append('"');
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c == '"' || c == '\\') {
+          json.append('\\').append(c);
+        } else if (c < 0x20) {
+          json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+        } else {
+          json.append(c);
+        }
+      }
+      json.append('"');
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "QueryTrace<id=" + id + ",uri=" + uri + ",spans=" + getSpanCount() + ">";
+  }
+
+  /** A timed operation on a thread. */
+  private static final class Span {
+    private final String name;
+    private final String category;
+    private final long started;
+    private final long ended;
+    private final long threadId;
+    private final String threadName;
+    private final Map<String, Object> args;
+
+    private Span(
+        String name,
+        String category,
+        long started,
+        long ended,
+        long threadId,
+        String threadName,
+        Map<String, Object> args) {
+      this.name = name;
+      this.category = category;
+      this.started = started;
+      this.ended = ended;
+      this.threadId = threadId;
+      this.threadName = threadName;
+      this.args = args;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package io.tiledb.java.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in tracing of queries into a {@link QueryTrace} per query, for slow-query forensics.
+ *
+ * <p>While enabled, every query created records a trace, returned by {@link Query#getTrace()}.
+ * Besides the operations of the query itself, the trace takes the copies of {@link NativeArray}s
+ * and the {@link VFS} reads and writes done on the calling thread while the query is submitted or
+ * its results are read into Java arrays, so that decoding results shows up on the timeline of the
+ * query. Once the query is closed, its trace takes no more spans.
+ *
+ * <p>With a slow-query threshold set, when a query whose submissions took at least the threshold
+ * in total is closed, its trace is written to the dump directory as {@code
+ * tiledb-query-<time>-<id>.json}, the time being in milliseconds since the epoch. Traces that
+ * cannot be written are counted by {@link #getDumpFailures()}.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * Stats.enable();
+ * QueryTracer.enable(2, TimeUnit.SECONDS, new File("/tmp/traces"));
+ * }</pre>
+ */
+public final class QueryTracer {
+
+  private static final AtomicLong ids = new AtomicLong();
+  private static final AtomicLong dumps = new AtomicLong();
+  private static final AtomicLong dumpFailures = new AtomicLong();
+  private static final ThreadLocal<QueryTrace> current = new ThreadLocal<>();
+
+  private static volatile boolean enabled;
+  private static volatile long slowNanos = Long.MAX_VALUE;
+  private static volatile File dumpDirectory;
+
+  private QueryTracer() {}
+
+  /** Traces the queries created from now on, without dumping slow queries. */
+  public static void enable() {
+    slowNanos = Long.MAX_VALUE;
+    dumpDirectory = null;
+    enabled = true;
+  }
+
+  /**
+   * Traces the queries created from now on, and dumps the traces of slow queries.
+   *
+   * @param threshold The time in submissions from which a query is slow
+   * @param unit The unit of the threshold
+   * @param directory The directory to write the traces of slow queries to, created if needed
+   */
+  public static void enable(long threshold, TimeUnit unit, File directory) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("The slow-query threshold cannot be negative");
+    }
+    slowNanos = unit.toNanos(threshold);
+    dumpDirectory = directory;
+    enabled = true;
+  }
+
+  /** Stops tracing the queries created from now on. */
+  public static void disable() {
+    enabled = false;
+    current.remove();
+  }
+
+  /** @return true if queries are traced */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** @return The number of traces of slow queries written */
+  public static long getDumpCount() {
+    return dumps.get();
+  }
+
+  /** @return The number of traces of slow queries that could not be written */
+  public static long getDumpFailures() {
+    return dumpFailures.get();
+  }
+
+  /**
+   * Starts the trace of a query.
+   *
+   * @param uri The URI of the array queried
+   * @param queryType The query type
+   * @return The trace, or null if not enabled
+   */
+  static QueryTrace begin(String uri, QueryType queryType) {
+    if (!enabled) {
+      return null;
+    }
+    return new QueryTrace(ids.incrementAndGet(), uri, queryType.name());
+  }
+
+  /** @return The trace current on the calling thread, or null if none or its query has ended */
+  static QueryTrace current() {
+    if (!enabled) {
+      return null;
+    }
+    QueryTrace trace = current.get();
+    return trace == null || trace.isEnded() ? null : trace;
+  }
+
+  /**
+   * Makes a trace current on the calling thread, until {@link #exit(QueryTrace, QueryTrace)} is
+   * called in a finally block.
+   *
+   * @param trace The trace, or null to leave the current trace
+   * @return The trace current before, to pass to {@code exit}
+   */
+  static QueryTrace enter(QueryTrace trace) {
+    if (trace == null) {
+      return null;
+    }
+    QueryTrace previous = current.get();
+    if (enabled && !trace.isEnded()) {
+      current.set(trace);
+    }
+    return previous;
+  }
+
+  /**
+   * Makes the trace current before {@link #enter(QueryTrace)} current again.
+   *
+   * @param trace The trace entered, or null
+   * @param previous The trace returned by {@code enter}
+   */
+  static void exit(QueryTrace trace, QueryTrace previous) {
+    if (trace == null) {
+      return;
+    }
+    if (previous == null) {
+      current.remove();
+    } else {
+      current.set(previous);
+    }
+  }
+
+  /**
+   * Ends the trace of a closed query, and dumps it if the query was slow.
+   *
+   * @param trace The trace, or null
+   */
+  static void end(QueryTrace trace) {
+    if (trace == null) {
+      return;
+    }
+    trace.end();
+    File directory = dumpDirectory;
+    if (directory == null || trace.getSubmitNanos() < slowNanos) {
+      return;
+    }
+    try {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Cannot create " + directory);
+      }
+      String name = "tiledb-query-" + System.currentTimeMillis() + "-" + trace.getId() + ".json";
+      trace.write(new File(directory, name));
+      dumps.incrementAndGet();
+    } catch (IOException | RuntimeException err) {
+      // Tracing must not fail closing the query
+      dumpFailures.incrementAndGet();
+    }
+  }
+}
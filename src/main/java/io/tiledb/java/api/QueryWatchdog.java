@@ -0,0 +1,62 @@
+package io.tiledb.java.api;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide scheduler that cancels {@link CancellationToken}s when their deadline expires. A
+ * single daemon thread serves all deadlines; it is started lazily on first use.
+ */
+final class QueryWatchdog {
+
+  private static volatile ScheduledThreadPoolExecutor scheduler;
+
+  private QueryWatchdog() {}
+
+  /**
+   * Schedules the cancellation of a token.
+   *
+   * @param token The token to cancel
+   * @param timeout The delay after which the token is cancelled
+   * @return The scheduled deadline, which can be cancelled once the work finishes
+   */
+  static ScheduledFuture<?> schedule(CancellationToken token, Duration timeout) {
+    String reason = "Query cancelled: deadline of " + timeout.toMillis() + "ms exceeded";
+    return getScheduler()
+        .schedule(
+            () -> {
+              try {
+                token.cancel(reason);
+              } catch (TileDBError err) {
+                // The submitting thread observes the cancellation through the token
+              }
+            },
+            timeout.toNanos(),
+            TimeUnit.NANOSECONDS);
+  }
+
+  private static ScheduledThreadPoolExecutor getScheduler() {
+    ScheduledThreadPoolExecutor s = scheduler;
+    if (s == null) {
+      synchronized (QueryWatchdog.class) {
+        s = scheduler;
+        if (s == null) {
+          s =
+              new ScheduledThreadPoolExecutor(
+                  1,
+                  r -> {
+                    Thread t = new Thread(r, "tiledb-query-watchdog");
+                    t.setDaemon(true);
+                    return t;
+                  });
+          // Deadlines are usually cancelled long before they fire, do not keep them queued
+          s.setRemoveOnCancelPolicy(true);
+          scheduler = s;
+        }
+      }
+    }
+    return s;
+  }
+}
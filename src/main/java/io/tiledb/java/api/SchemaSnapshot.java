@@ -0,0 +1,428 @@
+package io.tiledb.java.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of an array schema, read once from the native schema and kept in plain Java
+ * objects. Lookups of attributes, dimensions and their types need no native handle, so nothing has
+ * to be closed and nothing is allocated per lookup.
+ *
+ * <p>A SchemaSnapshot is safe to share across threads. {@link Array#getSchemaSnapshot()} caches
+ * one per open array.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * SchemaSnapshot schema = array.getSchemaSnapshot();
+ * SchemaSnapshot.Field a1 = schema.getField("a1");
+ * if (a1.isNullable()) {
+ *   ...
+ * }
+ * }</pre>
+ */
+public final class SchemaSnapshot {
+
+  private final ArrayType arrayType;
+  private final long capacity;
+  private final Layout tileOrder;
+  private final Layout cellOrder;
+  private final boolean allowDups;
+  private final List<Field> dimensions;
+  private final List<Field> attributes;
+  private final Map<String, Field> fieldsByName;
+  private final List<FilterInfo> coordsFilters;
+  private final List<FilterInfo> offsetsFilters;
+
+  /**
+   * Copies a native schema.
+   *
+   * @param schema The schema, which may be closed afterwards
+   * @throws TileDBError A TileDB exception
+   */
+  public SchemaSnapshot(ArraySchema schema) throws TileDBError {
+    this.arrayType = schema.getArrayType();
+    this.capacity = schema.getCapacity();
+    this.tileOrder = schema.getTileOrder();
+    this.cellOrder = schema.getCellOrder();
+    this.allowDups = arrayType == ArrayType.TILEDB_SPARSE && schema.getAllowDups() != 0;
+    try (FilterList coords = schema.getCoordsFilterList();
+        FilterList offsets = schema.getOffsetsFilterList()) {
+      this.coordsFilters = FilterInfo.of(coords);
+      this.offsetsFilters = FilterInfo.of(offsets);
+    }
+
+    List<Field> dims = new ArrayList<>();
+    try (Domain domain = schema.getDomain()) {
+      for (long i = 0; i < domain.getNDim(); i++) {
+        try (Dimension<?> dim = domain.getDimension(i)) {
+          dims.add(new Field(dim, (int) i));
+        }
+      }
+    }
+    List<Field> attrs = new ArrayList<>();
+    for (long i = 0; i < schema.getAttributeNum(); i++) {
+      try (Attribute attr = schema.getAttribute(i)) {
+        attrs.add(new Field(attr, (int) i));
+      }
+    }
+    this.dimensions = Collections.unmodifiableList(dims);
+    this.attributes = Collections.unmodifiableList(attrs);
+    Map<String, Field> byName = new HashMap<>((dims.size() + attrs.size()) * 2);
+    for (Field field : dims) {
+      byName.put(field.name, field);
+    }
+    for (Field field : attrs) {
+      byName.put(field.name, field);
+    }
+    this.fieldsByName = byName;
+  }
+
+  /** @return The array type */
+  public ArrayType getArrayType() {
+    return arrayType;
+  }
+
+  /** @return true if the array is sparse */
+  public boolean isSparse() {
+    return arrayType == ArrayType.TILEDB_SPARSE;
+  }
+
+  /** @return The tile capacity of sparse fragments */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /** @return The tile order */
+  public Layout getTileOrder() {
+    return tileOrder;
+  }
+
+  /** @return The cell order */
+  public Layout getCellOrder() {
+    return cellOrder;
+  }
+
+  /** @return true if the array is sparse and allows duplicate coordinates */
+  public boolean getAllowDups() {
+    return allowDups;
+  }
+
+  /** @return The filters of the coordinates */
+  public List<FilterInfo> getCoordsFilters() {
+    return coordsFilters;
+  }
+
+  /** @return The filters of the offsets of var-sized fields */
+  public List<FilterInfo> getOffsetsFilters() {
+    return offsetsFilters;
+  }
+
+  /** @return The dimensions, in domain order */
+  public List<Field> getDimensions() {
+    return dimensions;
+  }
+
+  /** @return The number of dimensions */
+  public int getNDim() {
+    return dimensions.size();
+  }
+
+  /**
+   * @param idx The dimension index
+   * @return The dimension
+   * @throws TileDBError if there is no such dimension
+   */
+  public Field getDimension(int idx) throws TileDBError {
+    if (idx < 0 || idx >= dimensions.size()) {
+      throw new TileDBError("Dimension index " + idx + " out of range, ndim: " + dimensions.size());
+    }
+    return dimensions.get(idx);
+  }
+
+  /**
+   * @return The type of the dimensions
+   * @throws TileDBError if the dimensions have different types
+   */
+  public Datatype getDomainType() throws TileDBError {
+    Datatype type = dimensions.get(0).type;
+    for (Field dim : dimensions) {
+      if (dim.type != type) {
+        throw new TileDBError("Dimensions have different types, the domain has no single type");
+      }
+    }
+    return type;
+  }
+
+  /** @return The attributes, in schema order */
+  public List<Field> getAttributes() {
+    return attributes;
+  }
+
+  /** @return The number of attributes */
+  public int getAttributeNum() {
+    return attributes.size();
+  }
+
+  /**
+   * @param name The field name
+   * @return true if the schema has an attribute of that name
+   */
+  public boolean hasAttribute(String name) {
+    Field field = fieldsByName.get(name);
+    return field != null && !field.dimension;
+  }
+
+  /**
+   * @param name The field name
+   * @return true if the schema has a dimension of that name
+   */
+  public boolean hasDimension(String name) {
+    Field field = fieldsByName.get(name);
+    return field != null && field.dimension;
+  }
+
+  /**
+   * @param name The field name
+   * @return true if the schema has an attribute or a dimension of that name
+   */
+  public boolean hasField(String name) {
+    return fieldsByName.containsKey(name);
+  }
+
+  /**
+   * Looks up an attribute or a dimension by name.
+   *
+   * @param name The field name
+   * @return The field
+   * @throws TileDBError if the schema has no such field
+   */
+  public Field getField(String name) throws TileDBError {
+    Field field = fieldsByName.get(name);
+    if (field == null) {
+      throw new TileDBError("Array has no attribute or dimension named: " + name);
+    }
+    return field;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder s = new StringBuilder("SchemaSnapshot<");
+    s.append(arrayType).append(' ').append(dimensions).append(' ').append(attributes);
+    return s.append('>').toString();
+  }
+
+  /** An attribute or a dimension of a schema. */
+  public static final class Field {
+    private final String name;
+    private final int index;
+    private final boolean dimension;
+    private final Datatype type;
+    private final long cellValNum;
+    private final boolean var;
+    private final boolean nullable;
+    private final List<FilterInfo> filters;
+    private final Pair<Object, Object> domain;
+    private final Object tileExtent;
+    private final Object fillValue;
+    private final int fillValueSize;
+    private final boolean fillValueValid;
+
+    private Field(Dimension<?> dim, int index) throws TileDBError {
+      this.name = dim.getName();
+      this.index = index;
+      this.dimension = true;
+      this.type = dim.getType();
+      this.cellValNum = dim.getCellValNum();
+      this.var = dim.isVar();
+      this.nullable = false;
+      try (FilterList filterList = dim.getFilterList()) {
+        this.filters = FilterInfo.of(filterList);
+      }
+      if (var) {
+        this.domain = null;
+        this.tileExtent = null;
+      } else {
+        Pair<?, ?> bounds = dim.getDomain();
+        this.domain = new Pair<>(bounds.getFirst(), bounds.getSecond());
+        this.tileExtent = dim.getTileExtent();
+      }
+      this.fillValue = null;
+      this.fillValueSize = 0;
+      this.fillValueValid = true;
+    }
+
+    private Field(Attribute attr, int index) throws TileDBError {
+      this.name = attr.getName();
+      this.index = index;
+      this.dimension = false;
+      this.type = attr.getType();
+      this.cellValNum = attr.getCellValNum();
+      this.var = attr.isVar();
+      this.nullable = attr.getNullable();
+      try (FilterList filterList = attr.getFilterList()) {
+        this.filters = FilterInfo.of(filterList);
+      }
+      this.domain = null;
+      this.tileExtent = null;
+      if (nullable) {
+        Pair<Object, Pair<Integer, Boolean>> fill = attr.getFillValueNullable();
+        this.fillValue = fill.getFirst();
+        this.fillValueSize = fill.getSecond().getFirst();
+        this.fillValueValid = fill.getSecond().getSecond();
+      } else {
+        Pair<Object, Integer> fill = attr.getFillValue();
+        this.fillValue = fill.getFirst();
+        this.fillValueSize = fill.getSecond();
+        this.fillValueValid = true;
+      }
+    }
+
+    /** @return The field name */
+    public String getName() {
+      return name;
+    }
+
+    /** @return The index of the dimension in the domain, or of the attribute in the schema */
+    public int getIndex() {
+      return index;
+    }
+
+    /** @return true if the field is a dimension, false if it is an attribute */
+    public boolean isDimension() {
+      return dimension;
+    }
+
+    /** @return The datatype */
+    public Datatype getType() {
+      return type;
+    }
+
+    /** @return The number of values per cell, TILEDB_VAR_NUM if var-sized */
+    public long getCellValNum() {
+      return cellValNum;
+    }
+
+    /** @return true if the field is var-sized */
+    public boolean isVar() {
+      return var;
+    }
+
+    /** @return true if the field is a nullable attribute */
+    public boolean isNullable() {
+      return nullable;
+    }
+
+    /** @return The filters of the field */
+    public List<FilterInfo> getFilters() {
+      return filters;
+    }
+
+    /** @return The domain of a fixed-sized dimension, or null */
+    public Pair<Object, Object> getDomain() {
+      return domain == null ? null : new Pair<>(domain.getFirst(), domain.getSecond());
+    }
+
+    /** @return The tile extent of a fixed-sized dimension, or null */
+    public Object getTileExtent() {
+      return tileExtent;
+    }
+
+    /**
+     * @return The fill value of an attribute, a copy if it is an array of values, or null for a
+     *     dimension
+     */
+    public Object getFillValue() {
+      return copyIfArray(fillValue);
+    }
+
+    /** @return The size in bytes of the fill value of an attribute */
+    public int getFillValueSize() {
+      return fillValueSize;
+    }
+
+    /** @return false if the fill value of a nullable attribute is null */
+    public boolean isFillValueValid() {
+      return fillValueValid;
+    }
+
+    @Override
+    public String toString() {
+      return (dimension ? "Dim<" : "Attr<") + name + ',' + type + (var ? ",VAR>" : ">");
+    }
+  }
+
+  /** A filter of a filter list: its class, and its level or window when it has one. */
+  public static final class FilterInfo {
+    private final Class<? extends Filter> filterClass;
+    private final int level;
+    private final int window;
+
+    private FilterInfo(Filter filter) throws TileDBError {
+      this.filterClass = filter.getClass();
+      if (filter instanceof CompressionFilter) {
+        this.level = ((CompressionFilter) filter).getLevel();
+      } else {
+        this.level = -1;
+      }
+      if (filter instanceof BitWidthReductionFilter) {
+        this.window = ((BitWidthReductionFilter) filter).getWindow();
+      } else if (filter instanceof PositiveDeltaFilter) {
+        this.window = ((PositiveDeltaFilter) filter).getWindow();
+      } else {
+        this.window = -1;
+      }
+    }
+
+    static List<FilterInfo> of(FilterList filterList) throws TileDBError {
+      long n = filterList.getNumFilters();
+      if (n == 0) {
+        return Collections.emptyList();
+      }
+      List<FilterInfo> filters = new ArrayList<>((int) n);
+      for (long i = 0; i < n; i++) {
+        try (Filter filter = filterList.getFilter(i)) {
+          filters.add(new FilterInfo(filter));
+        }
+      }
+      return Collections.unmodifiableList(filters);
+    }
+
+    /** @return The filter class, for instance {@link ZstdFilter} */
+    public Class<? extends Filter> getFilterClass() {
+      return filterClass;
+    }
+
+    /** @return The compression level of a compression filter, or -1 */
+    public int getLevel() {
+      return level;
+    }
+
+    /** @return The window of a bit width reduction or positive delta filter, or -1 */
+    public int getWindow() {
+      return window;
+    }
+
+    @Override
+    public String toString() {
+      String name = filterClass.getSimpleName();
+      if (level != -1) {
+        return name + "(level=" + level + ")";
+      }
+      return window == -1 ? name : name + "(window=" + window + ")";
+    }
+  }
+
+  private static Object copyIfArray(Object value) {
+    if (value == null || !value.getClass().isArray()) {
+      return value;
+    }
+    int length = java.lang.reflect.Array.getLength(value);
+    Object copy = java.lang.reflect.Array.newInstance(value.getClass().getComponentType(), length);
+    System.arraycopy(value, 0, copy, 0, length);
+    return copy;
+  }
+}
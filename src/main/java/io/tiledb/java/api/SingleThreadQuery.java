@@ -0,0 +1,461 @@
+package io.tiledb.java.api;
+
+import io.tiledb.libtiledb.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A query over NIO buffers for use by a single thread, with fields addressed by {@link FieldSlots}
+ * slots instead of names.
+ *
+ * <p>Unlike {@link Query}, no method takes a lock, buffers and their sizes are kept in arrays
+ * indexed by slot rather than in synchronized maps, and {@link #submit()} sets the limits of the
+ * result buffers from the slots without reading the array schema. The native sizes of a slot are
+ * allocated once and reused when its buffers are set again.
+ *
+ * <p><b>A SingleThreadQuery is not thread-safe.</b> It must be confined to one thread at a time,
+ * or guarded by the caller; use {@link Query} when a query is shared between threads.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * FieldSlots slots = FieldSlots.of(array, "d1", "a1");
+ * int d1 = slots.slot("d1");
+ * int a1 = slots.slot("a1");
+ * try (SingleThreadQuery query = new SingleThreadQuery(array, TILEDB_READ, slots)) {
+ *   query.setLayout(TILEDB_ROW_MAJOR).setSubarray(subarray);
+ *   query.setBuffer(d1, d1Data).setBuffer(a1, a1Data);
+ *   query.submit();
+ *   ByteBuffer results = query.getData(a1);
+ * }
+ * }</pre>
+ */
+public class SingleThreadQuery implements AutoCloseable {
+
+  private final Context ctx;
+  private final Array array;
+  private final QueryType type;
+  private final FieldSlots slots;
+
+  private SWIGTYPE_p_p_tiledb_query_t querypp;
+  private SWIGTYPE_p_tiledb_query_t queryp;
+
+  private final ByteBuffer[] data;
+  private final ByteBuffer[] offsets;
+  private final ByteBuffer[] validity;
+  private final uint64_tArray[] dataSizes;
+  private final uint64_tArray[] offsetsSizes;
+  private final uint64_tArray[] validitySizes;
+  private OffsetsFormat offsetsFormat;
+
+  /**
+   * Allocates a query.
+   *
+   * @param array The open array
+   * @param type The query type
+   * @param slots The fields of the query
+   * @throws TileDBError A TileDB exception
+   */
+  public SingleThreadQuery(Array array, QueryType type, FieldSlots slots) throws TileDBError {
+    Context _ctx = array.getCtx();
+    SWIGTYPE_p_p_tiledb_query_t _querypp = tiledb.new_tiledb_query_tpp();
+    try {
+      _ctx.handleError(
+          tiledb.tiledb_query_alloc(
+              _ctx.getCtxp(), array.getArrayp(), type.toSwigEnum(), _querypp));
+    } catch (TileDBError err) {
+      tiledb.delete_tiledb_query_tpp(_querypp);
+      throw err;
+    }
+    this.ctx = _ctx;
+    this.array = array;
+    this.type = type;
+    this.slots = slots;
+    this.querypp = _querypp;
+    this.queryp = tiledb.tiledb_query_tpp_value(_querypp);
+    int n = slots.size();
+    this.data = new ByteBuffer[n];
+    this.offsets = new ByteBuffer[n];
+    this.validity = new ByteBuffer[n];
+    this.dataSizes = new uint64_tArray[n];
+    this.offsetsSizes = new uint64_tArray[n];
+    this.validitySizes = new uint64_tArray[n];
+  }
+
+  /** @return The fields of the query */
+  public FieldSlots getSlots() {
+    return slots;
+  }
+
+  /** @return The array of the query */
+  public Array getArray() {
+    return array;
+  }
+
+  /** @return The query type */
+  public QueryType getQueryType() {
+    return type;
+  }
+
+  /**
+   * Sets the data layout of the buffers.
+   *
+   * @param layout The layout order to be set.
+   * @return This query
+   * @exception TileDBError A TileDB exception
+   */
+  public SingleThreadQuery setLayout(Layout layout) throws TileDBError {
+    ctx.handleError(tiledb.tiledb_query_set_layout(ctx.getCtxp(), queryp, layout.toSwigEnum()));
+    return this;
+  }
+
+  /**
+   * Sets a subarray, defined in the order dimensions were added. Coordinates are inclusive.
+   *
+   * @param subarray A direct buffer with the start and end of every dimension
+   * @return This query
+   * @exception TileDBError A TileDB exception
+   */
+  public SingleThreadQuery setSubarray(ByteBuffer subarray) throws TileDBError {
+    ctx.handleError(Utils.tiledb_query_set_subarray_nio(ctx.getCtxp(), queryp, subarray));
+    return this;
+  }
+
+  /**
+   * Sets a query condition.
+   *
+   * @param condition The condition
+   * @return This query
+   * @exception TileDBError A TileDB exception
+   */
+  public SingleThreadQuery setCondition(QueryCondition condition) throws TileDBError {
+    ctx.handleError(
+        tiledb.tiledb_query_set_condition(ctx.getCtxp(), queryp, condition.getConditionp()));
+    return this;
+  }
+
+  /**
+   * Sets the buffer of a fixed-sized field.
+   *
+   * @param slot The slot of the field
+   * @param buffer A direct buffer in native order
+   * @return This query
+   * @exception TileDBError if the field is var-sized or nullable, or the buffer is not direct
+   */
+  public SingleThreadQuery setBuffer(int slot, ByteBuffer buffer) throws TileDBError {
+    checkSlot(slot, false, false);
+    checkBuffer(buffer, "data");
+    data[slot] = buffer;
+    offsets[slot] = null;
+    validity[slot] = null;
+    ctx.handleError(
+        Utils.tiledb_query_set_buffer_nio(
+            ctx.getCtxp(), queryp, slots.getName(slot), buffer, size(dataSizes, slot, buffer)));
+    return this;
+  }
+
+  /**
+   * Sets the buffers of a var-sized field.
+   *
+   * @param slot The slot of the field
+   * @param offsets A direct buffer in native order for the offsets
+   * @param buffer A direct buffer in native order for the data
+   * @return This query
+   * @exception TileDBError if the field is fixed-sized or nullable, or a buffer is not direct
+   */
+  public SingleThreadQuery setBuffer(int slot, ByteBuffer offsets, ByteBuffer buffer)
+      throws TileDBError {
+    checkSlot(slot, true, false);
+    checkOffsets(offsets);
+    checkBuffer(buffer, "data");
+    this.data[slot] = buffer;
+    this.offsets[slot] = offsets;
+    this.validity[slot] = null;
+    ctx.handleError(
+        Utils.tiledb_query_set_buffer_var_nio(
+            ctx.getCtxp(),
+            queryp,
+            slots.getName(slot),
+            offsets,
+            size(offsetsSizes, slot, offsets),
+            buffer,
+            size(dataSizes, slot, buffer)));
+    return this;
+  }
+
+  /**
+   * Sets the buffers of a fixed-sized, nullable attribute.
+   *
+   * @param slot The slot of the attribute
+   * @param buffer A direct buffer in native order for the data
+   * @param bytemap A direct buffer for the validity bytemap
+   * @return This query
+   * @exception TileDBError if the attribute is var-sized or not nullable, or a buffer is not direct
+   */
+  public SingleThreadQuery setBufferNullable(int slot, ByteBuffer buffer, ByteBuffer bytemap)
+      throws TileDBError {
+    checkSlot(slot, false, true);
+    checkBuffer(buffer, "data");
+    checkBuffer(bytemap, "validity");
+    this.data[slot] = buffer;
+    this.offsets[slot] = null;
+    this.validity[slot] = bytemap;
+    ctx.handleError(
+        Utils.tiledb_query_set_buffer_nullable_nio(
+            ctx.getCtxp(),
+            queryp,
+            slots.getName(slot),
+            buffer,
+            size(dataSizes, slot, buffer),
+            bytemap,
+            size(validitySizes, slot, bytemap)));
+    return this;
+  }
+
+  /**
+   * Sets the buffers of a var-sized, nullable attribute.
+   *
+   * @param slot The slot of the attribute
+   * @param offsets A direct buffer in native order for the offsets
+   * @param buffer A direct buffer in native order for the data
+   * @param bytemap A direct buffer for the validity bytemap
+   * @return This query
+   * @exception TileDBError if the attribute is fixed-sized or not nullable, or a buffer is not
+   *     direct
+   */
+  public SingleThreadQuery setBufferNullable(
+      int slot, ByteBuffer offsets, ByteBuffer buffer, ByteBuffer bytemap) throws TileDBError {
+    checkSlot(slot, true, true);
+    checkOffsets(offsets);
+    checkBuffer(buffer, "data");
+    checkBuffer(bytemap, "validity");
+    this.data[slot] = buffer;
+    this.offsets[slot] = offsets;
+    this.validity[slot] = bytemap;
+    ctx.handleError(
+        Utils.tiledb_query_set_buffer_var_nullable_nio(
+            ctx.getCtxp(),
+            queryp,
+            slots.getName(slot),
+            offsets,
+            size(offsetsSizes, slot, offsets),
+            buffer,
+            size(dataSizes, slot, buffer),
+            bytemap,
+            size(validitySizes, slot, bytemap)));
+    return this;
+  }
+
+  /**
+   * Resets the sizes of all buffers to their capacity, and their limits to match, so the query can
+   * be submitted again into the same buffers.
+   *
+   * @return This query
+   */
+  public SingleThreadQuery resetBufferSizes() {
+    for (int slot = 0; slot < data.length; slot++) {
+      reset(dataSizes[slot], data[slot]);
+      reset(offsetsSizes[slot], offsets[slot]);
+      reset(validitySizes[slot], validity[slot]);
+    }
+    return this;
+  }
+
+  /**
+   * Submits the query. Call will block until query is complete. The limit of every buffer is then
+   * set to the number of bytes of results.
+   *
+   * @return The query Status.
+   * @exception TileDBError A TileDB exception
+   */
+  public QueryStatus submit() throws TileDBError {
+    ctx.handleError(tiledb.tiledb_query_submit(ctx.getCtxp(), queryp));
+    for (int slot = 0; slot < data.length; slot++) {
+      limit(dataSizes[slot], data[slot]);
+      limit(offsetsSizes[slot], offsets[slot]);
+      limit(validitySizes[slot], validity[slot]);
+    }
+    return getQueryStatus();
+  }
+
+  /**
+   * Submits the query under a cancellation token. Call will block until query is complete or the
+   * token is cancelled, in which case a TileDBError is thrown.
+   *
+   * @param token The cancellation token
+   * @return The query Status.
+   * @exception TileDBError A TileDB exception, or the token was cancelled
+   */
+  public QueryStatus submit(CancellationToken token) throws TileDBError {
+    token.register(ctx);
+    QueryStatus status;
+    try {
+      status = submit();
+    } catch (TileDBError err) {
+      token.throwIfCancelled();
+      throw err;
+    } finally {
+      token.unregister(ctx);
+    }
+    if (status != QueryStatus.TILEDB_COMPLETED) {
+      token.throwIfCancelled();
+    }
+    return status;
+  }
+
+  /**
+   * @return The query Status.
+   * @exception TileDBError A TileDB exception
+   */
+  public QueryStatus getQueryStatus() throws TileDBError {
+    QueryStatus status;
+    SWIGTYPE_p_tiledb_query_status_t statusp = tiledb.new_tiledb_query_status_tp();
+    try {
+      ctx.handleError(tiledb.tiledb_query_get_status(ctx.getCtxp(), queryp, statusp));
+      status = QueryStatus.fromSwigEnum(tiledb.tiledb_query_status_tp_value(statusp));
+    } finally {
+      tiledb.delete_tiledb_query_status_tp(statusp);
+    }
+    return status;
+  }
+
+  /**
+   * @param slot The slot of the field
+   * @return The data buffer, limited to the results of the last submit, or null if not set
+   */
+  public ByteBuffer getData(int slot) {
+    return data[slot];
+  }
+
+  /**
+   * @param slot The slot of the field
+   * @return The offsets buffer, limited to the results of the last submit, or null if not set
+   */
+  public ByteBuffer getOffsets(int slot) {
+    return offsets[slot];
+  }
+
+  /**
+   * @param slot The slot of the field
+   * @return The validity bytemap, limited to the results of the last submit, or null if not set
+   */
+  public ByteBuffer getValidity(int slot) {
+    return validity[slot];
+  }
+
+  /**
+   * @param slot The slot of a var-sized field
+   * @return A view of the offsets of the results of the last submit
+   * @throws TileDBError if the offsets of the field are not set
+   */
+  public OffsetsView getOffsetsView(int slot) throws TileDBError {
+    if (offsets[slot] == null) {
+      throw new TileDBError("Offsets are not set for field: " + slots.getName(slot));
+    }
+    return OffsetsView.of(offsets[slot], data[slot], getOffsetsFormat(), slots.getType(slot));
+  }
+
+  /**
+   * Returns the format of the offsets of var-sized buffers, set by the {@code sm.var_offsets.*}
+   * parameters of the config of the Context.
+   *
+   * @return The offsets format
+   * @exception TileDBError A TileDB exception
+   */
+  public OffsetsFormat getOffsetsFormat() throws TileDBError {
+    if (offsetsFormat == null) {
+      try (Config config = ctx.getConfig()) {
+        offsetsFormat = OffsetsFormat.fromConfig(config);
+      }
+    }
+    return offsetsFormat;
+  }
+
+  protected SWIGTYPE_p_tiledb_query_t getQueryp() {
+    return queryp;
+  }
+
+  /** Frees the native query and the native buffer sizes. The buffers themselves are not owned. */
+  @Override
+  public void close() {
+    if (queryp != null) {
+      for (int slot = 0; slot < data.length; slot++) {
+        delete(dataSizes, slot);
+        delete(offsetsSizes, slot);
+        delete(validitySizes, slot);
+      }
+      tiledb.tiledb_query_free(querypp);
+      queryp = null;
+    }
+  }
+
+  private void checkSlot(int slot, boolean var, boolean nullable) throws TileDBError {
+    if (queryp == null) {
+      throw new TileDBError("Query is closed");
+    }
+    String name = slots.getName(slot);
+    if (slots.isVar(slot) != var) {
+      throw new TileDBError("Field " + name + (var ? " is not" : " is") + " var-sized");
+    }
+    if (slots.isNullable(slot) != nullable) {
+      throw new TileDBError("Field " + name + (nullable ? " is not" : " is") + " nullable");
+    }
+  }
+
+  private void checkOffsets(ByteBuffer offsets) throws TileDBError {
+    checkBuffer(offsets, "offsets");
+    int width = getOffsetsFormat().getBytesPerOffset();
+    if (offsets.capacity() % width != 0) {
+      throw new TileDBError(
+          "The capacity of the offsets ByteBuffer should be a multiple of "
+              + width
+              + " bytes for "
+              + getOffsetsFormat());
+    }
+  }
+
+  private static void checkBuffer(ByteBuffer buffer, String kind) throws TileDBError {
+    if (buffer.capacity() <= 0) {
+      throw new TileDBError("The " + kind + " ByteBuffer must not be empty");
+    }
+    if (!buffer.isDirect()) {
+      throw new TileDBError(
+          "The " + kind + " ByteBuffer provided is not direct. Please provide a direct buffer");
+    }
+    if (!kind.equals("validity") && !buffer.order().equals(ByteOrder.nativeOrder())) {
+      throw new TileDBError("The order of the " + kind + " ByteBuffer should be the native order");
+    }
+  }
+
+  /** The native size of a slot, allocated once, set to the capacity of its new buffer. */
+  private static SWIGTYPE_p_unsigned_long_long size(
+      uint64_tArray[] sizes, int slot, ByteBuffer buffer) {
+    if (sizes[slot] == null) {
+      // TileDB keeps a pointer to the size, so it stays allocated until the query is closed
+      sizes[slot] = new uint64_tArray(1);
+    }
+    reset(sizes[slot], buffer);
+    return sizes[slot].cast();
+  }
+
+  private static void reset(uint64_tArray size, ByteBuffer buffer) {
+    if (buffer != null) {
+      size.setitem(0, BigInteger.valueOf(buffer.capacity()));
+      buffer.clear();
+    }
+  }
+
+  private static void limit(uint64_tArray size, ByteBuffer buffer) {
+    if (buffer != null) {
+      buffer.limit(size.getitem(0).intValue());
+    }
+  }
+
+  private static void delete(uint64_tArray[] sizes, int slot) {
+    if (sizes[slot] != null) {
+      sizes[slot].delete();
+      sizes[slot] = null;
+    }
+  }
+}
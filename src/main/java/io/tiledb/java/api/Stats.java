@@ -1,5 +1,6 @@
 package io.tiledb.java.api;
 
+import io.tiledb.libtiledb.SWIGTYPE_p_p_char;
 import io.tiledb.libtiledb.tiledb;
 
 /**
@@ -62,6 +63,25 @@ public class Stats {
     check_error(tiledb.tiledb_stats_dump_stdout(), "error dumping stats");
   }
 
+  /**
+   * Returns all statistics counters and timers as JSON, without summarizing them. See {@link
+   * StatsSnapshot#capture()} for a parsed snapshot.
+   *
+   * @return The JSON string
+   * @exception TileDBError A TileDB exception
+   */
+  public static String rawDump() throws TileDBError {
+    SWIGTYPE_p_p_char statspp = tiledb.new_charpp();
+    try {
+      check_error(tiledb.tiledb_stats_raw_dump_str(statspp), "error dumping stats");
+      String stats = tiledb.charpp_value(statspp);
+      tiledb.tiledb_stats_free_str(statspp);
+      return stats;
+    } finally {
+      tiledb.delete_charpp(statspp);
+    }
+  }
+
   /**
    * Checks the return code for TILEDB_OK and throws an exception if not.
    *
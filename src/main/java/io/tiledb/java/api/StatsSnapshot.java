@@ -0,0 +1,414 @@
+package io.tiledb.java.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable snapshot of TileDB statistics: the timers, in seconds, and the counters, by their
+ * full name such as {@code Context.StorageManager.Query.Reader.read.sum}.
+ *
+ * <p>Snapshots are parsed from the JSON of {@link Stats#rawDump()}, {@link Query#getStats()} or
+ * {@link Context#getStats()}. Statistics are cumulative, so the work done between two snapshots,
+ * such as by one submission of a query, is the difference {@link #minus(StatsSnapshot)} of the
+ * later and earlier snapshots. Names change between TileDB versions; {@link #getTimerSum(String)}
+ * and {@link #getCounterSum(String)} add up the entries whose name ends with a suffix, whatever
+ * component recorded them.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * Stats.enable();
+ * StatsSnapshot before = StatsSnapshot.of(query);
+ * query.submit();
+ * StatsSnapshot delta = StatsSnapshot.of(query).minus(before);
+ * double filtering = delta.getTimerSum(".filter_tiles.sum");
+ * long unfiltered = delta.getCounterSum(".read_unfiltered_byte_num");
+ * }</pre>
+ */
+public final class StatsSnapshot {
+
+  private static final String TIMERS = "timers";
+  private static final String COUNTERS = "counters";
+  private static final String AVERAGE_SUFFIX = ".avg";
+
+  private final Map<String, Double> timers;
+  private final Map<String, Long> counters;
+
+  private StatsSnapshot(Map<String, Double> timers, Map<String, Long> counters) {
+    this.timers = Collections.unmodifiableMap(timers);
+    this.counters = Collections.unmodifiableMap(counters);
+  }
+
+  /**
+   * Captures the statistics of the process, gathered while {@link Stats#enable()} is on.
+   *
+   * @return The snapshot
+   * @throws TileDBError A TileDB exception
+   */
+  public static StatsSnapshot capture() throws TileDBError {
+    return parse(Stats.rawDump());
+  }
+
+  /**
+   * Captures the statistics of a query, cumulative over its submissions.
+   *
+   * @param query The query
+   * @return The snapshot
+   * @throws TileDBError A TileDB exception
+   */
+  public static StatsSnapshot of(Query query) throws TileDBError {
+    return parse(query.getStats());
+  }
+
+  /**
+   * Captures the statistics of a context.
+   *
+   * @param ctx The context
+   * @return The snapshot
+   * @throws TileDBError A TileDB exception
+   */
+  public static StatsSnapshot of(Context ctx) throws TileDBError {
+    return parse(ctx.getStats());
+  }
+
+  /**
+   * Parses statistics JSON. Every "timers" and "counters" object found, at any depth, is read, and
+   * entries of the same name in several objects are added up.
+   *
+   * @param json The JSON string
+   * @return The snapshot
+   * @throws TileDBError if the JSON is malformed
+   */
+  public static StatsSnapshot parse(String json) throws TileDBError {
+    Map<String, Double> timers = new TreeMap<>();
+    Map<String, Long> counters = new TreeMap<>();
+    if (json != null && !json.trim().isEmpty()) {
+      collect(new JsonReader(json).read(), timers, counters);
+    }
+    return new StatsSnapshot(timers, counters);
+  }
+
+  /** @return The timers in seconds, sorted by name */
+  public Map<String, Double> getTimers() {
+    return timers;
+  }
+
+  /** @return The counters, sorted by name */
+  public Map<String, Long> getCounters() {
+    return counters;
+  }
+
+  /**
+   * @param name The full name of a timer
+   * @return The timer in seconds, or 0 if absent
+   */
+  public double getTimer(String name) {
+    Double value = timers.get(name);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * @param name The full name of a counter
+   * @return The counter, or 0 if absent
+   */
+  public long getCounter(String name) {
+    Long value = counters.get(name);
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * @param suffix A name suffix, such as ".filter_tiles.sum"
+   * @return The sum of the timers whose name ends with the suffix, in seconds
+   */
+  public double getTimerSum(String suffix) {
+    double sum = 0;
+    for (Map.Entry<String, Double> e : timers.entrySet()) {
+      if (e.getKey().endsWith(suffix)) {
+        sum += e.getValue();
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * @param suffix A name suffix, such as ".read_unfiltered_byte_num"
+   * @return The sum of the counters whose name ends with the suffix
+   */
+  public long getCounterSum(String suffix) {
+    long sum = 0;
+    for (Map.Entry<String, Long> e : counters.entrySet()) {
+      if (e.getKey().endsWith(suffix)) {
+        sum += e.getValue();
+      }
+    }
+    return sum;
+  }
+
+  /** @return true if the snapshot has no timer nor counter */
+  public boolean isEmpty() {
+    return timers.isEmpty() && counters.isEmpty();
+  }
+
+  /**
+   * Returns the statistics gathered since an earlier snapshot. Entries absent from the earlier
+   * snapshot count from 0. Average timers, whose name ends with ".avg", cannot be subtracted and
+   * are left out.
+   *
+   * @param earlier The earlier snapshot
+   * @return The difference
+   */
+  public StatsSnapshot minus(StatsSnapshot earlier) {
+    Map<String, Double> timerDelta = new TreeMap<>();
+    for (Map.Entry<String, Double> e : timers.entrySet()) {
+      if (!e.getKey().endsWith(AVERAGE_SUFFIX)) {
+        timerDelta.put(e.getKey(), e.getValue() - earlier.getTimer(e.getKey()));
+      }
+    }
+    Map<String, Long> counterDelta = new TreeMap<>();
+    for (Map.Entry<String, Long> e : counters.entrySet()) {
+      counterDelta.put(e.getKey(), e.getValue() - earlier.getCounter(e.getKey()));
+    }
+    return new StatsSnapshot(timerDelta, counterDelta);
+  }
+
+  @Override
+  public String toString() {
+    return "StatsSnapshot<timers=" + timers + ",counters=" + counters + ">";
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void collect(Object node, Map<String, Double> timers, Map<String, Long> counters)
+      throws TileDBError {
+    if (node instanceof List) {
+      for (Object child : (List<Object>) node) {
+        collect(child, timers, counters);
+      }
+    } else if (node instanceof Map) {
+      for (Map.Entry<String, Object> e : ((Map<String, Object>) node).entrySet()) {
+        if (e.getKey().equals(TIMERS) && e.getValue() instanceof Map) {
+          for (Map.Entry<String, Object> t : ((Map<String, Object>) e.getValue()).entrySet()) {
+            timers.merge(t.getKey(), number(t).doubleValue(), Double::sum);
+          }
+        } else if (e.getKey().equals(COUNTERS) && e.getValue() instanceof Map) {
+          for (Map.Entry<String, Object> c : ((Map<String, Object>) e.getValue()).entrySet()) {
+            counters.merge(c.getKey(), number(c).longValue(), Long::sum);
+          }
+        } else {
+          collect(e.getValue(), timers, counters);
+        }
+      }
+    }
+  }
+
+  private static Number number(Map.Entry<String, Object> entry) throws TileDBError {
+    if (!(entry.getValue() instanceof Number)) {
+      throw new TileDBError(
+          "Statistic " + entry.getKey() + " is not a number: " + entry.getValue());
+    }
+    return (Number) entry.getValue();
+  }
+
+  /** A minimal reader of the JSON TileDB writes statistics in. */
+  private static final class JsonReader {
+    private final String json;
+    private int pos;
+
+    JsonReader(String json) {
+      this.json = json;
+    }
+
+    Object read() throws TileDBError {
+      Object value = value();
+      skipWhitespace();
+      if (pos != json.length()) {
+        throw error("Unexpected trailing characters");
+      }
+      return value;
+    }
+
+    private Object value() throws TileDBError {
+      skipWhitespace();
+      if (pos >= json.length()) {
+        throw error("Unexpected end of input");
+      }
+      char c = json.charAt(pos);
+      switch (c) {
+        case '{':
+          return object();
+        case '[':
+          return array();
+        case '"':
+          return string();
+        case 't':
+          return literal("true", Boolean.TRUE);
+        case 'f':
+          return literal("false", Boolean.FALSE);
+        case 'n':
+          return literal("null", null);
+        default:
+          return number();
+      }
+    }
+
+    private Map<String, Object> object() throws TileDBError {
+      Map<String, Object> object = new LinkedHashMap<>();
+      pos++;
+      skipWhitespace();
+      if (peek() == '}') {
+        pos++;
+        return object;
+      }
+      while (true) {
+        skipWhitespace();
+        if (peek() != '"') {
+          throw error("Expected a member name");
+        }
+        String name = string();
+        skipWhitespace();
+        expect(':');
+        object.put(name, value());
+        skipWhitespace();
+        if (peek() == ',') {
+          pos++;
+        } else {
+          expect('}');
+          return object;
+        }
+      }
+    }
+
+    private List<Object> array() throws TileDBError {
+      List<Object> array = new ArrayList<>();
+      pos++;
+      skipWhitespace();
+      if (peek() == ']') {
+        pos++;
+        return array;
+      }
+      while (true) {
+        array.add(value());
+        skipWhitespace();
+        if (peek() == ',') {
+          pos++;
+        } else {
+          expect(']');
+          return array;
+        }
+      }
+    }
+
+    private String string() throws TileDBError {
+      StringBuilder sb = new StringBuilder();
+      pos++;
+      while (pos < json.length()) {
+        char c = json.charAt(pos++);
+        if (c == '"') {
+          return sb.toString();
+        }
+        if (c != '\\') {
+          sb.append(c);
+          continue;
+        }
+        if (pos >= json.length()) {
+          break;
+        }
+        char escaped = json.charAt(pos++);
+        switch (escaped) {
+          case 'b':
+            sb.append('\b');
+            break;
+          case 'f':
+            sb.append('\f');
+            break;
+          case 'n':
+            sb.append('\n');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 't':
+            sb.append('\t');
+            break;
+          case 'u':
+            if (pos + 4 > json.length()) {
+              throw error("Truncated unicode escape");
+            }
+            try {
+              sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+            } catch (NumberFormatException err) {
+              throw error("Invalid unicode escape");
+            }
+            pos += 4;
+            break;
+          default:
+            sb.append(escaped);
+        }
+      }
+      throw error("Unterminated string");
+    }
+
+    private Number number() throws TileDBError {
+      int start = pos;
+      boolean integral = true;
+      while (pos < json.length()) {
+        char c = json.charAt(pos);
+        if (c == '.' || c == 'e' || c == 'E') {
+          integral = false;
+        } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+          break;
+        }
+        pos++;
+      }
+      String text = json.substring(start, pos);
+      try {
+        if (integral) {
+          try {
+            return Long.parseLong(text);
+          } catch (NumberFormatException err) {
+            // Beyond the range of a long
+          }
+        }
+        return Double.parseDouble(text);
+      } catch (NumberFormatException err) {
+        pos = start;
+        throw error("Invalid value");
+      }
+    }
+
+    private Object literal(String text, Object value) throws TileDBError {
+      if (!json.startsWith(text, pos)) {
+        throw error("Invalid value");
+      }
+      pos += text.length();
+      return value;
+    }
+
+    private char peek() throws TileDBError {
+      if (pos >= json.length()) {
+        throw error("Unexpected end of input");
+      }
+      return json.charAt(pos);
+    }
+
+    private void expect(char c) throws TileDBError {
+      if (peek() != c) {
+        throw error("Expected '" + c + "'");
+      }
+      pos++;
+    }
+
+    private void skipWhitespace() {
+      while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private TileDBError error(String message) {
+      return new TileDBError("Malformed statistics JSON: " + message + " at offset " + pos);
+    }
+  }
+}
@@ -0,0 +1,382 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read-only view of a var-sized string field over its offsets and data buffers.
+ *
+ * <p>Rows are compared, hashed and sliced directly on their UTF-8 bytes, without copying them or
+ * allocating; a row is only decoded to a {@link String} when {@link #getString(int)} is called.
+ * The view does not own the buffers, so it is only valid as long as they hold the same results,
+ * e.g. until the next batch of a {@link BatchReader}.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * StringColumn names = StringColumn.of(reader, "name");
+ * byte[] prefix = "temp_".getBytes(StandardCharsets.UTF_8);
+ * for (int i = 0; i < names.size(); i++) {
+ *   if (names.startsWith(i, prefix)) {
+ *     ...
+ *   }
+ * }
+ * }</pre>
+ */
+public final class StringColumn {
+
+  private final OffsetsView offsets;
+  private final ByteBuffer data;
+  private final ByteBuffer validity;
+  private final int size;
+  // Reused to decode rows of direct buffers
+  private byte[] scratch;
+
+  /**
+   * Creates a view over buffers of results with 64-bit byte offsets, the default format.
+   *
+   * @param offsets The offsets buffer, one 8-byte offset in bytes per row, read with absolute gets
+   * @param data The data buffer, whose limit is the end of the last row
+   * @param validity The validity bytemap, where 0 means null, or null if the field is not nullable
+   * @param size The number of rows
+   */
+  public StringColumn(ByteBuffer offsets, ByteBuffer data, ByteBuffer validity, int size) {
+    this(OffsetsView.of(offsets, OffsetsFormat.DEFAULT, size, data.limit(), 1), data, validity);
+  }
+
+  /**
+   * Creates a view over buffers of results with offsets in any format.
+   *
+   * @param offsets The offsets
+   * @param data The data buffer
+   * @param validity The validity bytemap, where 0 means null, or null if the field is not nullable
+   */
+  public StringColumn(OffsetsView offsets, ByteBuffer data, ByteBuffer validity) {
+    this.offsets = offsets;
+    this.data = data;
+    this.validity = validity;
+    this.size = offsets.size();
+  }
+
+  /**
+   * Creates a view over the offsets and data arrays returned by {@link Query#getVarBuffer(String)}
+   * and {@link Query#getBuffer(String)}. The arrays are wrapped, not copied.
+   *
+   * @param offsets The offsets array
+   * @param data The data array
+   */
+  public StringColumn(long[] offsets, byte[] data) {
+    this(OffsetsView.of(offsets, data.length), ByteBuffer.wrap(data), null);
+  }
+
+  /**
+   * Creates a view over the current batch of a var-sized field of a batch reader.
+   *
+   * @param reader The batch reader
+   * @param field The field name
+   * @return The view
+   * @throws TileDBError if the field is not var-sized or not read by the reader
+   */
+  public static StringColumn of(BatchReader reader, String field) throws TileDBError {
+    if (!reader.isVar(field)) {
+      throw new TileDBError("Field is not var-sized: " + field);
+    }
+    return new StringColumn(
+        reader.getOffsetsView(field), reader.getData(field), reader.getValidity(field));
+  }
+
+  /** @return The number of rows */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param row The row index
+   * @return true if the row is null
+   */
+  public boolean isNull(int row) {
+    return validity != null && validity.get(row) == 0;
+  }
+
+  /**
+   * @param row The row index
+   * @return The offset of the first byte of the row in the data buffer
+   */
+  public int start(int row) {
+    return (int) offsets.startByte(row);
+  }
+
+  /**
+   * @param row The row index
+   * @return The offset after the last byte of the row in the data buffer
+   */
+  public int end(int row) {
+    return (int) offsets.endByte(row);
+  }
+
+  /**
+   * @param row The row index
+   * @return The number of UTF-8 bytes of the row
+   */
+  public int length(int row) {
+    return end(row) - start(row);
+  }
+
+  /**
+   * @param row The row index
+   * @param index The byte index within the row
+   * @return The byte
+   */
+  public byte byteAt(int row, int index) {
+    return data.get(start(row) + index);
+  }
+
+  /** @return The data buffer all rows are slices of */
+  public ByteBuffer getData() {
+    return data;
+  }
+
+  /**
+   * Returns the bytes of a row as a buffer sharing the data buffer, without copying them.
+   *
+   * @param row The row index
+   * @return A buffer whose position is 0 and limit is the length of the row
+   */
+  public ByteBuffer slice(int row) {
+    ByteBuffer view = data.duplicate();
+    view.limit(end(row)).position(start(row));
+    return view.slice();
+  }
+
+  /**
+   * Returns a row as a CharSequence over its bytes, without copying them. Characters map one to
+   * one to bytes, so this is only meaningful for ASCII values; use {@link #getString(int)} for
+   * other values.
+   *
+   * @param row The row index
+   * @return The CharSequence
+   */
+  public CharSequence asciiSequence(int row) {
+    return new AsciiSequence(data, start(row), length(row));
+  }
+
+  /**
+   * @param row The row index
+   * @param value The UTF-8 bytes to compare with
+   * @return true if the row holds exactly the value
+   */
+  public boolean equals(int row, byte[] value) {
+    int start = start(row);
+    if (end(row) - start != value.length) {
+      return false;
+    }
+    return regionMatches(start, value);
+  }
+
+  /**
+   * @param row The row index
+   * @param value The value to compare with
+   * @return true if the row holds exactly the UTF-8 encoding of the value
+   */
+  public boolean equals(int row, CharSequence value) {
+    int start = start(row);
+    int length = end(row) - start;
+    if (!isAscii(value)) {
+      return equals(row, value.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    if (length != value.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (data.get(start + i) != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param row The row index
+   * @param prefix The UTF-8 bytes of the prefix
+   * @return true if the row starts with the prefix
+   */
+  public boolean startsWith(int row, byte[] prefix) {
+    int start = start(row);
+    if (end(row) - start < prefix.length) {
+      return false;
+    }
+    return regionMatches(start, prefix);
+  }
+
+  /**
+   * @param row The row index
+   * @param prefix The prefix
+   * @return true if the row starts with the UTF-8 encoding of the prefix
+   */
+  public boolean startsWith(int row, CharSequence prefix) {
+    if (!isAscii(prefix)) {
+      return startsWith(row, prefix.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    int start = start(row);
+    int length = prefix.length();
+    if (end(row) - start < length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (data.get(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compares a row with a value byte by byte, treating bytes as unsigned, which orders UTF-8 values
+   * by code point like TileDB does.
+   *
+   * @param row The row index
+   * @param value The UTF-8 bytes to compare with
+   * @return A negative number, zero or a positive number if the row is less than, equal to or
+   *     greater than the value
+   */
+  public int compare(int row, byte[] value) {
+    int start = start(row);
+    int length = end(row) - start;
+    int n = Math.min(length, value.length);
+    for (int i = 0; i < n; i++) {
+      int cmp = (data.get(start + i) & 0xFF) - (value[i] & 0xFF);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return length - value.length;
+  }
+
+  /**
+   * Hashes the bytes of a row. The hash equals {@link java.util.Arrays#hashCode(byte[])} of the
+   * bytes.
+   *
+   * @param row The row index
+   * @return The hash
+   */
+  public int hashCode(int row) {
+    int start = start(row);
+    int end = end(row);
+    int h = 1;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + data.get(i);
+    }
+    return h;
+  }
+
+  /**
+   * @param row The row index
+   * @return A copy of the bytes of the row
+   */
+  public byte[] getBytes(int row) {
+    int start = start(row);
+    byte[] bytes = new byte[end(row) - start];
+    copy(start, bytes);
+    return bytes;
+  }
+
+  /**
+   * Decodes a row.
+   *
+   * @param row The row index
+   * @return The row decoded as UTF-8, or null if the row is null
+   */
+  public String getString(int row) {
+    if (isNull(row)) {
+      return null;
+    }
+    int start = start(row);
+    int length = end(row) - start;
+    if (data.hasArray()) {
+      return new String(data.array(), data.arrayOffset() + start, length, StandardCharsets.UTF_8);
+    }
+    if (scratch == null || scratch.length < length) {
+      scratch = new byte[Math.max(length, 64)];
+    }
+    for (int i = 0; i < length; i++) {
+      scratch[i] = data.get(start + i);
+    }
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /** @return All rows decoded as UTF-8, with null for null rows */
+  public String[] toArray() {
+    String[] strings = new String[size];
+    for (int i = 0; i < size; i++) {
+      strings[i] = getString(i);
+    }
+    return strings;
+  }
+
+  private boolean regionMatches(int start, byte[] value) {
+    for (int i = 0; i < value.length; i++) {
+      if (data.get(start + i) != value[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void copy(int start, byte[] out) {
+    for (int i = 0; i < out.length; i++) {
+      out[i] = data.get(start + i);
+    }
+  }
+
+  private static boolean isAscii(CharSequence value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** A CharSequence over ASCII bytes of a buffer. */
+  private static final class AsciiSequence implements CharSequence {
+    private final ByteBuffer data;
+    private final int start;
+    private final int length;
+
+    AsciiSequence(ByteBuffer data, int start, int length) {
+      this.data = data;
+      this.start = start;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+      }
+      return (char) (data.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      if (from < 0 || to > length || from > to) {
+        throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + ")");
+      }
+      return new AsciiSequence(data, start + from, to - from);
+    }
+
+    @Override
+    public String toString() {
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) (data.get(start + i) & 0xFF);
+      }
+      return new String(chars);
+    }
+  }
+}
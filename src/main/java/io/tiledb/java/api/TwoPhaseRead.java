@@ -0,0 +1,521 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A filtered read that materializes wide columns late.
+ *
+ * <p>The predicate is first pushed down with a {@link QueryPlan}. If a residual predicate remains
+ * and wide columns are requested, phase one reads only the dimensions and the fields of the
+ * residual predicate, and evaluates it. When the fraction of matching cells is at most the
+ * selectivity threshold, phase two reads all requested fields for the coalesced ranges of the
+ * matching coordinates only. Otherwise phase two reads the requested fields for the original
+ * ranges, like a single pass would. Phase two evaluates the residual predicate again, so its
+ * result is exact even when the per-dimension ranges cover more cells than the matches.
+ *
+ * <p>Without a residual predicate, or when only the dimensions and filtered fields are requested,
+ * a single pass is made.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * TwoPhaseRead read =
+ *     new TwoPhaseRead(array, Predicate.eq("sensor", "s1"), Arrays.asList("payload"));
+ * TwoPhaseRead.Result result = read.read();
+ * byte[] payload = (byte[]) result.getBuffer("payload");
+ * long[] offsets = result.getOffsets("payload");
+ * }</pre>
+ */
+public class TwoPhaseRead {
+
+  /** The default maximum fraction of phase one cells that may match for phase two to coalesce. */
+  public static final double DEFAULT_SELECTIVITY_THRESHOLD = 0.1;
+
+  // Above this number of coalesced ranges on a dimension, phase two reads the original ranges
+  private static final int MAX_COALESCED_RANGES = 4096;
+
+  private final Array array;
+  private final Predicate predicate;
+  private final List<String> fields;
+  private double selectivityThreshold;
+  private int batchCells;
+  private CancellationToken token;
+
+  /**
+   * @param array The array to read, opened for reading
+   * @param predicate The filter predicate
+   * @param fields The attributes and dimensions to return
+   */
+  public TwoPhaseRead(Array array, Predicate predicate, Collection<String> fields) {
+    this.array = array;
+    this.predicate = predicate;
+    this.fields = new ArrayList<>(fields);
+    this.selectivityThreshold = DEFAULT_SELECTIVITY_THRESHOLD;
+    this.batchCells = BatchReader.DEFAULT_BATCH_CELLS;
+  }
+
+  /**
+   * @param threshold The maximum fraction of matching cells, between 0 and 1, for which phase two
+   *     reads only the ranges of the matching coordinates
+   * @return This read
+   * @throws TileDBError if the threshold is out of range
+   */
+  public TwoPhaseRead setSelectivityThreshold(double threshold) throws TileDBError {
+    if (!(threshold >= 0 && threshold <= 1)) {
+      throw new TileDBError("Selectivity threshold must be in [0, 1], got: " + threshold);
+    }
+    this.selectivityThreshold = threshold;
+    return this;
+  }
+
+  /**
+   * @param batchCells The number of cells read per batch in each phase
+   * @return This read
+   */
+  public TwoPhaseRead setBatchCells(int batchCells) {
+    this.batchCells = batchCells;
+    return this;
+  }
+
+  /**
+   * @param token The token all submissions run under, or null
+   * @return This read
+   */
+  public TwoPhaseRead setCancellationToken(CancellationToken token) {
+    this.token = token;
+    return this;
+  }
+
+  /**
+   * Runs the read.
+   *
+   * @return The matching cells of the requested fields
+   * @throws TileDBError A TileDB exception
+   */
+  public Result read() throws TileDBError {
+    QueryPlan plan = QueryPlan.plan(array, predicate);
+    Result result = new Result();
+    SchemaSnapshot schema = array.getSchemaSnapshot();
+    for (String field : fields) {
+      result.columns.put(field, new Result.Column(BatchReader.describe(schema, field)));
+    }
+    if (plan.isEmpty()) {
+      return result;
+    }
+
+    Predicate residual = plan.getResidual();
+    Set<String> filterFields = new LinkedHashSet<>();
+    if (residual != null) {
+      residual.collectFields(filterFields);
+    }
+    List<String> dimensions = plan.getDimensionNames();
+    Set<String> phaseOneFields = new LinkedHashSet<>(dimensions);
+    phaseOneFields.addAll(filterFields);
+
+    Set<String> phaseTwoFields = new LinkedHashSet<>(fields);
+    phaseTwoFields.addAll(filterFields);
+
+    if (residual == null || phaseOneFields.containsAll(fields)) {
+      scan(plan, phaseTwoFields, residual, result);
+      return result;
+    }
+
+    // Phase one: evaluate the residual predicate on the narrow columns
+    Map<String, Coordinates> matches = new HashMap<>();
+    long cells = 0;
+    long matched = 0;
+    try (Query query = plan.newQuery(array);
+        BatchReader reader = new BatchReader(query, phaseOneFields, batchCells)) {
+      reader.setCancellationToken(token);
+      for (String dim : dimensions) {
+        matches.put(dim, new Coordinates(reader.getType(dim), reader.isVar(dim)));
+      }
+      boolean[] mask = new boolean[0];
+      while (reader.next()) {
+        int n = reader.size();
+        if (mask.length < n) {
+          mask = new boolean[n];
+        }
+        PredicateEvaluator.evaluate(residual, reader, mask);
+        cells += n;
+        for (int i = 0; i < n; i++) {
+          if (mask[i]) {
+            matched++;
+            for (String dim : dimensions) {
+              matches.get(dim).add(reader, dim, i);
+            }
+          }
+        }
+      }
+    }
+
+    result.selectivity = cells == 0 ? 0 : (double) matched / cells;
+    if (matched == 0) {
+      result.twoPhase = true;
+      return result;
+    }
+
+    if (result.selectivity <= selectivityThreshold) {
+      List<QueryPlan.RangeSet> coalesced = new ArrayList<>(dimensions.size());
+      boolean coalesce = true;
+      for (String dim : dimensions) {
+        QueryPlan.RangeSet set = matches.get(dim).coalesce();
+        coalesced.add(set);
+        coalesce &= set.size() <= MAX_COALESCED_RANGES;
+      }
+      if (coalesce) {
+        for (int i = 0; i < dimensions.size(); i++) {
+          plan.restrict(dimensions.get(i), coalesced.get(i));
+        }
+        result.twoPhase = true;
+      }
+    }
+
+    // Phase two: read the requested columns
+    scan(plan, phaseTwoFields, residual, result);
+    return result;
+  }
+
+  private void scan(QueryPlan plan, Set<String> readFields, Predicate residual, Result result)
+      throws TileDBError {
+    try (Query query = plan.newQuery(array);
+        BatchReader reader = new BatchReader(query, readFields, batchCells)) {
+      reader.setCancellationToken(token);
+      boolean[] mask = new boolean[0];
+      while (reader.next()) {
+        int n = reader.size();
+        if (mask.length < n) {
+          mask = new boolean[n];
+        }
+        if (residual == null) {
+          Arrays.fill(mask, 0, n, true);
+        } else {
+          PredicateEvaluator.evaluate(residual, reader, mask);
+        }
+        for (Result.Column column : result.columns.values()) {
+          column.append(reader, mask);
+        }
+        for (int i = 0; i < n; i++) {
+          if (mask[i]) {
+            result.size++;
+          }
+        }
+      }
+    }
+  }
+
+  /** The coordinates of the phase one matches along one dimension. */
+  private static final class Coordinates {
+    private final Datatype type;
+    private final boolean var;
+    private long[] longs = new long[16];
+    private double[] doubles;
+    private Set<String> strings;
+    private int size;
+
+    Coordinates(Datatype type, boolean var) {
+      this.type = type;
+      this.var = var;
+      if (var) {
+        strings = new TreeSet<>();
+      } else if (type.isRealType()) {
+        doubles = new double[16];
+      }
+    }
+
+    void add(BatchReader reader, String dim, int i) throws TileDBError {
+      ByteBuffer data = reader.getData(dim);
+      if (var) {
+        OffsetsView offsets = reader.getOffsetsView(dim);
+        int start = (int) offsets.startByte(i);
+        int end = (int) offsets.endByte(i);
+        byte[] bytes = new byte[end - start];
+        for (int k = 0; k < bytes.length; k++) {
+          bytes[k] = data.get(start + k);
+        }
+        strings.add(new String(bytes, StandardCharsets.UTF_8));
+      } else if (doubles != null) {
+        if (size == doubles.length) {
+          doubles = Arrays.copyOf(doubles, size * 2);
+        }
+        doubles[size++] = PredicateEvaluator.readDouble(data, type, i);
+      } else {
+        if (size == longs.length) {
+          longs = Arrays.copyOf(longs, size * 2);
+        }
+        long value = PredicateEvaluator.readLong(data, type, i);
+        // Range values of UINT64 sort in unsigned order
+        longs[size++] = type == Datatype.TILEDB_UINT64 ? QueryPlan.RangeSet.flipSign(value) : value;
+      }
+    }
+
+    QueryPlan.RangeSet coalesce() {
+      List<Object[]> ranges = new ArrayList<>();
+      if (var) {
+        for (String s : strings) {
+          ranges.add(new Object[] {s, s});
+        }
+        return new QueryPlan.RangeSet(false, ranges);
+      }
+      if (doubles != null) {
+        double[] sorted = Arrays.copyOf(doubles, size);
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+          if (i == 0 || sorted[i] != sorted[i - 1]) {
+            ranges.add(new Object[] {sorted[i], sorted[i]});
+          }
+        }
+        return new QueryPlan.RangeSet(false, ranges);
+      }
+      long[] sorted = Arrays.copyOf(longs, size);
+      Arrays.sort(sorted);
+      long start = sorted[0];
+      long end = sorted[0];
+      for (int i = 1; i < sorted.length; i++) {
+        if (sorted[i] > end + 1) {
+          ranges.add(new Object[] {start, end});
+          start = sorted[i];
+        }
+        end = Math.max(end, sorted[i]);
+      }
+      ranges.add(new Object[] {start, end});
+      return new QueryPlan.RangeSet(true, ranges);
+    }
+  }
+
+  /** The matching cells of a {@link TwoPhaseRead}, in the order TileDB returned them. */
+  public static class Result {
+    private final Map<String, Column> columns = new HashMap<>();
+    private int size;
+    private boolean twoPhase;
+    private double selectivity = Double.NaN;
+
+    /** @return The number of matching cells */
+    public int size() {
+      return size;
+    }
+
+    /** @return true if phase two only read the ranges of the phase one matches */
+    public boolean isTwoPhase() {
+      return twoPhase;
+    }
+
+    /** @return The fraction of phase one cells that matched, or NaN if phase one was skipped */
+    public double getSelectivity() {
+      return selectivity;
+    }
+
+    /** @return The fields of the result */
+    public Set<String> getFields() {
+      return Collections.unmodifiableSet(new HashSet<>(columns.keySet()));
+    }
+
+    /**
+     * Returns the values of a field as a Java primitive array, using the same Java types as {@link
+     * Query#getBuffer(String)}.
+     *
+     * @param field The field name
+     * @return The values
+     * @throws TileDBError if the field was not requested
+     */
+    public Object getBuffer(String field) throws TileDBError {
+      return column(field).toJavaArray();
+    }
+
+    /**
+     * @param field The field name
+     * @return The byte offsets of the cells of a var-sized field
+     * @throws TileDBError if the field was not requested or is fixed-sized
+     */
+    public long[] getOffsets(String field) throws TileDBError {
+      Column column = column(field);
+      if (column.offsets == null) {
+        throw new TileDBError("Field is not var-sized: " + field);
+      }
+      return Arrays.copyOf(column.offsets, column.cells);
+    }
+
+    /**
+     * @param field The field name
+     * @return The validity bytemap of a nullable attribute
+     * @throws TileDBError if the field was not requested or is not nullable
+     */
+    public short[] getValidityByteMap(String field) throws TileDBError {
+      Column column = column(field);
+      if (column.validity == null) {
+        throw new TileDBError("Attribute " + field + " is not nullable");
+      }
+      short[] result = new short[column.cells];
+      for (int i = 0; i < column.cells; i++) {
+        result[i] = column.validity[i];
+      }
+      return result;
+    }
+
+    private Column column(String field) throws TileDBError {
+      Column column = columns.get(field);
+      if (column == null) {
+        throw new TileDBError("Field was not requested: " + field);
+      }
+      return column;
+    }
+
+    /** The values of one field, appended batch by batch from contiguous runs of matches. */
+    private static final class Column {
+      private final String name;
+      private final Datatype type;
+      private final int cellSize;
+      private byte[] data;
+      private int dataSize;
+      private long[] offsets;
+      private byte[] validity;
+      private int cells;
+
+      Column(BatchReader.Column field) {
+        this.name = field.name;
+        this.type = field.type;
+        this.cellSize = field.cellSize;
+        this.data = new byte[64];
+        this.offsets = field.var ? new long[16] : null;
+        this.validity = field.nullable ? new byte[16] : null;
+      }
+
+      void append(BatchReader reader, boolean[] mask) throws TileDBError {
+        int n = reader.size();
+        ByteBuffer src = reader.getData(name).duplicate();
+        OffsetsView srcOffsets = reader.getOffsetsView(name);
+        ByteBuffer srcValidity = reader.getValidity(name);
+        int i = 0;
+        while (i < n) {
+          if (!mask[i]) {
+            i++;
+            continue;
+          }
+          int runStart = i;
+          while (i < n && mask[i]) {
+            i++;
+          }
+          int runEnd = i;
+          int runCells = runEnd - runStart;
+          ensureCells(cells + runCells);
+          int start;
+          int end;
+          if (offsets != null) {
+            start = (int) srcOffsets.startByte(runStart);
+            end = (int) srcOffsets.endByte(runEnd - 1);
+            for (int k = runStart; k < runEnd; k++) {
+              offsets[cells + k - runStart] = dataSize + srcOffsets.startByte(k) - start;
+            }
+          } else {
+            start = runStart * cellSize;
+            end = runEnd * cellSize;
+          }
+          if (validity != null) {
+            for (int k = runStart; k < runEnd; k++) {
+              validity[cells + k - runStart] = srcValidity.get(k);
+            }
+          }
+          ensureData(dataSize + end - start);
+          src.limit(end).position(start);
+          src.get(data, dataSize, end - start);
+          src.limit(src.capacity());
+          dataSize += end - start;
+          cells += runCells;
+        }
+      }
+
+      private void ensureCells(int required) {
+        if (offsets != null && offsets.length < required) {
+          offsets = Arrays.copyOf(offsets, Math.max(required, offsets.length * 2));
+        }
+        if (validity != null && validity.length < required) {
+          validity = Arrays.copyOf(validity, Math.max(required, validity.length * 2));
+        }
+      }
+
+      private void ensureData(int required) {
+        if (data.length < required) {
+          data = Arrays.copyOf(data, Math.max(required, data.length * 2));
+        }
+      }
+
+      Object toJavaArray() {
+        ByteBuffer buf = ByteBuffer.wrap(data, 0, dataSize).order(ByteOrder.nativeOrder());
+        switch (type) {
+          case TILEDB_FLOAT32:
+            {
+              float[] values = new float[dataSize / 4];
+              buf.asFloatBuffer().get(values);
+              return values;
+            }
+          case TILEDB_FLOAT64:
+            {
+              double[] values = new double[dataSize / 8];
+              buf.asDoubleBuffer().get(values);
+              return values;
+            }
+          case TILEDB_INT16:
+            {
+              short[] values = new short[dataSize / 2];
+              buf.asShortBuffer().get(values);
+              return values;
+            }
+          case TILEDB_INT32:
+            {
+              int[] values = new int[dataSize / 4];
+              buf.asIntBuffer().get(values);
+              return values;
+            }
+          case TILEDB_UINT8:
+            {
+              short[] values = new short[dataSize];
+              for (int i = 0; i < values.length; i++) {
+                values[i] = (short) (data[i] & 0xFF);
+              }
+              return values;
+            }
+          case TILEDB_UINT16:
+            {
+              int[] values = new int[dataSize / 2];
+              for (int i = 0; i < values.length; i++) {
+                values[i] = buf.getShort(i * 2) & 0xFFFF;
+              }
+              return values;
+            }
+          case TILEDB_UINT32:
+            {
+              long[] values = new long[dataSize / 4];
+              for (int i = 0; i < values.length; i++) {
+                values[i] = buf.getInt(i * 4) & 0xFFFFFFFFL;
+              }
+              return values;
+            }
+          case TILEDB_CHAR:
+          case TILEDB_INT8:
+          case TILEDB_STRING_ASCII:
+          case TILEDB_STRING_UTF8:
+            return Arrays.copyOf(data, dataSize);
+          default:
+            {
+              long[] values = new long[dataSize / 8];
+              buf.asLongBuffer().get(values);
+              return values;
+            }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A zero-copy view of the results of a UINT16 field. Values are kept two bytes wide and only
+ * widened to int by {@link #getUnsigned(int)} or {@link #widenTo(int, int[], int, int)}, unlike
+ * {@link NativeArray} which copies them to an {@code int[]}.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * UInt16Column depths = query.getUInt16Column("depth");
+ * int[] histogram = new int[65536];
+ * for (int i = 0; i < depths.size(); i++) {
+ *   histogram[depths.getUnsigned(i)]++;
+ * }
+ * }</pre>
+ */
+public final class UInt16Column extends NumericColumn {
+
+  private final ShortBuffer values;
+
+  /**
+   * Creates a view over result buffers, with one value per 2 bytes up to the data limit.
+   *
+   * @param data The data buffer
+   * @param validity The validity bytemap, or null if the field is not nullable
+   */
+  public UInt16Column(ByteBuffer data, ByteBuffer validity) {
+    super(data.limit() / Short.BYTES, validity);
+    this.values = nativeOrder(data).asShortBuffer();
+  }
+
+  /**
+   * Creates a view over the current batch of a field of a batch reader.
+   *
+   * @param reader The batch reader
+   * @param field The field name
+   * @return The view
+   * @throws TileDBError if the field is not UINT16, or not read by the reader
+   */
+  public static UInt16Column of(BatchReader reader, String field) throws TileDBError {
+    Datatype type = reader.getType(field);
+    checkFixed(reader, field);
+    checkType(field, type, type == Datatype.TILEDB_UINT16, "UInt16Column");
+    return new UInt16Column(reader.getData(field), reader.getValidity(field));
+  }
+
+  /**
+   * @param i The value index
+   * @return The raw bits of the value, negative for values from 32768
+   */
+  public short get(int i) {
+    return values.get(i);
+  }
+
+  /**
+   * @param i The value index
+   * @return The value
+   */
+  public int getUnsigned(int i) {
+    return values.get(i) & 0xFFFF;
+  }
+
+  /**
+   * Copies the raw bits of values to an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void copyTo(int from, short[] dst, int offset, int length) {
+    ShortBuffer view = values.duplicate();
+    view.position(from);
+    view.get(dst, offset, length);
+  }
+
+  /**
+   * Widens values into an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void widenTo(int from, int[] dst, int offset, int length) {
+    checkRange(from, length, size(), offset, dst.length);
+    for (int k = 0; k < length; k++) {
+      dst[offset + k] = values.get(from + k) & 0xFFFF;
+    }
+  }
+}
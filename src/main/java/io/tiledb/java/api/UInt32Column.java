@@ -0,0 +1,95 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A zero-copy view of the results of a UINT32 field. Values are kept 4 bytes wide and only
+ * widened to long by {@link #getUnsigned(int)} or {@link #widenTo(int, long[], int, int)}, unlike
+ * {@link NativeArray} which copies them to a {@code long[]}.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * UInt32Column a1 = query.getUInt32Column("a1");
+ * long sum = 0;
+ * for (int i = 0; i < a1.size(); i++) {
+ *   sum += a1.getUnsigned(i);
+ * }
+ * }</pre>
+ */
+public final class UInt32Column extends NumericColumn {
+
+  private final IntBuffer values;
+
+  /**
+   * Creates a view over result buffers, with one value per 4 bytes up to the data limit.
+   *
+   * @param data The data buffer
+   * @param validity The validity bytemap, or null if the field is not nullable
+   */
+  public UInt32Column(ByteBuffer data, ByteBuffer validity) {
+    super(data.limit() / Integer.BYTES, validity);
+    this.values = nativeOrder(data).asIntBuffer();
+  }
+
+  /**
+   * Creates a view over the current batch of a field of a batch reader.
+   *
+   * @param reader The batch reader
+   * @param field The field name
+   * @return The view
+   * @throws TileDBError if the field is not UINT32, or not read by the reader
+   */
+  public static UInt32Column of(BatchReader reader, String field) throws TileDBError {
+    Datatype type = reader.getType(field);
+    checkFixed(reader, field);
+    checkType(field, type, type == Datatype.TILEDB_UINT32, "UInt32Column");
+    return new UInt32Column(reader.getData(field), reader.getValidity(field));
+  }
+
+  /**
+   * @param i The value index
+   * @return The raw bits of the value, negative for values from 2^31
+   */
+  public int get(int i) {
+    return values.get(i);
+  }
+
+  /**
+   * @param i The value index
+   * @return The value
+   */
+  public long getUnsigned(int i) {
+    return values.get(i) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Copies the raw bits of values to an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void copyTo(int from, int[] dst, int offset, int length) {
+    IntBuffer view = values.duplicate();
+    view.position(from);
+    view.get(dst, offset, length);
+  }
+
+  /**
+   * Widens values into an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void widenTo(int from, long[] dst, int offset, int length) {
+    checkRange(from, length, size(), offset, dst.length);
+    for (int k = 0; k < length; k++) {
+      dst[offset + k] = values.get(from + k) & 0xFFFFFFFFL;
+    }
+  }
+}
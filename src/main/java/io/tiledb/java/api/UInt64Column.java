@@ -0,0 +1,95 @@
+package io.tiledb.java.api;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A zero-copy view of the results of a UINT64 field. Values are read as the raw bits of a long,
+ * to be compared with {@link Long#compareUnsigned(long, long)} or divided with {@link
+ * Long#divideUnsigned(long, long)}; {@link #getUnsigned(int)} widens a single value to a
+ * BigInteger on request.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * UInt64Column d1 = query.getUInt64Column("d1");
+ * long max = 0;
+ * for (int i = 0; i < d1.size(); i++) {
+ *   if (Long.compareUnsigned(d1.get(i), max) > 0) {
+ *     max = d1.get(i);
+ *   }
+ * }
+ * }</pre>
+ */
+public final class UInt64Column extends NumericColumn {
+
+  private final LongBuffer values;
+
+  /**
+   * Creates a view over result buffers, with one value per 8 bytes up to the data limit.
+   *
+   * @param data The data buffer
+   * @param validity The validity bytemap, or null if the field is not nullable
+   */
+  public UInt64Column(ByteBuffer data, ByteBuffer validity) {
+    super(data.limit() / Long.BYTES, validity);
+    this.values = nativeOrder(data).asLongBuffer();
+  }
+
+  /**
+   * Creates a view over the current batch of a field of a batch reader.
+   *
+   * @param reader The batch reader
+   * @param field The field name
+   * @return The view
+   * @throws TileDBError if the field is not UINT64, or not read by the reader
+   */
+  public static UInt64Column of(BatchReader reader, String field) throws TileDBError {
+    Datatype type = reader.getType(field);
+    checkFixed(reader, field);
+    checkType(field, type, type == Datatype.TILEDB_UINT64, "UInt64Column");
+    return new UInt64Column(reader.getData(field), reader.getValidity(field));
+  }
+
+  /**
+   * @param i The value index
+   * @return The raw bits of the value, negative for values from 2^63
+   */
+  public long get(int i) {
+    return values.get(i);
+  }
+
+  /**
+   * @param i The value index
+   * @return The value
+   */
+  public BigInteger getUnsigned(int i) {
+    long value = values.get(i);
+    BigInteger unsigned = BigInteger.valueOf(value & Long.MAX_VALUE);
+    return value < 0 ? unsigned.setBit(63) : unsigned;
+  }
+
+  /**
+   * @param i The value index
+   * @return The value as the nearest double
+   */
+  public double getDouble(int i) {
+    long value = values.get(i);
+    return value >= 0 ? value : (double) (value >>> 1 | (value & 1)) * 2;
+  }
+
+  /**
+   * Copies the raw bits of values to an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void copyTo(int from, long[] dst, int offset, int length) {
+    LongBuffer view = values.duplicate();
+    view.position(from);
+    view.get(dst, offset, length);
+  }
+}
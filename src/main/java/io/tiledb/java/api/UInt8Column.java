@@ -0,0 +1,94 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A zero-copy view of the results of a UINT8 field. Values are kept one byte wide and only
+ * widened to int by {@link #getUnsigned(int)} or {@link #widenTo(int, int[], int, int)}, unlike
+ * {@link NativeArray} which copies them to a {@code short[]}.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * UInt8Column pixels = query.getUInt8Column("rgb");
+ * int[] histogram = new int[256];
+ * for (int i = 0; i < pixels.size(); i++) {
+ *   histogram[pixels.getUnsigned(i)]++;
+ * }
+ * }</pre>
+ */
+public final class UInt8Column extends NumericColumn {
+
+  private final ByteBuffer values;
+
+  /**
+   * Creates a view over result buffers, with one value per byte up to the data limit.
+   *
+   * @param data The data buffer
+   * @param validity The validity bytemap, or null if the field is not nullable
+   */
+  public UInt8Column(ByteBuffer data, ByteBuffer validity) {
+    super(data.limit(), validity);
+    this.values = nativeOrder(data);
+  }
+
+  /**
+   * Creates a view over the current batch of a field of a batch reader.
+   *
+   * @param reader The batch reader
+   * @param field The field name
+   * @return The view
+   * @throws TileDBError if the field is not UINT8, or not read by the reader
+   */
+  public static UInt8Column of(BatchReader reader, String field) throws TileDBError {
+    Datatype type = reader.getType(field);
+    checkFixed(reader, field);
+    checkType(field, type, type == Datatype.TILEDB_UINT8, "UInt8Column");
+    return new UInt8Column(reader.getData(field), reader.getValidity(field));
+  }
+
+  /**
+   * @param i The value index
+   * @return The raw bits of the value, negative for values from 128
+   */
+  public byte get(int i) {
+    return values.get(i);
+  }
+
+  /**
+   * @param i The value index
+   * @return The value
+   */
+  public int getUnsigned(int i) {
+    return values.get(i) & 0xFF;
+  }
+
+  /**
+   * Copies the raw bits of values to an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void copyTo(int from, byte[] dst, int offset, int length) {
+    ByteBuffer view = values.duplicate();
+    view.position(from);
+    view.get(dst, offset, length);
+  }
+
+  /**
+   * Widens values into an array.
+   *
+   * @param from The index of the first value
+   * @param dst The array
+   * @param offset The index in the array of the first value
+   * @param length The number of values
+   */
+  public void widenTo(int from, int[] dst, int offset, int length) {
+    checkRange(from, length, size(), offset, dst.length);
+    for (int k = 0; k < length; k++) {
+      dst[offset + k] = values.get(from + k) & 0xFF;
+    }
+  }
+}
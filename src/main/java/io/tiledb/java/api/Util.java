@@ -1,11 +1,13 @@
 package io.tiledb.java.api;
 
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
 
 /** Contains helper-functions */
 public class Util {
   /**
-   * Converts an input array of bytes to a list of Strings, according to the offsets
+   * Converts an input array of bytes to a list of Strings, according to the offsets. Each value is
+   * decoded as UTF-8 straight from the data array. To work on the values without decoding them all,
+   * use a {@link StringColumn} instead.
    *
    * @param offsets The offsets array
    * @param data THe data array
@@ -17,14 +19,9 @@ public class Util {
 
     // Convert bytes to string array
     for (int i = 0; i < offsets.length; ++i) {
-      if (i < offsets.length - 1) {
-        end = (int) offsets[i + 1];
-        results[i] = new String(Arrays.copyOfRange(data, start, end));
-        start = end;
-      } else {
-        end = data.length;
-        results[i] = new String(Arrays.copyOfRange(data, start, end));
-      }
+      end = i < offsets.length - 1 ? (int) offsets[i + 1] : data.length;
+      results[i] = new String(data, start, end - start, StandardCharsets.UTF_8);
+      start = end;
     }
 
     return results;
@@ -46,19 +43,6 @@ public class Util {
    * @throws TileDBError A TileDBError
    */
   public static Datatype getFieldDatatype(Array array, String fieldName) throws TileDBError {
-    Datatype dt;
-    try (ArraySchema schema = array.getSchema()) {
-      try (Domain domain = schema.getDomain()) {
-        if (domain.hasDimension(fieldName)) {
-          dt = domain.getDimension(fieldName).getType();
-        } else {
-          try (Attribute attribute = schema.getAttribute(fieldName)) {
-            dt = attribute.getType();
-          }
-        }
-      }
-    }
-
-    return dt;
+    return array.getSchemaSnapshot().getField(fieldName).getType();
   }
 }
@@ -494,6 +494,8 @@ public class VFS implements AutoCloseable {
    * @throws TileDBError
    */
   public byte[] readAllBytes(String path) throws TileDBError {
+    long started = Metrics.start();
+    Object event = FlightRecorderEvents.beginVfs();
     Long nbytes = fileSize(path);
     SWIGTYPE_p_p_tiledb_vfs_fh_t vfsFHpp = tiledb.new_tiledb_vfs_fh_tpp();
     try {
@@ -519,6 +521,8 @@ public class VFS implements AutoCloseable {
       tiledb.tiledb_vfs_close(ctx.getCtxp(), vfsFHp);
       tiledb.tiledb_vfs_fh_free(vfsFHpp);
     }
+    Metrics.record(Metrics.Operation.VFS_READ, started, resultBuffer.length);
+    FlightRecorderEvents.commitVfs(event, "read", path, resultBuffer.length);
     return resultBuffer;
   }
 
@@ -546,6 +550,8 @@ public class VFS implements AutoCloseable {
     if (mode[0] == VFSMode.TILEDB_VFS_READ) {
       throw new TileDBError("VFSMode for write must be TILEDB_VFS_WRITE or TILEDB_VFS_APPEND");
     }
+    long started = Metrics.start();
+    Object event = FlightRecorderEvents.beginVfs();
     SWIGTYPE_p_p_tiledb_vfs_fh_t vfsFHpp = tiledb.new_tiledb_vfs_fh_tpp();
     try {
       ctx.handleError(
@@ -563,6 +569,8 @@ public class VFS implements AutoCloseable {
       tiledb.tiledb_vfs_close(ctx.getCtxp(), vfsFHp);
       tiledb.tiledb_vfs_fh_free(vfsFHpp);
     }
+    Metrics.record(Metrics.Operation.VFS_WRITE, started, bytes.length);
+    FlightRecorderEvents.commitVfs(event, "write", path, bytes.length);
     return path;
   }
 
@@ -0,0 +1,258 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+
+/**
+ * A view of the validity bytemap of a nullable attribute, one byte per cell where 0 means null.
+ *
+ * <p>The view reads the bytemap in place, so results are not copied to a {@code short[]} as by
+ * {@link Query#getValidityByteMap(String)}. Counting and scanning read eight cells at a time.
+ * Validity converts to and from packed bitmaps, {@link BitSet} or {@code long[]} in the layout of
+ * {@link BitSet#toLongArray()}, where a set bit is a valid cell, so nullable columns can be kept
+ * on the heap at one bit per cell.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * Validity validity = reader.getValidityView("a1");
+ * for (int i = validity.nextNull(0); i >= 0; i = validity.nextNull(i + 1)) {
+ *   ...
+ * }
+ *
+ * Validity written = Validity.fromBitSet(valid, values.length);
+ * query.setBufferNullableNIO("a1", data, written.getByteMap());
+ * }</pre>
+ */
+public final class Validity {
+
+  private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final long GATHER = 0x0102040810204080L;
+
+  private final ByteBuffer bytemap;
+  private final int size;
+
+  /**
+   * Creates a view over a bytemap.
+   *
+   * @param bytemap The bytemap, read with absolute gets
+   * @param size The number of cells
+   */
+  public Validity(ByteBuffer bytemap, int size) {
+    this.bytemap = bytemap.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.size = size;
+  }
+
+  /**
+   * Creates a view over a bytemap, with one cell per byte up to its limit.
+   *
+   * @param bytemap The bytemap
+   * @return The view
+   */
+  public static Validity of(ByteBuffer bytemap) {
+    return new Validity(bytemap, bytemap.limit());
+  }
+
+  /**
+   * Allocates a direct bytemap with every cell valid.
+   *
+   * @param size The number of cells
+   * @return The validity
+   */
+  public static Validity allocate(int size) {
+    ByteBuffer bytemap = ByteBuffer.allocateDirect(size);
+    for (int i = 0; i < size; i++) {
+      bytemap.put(i, (byte) 1);
+    }
+    return new Validity(bytemap, size);
+  }
+
+  /**
+   * Encodes a bitmap into a direct bytemap.
+   *
+   * @param valid The bitmap, where a set bit is a valid cell
+   * @param size The number of cells
+   * @return The validity
+   */
+  public static Validity fromBitSet(BitSet valid, int size) {
+    ByteBuffer bytemap = ByteBuffer.allocateDirect(size);
+    for (int i = valid.nextSetBit(0); i >= 0 && i < size; i = valid.nextSetBit(i + 1)) {
+      bytemap.put(i, (byte) 1);
+    }
+    return new Validity(bytemap, size);
+  }
+
+  /**
+   * Encodes a packed bitmap into a direct bytemap.
+   *
+   * @param valid The bitmap in the layout of {@link BitSet#toLongArray()}, where a set bit is a
+   *     valid cell; missing words are all nulls
+   * @param size The number of cells
+   * @return The validity
+   */
+  public static Validity fromLongArray(long[] valid, int size) {
+    ByteBuffer bytemap = ByteBuffer.allocateDirect(size);
+    int words = Math.min(valid.length, (size + 63) >>> 6);
+    for (int w = 0; w < words; w++) {
+      long word = valid[w];
+      while (word != 0) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(word);
+        if (i >= size) {
+          break;
+        }
+        bytemap.put(i, (byte) 1);
+        word &= word - 1;
+      }
+    }
+    return new Validity(bytemap, size);
+  }
+
+  /** @return The number of cells */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param i The cell index
+   * @return true if the cell is null
+   */
+  public boolean isNull(int i) {
+    return bytemap.get(i) == 0;
+  }
+
+  /**
+   * @param i The cell index
+   * @return true if the cell is not null
+   */
+  public boolean isValid(int i) {
+    return bytemap.get(i) != 0;
+  }
+
+  /**
+   * Sets the validity of a cell, for bytemaps to be written.
+   *
+   * @param i The cell index
+   * @param valid false to make the cell null
+   */
+  public void set(int i, boolean valid) {
+    bytemap.put(i, valid ? (byte) 1 : (byte) 0);
+  }
+
+  /** @return The number of null cells */
+  public int nullCount() {
+    int valid = 0;
+    int words = size >>> 3;
+    for (int w = 0; w < words; w++) {
+      valid += Long.bitCount(nonZeroBytes(bytemap.getLong(w << 3)));
+    }
+    for (int i = words << 3; i < size; i++) {
+      if (bytemap.get(i) != 0) {
+        valid++;
+      }
+    }
+    return size - valid;
+  }
+
+  /** @return true if any cell is null */
+  public boolean hasNulls() {
+    return nextNull(0) >= 0;
+  }
+
+  /**
+   * @param from The first cell index to look at
+   * @return The index of the first null cell from there, or -1 if there is none
+   */
+  public int nextNull(int from) {
+    return next(from, true);
+  }
+
+  /**
+   * @param from The first cell index to look at
+   * @return The index of the first valid cell from there, or -1 if there is none
+   */
+  public int nextValid(int from) {
+    return next(from, false);
+  }
+
+  /** @return A bitmap of the cells where a set bit is a valid cell */
+  public BitSet toBitSet() {
+    return BitSet.valueOf(toLongArray());
+  }
+
+  /** @return A packed bitmap in the layout of {@link BitSet#toLongArray()}, set for valid cells */
+  public long[] toLongArray() {
+    long[] bits = new long[(size + 63) >>> 6];
+    int words = size >>> 3;
+    for (int w = 0; w < words; w++) {
+      // The high bit of every non-zero byte, gathered into the top byte
+      long gathered = ((nonZeroBytes(bytemap.getLong(w << 3)) >>> 7) * GATHER) >>> 56;
+      bits[w >>> 3] |= gathered << ((w & 7) << 3);
+    }
+    for (int i = words << 3; i < size; i++) {
+      if (bytemap.get(i) != 0) {
+        bits[i >>> 6] |= 1L << i;
+      }
+    }
+    return bits;
+  }
+
+  /**
+   * Copies the bytemap to a NativeArray of UINT8, for {@link Query#setBufferNullable(String,
+   * NativeArray, NativeArray)}.
+   *
+   * @param ctx The context
+   * @return The NativeArray
+   * @throws TileDBError A TileDB exception
+   */
+  public NativeArray toNativeArray(Context ctx) throws TileDBError {
+    short[] values = new short[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = (short) (bytemap.get(i) & 0xFF);
+    }
+    return new NativeArray(ctx, values, Datatype.TILEDB_UINT8);
+  }
+
+  /**
+   * Returns the bytemap, whose capacity is exactly one byte per cell as the NIO buffer setters of
+   * {@link Query} expect.
+   *
+   * @return The bytemap
+   */
+  public ByteBuffer getByteMap() {
+    ByteBuffer view = bytemap.duplicate();
+    view.position(0);
+    view.limit(size);
+    return view.slice().order(ByteOrder.nativeOrder());
+  }
+
+  private int next(int from, boolean nulls) {
+    int i = Math.max(from, 0);
+    // Single cells up to a multiple of 8, then 8 cells at a time
+    while (i < size && (i & 7) != 0) {
+      if ((bytemap.get(i) == 0) == nulls) {
+        return i;
+      }
+      i++;
+    }
+    for (; i + 8 <= size; i += 8) {
+      long nonZero = nonZeroBytes(bytemap.getLong(i));
+      long match = nulls ? ~nonZero & HIGH_BITS : nonZero;
+      if (match != 0) {
+        return i + (Long.numberOfTrailingZeros(match) >>> 3);
+      }
+    }
+    for (; i < size; i++) {
+      if ((bytemap.get(i) == 0) == nulls) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** The high bit of every non-zero byte of a word, and no other bit. */
+  private static long nonZeroBytes(long word) {
+    return (((word & LOW_BITS) + LOW_BITS) | word) & HIGH_BITS;
+  }
+}
@@ -0,0 +1,412 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Encodes strings into the offsets, data and validity buffers of a var-sized attribute, ready to be
+ * set on a write query.
+ *
+ * <p>A first pass computes the UTF-8 length of every string without encoding it, so the data
+ * buffer is sized exactly; a second pass encodes every string straight into it. Large inputs are
+ * split into chunks whose lengths are summed concurrently, then turned into offsets with a prefix
+ * sum over the chunk totals, and encoded concurrently. Null strings are written as empty values
+ * with a 0 in the validity bytemap.
+ *
+ * <p>Offsets are written in an {@link OffsetsFormat}, 64-bit byte offsets by default. When the
+ * buffers are set on a query configured with another format, the offsets are rewritten in the
+ * format of the query, which later calls then encode in directly. Strings are encoded as one-byte
+ * elements, so element offsets are the same as byte offsets.
+ *
+ * <p>The direct buffers are allocated within the {@link NativeMemory} budget, and kept and reused
+ * by the next call to {@code encode} whenever they are large enough, so an encoder should be reused
+ * across writes. The buffers returned by the getters are only valid until then. Likewise, an
+ * encoder with a parallelism above one keeps a pool of threads, which stop when idle, unless an
+ * executor is supplied with {@link #setExecutor(ExecutorService)}.
+ *
+ * <p><b>Example:</b>
+ *
+ * <pre>{@code
+ * VarLengthEncoder encoder = new VarLengthEncoder();
+ * encoder.encode(names).setBuffer(query, "name");
+ * query.submit();
+ * }</pre>
+ */
+public class VarLengthEncoder {
+
+  /** The default number of strings encoded by a task. */
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  private int parallelism;
+  private int chunkSize;
+  private ExecutorService executor;
+  // The pool owned by the encoder, created on first use
+  private ExecutorService pool;
+  private OffsetsFormat format;
+  // The format of the offsets currently encoded
+  private OffsetsFormat encodedFormat;
+  private ByteBuffer offsets;
+  private ByteBuffer data;
+  private ByteBuffer validity;
+  private int size;
+  private int dataBytes;
+  private boolean hasNulls;
+
+  public VarLengthEncoder() {
+    this.parallelism = 1;
+    this.chunkSize = DEFAULT_CHUNK_SIZE;
+    this.format = OffsetsFormat.DEFAULT;
+    this.encodedFormat = OffsetsFormat.DEFAULT;
+  }
+
+  /**
+   * @param format The format offsets are encoded in from the next call to {@code encode}
+   * @return This encoder
+   */
+  public VarLengthEncoder setOffsetsFormat(OffsetsFormat format) {
+    this.format = format;
+    return this;
+  }
+
+  /** @return The format offsets are encoded in */
+  public OffsetsFormat getOffsetsFormat() {
+    return format;
+  }
+
+  /**
+   * @param parallelism The number of threads used for inputs of more than one chunk
+   * @return This encoder
+   * @throws TileDBError if the parallelism is not positive
+   */
+  public VarLengthEncoder setParallelism(int parallelism) throws TileDBError {
+    if (parallelism <= 0) {
+      throw new TileDBError("Parallelism must be >= 1, got: " + parallelism);
+    }
+    if (parallelism != this.parallelism && pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Runs the chunks on an executor instead of a pool owned by the encoder. The executor is not shut
+   * down by the encoder, and its threads bound the parallelism.
+   *
+   * @param executor The executor, or null to use the pool of the encoder
+   * @return This encoder
+   */
+  public VarLengthEncoder setExecutor(ExecutorService executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * @param chunkSize The number of strings encoded by a task
+   * @return This encoder
+   * @throws TileDBError if the chunk size is not positive
+   */
+  public VarLengthEncoder setChunkSize(int chunkSize) throws TileDBError {
+    if (chunkSize <= 0) {
+      throw new TileDBError("Chunk size must be >= 1, got: " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * Encodes strings.
+   *
+   * @param values The strings, with null for null values
+   * @return This encoder
+   * @throws TileDBError if the strings do not fit in a 2GB buffer
+   */
+  public VarLengthEncoder encode(CharSequence[] values) throws TileDBError {
+    return encode(Arrays.asList(values));
+  }
+
+  /**
+   * Encodes strings.
+   *
+   * @param values The strings, with null for null values
+   * @return This encoder
+   * @throws TileDBError if the strings do not fit in a 2GB buffer
+   */
+  public VarLengthEncoder encode(List<? extends CharSequence> values) throws TileDBError {
+    List<? extends CharSequence> list =
+        values instanceof RandomAccess ? values : new ArrayList<>(values);
+    int n = list.size();
+    OffsetsFormat format = this.format;
+    int width = format.getBytesPerOffset();
+    if (format.offsetsBytes(n) > Integer.MAX_VALUE) {
+      throw new TileDBError("Too many values to encode: " + n);
+    }
+    offsets = ensure(offsets, (int) format.offsetsBytes(n));
+    validity = ensure(validity, n);
+
+    // Pass 1: the length of every value, stored in place of its offset, and the total per chunk
+    int chunks = Math.max(1, (n + chunkSize - 1) / chunkSize);
+    long[] totals = new long[chunks];
+    boolean[] nulls = new boolean[chunks];
+    ExecutorService runner = chunks > 1 ? executor() : null;
+    List<Callable<Void>> tasks = new ArrayList<>(chunks);
+    for (int c = 0; c < chunks; c++) {
+      int chunk = c;
+      tasks.add(
+          () -> {
+            int end = Math.min(n, (chunk + 1) * chunkSize);
+            long total = 0;
+            for (int i = chunk * chunkSize; i < end; i++) {
+              CharSequence value = list.get(i);
+              int length = 0;
+              if (value == null) {
+                nulls[chunk] = true;
+                validity.put(i, (byte) 0);
+              } else {
+                length = utf8Length(value);
+                validity.put(i, (byte) 1);
+              }
+              putOffset(offsets, width, i, length);
+              total += length;
+            }
+            totals[chunk] = total;
+            return null;
+          });
+    }
+    ParallelTasks.runAll(tasks, runner);
+
+    // Prefix sum over the chunk totals gives the start of every chunk
+    long[] starts = new long[chunks];
+    long total = 0;
+    hasNulls = false;
+    for (int c = 0; c < chunks; c++) {
+      starts[c] = total;
+      total += totals[c];
+      hasNulls |= nulls[c];
+    }
+    if (total > Integer.MAX_VALUE - 8) {
+      throw new TileDBError("Encoded values exceed 2GB: " + total + " bytes");
+    }
+    data = ensure(data, (int) total);
+
+    // Pass 2: offsets from the chunk starts, and the values encoded in place
+    tasks.clear();
+    for (int c = 0; c < chunks; c++) {
+      int chunk = c;
+      tasks.add(
+          () -> {
+            int end = Math.min(n, (chunk + 1) * chunkSize);
+            int position = (int) starts[chunk];
+            for (int i = chunk * chunkSize; i < end; i++) {
+              int length = (int) getOffset(offsets, width, i);
+              putOffset(offsets, width, i, position);
+              if (length > 0) {
+                encodeUtf8(list.get(i), data, position);
+              }
+              position += length;
+            }
+            return null;
+          });
+    }
+    ParallelTasks.runAll(tasks, runner);
+
+    if (format.hasExtraElement()) {
+      putOffset(offsets, width, n, total);
+    }
+
+    this.size = n;
+    this.dataBytes = (int) total;
+    this.encodedFormat = format;
+    return this;
+  }
+
+  /** @return The number of encoded values */
+  public int size() {
+    return size;
+  }
+
+  /** @return true if any encoded value is null */
+  public boolean hasNulls() {
+    return hasNulls;
+  }
+
+  /**
+   * @return The offsets buffer, one offset per value in the {@link #getOffsetsFormat()} of the last
+   *     encode, plus the extra element if the format has one
+   */
+  public ByteBuffer getOffsets() {
+    return view(offsets, (int) encodedFormat.offsetsBytes(size));
+  }
+
+  /** @return The data buffer, holding the UTF-8 bytes of all values */
+  public ByteBuffer getData() {
+    return view(data, dataBytes);
+  }
+
+  /** @return The validity bytemap, one byte per value, 0 for null values */
+  public ByteBuffer getValidity() {
+    return view(validity, size);
+  }
+
+  /**
+   * Sets the encoded buffers on a query for a non-nullable attribute, with the offsets in the
+   * {@link OffsetsFormat} of the query.
+   *
+   * @param query The write query
+   * @param attr The attribute name
+   * @throws TileDBError if a value is null, or a TileDB exception
+   */
+  public void setBuffer(Query query, String attr) throws TileDBError {
+    if (hasNulls) {
+      throw new TileDBError("Cannot set null values on non-nullable attribute " + attr);
+    }
+    reformat(query.getOffsetsFormat());
+    query.setBuffer(attr, getOffsets(), getData());
+  }
+
+  /**
+   * Sets the encoded buffers on a query for a nullable attribute, with the offsets in the {@link
+   * OffsetsFormat} of the query.
+   *
+   * @param query The write query
+   * @param attr The attribute name
+   * @throws TileDBError A TileDB exception
+   */
+  public void setBufferNullable(Query query, String attr) throws TileDBError {
+    reformat(query.getOffsetsFormat());
+    query.setBufferNullableNIO(attr, getOffsets(), getData(), getValidity());
+  }
+
+  /** Rewrites the encoded offsets in another format, which later calls encode in directly. */
+  void reformat(OffsetsFormat target) throws TileDBError {
+    format = target;
+    if (target.equals(encodedFormat)) {
+      return;
+    }
+    if (target.offsetsBytes(size) > Integer.MAX_VALUE) {
+      throw new TileDBError("Too many values for " + target + ": " + size);
+    }
+    long[] values = new long[size];
+    int width = encodedFormat.getBytesPerOffset();
+    for (int i = 0; i < size; i++) {
+      values[i] = getOffset(offsets, width, i);
+    }
+    offsets = ensure(offsets, (int) target.offsetsBytes(size));
+    width = target.getBytesPerOffset();
+    for (int i = 0; i < size; i++) {
+      putOffset(offsets, width, i, values[i]);
+    }
+    if (target.hasExtraElement()) {
+      putOffset(offsets, width, size, dataBytes);
+    }
+    encodedFormat = target;
+  }
+
+  /** @return The executor to run chunks on, or null to run them on the calling thread */
+  private ExecutorService executor() {
+    if (executor != null) {
+      return executor;
+    }
+    if (parallelism <= 1) {
+      return null;
+    }
+    if (pool == null) {
+      pool = ParallelTasks.newPool(parallelism, "tiledb-var-encoder-");
+    }
+    return pool;
+  }
+
+  private static void putOffset(ByteBuffer buffer, int width, int i, long offset) {
+    if (width == Long.BYTES) {
+      buffer.putLong(i * Long.BYTES, offset);
+    } else {
+      buffer.putInt(i * Integer.BYTES, (int) offset);
+    }
+  }
+
+  private static long getOffset(ByteBuffer buffer, int width, int i) {
+    return width == Long.BYTES
+        ? buffer.getLong(i * Long.BYTES)
+        : buffer.getInt(i * Integer.BYTES) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the number of bytes of the UTF-8 encoding of a string, encoding unpaired surrogates as
+   * '?' like {@link String#getBytes(java.nio.charset.Charset)}.
+   */
+  static int utf8Length(CharSequence value) {
+    int length = value.length();
+    int bytes = length;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        continue;
+      } else if (c < 0x800) {
+        bytes += 1;
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c)
+            && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          // Two chars, four bytes
+          bytes += 2;
+          i++;
+        }
+      } else {
+        bytes += 2;
+      }
+    }
+    return bytes;
+  }
+
+  /** Encodes a string as UTF-8 into a buffer with absolute puts, starting at a position. */
+  static void encodeUtf8(CharSequence value, ByteBuffer out, int position) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        out.put(position++, (byte) c);
+      } else if (c < 0x800) {
+        out.put(position++, (byte) (0xC0 | (c >> 6)));
+        out.put(position++, (byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c)
+            && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, value.charAt(++i));
+          out.put(position++, (byte) (0xF0 | (cp >> 18)));
+          out.put(position++, (byte) (0x80 | ((cp >> 12) & 0x3F)));
+          out.put(position++, (byte) (0x80 | ((cp >> 6) & 0x3F)));
+          out.put(position++, (byte) (0x80 | (cp & 0x3F)));
+        } else {
+          out.put(position++, (byte) '?');
+        }
+      } else {
+        out.put(position++, (byte) (0xE0 | (c >> 12)));
+        out.put(position++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+        out.put(position++, (byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  private static ByteBuffer ensure(ByteBuffer buffer, int bytes) throws TileDBError {
+    if (buffer != null && buffer.capacity() >= bytes) {
+      return buffer;
+    }
+    return NativeMemory.allocateDirect(null, Math.max(bytes, 64));
+  }
+
+  /** A direct view of the first bytes of a buffer, whose capacity is exactly those bytes. */
+  private static ByteBuffer view(ByteBuffer buffer, int bytes) {
+    ByteBuffer view = buffer.duplicate();
+    view.position(0);
+    view.limit(bytes);
+    return view.slice().order(ByteOrder.nativeOrder());
+  }
+}
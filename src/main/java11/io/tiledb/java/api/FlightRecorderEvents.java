@@ -0,0 +1,197 @@
+package io.tiledb.java.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emits Java Flight Recorder events for array, query and VFS operations, so that TileDB work lines
+ * up with GC and thread events on the recording timeline.
+ *
+ * <p>This is the Java 11 version of the multi-release jar. An event is only allocated if a
+ * recording enables its type; otherwise the begin methods return null and callers skip gathering
+ * the details of the event.
+ */
+final class FlightRecorderEvents {
+
+  private static final EventType ARRAY = EventType.getEventType(ArrayEvent.class);
+  private static final EventType QUERY = EventType.getEventType(QueryEvent.class);
+  private static final EventType VFS = EventType.getEventType(VfsEvent.class);
+
+  private FlightRecorderEvents() {}
+
+  /** @return An array event, or null if not enabled */
+  static Object beginArray() {
+    if (!ARRAY.isEnabled()) {
+      return null;
+    }
+    ArrayEvent event = new ArrayEvent();
+    event.begin();
+    return event;
+  }
+
+  /** @return A query event, or null if not enabled */
+  static Object beginQuery() {
+    if (!QUERY.isEnabled()) {
+      return null;
+    }
+    QueryEvent event = new QueryEvent();
+    event.begin();
+    return event;
+  }
+
+  /** @return A VFS event, or null if not enabled */
+  static Object beginVfs() {
+    if (!VFS.isEnabled()) {
+      return null;
+    }
+    VfsEvent event = new VfsEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Commits an array event.
+   *
+   * @param event The event, or null
+   * @param operation The operation, such as "open"
+   * @param uri The array URI
+   * @param queryType The query type the array is open for, or null
+   */
+  static void commitArray(Object event, String operation, String uri, String queryType) {
+    ArrayEvent e = (ArrayEvent) event;
+    if (e == null) {
+      return;
+    }
+    e.end();
+    if (e.shouldCommit()) {
+      e.operation = operation;
+      e.uri = uri;
+      e.queryType = queryType;
+      e.commit();
+    }
+  }
+
+  /**
+   * Commits a query event.
+   *
+   * @param event The event, or null
+   * @param operation The operation, such as "submit"
+   * @param uri The array URI
+   * @param queryType The query type
+   * @param layout The layout, or null
+   * @param fields The fields with buffers set, comma separated
+   * @param bytes The bytes of the buffers set
+   * @param status The status after the operation, or null
+   */
+  static void commitQuery(
+      Object event,
+      String operation,
+      String uri,
+      String queryType,
+      String layout,
+      String fields,
+      long bytes,
+      String status) {
+    QueryEvent e = (QueryEvent) event;
+    if (e == null) {
+      return;
+    }
+    e.end();
+    if (e.shouldCommit()) {
+      e.operation = operation;
+      e.uri = uri;
+      e.queryType = queryType;
+      e.layout = layout;
+      e.fields = fields;
+      e.bytes = bytes;
+      e.status = status;
+      e.commit();
+    }
+  }
+
+  /**
+   * Commits a VFS event.
+   *
+   * @param event The event, or null
+   * @param operation The operation, such as "read"
+   * @param uri The file URI
+   * @param bytes The bytes read or written
+   */
+  static void commitVfs(Object event, String operation, String uri, long bytes) {
+    VfsEvent e = (VfsEvent) event;
+    if (e == null) {
+      return;
+    }
+    e.end();
+    if (e.shouldCommit()) {
+      e.operation = operation;
+      e.uri = uri;
+      e.bytes = bytes;
+      e.commit();
+    }
+  }
+
+  @Name("io.tiledb.Array")
+  @Label("TileDB Array")
+  @Category("TileDB")
+  @Description("Opening, reopening, closing, consolidating or vacuuming an array")
+  static final class ArrayEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Query Type")
+    String queryType;
+  }
+
+  @Name("io.tiledb.Query")
+  @Label("TileDB Query")
+  @Category("TileDB")
+  @Description("Submitting or finalizing a query")
+  static final class QueryEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Query Type")
+    String queryType;
+
+    @Label("Layout")
+    String layout;
+
+    @Label("Fields")
+    String fields;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Status")
+    String status;
+  }
+
+  @Name("io.tiledb.VFS")
+  @Label("TileDB VFS")
+  @Category("TileDB")
+  @Description("Reading or writing a file through the VFS")
+  static final class VfsEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+  }
+}
@@ -0,0 +1,186 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AggregationTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final int CELLS = 100;
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("aggregation_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, CELLS), 10);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    Attribute a1 = new Attribute(ctx, "a1", Integer.class);
+    a1.setNullable(true);
+    Attribute a2 = new Attribute(ctx, "a2", Double.class);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setCapacity(10);
+    schema.setDomain(domain);
+    schema.addAttribute(a1);
+    schema.addAttribute(a2);
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    int[] d1 = new int[CELLS];
+    int[] a1 = new int[CELLS];
+    short[] a1Validity = new short[CELLS];
+    double[] a2 = new double[CELLS];
+    for (int i = 0; i < CELLS; i++) {
+      d1[i] = i + 1;
+      a1[i] = i + 1;
+      // Every tenth cell is null
+      a1Validity[i] = (short) (i % 10 == 0 ? 0 : 1);
+      a2[i] = (i + 1) / 2.0;
+    }
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBufferNullable(
+          "a1",
+          new NativeArray(ctx, a1, Integer.class),
+          new NativeArray(ctx, a1Validity, Datatype.TILEDB_UINT8));
+      query.setBuffer("a2", new NativeArray(ctx, a2, Double.class));
+      query.submit();
+    }
+  }
+
+  @Test
+  public void testAggregateAll() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      Aggregation.Result result =
+          new Aggregation(array, Arrays.asList("a1", "a2")).setBatchCells(16).execute();
+
+      Assert.assertEquals(CELLS, result.getCellNum());
+      // Nulls are skipped: 1, 11, ..., 91
+      Assert.assertEquals(90, result.getCount("a1"));
+      Assert.assertEquals(5050L - 460L, result.getSum("a1"));
+      Assert.assertEquals(2L, result.getMin("a1"));
+      Assert.assertEquals(100L, result.getMax("a1"));
+      Assert.assertEquals(4590 / 90.0, result.getMean("a1"), 1e-9);
+
+      Assert.assertEquals(CELLS, result.getCount("a2"));
+      Assert.assertEquals(2525.0, result.getSum("a2"));
+      Assert.assertEquals(0.5, result.getMin("a2"));
+      Assert.assertEquals(50.0, result.getMax("a2"));
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSequential() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      Predicate predicate = Predicate.or(Predicate.lt("a2", 10.0), Predicate.gt("a1", 95));
+      Aggregation.Result sequential =
+          new Aggregation(array, Arrays.asList("a1", "a2")).setPredicate(predicate).execute();
+      Aggregation.Result parallel =
+          new Aggregation(array, Arrays.asList("a1", "a2"))
+              .setPredicate(predicate)
+              .setParallelism(3)
+              .setBatchCells(8)
+              .execute();
+
+      // d1 in [1, 19] or [96, 100]
+      Assert.assertEquals(24, sequential.getCellNum());
+      Assert.assertEquals(sequential.getCellNum(), parallel.getCellNum());
+      Assert.assertEquals(sequential.getCount("a1"), parallel.getCount("a1"));
+      Assert.assertEquals(sequential.getSum("a1"), parallel.getSum("a1"));
+      Assert.assertEquals(sequential.getMin("a1"), parallel.getMin("a1"));
+      Assert.assertEquals(sequential.getMax("a1"), parallel.getMax("a1"));
+      Assert.assertEquals(
+          sequential.getSum("a2").doubleValue(), parallel.getSum("a2").doubleValue(), 1e-9);
+    }
+  }
+
+  @Test
+  public void testCountOnly() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      Aggregation.Result result =
+          new Aggregation(array, Collections.<String>emptyList())
+              .setPredicate(Predicate.between("d1", 41, 60))
+              .setParallelism(4)
+              .execute();
+      Assert.assertEquals(20, result.getCellNum());
+    }
+  }
+
+  @Test
+  public void testNoMatches() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      Aggregation.Result result =
+          new Aggregation(array, Arrays.asList("a1"))
+              .setPredicate(Predicate.gt("a1", 1000))
+              .execute();
+      Assert.assertEquals(0, result.getCellNum());
+      Assert.assertEquals(0, result.getCount("a1"));
+      Assert.assertNull(result.getSum("a1"));
+      Assert.assertNull(result.getMean("a1"));
+    }
+  }
+
+  @Test
+  public void testUnsignedValues() throws Exception {
+    String uri = temp.getRoot().toPath().resolve("aggregation_uint64").toString();
+    Domain domain = new Domain(ctx);
+    domain.addDimension(new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, 4), 2));
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setDomain(domain);
+    schema.addAttribute(new Attribute(ctx, "u", Datatype.TILEDB_UINT64));
+    Array.create(uri, schema);
+    try (Array array = new Array(ctx, uri, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, new int[] {1, 2, 3}, Integer.class));
+      // 2^63 is above 5 as an unsigned value
+      query.setBuffer(
+          "u",
+          new NativeArray(ctx, new long[] {5L, Long.MIN_VALUE, 1L}, Datatype.TILEDB_UINT64));
+      query.submit();
+    }
+
+    try (Array array = new Array(ctx, uri)) {
+      Aggregation.Result result =
+          new Aggregation(array, Arrays.asList("u")).setParallelism(2).execute();
+      Assert.assertEquals(3, result.getCount("u"));
+      Assert.assertEquals(1L, result.getMin("u"));
+      Assert.assertEquals(Long.MIN_VALUE, result.getMax("u"));
+      Assert.assertEquals(Long.MIN_VALUE + 6, result.getSum("u"));
+      Assert.assertEquals((Math.pow(2, 63) + 6) / 3, result.getMean("u"), 1e3);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_READ;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArrayPoolTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private Context ctx;
+  private String arrayURI;
+  private String otherURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("array_pool_array").toString();
+    otherURI = temp.getRoot().toPath().resolve("array_pool_other").toString();
+    arrayCreate(arrayURI);
+    arrayCreate(otherURI);
+    arrayWrite(arrayURI, 1, 100);
+    arrayWrite(otherURI, 1, 100);
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate(String uri) throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, 200), 10);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+    Attribute a1 = new Attribute(ctx, "a1", Integer.class);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setDomain(domain);
+    schema.addAttribute(a1);
+    schema.check();
+    Array.create(uri, schema);
+  }
+
+  private void arrayWrite(String uri, int start, int end) throws Exception {
+    int[] d1 = new int[end - start + 1];
+    for (int i = 0; i < d1.length; i++) {
+      d1[i] = start + i;
+    }
+    try (Array array = new Array(ctx, uri, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBuffer("a1", new NativeArray(ctx, d1, Integer.class));
+      query.submit();
+    }
+  }
+
+  private static int domainEnd(Array array) throws TileDBError {
+    return (Integer) array.getNonEmptyDomainFromIndex(0).getSecond();
+  }
+
+  @Test
+  public void testShared() throws Exception {
+    try (ArrayPool pool = new ArrayPool(ctx)) {
+      try (ArrayPool.Lease first = pool.acquire(arrayURI);
+          ArrayPool.Lease second = pool.acquire(arrayURI)) {
+        Assert.assertSame(first.getArray(), second.getArray());
+        Assert.assertEquals(TILEDB_READ, first.getArray().getQueryType());
+      }
+      try (ArrayPool.Lease write =
+          pool.acquire(
+              arrayURI, TILEDB_WRITE, EncryptionType.TILEDB_NO_ENCRYPTION, new byte[] {})) {
+        Assert.assertEquals(TILEDB_WRITE, write.getArray().getQueryType());
+      }
+      // Idle handles stay open
+      Assert.assertEquals(2, pool.size());
+      Assert.assertEquals(2, pool.getWeight());
+    }
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() throws Exception {
+    try (ArrayPool pool = new ArrayPool(ctx).setMaxHandles(1)) {
+      Array first;
+      try (ArrayPool.Lease lease = pool.acquire(arrayURI)) {
+        first = lease.getArray();
+        // Leased handles are not evicted
+        try (ArrayPool.Lease other = pool.acquire(otherURI)) {
+          Assert.assertEquals(2, pool.size());
+        }
+      }
+      Assert.assertEquals(1, pool.size());
+      try (ArrayPool.Lease lease = pool.acquire(arrayURI)) {
+        Assert.assertNotSame(first, lease.getArray());
+      }
+    }
+  }
+
+  @Test
+  public void testRefresh() throws Exception {
+    try (ArrayPool pool = new ArrayPool(ctx).setStaleness(0, TimeUnit.SECONDS)) {
+      Array array;
+      try (ArrayPool.Lease lease = pool.acquire(arrayURI)) {
+        array = lease.getArray();
+        Assert.assertEquals(100, domainEnd(array));
+      }
+      arrayWrite(arrayURI, 101, 200);
+      // An idle handle is reopened in place
+      try (ArrayPool.Lease lease = pool.acquire(arrayURI)) {
+        Assert.assertSame(array, lease.getArray());
+        Assert.assertEquals(200, domainEnd(lease.getArray()));
+        // A leased handle is replaced, and stays open for its lease
+        try (ArrayPool.Lease other = pool.acquire(arrayURI)) {
+          Assert.assertNotSame(array, other.getArray());
+        }
+        Assert.assertEquals(200, domainEnd(lease.getArray()));
+      }
+      Assert.assertEquals(1, pool.size());
+    }
+  }
+
+  @Test
+  public void testCheckFragments() throws Exception {
+    try (ArrayPool pool =
+        new ArrayPool(ctx).setStaleness(0, TimeUnit.SECONDS).setCheckFragments(true)) {
+      Array array;
+      try (ArrayPool.Lease lease = pool.acquire(arrayURI)) {
+        array = lease.getArray();
+        // Unchanged fragments: the leased handle is kept
+        try (ArrayPool.Lease other = pool.acquire(arrayURI)) {
+          Assert.assertSame(array, other.getArray());
+        }
+      }
+      arrayWrite(arrayURI, 101, 200);
+      try (ArrayPool.Lease lease = pool.acquire(arrayURI)) {
+        Assert.assertEquals(200, domainEnd(lease.getArray()));
+      }
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testClosed() throws Exception {
+    ArrayPool pool = new ArrayPool(ctx);
+    pool.close();
+    pool.acquire(arrayURI);
+  }
+}
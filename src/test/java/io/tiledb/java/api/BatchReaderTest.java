@@ -0,0 +1,154 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Constants.TILEDB_VAR_NUM;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_READ;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchReaderTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final int CELLS = 100;
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("batch_reader_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, CELLS), 10);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    Attribute a1 = new Attribute(ctx, "a1", Integer.class);
+    a1.setNullable(true);
+    Attribute a2 = new Attribute(ctx, "a2", String.class);
+    a2.setCellValNum(TILEDB_VAR_NUM);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setCapacity(10);
+    schema.setDomain(domain);
+    schema.addAttribute(a1);
+    schema.addAttribute(a2);
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    int[] d1 = new int[CELLS];
+    int[] a1 = new int[CELLS];
+    short[] a1Validity = new short[CELLS];
+    long[] a2Offsets = new long[CELLS];
+    StringBuilder a2 = new StringBuilder();
+    for (int i = 0; i < CELLS; i++) {
+      d1[i] = i + 1;
+      a1[i] = i + 1;
+      // Every tenth cell is null
+      a1Validity[i] = (short) (i % 10 == 0 ? 0 : 1);
+      a2Offsets[i] = a2.length();
+      a2.append("v").append(i + 1);
+    }
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBufferNullable(
+          "a1",
+          new NativeArray(ctx, a1, Integer.class),
+          new NativeArray(ctx, a1Validity, Datatype.TILEDB_UINT8));
+      query.setBuffer(
+          "a2",
+          new NativeArray(ctx, a2Offsets, Datatype.TILEDB_UINT64),
+          new NativeArray(ctx, a2.toString(), String.class));
+      query.submit();
+    }
+  }
+
+  @Test
+  public void testReadInBatches() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        Query query = new Query(array, TILEDB_READ);
+        BatchReader reader = new BatchReader(query, Arrays.asList("d1", "a1", "a2"), 16)) {
+      query.setLayout(TILEDB_ROW_MAJOR);
+      int batches = 0;
+      int cells = 0;
+      long sum = 0;
+      int nulls = 0;
+      while (reader.next()) {
+        batches++;
+        ByteBuffer a1 = reader.getData("a1");
+        ByteBuffer validity = reader.getValidity("a1");
+        ByteBuffer a2 = reader.getData("a2");
+        ByteBuffer a2Offsets = reader.getOffsets("a2");
+        for (int i = 0; i < reader.size(); i++) {
+          if (validity.get(i) == 0) {
+            nulls++;
+          } else {
+            sum += a1.getInt(i * 4);
+          }
+          // The first byte of every a2 value is 'v'
+          Assert.assertEquals('v', a2.get((int) a2Offsets.getLong(i * 8)));
+        }
+        cells += reader.size();
+      }
+      Assert.assertTrue(batches > 1);
+      Assert.assertEquals(CELLS, cells);
+      Assert.assertEquals(10, nulls);
+      // 1 + ... + 100, without 1, 11, ..., 91
+      Assert.assertEquals(5050 - 460, sum);
+      Assert.assertFalse(reader.next());
+    }
+  }
+
+  @Test
+  public void testDictionaryEncoded() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        Query query = new Query(array, TILEDB_READ);
+        BatchReader reader = new BatchReader(query, Arrays.asList("d1", "a2"), 16)) {
+      query.setLayout(TILEDB_ROW_MAJOR);
+      reader.setDictionaryEncoded("a2");
+      while (reader.next()) {
+        ByteBuffer d1 = reader.getData("d1");
+        int[] codes = reader.getCodes("a2");
+        for (int i = 0; i < reader.size(); i++) {
+          Assert.assertEquals(
+              "v" + d1.getInt(i * 4), reader.getDictionary("a2").getValue(codes[i]));
+        }
+      }
+      Assert.assertEquals(CELLS, reader.getDictionary("a2").size());
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testUnknownField() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        Query query = new Query(array, TILEDB_READ)) {
+      new BatchReader(query, Arrays.asList("a3"));
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package io.tiledb.java.api;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContextRegistryTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private ContextRegistry shared;
+  private ContextRegistry perThread;
+
+  @Before
+  public void setup() {
+    shared = new ContextRegistry(ContextRegistry.Affinity.SHARED);
+    perThread = new ContextRegistry(ContextRegistry.Affinity.PER_THREAD);
+  }
+
+  @After
+  public void teardown() {
+    shared.close();
+    perThread.close();
+  }
+
+  @Test
+  public void testSharedByEffectiveConfig() throws Exception {
+    Context ctx = shared.get();
+    try (Config config = new Config()) {
+      // Setting a parameter to its default value leaves the effective config unchanged
+      config.set("vfs.s3.connect_timeout_ms", config.get("vfs.s3.connect_timeout_ms"));
+      Assert.assertSame(ctx, shared.get(config));
+    }
+    Map<String, String> other = new HashMap<>();
+    other.put("vfs.s3.connect_timeout_ms", "5000");
+    Context otherCtx = shared.get(other);
+    Assert.assertNotSame(ctx, otherCtx);
+    Assert.assertSame(otherCtx, shared.get(other));
+    Assert.assertEquals("5000", otherCtx.getConfig().get("vfs.s3.connect_timeout_ms"));
+    Assert.assertEquals(2, shared.size());
+
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Assert.assertSame(ctx, pool.submit(() -> shared.get()).get());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testConfigKeyKeptUntilChanged() throws Exception {
+    try (Config config = new Config()) {
+      ContextRegistry.Key key = config.registryKey();
+      Assert.assertSame(key, config.registryKey());
+      Context ctx = shared.get(config);
+      Assert.assertSame(ctx, shared.get());
+
+      config.set("vfs.s3.connect_timeout_ms", "5000");
+      Assert.assertNotEquals(key, config.registryKey());
+      Assert.assertNotSame(ctx, shared.get(config));
+      config.unset("vfs.s3.connect_timeout_ms");
+      Assert.assertEquals(key, config.registryKey());
+      Assert.assertSame(ctx, shared.get(config));
+    }
+  }
+
+  @Test
+  public void testPerThread() throws Exception {
+    Context ctx = perThread.get();
+    Assert.assertSame(ctx, perThread.get());
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Context other = pool.submit(() -> perThread.get()).get();
+      Assert.assertNotSame(ctx, other);
+      Assert.assertSame(other, pool.submit(() -> perThread.get()).get());
+      Assert.assertEquals(2, perThread.size());
+
+      pool.submit(() -> perThread.releaseCurrentThread()).get();
+      Assert.assertEquals(1, perThread.size());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testCloseIsOwnedByRegistry() throws Exception {
+    try (Context ctx = shared.get()) {
+      Assert.assertNotNull(ctx.getConfig());
+    }
+    // Closing a registered context does not free it
+    Assert.assertNotNull(shared.get().getConfig());
+    shared.close();
+    try {
+      shared.get();
+      Assert.fail("Expected an error from a closed registry");
+    } catch (TileDBError expected) {
+    }
+  }
+
+  @Test
+  public void testErrorsPerThread() throws Exception {
+    int threads = 4;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      Future<?>[] futures = new Future<?>[threads * 10];
+      for (int i = 0; i < futures.length; i++) {
+        String uri = temp.getRoot().toPath().resolve("missing_" + i).toString();
+        futures[i] =
+            pool.submit(
+                () -> {
+                  Context ctx = perThread.get(Collections.emptyMap());
+                  try (Array array = new Array(ctx, uri)) {
+                    Assert.fail("Expected an error opening " + uri);
+                  } catch (TileDBError err) {
+                    // The message is the one of this call, not of a concurrent one
+                    Assert.assertTrue(err.getMessage(), err.getMessage().contains(uri));
+                  }
+                  return null;
+                });
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
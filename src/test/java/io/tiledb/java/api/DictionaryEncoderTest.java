@@ -0,0 +1,55 @@
+package io.tiledb.java.api;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DictionaryEncoderTest {
+
+  private static StringColumn column(String... values) {
+    long[] offsets = new long[values.length];
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      offsets[i] = data.toString().getBytes(StandardCharsets.UTF_8).length;
+      data.append(values[i]);
+    }
+    return new StringColumn(offsets, data.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDictionaryIsSharedAcrossBatches() throws Exception {
+    DictionaryEncoder encoder = new DictionaryEncoder();
+    int[] codes = encoder.encode(column("us", "fr", "us", "de"), null);
+    Assert.assertArrayEquals(new int[] {0, 1, 0, 2}, codes);
+
+    int[] reused = encoder.encode(column("de", "jp"), codes);
+    Assert.assertSame(codes, reused);
+    Assert.assertEquals(2, reused[0]);
+    Assert.assertEquals(3, reused[1]);
+
+    Assert.assertEquals(4, encoder.size());
+    Assert.assertArrayEquals(new String[] {"us", "fr", "de", "jp"}, encoder.getValues());
+    Assert.assertSame(encoder.getValue(1), encoder.getValue(1));
+    Assert.assertEquals(3, encoder.getCode("jp"));
+    Assert.assertEquals(DictionaryEncoder.NULL_CODE, encoder.getCode("it"));
+  }
+
+  @Test
+  public void testManyValues() throws Exception {
+    String[] values = new String[5000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = "value" + (i % 1000);
+    }
+    DictionaryEncoder encoder = new DictionaryEncoder();
+    int[] codes = encoder.encode(column(values), null);
+    Assert.assertEquals(1000, encoder.size());
+    for (int i = 0; i < values.length; i++) {
+      Assert.assertEquals(values[i], encoder.getValue(codes[i]));
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testMaxSize() throws Exception {
+    new DictionaryEncoder(2).encode(column("a", "b", "a", "c"), null);
+  }
+}
@@ -0,0 +1,192 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Constants.TILEDB_VAR_NUM;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GroupByTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final int CELLS = 100;
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("group_by_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, CELLS), 10);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    Attribute sensor = new Attribute(ctx, "sensor", String.class);
+    sensor.setCellValNum(TILEDB_VAR_NUM);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setCapacity(10);
+    schema.setDomain(domain);
+    schema.addAttribute(sensor);
+    schema.addAttribute(new Attribute(ctx, "bucket", Integer.class));
+    schema.addAttribute(new Attribute(ctx, "temp", Double.class));
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    int[] d1 = new int[CELLS];
+    long[] sensorOffsets = new long[CELLS];
+    StringBuilder sensor = new StringBuilder();
+    int[] bucket = new int[CELLS];
+    double[] temp = new double[CELLS];
+    for (int i = 0; i < CELLS; i++) {
+      d1[i] = i + 1;
+      sensorOffsets[i] = sensor.length();
+      sensor.append("sensor").append(i % 4);
+      bucket[i] = i / 25;
+      temp[i] = i;
+    }
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBuffer(
+          "sensor",
+          new NativeArray(ctx, sensorOffsets, Datatype.TILEDB_UINT64),
+          new NativeArray(ctx, sensor.toString(), String.class));
+      query.setBuffer("bucket", new NativeArray(ctx, bucket, Integer.class));
+      query.setBuffer("temp", new NativeArray(ctx, temp, Double.class));
+      query.submit();
+    }
+  }
+
+  @Test
+  public void testGroupByString() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      GroupBy.Result result =
+          new GroupBy(array, Arrays.asList("sensor"), Arrays.asList("temp"))
+              .setBatchCells(16)
+              .execute();
+
+      Assert.assertEquals(4, result.size());
+      int g = result.getGroup("sensor1");
+      Assert.assertEquals("sensor1", result.getKey("sensor", g));
+      Assert.assertEquals(25, result.getCellNum(g));
+      // 1 + 5 + ... + 97
+      Assert.assertEquals(1225.0, result.getSum("temp", g));
+      Assert.assertEquals(1.0, result.getMin("temp", g));
+      Assert.assertEquals(97.0, result.getMax("temp", g));
+      Assert.assertEquals(49.0, result.getMean("temp", g), 1e-9);
+      Assert.assertEquals(-1, result.getGroup("sensor9"));
+    }
+  }
+
+  @Test
+  public void testGroupByTwoKeysInParallel() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      GroupBy.Result sequential =
+          new GroupBy(array, Arrays.asList("sensor", "bucket"), Arrays.asList("temp")).execute();
+      GroupBy.Result parallel =
+          new GroupBy(array, Arrays.asList("sensor", "bucket"), Arrays.asList("temp"))
+              .setParallelism(3)
+              .setBatchCells(8)
+              .execute();
+
+      Assert.assertEquals(16, sequential.size());
+      Assert.assertEquals(16, parallel.size());
+      for (int g = 0; g < sequential.size(); g++) {
+        Object sensor = sequential.getKey("sensor", g);
+        Object bucket = sequential.getKey("bucket", g);
+        int pg = parallel.getGroup(sensor, bucket);
+        Assert.assertTrue(pg >= 0);
+        Assert.assertEquals(sequential.getCellNum(g), parallel.getCellNum(pg));
+        Assert.assertEquals(sequential.getSum("temp", g), parallel.getSum("temp", pg));
+        Assert.assertEquals(sequential.getMin("temp", g), parallel.getMin("temp", pg));
+        Assert.assertEquals(sequential.getMax("temp", g), parallel.getMax("temp", pg));
+      }
+    }
+  }
+
+  @Test
+  public void testGroupByWithPredicate() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      GroupBy.Result result =
+          new GroupBy(array, Arrays.asList("bucket"), Collections.<String>emptyList())
+              .setPredicate(Predicate.or(Predicate.lt("temp", 10.0), Predicate.ge("temp", 90.0)))
+              .execute();
+
+      Assert.assertEquals(2, result.size());
+      Assert.assertEquals(10, result.getCellNum(result.getGroup(0)));
+      Assert.assertEquals(10, result.getCellNum(result.getGroup(3)));
+      Assert.assertEquals(-1, result.getGroup(1));
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testTooManyKeys() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      new GroupBy(array, Arrays.asList("sensor", "bucket", "d1"), Collections.<String>emptyList())
+          .execute();
+    }
+  }
+
+  @Test
+  public void testUnsignedValues() throws Exception {
+    String uri = temp.getRoot().toPath().resolve("group_by_uint64").toString();
+    Domain domain = new Domain(ctx);
+    domain.addDimension(new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, 4), 2));
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setDomain(domain);
+    schema.addAttribute(new Attribute(ctx, "bucket", Integer.class));
+    schema.addAttribute(new Attribute(ctx, "u", Datatype.TILEDB_UINT64));
+    Array.create(uri, schema);
+    try (Array array = new Array(ctx, uri, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, new int[] {1, 2, 3, 4}, Integer.class));
+      query.setBuffer("bucket", new NativeArray(ctx, new int[] {0, 0, 0, 1}, Integer.class));
+      // 2^63 is above 5 as an unsigned value
+      query.setBuffer(
+          "u",
+          new NativeArray(
+              ctx, new long[] {5L, Long.MIN_VALUE, 1L, 7L}, Datatype.TILEDB_UINT64));
+      query.submit();
+    }
+
+    try (Array array = new Array(ctx, uri)) {
+      GroupBy.Result result =
+          new GroupBy(array, Arrays.asList("bucket"), Arrays.asList("u"))
+              .setParallelism(2)
+              .execute();
+      int g = result.getGroup(0);
+      Assert.assertEquals(1L, result.getMin("u", g));
+      Assert.assertEquals(Long.MIN_VALUE, result.getMax("u", g));
+      Assert.assertEquals(Long.MIN_VALUE + 6, result.getSum("u", g));
+      Assert.assertEquals((Math.pow(2, 63) + 6) / 3, result.getMean("u", g), 1e3);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package io.tiledb.java.api;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsTest {
+
+  @After
+  public void teardown() {
+    Metrics.setRecorder(MetricsRecorder.NOOP);
+  }
+
+  @Test
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+    for (long v = 1; v <= 10000; v++) {
+      histogram.record(v * 1000);
+    }
+    Assert.assertEquals(10000, histogram.getCount());
+    Assert.assertEquals(1000, histogram.getMin());
+    Assert.assertEquals(10_000_000, histogram.getMax());
+    Assert.assertEquals(5_000_500, histogram.getMean(), 0.001);
+    double[] percentiles = {50, 99, 99.9, 100};
+    long[] expected = {5_000_000, 9_900_000, 9_990_000, 10_000_000};
+    for (int i = 0; i < percentiles.length; i++) {
+      long value = histogram.getValueAtPercentile(percentiles[i]);
+      Assert.assertTrue(
+          percentiles[i] + "th: " + value, value >= expected[i] && value <= expected[i] * 1.04);
+    }
+
+    histogram.record(-5);
+    Assert.assertEquals(0, histogram.getMin());
+    histogram.reset();
+    Assert.assertEquals(0, histogram.getCount());
+    Assert.assertEquals(0, histogram.getMax());
+  }
+
+  @Test
+  public void testHistogramBuckets() {
+    long[] values = {0, 1, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE};
+    for (long v : values) {
+      int index = LatencyHistogram.index(v);
+      long highest = LatencyHistogram.highestEquivalentValue(index);
+      Assert.assertTrue(v + " <= " + highest, v <= highest);
+      Assert.assertTrue(highest + " is within 1/32 of " + v, highest - v <= v / 32);
+    }
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    Assert.assertFalse(Metrics.isEnabled());
+    Assert.assertEquals(Metrics.DISABLED, Metrics.start());
+  }
+
+  @Test
+  public void testRecorder() throws Exception {
+    HistogramRecorder recorder = new HistogramRecorder();
+    Metrics.setRecorder(recorder);
+    Assert.assertTrue(Metrics.isEnabled());
+    long started = Metrics.start();
+    Metrics.record(Metrics.Operation.VFS_READ, started, 100);
+    Metrics.record(Metrics.Operation.VFS_READ, started, 50);
+    Assert.assertEquals(2, recorder.getCount(Metrics.Operation.VFS_READ));
+    Assert.assertEquals(150, recorder.getBytes(Metrics.Operation.VFS_READ));
+    Assert.assertEquals(2, recorder.getLatency(Metrics.Operation.VFS_READ).getCount());
+    Assert.assertEquals(0, recorder.getCount(Metrics.Operation.VFS_WRITE));
+
+    recorder.registerMXBeans();
+    recorder.registerMXBeans();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(HistogramRecorder.MXBEAN_NAME_PREFIX + "vfs_read");
+    Assert.assertEquals(2L, server.getAttribute(name, "Count"));
+    Assert.assertEquals(150L, server.getAttribute(name, "Bytes"));
+    server.invoke(name, "reset", new Object[0], new String[0]);
+    Assert.assertEquals(0, recorder.getCount(Metrics.Operation.VFS_READ));
+  }
+
+  @Test
+  public void testFailingRecorderIgnored() {
+    Metrics.setRecorder(
+        (operation, nanos, bytes) -> {
+          throw new IllegalStateException("broken");
+        });
+    Metrics.record(Metrics.Operation.ARRAY_OPEN, Metrics.start(), 0);
+  }
+}
@@ -0,0 +1,110 @@
+package io.tiledb.java.api;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NativeHandlesTest {
+
+  @After
+  public void teardown() {
+    NativeHandles.setDebug(false);
+    NativeHandles.setLeakListener(NativeHandles.LeakListener.NOOP);
+  }
+
+  @Test
+  public void testCloseFreesOnce() {
+    AtomicInteger frees = new AtomicInteger();
+    long bytes = NativeHandles.getLiveBytes();
+    Object owner = new Object();
+    NativeHandles.Registration handle =
+        NativeHandles.register(owner, "TestClose", 64, frees::incrementAndGet);
+    Assert.assertEquals(1, NativeHandles.getLiveCount("TestClose"));
+    Assert.assertEquals(1L, (long) NativeHandles.getLiveCounts().get("TestClose"));
+    Assert.assertEquals(bytes + 64, NativeHandles.getLiveBytes());
+
+    handle.close();
+    handle.close();
+    Assert.assertEquals(1, frees.get());
+    Assert.assertEquals(0, NativeHandles.getLiveCount("TestClose"));
+    Assert.assertFalse(NativeHandles.getLiveCounts().containsKey("TestClose"));
+    Assert.assertEquals(bytes, NativeHandles.getLiveBytes());
+  }
+
+  @Test
+  public void testUnreachableIsReaped() throws Exception {
+    CountDownLatch freed = new CountDownLatch(1);
+    long reclaimed = NativeHandles.getReclaimedCount();
+    NativeHandles.register(new Object(), "TestReaped", 0, freed::countDown);
+    Assert.assertEquals(1, NativeHandles.getLiveCount("TestReaped"));
+
+    for (int i = 0; i < 100 && freed.getCount() > 0; i++) {
+      System.gc();
+      freed.await(100, TimeUnit.MILLISECONDS);
+    }
+    Assert.assertEquals(0, freed.getCount());
+    Assert.assertEquals(0, NativeHandles.getLiveCount("TestReaped"));
+    Assert.assertTrue(NativeHandles.getReclaimedCount() > reclaimed);
+  }
+
+  @Test
+  public void testDebugTracesUnclosed() {
+    Object owner = new Object();
+    NativeHandles.Registration untraced = NativeHandles.register(owner, "TestDebug", 8, () -> {});
+    NativeHandles.setDebug(true);
+    NativeHandles.Registration traced = NativeHandles.register(owner, "TestDebug", 16, () -> {});
+
+    NativeHandles.Unclosed unclosed = null;
+    for (NativeHandles.Unclosed handle : NativeHandles.getUnclosed()) {
+      if (handle.getType().equals("TestDebug")) {
+        Assert.assertNull("Only handles allocated in debug mode are traced", unclosed);
+        unclosed = handle;
+      }
+    }
+    Assert.assertNotNull(unclosed);
+    Assert.assertEquals(16, unclosed.getBytes());
+    boolean fromTest = false;
+    for (StackTraceElement frame : unclosed.getAllocationTrace().getStackTrace()) {
+      fromTest |= frame.getMethodName().equals("testDebugTracesUnclosed");
+    }
+    Assert.assertTrue(fromTest);
+
+    traced.close();
+    untraced.close();
+    for (NativeHandles.Unclosed handle : NativeHandles.getUnclosed()) {
+      Assert.assertNotEquals("TestDebug", handle.getType());
+    }
+  }
+
+  @Test
+  public void testLeakListener() throws Exception {
+    Assert.assertSame(NativeHandles.LeakListener.NOOP, NativeHandles.getLeakListener());
+    List<NativeHandles.Unclosed> leaks = new CopyOnWriteArrayList<>();
+    CountDownLatch reported = new CountDownLatch(1);
+    NativeHandles.setLeakListener(
+        handle -> {
+          if (handle.getType().equals("TestLeak")) {
+            leaks.add(handle);
+            reported.countDown();
+          }
+        });
+    NativeHandles.setDebug(true);
+    NativeHandles.register(new Object(), "TestLeak", 32, () -> {});
+
+    for (int i = 0; i < 100 && reported.getCount() > 0; i++) {
+      System.gc();
+      reported.await(100, TimeUnit.MILLISECONDS);
+    }
+    Assert.assertEquals(1, leaks.size());
+    Assert.assertEquals(32, leaks.get(0).getBytes());
+    Assert.assertNotNull(leaks.get(0).getAllocationTrace());
+
+    NativeHandles.setLeakListener(null);
+    Assert.assertSame(NativeHandles.LeakListener.NOOP, NativeHandles.getLeakListener());
+  }
+}
@@ -0,0 +1,177 @@
+package io.tiledb.java.api;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NativeMemoryTest {
+
+  @After
+  public void teardown() {
+    NativeMemory.setBudget(0, NativeMemory.Policy.FAIL_FAST, 0, TimeUnit.SECONDS);
+    NativeMemory.setCollectOnBlock(0, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testReserveAndRelease() throws Exception {
+    long live = NativeMemory.getLiveBytes();
+    long allocated = NativeMemory.getAllocatedBytes();
+    long arrays = NativeMemory.getLiveBytes(NativeMemory.Category.NATIVE_ARRAY);
+    NativeMemory.Reservation reservation =
+        NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, "mem://reserve", 128);
+    Assert.assertEquals(live + 128, NativeMemory.getLiveBytes());
+    Assert.assertEquals(allocated + 128, NativeMemory.getAllocatedBytes());
+    Assert.assertEquals(
+        arrays + 128, NativeMemory.getLiveBytes(NativeMemory.Category.NATIVE_ARRAY));
+    Assert.assertEquals(128, NativeMemory.getLiveBytes("mem://reserve"));
+    Assert.assertTrue(NativeMemory.getPeakBytes() >= live + 128);
+
+    reservation.release();
+    reservation.release();
+    Assert.assertEquals(live, NativeMemory.getLiveBytes());
+    Assert.assertEquals(0, NativeMemory.getLiveBytes("mem://reserve"));
+  }
+
+  @Test
+  public void testFailFast() throws Exception {
+    long live = NativeMemory.getLiveBytes();
+    NativeMemory.setBudget(live + 100, NativeMemory.Policy.FAIL_FAST, 0, TimeUnit.SECONDS);
+    NativeMemory.Reservation reservation =
+        NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 60);
+    long rejected = NativeMemory.getRejectedCount();
+    try {
+      NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 60);
+      Assert.fail("Expected the budget to be exceeded");
+    } catch (TileDBError expected) {
+    }
+    Assert.assertEquals(rejected + 1, NativeMemory.getRejectedCount());
+    reservation.release();
+    NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 60).release();
+  }
+
+  @Test
+  public void testConcurrentReservationsStayWithinBudget() throws Exception {
+    long live = NativeMemory.getLiveBytes();
+    long budget = live + 1000;
+    NativeMemory.setBudget(budget, NativeMemory.Policy.FAIL_FAST, 0, TimeUnit.SECONDS);
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      Future<?>[] futures = new Future<?>[threads];
+      for (int t = 0; t < threads; t++) {
+        futures[t] =
+            executor.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < 10000; i++) {
+                    try {
+                      NativeMemory.Reservation reservation =
+                          NativeMemory.reserve(
+                              NativeMemory.Category.NATIVE_ARRAY, "mem://concurrent", 300);
+                      Assert.assertTrue(NativeMemory.getLiveBytes() <= budget);
+                      reservation.release();
+                    } catch (TileDBError rejected) {
+                    }
+                  }
+                  return null;
+                });
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // Direct buffers collected meanwhile may have lowered the live bytes
+    Assert.assertTrue(NativeMemory.getLiveBytes() <= live);
+    Assert.assertEquals(0, NativeMemory.getLiveBytes("mem://concurrent"));
+  }
+
+  @Test
+  public void testBlockUntilReleased() throws Exception {
+    long live = NativeMemory.getLiveBytes();
+    NativeMemory.setBudget(live + 100, NativeMemory.Policy.BLOCK, 30, TimeUnit.SECONDS);
+    NativeMemory.Reservation held =
+        NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 60);
+    long blocked = NativeMemory.getBlockedCount();
+    CountDownLatch started = new CountDownLatch(1);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<NativeMemory.Reservation> waiting =
+          pool.submit(
+              () -> {
+                started.countDown();
+                return NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 60);
+              });
+      started.await();
+      for (int i = 0; i < 100 && NativeMemory.getBlockedCount() == blocked; i++) {
+        Thread.sleep(10);
+      }
+      Assert.assertFalse(waiting.isDone());
+      held.release();
+      waiting.get(30, TimeUnit.SECONDS).release();
+    } finally {
+      pool.shutdown();
+    }
+    Assert.assertEquals(blocked + 1, NativeMemory.getBlockedCount());
+  }
+
+  @Test
+  public void testBlockTimesOut() throws Exception {
+    long live = NativeMemory.getLiveBytes();
+    NativeMemory.setBudget(live + 100, NativeMemory.Policy.BLOCK, 50, TimeUnit.MILLISECONDS);
+    NativeMemory.Reservation held =
+        NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 60);
+    try {
+      NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 60);
+      Assert.fail("Expected the wait for memory to time out");
+    } catch (TileDBError expected) {
+    } finally {
+      held.release();
+    }
+  }
+
+  @Test
+  public void testDirectBufferReleasedWhenCollected() throws Exception {
+    long buffers = NativeMemory.getLiveBytes(NativeMemory.Category.DIRECT_BUFFER);
+    Assert.assertEquals(1024, NativeMemory.allocateDirect("mem://direct", 1024).capacity());
+    for (int i = 0; i < 100 && NativeMemory.getLiveBytes("mem://direct") > 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(0, NativeMemory.getLiveBytes("mem://direct"));
+    Assert.assertEquals(buffers, NativeMemory.getLiveBytes(NativeMemory.Category.DIRECT_BUFFER));
+  }
+
+  @Test
+  public void testCollectOnBlock() throws Exception {
+    long live = NativeMemory.getLiveBytes();
+    NativeMemory.setBudget(live + 1024, NativeMemory.Policy.BLOCK, 30, TimeUnit.SECONDS);
+    NativeMemory.setCollectOnBlock(1, TimeUnit.HOURS);
+    Assert.assertEquals(1024, NativeMemory.allocateDirect("mem://collect", 1024).capacity());
+    // The first buffer is unreachable, the collection requested while blocked releases it
+    Assert.assertEquals(1024, NativeMemory.allocateDirect("mem://collect", 1024).capacity());
+  }
+
+  @Test
+  public void testAttributeLater() throws Exception {
+    NativeMemory.Reservation reservation =
+        NativeMemory.reserve(NativeMemory.Category.NATIVE_ARRAY, null, 100);
+    reservation.attribute("mem://late");
+    // Only the first array counts
+    reservation.attribute("mem://other");
+    Assert.assertEquals(100, NativeMemory.getLiveBytes("mem://late"));
+    Assert.assertEquals(0, NativeMemory.getLiveBytes("mem://other"));
+    reservation.release();
+    Assert.assertEquals(0, NativeMemory.getLiveBytes("mem://late"));
+    reservation.attribute("mem://other");
+    Assert.assertEquals(0, NativeMemory.getLiveBytes("mem://other"));
+  }
+}
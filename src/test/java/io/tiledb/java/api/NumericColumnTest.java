@@ -0,0 +1,116 @@
+package io.tiledb.java.api;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NumericColumnTest {
+
+  private static ByteBuffer allocate(int bytes) {
+    return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+  }
+
+  @Test
+  public void testIntColumn() {
+    ByteBuffer data = allocate(40);
+    for (int i = 0; i < 10; i++) {
+      data.putInt(i - 5);
+    }
+    // Results end at the limit, as set by Query.submit()
+    data.limit(32);
+    IntColumn column = new IntColumn(data, null);
+    Assert.assertEquals(8, column.size());
+    Assert.assertEquals(-5, column.get(0));
+    Assert.assertEquals(2, column.get(7));
+    Assert.assertFalse(column.isNull(0));
+    Assert.assertNull(column.getValidity());
+    Assert.assertArrayEquals(new int[] {-5, -4, -3, -2, -1, 0, 1, 2}, column.toArray());
+
+    int[] dst = new int[4];
+    column.copyTo(2, dst, 1, 3);
+    Assert.assertArrayEquals(new int[] {0, -3, -2, -1}, dst);
+  }
+
+  @Test
+  public void testLongAndDoubleColumns() {
+    ByteBuffer longs = allocate(24);
+    ByteBuffer doubles = allocate(24);
+    ByteBuffer validity = ByteBuffer.allocateDirect(3);
+    for (int i = 0; i < 3; i++) {
+      longs.putLong(Long.MAX_VALUE - i);
+      doubles.putDouble(i * 0.5);
+      validity.put((byte) (i == 1 ? 0 : 1));
+    }
+    longs.flip();
+    doubles.flip();
+    validity.flip();
+
+    LongColumn longColumn = new LongColumn(longs, validity);
+    Assert.assertArrayEquals(
+        new long[] {Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE - 2}, longColumn.toArray());
+    Assert.assertTrue(longColumn.isNull(1));
+    Assert.assertFalse(longColumn.isNull(2));
+    Assert.assertEquals(1, longColumn.getValidity().nullCount());
+
+    DoubleColumn doubleColumn = new DoubleColumn(doubles, null);
+    Assert.assertEquals(3, doubleColumn.size());
+    Assert.assertEquals(1.0, doubleColumn.get(2), 0);
+    Assert.assertArrayEquals(new double[] {0, 0.5, 1.0}, doubleColumn.toArray(), 0);
+  }
+
+  @Test
+  public void testUnsignedColumns() {
+    ByteBuffer ints = allocate(8);
+    ints.putInt(7).putInt(0xFFFFFFFE).flip();
+    UInt32Column uint32 = new UInt32Column(ints, null);
+    Assert.assertEquals(-2, uint32.get(1));
+    Assert.assertEquals(7L, uint32.getUnsigned(0));
+    Assert.assertEquals(4294967294L, uint32.getUnsigned(1));
+
+    ByteBuffer longs = allocate(16);
+    longs.putLong(42).putLong(-1L).flip();
+    UInt64Column uint64 = new UInt64Column(longs, null);
+    Assert.assertEquals(-1L, uint64.get(1));
+    Assert.assertEquals(BigInteger.valueOf(42), uint64.getUnsigned(0));
+    Assert.assertEquals(new BigInteger("18446744073709551615"), uint64.getUnsigned(1));
+    Assert.assertEquals(42.0, uint64.getDouble(0), 0);
+    Assert.assertEquals(0x1p64, uint64.getDouble(1), 0);
+  }
+
+  @Test
+  public void testNarrowUnsignedColumns() {
+    ByteBuffer bytes = allocate(4);
+    bytes.put((byte) 0).put((byte) 127).put((byte) 128).put((byte) 255).flip();
+    UInt8Column uint8 = new UInt8Column(bytes, null);
+    Assert.assertEquals(4, uint8.size());
+    Assert.assertEquals((byte) -1, uint8.get(3));
+    Assert.assertEquals(255, uint8.getUnsigned(3));
+    int[] widened = new int[5];
+    uint8.widenTo(1, widened, 2, 3);
+    Assert.assertArrayEquals(new int[] {0, 0, 127, 128, 255}, widened);
+
+    ByteBuffer shorts = allocate(6);
+    shorts.putShort((short) 1).putShort((short) 0x8000).putShort((short) 0xFFFF).flip();
+    UInt16Column uint16 = new UInt16Column(shorts, null);
+    Assert.assertEquals(3, uint16.size());
+    Assert.assertEquals(Short.MIN_VALUE, uint16.get(1));
+    Assert.assertEquals(65535, uint16.getUnsigned(2));
+    widened = new int[3];
+    uint16.widenTo(0, widened, 0, 3);
+    Assert.assertArrayEquals(new int[] {1, 32768, 65535}, widened);
+
+    ByteBuffer ints = allocate(8);
+    ints.putInt(-1).putInt(3).flip();
+    long[] wide = new long[2];
+    new UInt32Column(ints, null).widenTo(0, wide, 0, 2);
+    Assert.assertArrayEquals(new long[] {4294967295L, 3}, wide);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testWidenOutOfRange() {
+    ByteBuffer bytes = allocate(4);
+    new UInt8Column(bytes, null).widenTo(2, new int[8], 0, 3);
+  }
+}
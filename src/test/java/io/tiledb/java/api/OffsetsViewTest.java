@@ -0,0 +1,92 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffsetsViewTest {
+
+  // Three cells of 2, 0 and 3 int32 elements, 20 bytes of data
+  private static final long[] BYTE_OFFSETS = {0, 8, 8};
+  private static final long[] ELEMENT_OFFSETS = {0, 2, 2};
+  private static final int DATA_BYTES = 20;
+
+  private static ByteBuffer offsets(OffsetsFormat format, long[] values, long end) {
+    int n = values.length + (format.hasExtraElement() ? 1 : 0);
+    ByteBuffer buffer =
+        ByteBuffer.allocateDirect(n * format.getBytesPerOffset()).order(ByteOrder.nativeOrder());
+    for (int i = 0; i < n; i++) {
+      long value = i < values.length ? values[i] : end;
+      if (format.getBitsize() == 64) {
+        buffer.putLong(value);
+      } else {
+        buffer.putInt((int) value);
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static void assertCells(OffsetsView view) {
+    Assert.assertEquals(3, view.size());
+    Assert.assertArrayEquals(BYTE_OFFSETS, view.toByteOffsets());
+    Assert.assertEquals(0, view.startByte(0));
+    Assert.assertEquals(8, view.endByte(0));
+    Assert.assertEquals(8, view.endByte(1));
+    Assert.assertEquals(DATA_BYTES, view.endByte(2));
+  }
+
+  @Test
+  public void testAllFormats() throws Exception {
+    ByteBuffer data = ByteBuffer.allocateDirect(DATA_BYTES);
+    for (int bitsize : new int[] {32, 64}) {
+      for (boolean elements : new boolean[] {false, true}) {
+        for (boolean extra : new boolean[] {false, true}) {
+          OffsetsFormat format = new OffsetsFormat(bitsize, elements, extra);
+          long[] stored = elements ? ELEMENT_OFFSETS : BYTE_OFFSETS;
+          long end = elements ? DATA_BYTES / 4 : DATA_BYTES;
+          OffsetsView view =
+              OffsetsView.of(offsets(format, stored, end), data, format, Datatype.TILEDB_INT32);
+          Assert.assertSame(format, view.getFormat());
+          assertCells(view);
+          Assert.assertEquals(extra ? 4 : 3, view.toArray().length);
+          Assert.assertEquals(stored[1], view.get(1));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testArray() {
+    OffsetsView view = OffsetsView.of(BYTE_OFFSETS, DATA_BYTES);
+    Assert.assertEquals(OffsetsFormat.DEFAULT, view.getFormat());
+    assertCells(view);
+    Assert.assertArrayEquals(BYTE_OFFSETS, view.toArray());
+  }
+
+  @Test
+  public void testUnsigned32() throws Exception {
+    OffsetsFormat format = new OffsetsFormat(32, false, false);
+    ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
+    buffer.putInt(0, 0xF0000000);
+    OffsetsView view = OffsetsView.of(buffer, format, 1, 0xF0000010L, 1);
+    Assert.assertEquals(0xF0000000L, view.startByte(0));
+    Assert.assertEquals(0xF0000010L, view.endByte(0));
+  }
+
+  @Test
+  public void testCellNum() {
+    OffsetsFormat format = new OffsetsFormat(32, false, true);
+    Assert.assertEquals(16, format.offsetsBytes(3));
+    Assert.assertEquals(3, format.cellNum(16));
+    Assert.assertEquals(0, format.cellNum(0));
+    Assert.assertEquals(24, OffsetsFormat.DEFAULT.offsetsBytes(3));
+    Assert.assertEquals(3, OffsetsFormat.DEFAULT.cellNum(24));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBitsize() {
+    new OffsetsFormat(16, false, false);
+  }
+}
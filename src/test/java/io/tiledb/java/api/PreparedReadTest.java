@@ -0,0 +1,177 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Constants.TILEDB_VAR_NUM;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PreparedReadTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final int CELLS = 100;
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("prepared_read_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, CELLS), 10);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    Attribute a1 = new Attribute(ctx, "a1", Integer.class);
+    a1.setNullable(true);
+    Attribute a2 = new Attribute(ctx, "a2", String.class);
+    a2.setCellValNum(TILEDB_VAR_NUM);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setCapacity(10);
+    schema.setDomain(domain);
+    schema.addAttribute(a1);
+    schema.addAttribute(a2);
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    int[] d1 = new int[CELLS];
+    int[] a1 = new int[CELLS];
+    short[] a1Validity = new short[CELLS];
+    long[] a2Offsets = new long[CELLS];
+    StringBuilder a2 = new StringBuilder();
+    for (int i = 0; i < CELLS; i++) {
+      d1[i] = i + 1;
+      a1[i] = i + 1;
+      // Every tenth cell is null
+      a1Validity[i] = (short) (i % 10 == 0 ? 0 : 1);
+      a2Offsets[i] = a2.length();
+      a2.append("v").append(i + 1);
+    }
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBufferNullable(
+          "a1",
+          new NativeArray(ctx, a1, Integer.class),
+          new NativeArray(ctx, a1Validity, Datatype.TILEDB_UINT8));
+      query.setBuffer(
+          "a2",
+          new NativeArray(ctx, a2Offsets, Datatype.TILEDB_UINT64),
+          new NativeArray(ctx, a2.toString(), String.class));
+      query.submit();
+    }
+  }
+
+  @Test
+  public void testExecuteMany() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        PreparedRead read =
+            new PreparedRead(array, Arrays.asList("d1", "a1", "a2"), TILEDB_ROW_MAJOR, null, 32)) {
+      int d1 = read.slot("d1");
+      int a1 = read.slot("a1");
+      int a2 = read.slot("a2");
+      for (int start = 1; start <= CELLS; start += 20) {
+        read.setRange(0, start, start + 4);
+        Assert.assertEquals(QueryStatus.TILEDB_COMPLETED, read.execute());
+        Assert.assertEquals(5, read.size());
+        IntColumn coords = new IntColumn(read.getData(d1), null);
+        IntColumn values = new IntColumn(read.getData(a1), read.getValidity(a1));
+        StringColumn strings = new StringColumn(read.getOffsetsView(a2), read.getData(a2), null);
+        for (int i = 0; i < 5; i++) {
+          int cell = start + i;
+          Assert.assertEquals(cell, coords.get(i));
+          Assert.assertEquals((cell - 1) % 10 == 0, values.isNull(i));
+          Assert.assertEquals("v" + cell, strings.getString(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRebindCondition() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryConditionTemplate template = new QueryConditionTemplate(array, "a1 > ?");
+      try (PreparedRead read =
+          new PreparedRead(array, Arrays.asList("d1", "a1"), TILEDB_ROW_MAJOR, template, 128)) {
+        read.setRange(0, 1, CELLS);
+        for (int threshold : new int[] {90, 50, 95}) {
+          read.getBindings().setInt(0, threshold);
+          read.execute();
+          // Null cells do not match
+          int expected = 0;
+          for (int cell = threshold + 1; cell <= CELLS; cell++) {
+            if ((cell - 1) % 10 != 0) {
+              expected++;
+            }
+          }
+          Assert.assertEquals(expected, read.size());
+          // Without new values, the condition already set on the query is kept
+          read.execute();
+          Assert.assertEquals(expected, read.size());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPerThread() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        PreparedRead.PerThread reads =
+            new PreparedRead.PerThread(
+                () ->
+                    new PreparedRead(
+                        array, Arrays.asList("d1"), TILEDB_ROW_MAJOR, null, CELLS))) {
+      PreparedRead read = reads.get();
+      Assert.assertSame(read, reads.get());
+      PreparedRead[] other = new PreparedRead[1];
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  other[0] = reads.get();
+                  other[0].setRange(0, 1, 10).execute();
+                } catch (TileDBError err) {
+                  throw new RuntimeException(err);
+                }
+              });
+      thread.start();
+      thread.join();
+      Assert.assertNotSame(read, other[0]);
+      Assert.assertEquals(10, other[0].size());
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testNoCondition() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        PreparedRead read =
+            new PreparedRead(array, Arrays.asList("d1"), TILEDB_ROW_MAJOR, null, CELLS)) {
+      read.getBindings();
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_DENSE;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.QueryType.TILEDB_READ;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.time.Duration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QueryCancellationTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("cancellation_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, 4), 2);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_DENSE);
+    schema.setDomain(domain);
+    schema.addAttribute(new Attribute(ctx, "a1", Integer.class));
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_ROW_MAJOR);
+      query.setBuffer("a1", new NativeArray(ctx, new int[] {1, 2, 3, 4}, Integer.class));
+      query.submit();
+    }
+  }
+
+  private Query readQuery(Array array) throws TileDBError {
+    Query query = new Query(array, TILEDB_READ);
+    query.setLayout(TILEDB_ROW_MAJOR);
+    query.setSubarray(new NativeArray(ctx, new int[] {1, 4}, Integer.class));
+    query.setBuffer("a1", new NativeArray(ctx, 4, Integer.class));
+    return query;
+  }
+
+  @Test
+  public void testSubmitWithinDeadline() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        Query query = readQuery(array)) {
+      Assert.assertEquals(QueryStatus.TILEDB_COMPLETED, query.submit(Duration.ofMinutes(1)));
+      Assert.assertArrayEquals(new int[] {1, 2, 3, 4}, (int[]) query.getBuffer("a1"));
+    }
+  }
+
+  @Test
+  public void testCancelledTokenRejectsSubmit() throws Exception {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+    Assert.assertTrue(token.isCancelled());
+    try (Array array = new Array(ctx, arrayURI);
+        Query query = readQuery(array)) {
+      try {
+        query.submit(token);
+        Assert.fail("Expected the cancelled token to reject the submission");
+      } catch (TileDBError err) {
+        Assert.assertTrue(err.getMessage().contains("cancelled"));
+      }
+    }
+  }
+
+  @Test
+  public void testDeadlineCancelsToken() throws Exception {
+    try (CancellationToken token = CancellationToken.withTimeout(Duration.ofMillis(10))) {
+      long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+      while (!token.isCancelled() && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+      Assert.assertTrue(token.isCancelled());
+    }
+  }
+}
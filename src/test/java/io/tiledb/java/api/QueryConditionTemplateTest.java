@@ -0,0 +1,180 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_DENSE;
+import static io.tiledb.java.api.Datatype.TILEDB_UINT8;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.QueryType.TILEDB_READ;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QueryConditionTemplateTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("condition_template_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Long> d1 = new Dimension<>(ctx, "d1", Long.class, new Pair<>(1l, 3l), 2l);
+    Dimension<Long> d2 = new Dimension<>(ctx, "d2", Long.class, new Pair<>(1l, 3l), 2l);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+    domain.addDimension(d2);
+
+    Attribute a1 = new Attribute(ctx, "a1", Integer.class);
+    a1.setNullable(true);
+    Attribute a2 = new Attribute(ctx, "a2", Float.class);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_DENSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setDomain(domain);
+    schema.addAttribute(a1);
+    schema.addAttribute(a2);
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    NativeArray a1 =
+        new NativeArray(ctx, new int[] {8, 9, 10, 11, 12, 13, 14, 15, 16}, Integer.class);
+    NativeArray a1Bytemap =
+        new NativeArray(ctx, new short[] {0, 1, 1, 1, 1, 0, 1, 1, 0}, TILEDB_UINT8);
+    NativeArray a2 =
+        new NativeArray(
+            ctx,
+            new float[] {13.2f, 14.1f, 14.2f, 15.1f, 15.2f, 15.3f, 16.1f, 18.3f, 19.1f},
+            Float.class);
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_ROW_MAJOR).setBufferNullable("a1", a1, a1Bytemap).setBuffer("a2", a2);
+      query.submit();
+      query.finalizeQuery();
+    }
+  }
+
+  private int[] read(Array array, QueryConditionTemplate.Bindings bindings) throws TileDBError {
+    try (Query query = new Query(array, TILEDB_READ)) {
+      query.setLayout(TILEDB_ROW_MAJOR);
+      query.setSubarray(new NativeArray(ctx, new long[] {1l, 3l, 1l, 3l}, Long.class));
+      query.setBufferNullable(
+          "a1", new NativeArray(ctx, 9, Integer.class), new NativeArray(ctx, 9, TILEDB_UINT8));
+      query.setBuffer("a2", new NativeArray(ctx, 9, Float.class));
+      bindings.applyTo(query);
+      query.submit();
+      return (int[]) query.getBuffer("a1");
+    }
+  }
+
+  @Test
+  public void testRebind() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryConditionTemplate template =
+          new QueryConditionTemplate(array, "a2 > ? AND a1 IS NULL");
+      Assert.assertEquals(1, template.getParameterNum());
+      Assert.assertEquals("a2", template.getParameterName(0));
+      Assert.assertEquals(Datatype.TILEDB_FLOAT32, template.getParameterType(0));
+
+      try (QueryConditionTemplate.Bindings bindings = template.newBindings()) {
+        bindings.setFloat(0, 15.0f);
+        Assert.assertArrayEquals(new int[] {13, 16}, read(array, bindings));
+        // The condition built for the first read is reused
+        long version = bindings.getVersion();
+        Assert.assertArrayEquals(new int[] {13, 16}, read(array, bindings));
+        Assert.assertEquals(version, bindings.getVersion());
+
+        bindings.setFloat(0, 16.0f);
+        Assert.assertArrayEquals(new int[] {16}, read(array, bindings));
+      }
+    }
+  }
+
+  @Test
+  public void testParentheses() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryConditionTemplate template =
+          new QueryConditionTemplate(array, "(a2 > ?) AND (`a1` IS NOT NULL AND a1 != ?)");
+      try (QueryConditionTemplate.Bindings bindings = template.newBindings()) {
+        bindings.setFloat(0, 15.0f).setInt(1, 14);
+        Assert.assertArrayEquals(new int[] {11, 12, 15}, read(array, bindings));
+      }
+    }
+  }
+
+  @Test
+  public void testTypeMismatch() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryConditionTemplate template = new QueryConditionTemplate(array, "a1 = ?");
+      try (QueryConditionTemplate.Bindings bindings = template.newBindings()) {
+        bindings.setFloat(0, 1.0f);
+        Assert.fail("Expected a type mismatch");
+      } catch (TileDBError err) {
+        Assert.assertTrue(err.getMessage().contains("INT32"));
+      }
+    }
+  }
+
+  @Test
+  public void testUnboundParameter() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryConditionTemplate template = new QueryConditionTemplate(array, "a1 = ? AND a2 < ?");
+      try (QueryConditionTemplate.Bindings bindings = template.newBindings()) {
+        bindings.setInt(0, 1);
+        bindings.toCondition();
+        Assert.fail("Expected an unbound parameter error");
+      } catch (TileDBError err) {
+        Assert.assertTrue(err.getMessage().contains("not bound"));
+      }
+    }
+  }
+
+  @Test
+  public void testOrAndNotRejected() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      String[] expressions = {
+        "a1 = ? OR a2 < ?", "a1 = ? || a2 < ?", "NOT (a2 <= ?)", "a1 = ? AND !(a2 <= ?)"
+      };
+      for (String expression : expressions) {
+        try {
+          new QueryConditionTemplate(array, expression);
+          Assert.fail("Expected " + expression + " to be rejected");
+        } catch (TileDBError err) {
+          Assert.assertTrue(err.getMessage(), err.getMessage().contains("is not supported"));
+        }
+      }
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testUnknownAttribute() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      new QueryConditionTemplate(array, "a3 = ?");
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testMalformedExpression() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      new QueryConditionTemplate(array, "a1 = ? AND");
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_READ;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class QueryPlanTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("query_plan_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, 10), 5);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setDomain(domain);
+    schema.addAttribute(new Attribute(ctx, "a1", Integer.class));
+    schema.addAttribute(new Attribute(ctx, "a2", Float.class));
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    int[] d1 = new int[10];
+    int[] a1 = new int[10];
+    float[] a2 = new float[10];
+    for (int i = 0; i < 10; i++) {
+      d1[i] = i + 1;
+      a1[i] = (i + 1) * 10;
+      a2[i] = i + 0.5f;
+    }
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBuffer("a1", new NativeArray(ctx, a1, Integer.class));
+      query.setBuffer("a2", new NativeArray(ctx, a2, Float.class));
+      query.submit();
+    }
+  }
+
+  @Test
+  public void testDimensionDisjunctionsBecomeMergedRanges() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryPlan plan =
+          QueryPlan.plan(
+              array,
+              Predicate.and(
+                  Predicate.or(Predicate.between("d1", 1, 3), Predicate.in("d1", 3, 4, 8)),
+                  Predicate.ge("d1", 2)));
+      List<Pair<Object, Object>> ranges = plan.getRanges("d1");
+      Assert.assertEquals(2, ranges.size());
+      Assert.assertEquals(2, ranges.get(0).getFirst());
+      Assert.assertEquals(4, ranges.get(0).getSecond());
+      Assert.assertEquals(8, ranges.get(1).getFirst());
+      Assert.assertEquals(8, ranges.get(1).getSecond());
+      Assert.assertNull(plan.getPushedCondition());
+      Assert.assertNull(plan.getResidual());
+    }
+  }
+
+  @Test
+  public void testNegatedDimensionComparison() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryPlan plan = QueryPlan.plan(array, Predicate.not(Predicate.eq("d1", 5)));
+      List<Pair<Object, Object>> ranges = plan.getRanges("d1");
+      Assert.assertEquals(2, ranges.size());
+      Assert.assertEquals(1, ranges.get(0).getFirst());
+      Assert.assertEquals(4, ranges.get(0).getSecond());
+      Assert.assertEquals(6, ranges.get(1).getFirst());
+      Assert.assertEquals(10, ranges.get(1).getSecond());
+    }
+  }
+
+  @Test
+  public void testContradictionIsEmpty() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryPlan plan =
+          QueryPlan.plan(array, Predicate.and(Predicate.lt("d1", 3), Predicate.gt("d1", 5)));
+      Assert.assertTrue(plan.isEmpty());
+    }
+  }
+
+  @Test
+  public void testAttributeConjunctsAndResidual() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      Predicate mixed = Predicate.or(Predicate.eq("d1", 1), Predicate.gt("a2", 8.0f));
+      QueryPlan plan =
+          QueryPlan.plan(array, Predicate.and(Predicate.between("a1", 20, 90), mixed));
+      Assert.assertNull(plan.getRanges("d1"));
+      Assert.assertEquals("(a1 >= 20 AND a1 <= 90)", plan.getPushedCondition().toString());
+      Assert.assertSame(mixed, plan.getResidual());
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testUnknownField() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      QueryPlan.plan(array, Predicate.eq("d2", 1));
+    }
+  }
+
+  @Test
+  public void testApply() throws Exception {
+    try (Array array = new Array(ctx, arrayURI);
+        Query query = new Query(array, TILEDB_READ)) {
+      QueryPlan plan =
+          QueryPlan.plan(
+              array,
+              Predicate.and(
+                  Predicate.in("d1", 2, 3, 7, 8, 9),
+                  Predicate.not(Predicate.eq("a1", 80))));
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, 10, Integer.class));
+      query.setBuffer("a1", new NativeArray(ctx, 10, Integer.class));
+      plan.apply(query);
+      query.submit();
+
+      int[] d1 = (int[]) query.getBuffer("d1");
+      int[] a1 = (int[]) query.getBuffer("a1");
+      Arrays.sort(d1);
+      Arrays.sort(a1);
+      Assert.assertArrayEquals(new int[] {2, 3, 7, 9}, d1);
+      Assert.assertArrayEquals(new int[] {20, 30, 70, 90}, a1);
+    }
+  }
+
+  @Test
+  public void testUnsignedDimensionRanges() throws Exception {
+    String uri = temp.getRoot().toPath().resolve("query_plan_uint64").toString();
+    Dimension<Long> d1 =
+        new Dimension<>(ctx, "d1", Datatype.TILEDB_UINT64, new Pair<>(0L, -2L), 1024L);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setDomain(domain);
+    schema.addAttribute(new Attribute(ctx, "a1", Integer.class));
+    Array.create(uri, schema);
+
+    try (Array array = new Array(ctx, uri)) {
+      // 2^63 and above are negative as longs but still above 5
+      long high = Long.MIN_VALUE + 7;
+      QueryPlan plan =
+          QueryPlan.plan(
+              array, Predicate.and(Predicate.gt("d1", 5L), Predicate.le("d1", high)));
+      Assert.assertFalse(plan.isEmpty());
+      List<Pair<Object, Object>> ranges = plan.getRanges("d1");
+      Assert.assertEquals(1, ranges.size());
+      Assert.assertEquals(6L, ranges.get(0).getFirst());
+      Assert.assertEquals(high, ranges.get(0).getSecond());
+
+      plan = QueryPlan.plan(array, Predicate.not(Predicate.eq("d1", 0L)));
+      ranges = plan.getRanges("d1");
+      Assert.assertEquals(1, ranges.size());
+      Assert.assertEquals(1L, ranges.get(0).getFirst());
+      Assert.assertEquals(-2L, ranges.get(0).getSecond());
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.QueryScheduler.Priority.HIGH;
+import static io.tiledb.java.api.QueryScheduler.Priority.LOW;
+import static io.tiledb.java.api.QueryScheduler.Priority.NORMAL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QuerySchedulerTest {
+
+  private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+  private final List<Thread> threads = new ArrayList<>();
+
+  /** Starts a thread acquiring a permit, and waits until it is queued. */
+  private void queue(
+      QueryScheduler scheduler, String name, String tenant, QueryScheduler.Priority p, long bytes)
+      throws Exception {
+    int depth = scheduler.getQueueDepth();
+    Thread t =
+        new Thread(
+            () -> {
+              try (QueryScheduler.Permit permit = scheduler.acquire(tenant, p, bytes)) {
+                order.add(name);
+              } catch (TileDBError err) {
+                order.add(err.getMessage());
+              }
+            });
+    t.start();
+    threads.add(t);
+    while (scheduler.getQueueDepth() == depth) {
+      Thread.sleep(1);
+    }
+  }
+
+  private void join() throws Exception {
+    for (Thread t : threads) {
+      t.join(10000);
+    }
+  }
+
+  @Test
+  public void testConcurrencyLimit() throws Exception {
+    QueryScheduler scheduler = new QueryScheduler(2, Long.MAX_VALUE);
+    QueryScheduler.Permit first = scheduler.acquire("a", NORMAL, 1);
+    QueryScheduler.Permit second = scheduler.acquire("a", NORMAL, 1);
+    Assert.assertEquals(2, scheduler.getRunningCount());
+
+    queue(scheduler, "third", "a", NORMAL, 1);
+    Assert.assertEquals(1, scheduler.getQueueDepth());
+    Assert.assertEquals(1, scheduler.getQueueDepth("a"));
+    first.close();
+    first.close();
+    join();
+    second.close();
+    Assert.assertEquals(Arrays.asList("third"), order);
+    Assert.assertEquals(0, scheduler.getRunningCount());
+    Assert.assertEquals(0, scheduler.getQueueDepth());
+    Assert.assertEquals(3, scheduler.getAdmittedCount());
+    Assert.assertEquals(3, scheduler.getAdmittedCount("a"));
+    Assert.assertTrue(scheduler.getMaxWait(TimeUnit.NANOSECONDS) > 0);
+    Assert.assertTrue(
+        scheduler.getTotalWait("a", TimeUnit.NANOSECONDS)
+            >= scheduler.getMaxWait(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testMemoryLimit() throws Exception {
+    QueryScheduler scheduler = new QueryScheduler(10, 100);
+    QueryScheduler.Permit held = scheduler.acquire("a", NORMAL, 60);
+    Assert.assertEquals(60, scheduler.getRunningBytes());
+    queue(scheduler, "large", "a", NORMAL, 60);
+    Assert.assertEquals(1, scheduler.getRunningCount());
+    held.close();
+    join();
+    // A query larger than the limit still runs once alone
+    try (QueryScheduler.Permit huge = scheduler.acquire("a", NORMAL, 1000)) {
+      Assert.assertEquals(1000, scheduler.getRunningBytes());
+    }
+    Assert.assertEquals(Arrays.asList("large"), order);
+    Assert.assertEquals(0, scheduler.getRunningBytes());
+  }
+
+  @Test
+  public void testSmallQueriesNotStarved() throws Exception {
+    QueryScheduler scheduler = new QueryScheduler(1, Long.MAX_VALUE);
+    QueryScheduler.Permit held = scheduler.acquire("bulk", NORMAL, 1);
+    queue(scheduler, "bulk1", "bulk", NORMAL, 1000);
+    queue(scheduler, "bulk2", "bulk", NORMAL, 1000);
+    queue(scheduler, "bulk3", "bulk", NORMAL, 1000);
+    queue(scheduler, "small", "interactive", NORMAL, 10);
+    held.close();
+    join();
+    Assert.assertEquals(Arrays.asList("small", "bulk1", "bulk2", "bulk3"), order);
+  }
+
+  @Test
+  public void testWeightsAndPriorities() throws Exception {
+    QueryScheduler scheduler = new QueryScheduler(1, Long.MAX_VALUE).setWeight("heavy", 3);
+    QueryScheduler.Permit held = scheduler.acquire("a", NORMAL, 1);
+    queue(scheduler, "light", "light", NORMAL, 300);
+    queue(scheduler, "heavy", "heavy", NORMAL, 300);
+    queue(scheduler, "low", "a", LOW, 100);
+    queue(scheduler, "high", "a", HIGH, 100);
+    held.close();
+    join();
+    Assert.assertEquals(Arrays.asList("high", "heavy", "low", "light"), order);
+  }
+
+  @Test
+  public void testInvalidLimits() throws Exception {
+    try {
+      new QueryScheduler(0, 1);
+      Assert.fail("Expected an error for no concurrency");
+    } catch (TileDBError expected) {
+    }
+    try {
+      new QueryScheduler(1, 1).setWeight("a", 0);
+      Assert.fail("Expected an error for a zero weight");
+    } catch (TileDBError expected) {
+    }
+  }
+}
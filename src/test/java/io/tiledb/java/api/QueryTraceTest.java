@@ -0,0 +1,127 @@
+package io.tiledb.java.api;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryTraceTest {
+
+  @After
+  public void teardown() {
+    QueryTracer.disable();
+  }
+
+  @Test
+  public void testDisabledByDefault() {
+    Assert.assertFalse(QueryTracer.isEnabled());
+    Assert.assertNull(QueryTracer.begin("mem://array", QueryType.TILEDB_READ));
+    Assert.assertEquals(Metrics.DISABLED, Metrics.start());
+  }
+
+  @Test
+  public void testCurrentTrace() {
+    QueryTracer.enable();
+    QueryTrace trace = QueryTracer.begin("mem://array", QueryType.TILEDB_READ);
+    Assert.assertNull(QueryTracer.current());
+    Assert.assertEquals(Metrics.DISABLED, Metrics.start());
+
+    QueryTrace previous = QueryTracer.enter(trace);
+    try {
+      Assert.assertSame(trace, QueryTracer.current());
+      long started = Metrics.start();
+      Assert.assertNotEquals(Metrics.DISABLED, started);
+      Metrics.record(Metrics.Operation.NATIVE_ARRAY_COPY, started, 64);
+      Metrics.record(Metrics.Operation.BUFFER_SETUP, Metrics.start(trace), 128, trace, "a\"1");
+      Assert.assertEquals(2, trace.getSpanCount());
+    } finally {
+      QueryTracer.exit(trace, previous);
+    }
+    Assert.assertNull(QueryTracer.current());
+    Metrics.record(Metrics.Operation.VFS_READ, System.nanoTime(), 8);
+    Assert.assertEquals(2, trace.getSpanCount());
+  }
+
+  @Test
+  public void testNestedAndEndedTraces() {
+    QueryTracer.enable();
+    QueryTrace outer = QueryTracer.begin("mem://outer", QueryType.TILEDB_READ);
+    QueryTrace inner = QueryTracer.begin("mem://inner", QueryType.TILEDB_READ);
+    QueryTrace none = QueryTracer.enter(outer);
+    QueryTrace previous = QueryTracer.enter(inner);
+    Assert.assertSame(outer, previous);
+    Assert.assertSame(inner, QueryTracer.current());
+
+    // A query closed while current, such as from another thread, is no longer traced
+    QueryTracer.end(inner);
+    Assert.assertTrue(inner.isEnded());
+    Assert.assertNull(QueryTracer.current());
+    Metrics.record(Metrics.Operation.VFS_READ, System.nanoTime(), 8);
+    Assert.assertEquals(0, inner.getSpanCount());
+
+    QueryTracer.exit(inner, previous);
+    Assert.assertSame(outer, QueryTracer.current());
+    QueryTracer.exit(outer, none);
+    Assert.assertNull(QueryTracer.current());
+
+    // An ended trace is not made current again
+    Assert.assertNull(QueryTracer.enter(inner));
+    Assert.assertNull(QueryTracer.current());
+    QueryTracer.exit(inner, null);
+  }
+
+  @Test
+  public void testChromeTraceJson() throws Exception {
+    QueryTracer.enable();
+    QueryTrace trace = QueryTracer.begin("mem://array", QueryType.TILEDB_READ);
+    long started = System.nanoTime();
+    trace.add(Metrics.Operation.BUFFER_SETUP, started, started + 2000, 16, "a\"1");
+    StatsSnapshot stats =
+        StatsSnapshot.parse(
+            "[{\"timers\":{\"Reader.read.sum\":0.5},\"counters\":{\"Reader.tile_num\":3}}]");
+    trace.addSubmit(started + 2000, started + 5000, 16, QueryStatus.TILEDB_INCOMPLETE, stats);
+    trace.addSubmit(started + 6000, started + 7000, 16, QueryStatus.TILEDB_COMPLETED, null);
+    Assert.assertEquals(2, trace.getSubmitCount());
+    Assert.assertEquals(4000, trace.getSubmitNanos());
+
+    String json = trace.toJson();
+    Assert.assertTrue(json, json.startsWith("{\"displayTimeUnit\":\"ns\",\"traceEvents\":["));
+    Assert.assertTrue(json, json.contains("\"name\":\"process_name\",\"ph\":\"M\""));
+    Assert.assertTrue(json, json.contains("\"name\":\"thread_name\",\"ph\":\"M\""));
+    Assert.assertTrue(json, json.contains("\"name\":\"buffer_setup\",\"cat\":\"java\""));
+    Assert.assertTrue(json, json.contains("\"dur\":2.000"));
+    Assert.assertTrue(json, json.contains("\"field\":\"a\\\"1\""));
+    Assert.assertTrue(json, json.contains("\"status\":\"TILEDB_INCOMPLETE\""));
+    Assert.assertTrue(json, json.contains("\"timers\":{\"Reader.read.sum\":0.5}"));
+    Assert.assertTrue(json, json.contains("\"counters\":{\"Reader.tile_num\":3}"));
+    Assert.assertTrue(json, json.contains("\"name\":\"resubmit\",\"cat\":\"native\""));
+    Assert.assertTrue(json, json.endsWith("]}"));
+  }
+
+  @Test
+  public void testSlowQueryDump() throws Exception {
+    File directory = Files.createTempDirectory("traces").toFile();
+    QueryTracer.enable(1, TimeUnit.MILLISECONDS, directory);
+    long dumps = QueryTracer.getDumpCount();
+
+    QueryTrace fast = QueryTracer.begin("mem://array", QueryType.TILEDB_READ);
+    fast.addSubmit(0, 1000, 0, QueryStatus.TILEDB_COMPLETED, null);
+    QueryTracer.end(fast);
+    Assert.assertEquals(dumps, QueryTracer.getDumpCount());
+
+    QueryTrace slow = QueryTracer.begin("mem://array", QueryType.TILEDB_READ);
+    slow.addSubmit(0, 2_000_000, 0, QueryStatus.TILEDB_COMPLETED, null);
+    QueryTracer.end(slow);
+    Assert.assertEquals(dumps + 1, QueryTracer.getDumpCount());
+
+    File[] files = directory.listFiles();
+    Assert.assertEquals(1, files.length);
+    Assert.assertTrue(files[0].getName().endsWith("-" + slow.getId() + ".json"));
+    String json = new String(Files.readAllBytes(files[0].toPath()), "UTF-8");
+    Assert.assertEquals(slow.toJson(), json);
+    files[0].delete();
+    directory.delete();
+  }
+}
@@ -0,0 +1,132 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Constants.TILEDB_VAR_NUM;
+import static io.tiledb.java.api.Layout.TILEDB_COL_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SchemaSnapshotTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("schema_snapshot_array").toString();
+    arrayCreate();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, 100), 10);
+    Dimension<Long> d2 = new Dimension<>(ctx, "d2", Long.class, new Pair<>(0L, 999L), 100L);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+    domain.addDimension(d2);
+
+    Attribute a1 = new Attribute(ctx, "a1", Integer.class);
+    a1.setFillValue(7);
+    try (FilterList filters = new FilterList(ctx);
+        ZstdFilter zstd = new ZstdFilter(ctx, 5)) {
+      filters.addFilter(zstd);
+      a1.setFilterList(filters);
+    }
+    Attribute a2 = new Attribute(ctx, "a2", Double.class);
+    a2.setNullable(true);
+    Attribute a3 = new Attribute(ctx, "a3", String.class);
+    a3.setCellValNum(TILEDB_VAR_NUM);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_COL_MAJOR);
+    schema.setCapacity(50);
+    schema.setAllowDups(1);
+    schema.setDomain(domain);
+    schema.addAttribute(a1);
+    schema.addAttribute(a2);
+    schema.addAttribute(a3);
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  @Test
+  public void testSnapshot() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      SchemaSnapshot schema = array.getSchemaSnapshot();
+      Assert.assertTrue(schema.isSparse());
+      Assert.assertEquals(50, schema.getCapacity());
+      Assert.assertEquals(TILEDB_ROW_MAJOR, schema.getTileOrder());
+      Assert.assertEquals(TILEDB_COL_MAJOR, schema.getCellOrder());
+      Assert.assertTrue(schema.getAllowDups());
+
+      Assert.assertEquals(2, schema.getNDim());
+      SchemaSnapshot.Field d2 = schema.getDimension(1);
+      Assert.assertEquals("d2", d2.getName());
+      Assert.assertTrue(d2.isDimension());
+      Assert.assertEquals(Datatype.TILEDB_INT64, d2.getType());
+      Assert.assertEquals(0L, d2.getDomain().getFirst());
+      Assert.assertEquals(999L, d2.getDomain().getSecond());
+      Assert.assertEquals(100L, d2.getTileExtent());
+
+      Assert.assertEquals(3, schema.getAttributeNum());
+      SchemaSnapshot.Field a1 = schema.getField("a1");
+      Assert.assertEquals(0, a1.getIndex());
+      Assert.assertEquals(Datatype.TILEDB_INT32, a1.getType());
+      Assert.assertEquals(7, a1.getFillValue());
+      Assert.assertEquals(1, a1.getFilters().size());
+      Assert.assertEquals(ZstdFilter.class, a1.getFilters().get(0).getFilterClass());
+      Assert.assertEquals(5, a1.getFilters().get(0).getLevel());
+
+      Assert.assertTrue(schema.getField("a2").isNullable());
+      Assert.assertTrue(schema.getField("a3").isVar());
+      Assert.assertEquals(TILEDB_VAR_NUM, schema.getField("a3").getCellValNum());
+      Assert.assertTrue(schema.hasAttribute("a3"));
+      Assert.assertFalse(schema.hasAttribute("d1"));
+      Assert.assertTrue(schema.hasDimension("d1"));
+      Assert.assertFalse(schema.hasField("a4"));
+    }
+  }
+
+  @Test
+  public void testCachedUntilReopen() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      SchemaSnapshot schema = array.getSchemaSnapshot();
+      Assert.assertSame(schema, array.getSchemaSnapshot());
+      Assert.assertEquals(Datatype.TILEDB_FLOAT64, Util.getFieldDatatype(array, "a2"));
+      Assert.assertEquals(Datatype.TILEDB_INT32, Util.getFieldDatatype(array, "d1"));
+
+      array.reopen();
+      SchemaSnapshot reopened = array.getSchemaSnapshot();
+      Assert.assertNotSame(schema, reopened);
+      Assert.assertEquals(schema.getAttributeNum(), reopened.getAttributeNum());
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testUnknownField() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      array.getSchemaSnapshot().getField("a4");
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testDomainTypeOfMixedDimensions() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      array.getSchemaSnapshot().getDomainType();
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Constants.TILEDB_VAR_NUM;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_READ;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SingleThreadQueryTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final int CELLS = 100;
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("single_thread_query_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, CELLS), 10);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    Attribute a1 = new Attribute(ctx, "a1", Integer.class);
+    a1.setNullable(true);
+    Attribute a2 = new Attribute(ctx, "a2", String.class);
+    a2.setCellValNum(TILEDB_VAR_NUM);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setCapacity(10);
+    schema.setDomain(domain);
+    schema.addAttribute(a1);
+    schema.addAttribute(a2);
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    int[] d1 = new int[CELLS];
+    int[] a1 = new int[CELLS];
+    short[] a1Validity = new short[CELLS];
+    long[] a2Offsets = new long[CELLS];
+    StringBuilder a2 = new StringBuilder();
+    for (int i = 0; i < CELLS; i++) {
+      d1[i] = i + 1;
+      a1[i] = i + 1;
+      // Every tenth cell is null
+      a1Validity[i] = (short) (i % 10 == 0 ? 0 : 1);
+      a2Offsets[i] = a2.length();
+      a2.append("v").append(i + 1);
+    }
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBufferNullable(
+          "a1",
+          new NativeArray(ctx, a1, Integer.class),
+          new NativeArray(ctx, a1Validity, Datatype.TILEDB_UINT8));
+      query.setBuffer(
+          "a2",
+          new NativeArray(ctx, a2Offsets, Datatype.TILEDB_UINT64),
+          new NativeArray(ctx, a2.toString(), String.class));
+      query.submit();
+    }
+  }
+
+  private static ByteBuffer allocate(int bytes) {
+    return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+  }
+
+  @Test
+  public void testSlots() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      FieldSlots slots = FieldSlots.of(array, "a2", "d1", "a1");
+      Assert.assertEquals(3, slots.size());
+      Assert.assertEquals(1, slots.slot("d1"));
+      Assert.assertEquals("a1", slots.getName(2));
+      Assert.assertTrue(slots.isVar(0));
+      Assert.assertFalse(slots.isVar(1));
+      Assert.assertTrue(slots.isNullable(2));
+      Assert.assertEquals(Datatype.TILEDB_INT32, slots.getType(1));
+      Assert.assertEquals(1, slots.getCellValNum(1));
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testUnknownField() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      FieldSlots.of(array, "d1", "nope");
+    }
+  }
+
+  @Test
+  public void testReadAndResubmit() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      FieldSlots slots = FieldSlots.of(array, "d1", "a1", "a2");
+      int d1 = slots.slot("d1");
+      int a1 = slots.slot("a1");
+      int a2 = slots.slot("a2");
+      ByteBuffer subarray = allocate(8);
+      try (SingleThreadQuery query = new SingleThreadQuery(array, TILEDB_READ, slots)) {
+        query.setLayout(TILEDB_ROW_MAJOR);
+        query.setBuffer(d1, allocate(CELLS * 4));
+        query.setBufferNullable(a1, allocate(CELLS * 4), ByteBuffer.allocateDirect(CELLS));
+        query.setBuffer(a2, allocate(CELLS * 8), allocate(CELLS * 4));
+
+        // The same query and buffers read two windows
+        for (int start : new int[] {1, 51}) {
+          subarray.putInt(0, start).putInt(4, start + 9);
+          query.setSubarray(subarray);
+          query.resetBufferSizes();
+          Assert.assertEquals(QueryStatus.TILEDB_COMPLETED, query.submit());
+
+          Assert.assertEquals(40, query.getData(d1).limit());
+          IntColumn values = new IntColumn(query.getData(a1), query.getValidity(a1));
+          Assert.assertEquals(10, values.size());
+          StringColumn strings =
+              new StringColumn(query.getOffsetsView(a2), query.getData(a2), null);
+          for (int i = 0; i < 10; i++) {
+            int cell = start + i;
+            Assert.assertEquals(cell, query.getData(d1).getInt(i * 4));
+            Assert.assertEquals((cell - 1) % 10 == 0, values.isNull(i));
+            Assert.assertEquals("v" + cell, strings.getString(i));
+          }
+        }
+      }
+    }
+  }
+
+  @Test(expected = TileDBError.class)
+  public void testWrongSetter() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      FieldSlots slots = FieldSlots.of(array, "a1");
+      try (SingleThreadQuery query = new SingleThreadQuery(array, TILEDB_READ, slots)) {
+        // a1 is nullable
+        query.setBuffer(0, allocate(CELLS * 4));
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package io.tiledb.java.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StatsSnapshotTest {
+
+  private static final String RAW =
+      "[\n"
+          + "  {\n"
+          + "    \"timers\": {\n"
+          + "      \"Context.StorageManager.Query.Reader.read.sum\": 0.5,\n"
+          + "      \"Context.StorageManager.Query.Reader.read.avg\": 0.25,\n"
+          + "      \"Context.StorageManager.Query.Reader.filter_tiles.sum\": 0.125\n"
+          + "    },\n"
+          + "    \"counters\": {\n"
+          + "      \"Context.StorageManager.Query.Reader.read_unfiltered_byte_num\": 4096,\n"
+          + "      \"Context.StorageManager.Query.Reader.loop_num\": 2\n"
+          + "    }\n"
+          + "  },\n"
+          + "  {\n"
+          + "    \"timers\": {\"Context.StorageManager.Query.Writer.filter_tiles.sum\": 1e-1},\n"
+          + "    \"counters\": {\"Context.StorageManager.Query.Reader.loop_num\": 1}\n"
+          + "  }\n"
+          + "]";
+
+  @Test
+  public void testParse() throws Exception {
+    StatsSnapshot stats = StatsSnapshot.parse(RAW);
+    Assert.assertEquals(0.5, stats.getTimer("Context.StorageManager.Query.Reader.read.sum"), 0);
+    Assert.assertEquals(0, stats.getTimer("missing"), 0);
+    Assert.assertEquals(3, stats.getCounter("Context.StorageManager.Query.Reader.loop_num"));
+    Assert.assertEquals(4, stats.getTimers().size());
+    Assert.assertEquals(2, stats.getCounters().size());
+    Assert.assertEquals(0.225, stats.getTimerSum(".filter_tiles.sum"), 1e-9);
+    Assert.assertEquals(4096, stats.getCounterSum(".read_unfiltered_byte_num"));
+    Assert.assertFalse(stats.isEmpty());
+    Assert.assertTrue(StatsSnapshot.parse("").isEmpty());
+    Assert.assertTrue(StatsSnapshot.parse("{\"timers\": {}, \"counters\": {}}").isEmpty());
+  }
+
+  @Test
+  public void testMinus() throws Exception {
+    StatsSnapshot before =
+        StatsSnapshot.parse(
+            "{\"timers\": {\"q.read.sum\": 0.25, \"q.read.avg\": 0.25},"
+                + " \"counters\": {\"q.loop_num\": 1}}");
+    StatsSnapshot after =
+        StatsSnapshot.parse(
+            "{\"timers\": {\"q.read.sum\": 1.0, \"q.read.avg\": 0.5},"
+                + " \"counters\": {\"q.loop_num\": 3, \"q.tile_num\": 7}}");
+    StatsSnapshot delta = after.minus(before);
+    Assert.assertEquals(0.75, delta.getTimer("q.read.sum"), 0);
+    Assert.assertFalse(delta.getTimers().containsKey("q.read.avg"));
+    Assert.assertEquals(2, delta.getCounter("q.loop_num"));
+    Assert.assertEquals(7, delta.getCounter("q.tile_num"));
+  }
+
+  @Test
+  public void testMalformed() {
+    String[] malformed = {"[", "{\"timers\": {\"a\": }}", "{\"counters\": {\"a\": \"x\"}}", "{} x"};
+    for (String json : malformed) {
+      try {
+        StatsSnapshot.parse(json);
+        Assert.fail("Expected an error parsing " + json);
+      } catch (TileDBError expected) {
+      }
+    }
+  }
+
+  @Test
+  public void testCapture() throws Exception {
+    Stats.enable();
+    try (Context ctx = new Context()) {
+      Assert.assertNotNull(StatsSnapshot.capture());
+      Assert.assertNotNull(StatsSnapshot.of(ctx));
+    } finally {
+      Stats.disable();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringColumnTest {
+
+  private static final String[] VALUES = {"alpha", "", "beta", "été", "alphabet"};
+
+  private static StringColumn heapColumn() {
+    long[] offsets = new long[VALUES.length];
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < VALUES.length; i++) {
+      offsets[i] = data.toString().getBytes(StandardCharsets.UTF_8).length;
+      data.append(VALUES[i]);
+    }
+    return new StringColumn(offsets, data.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static StringColumn directColumn(byte[] validity) {
+    ByteBuffer offsets =
+        ByteBuffer.allocateDirect(VALUES.length * Long.BYTES).order(ByteOrder.nativeOrder());
+    ByteBuffer data = ByteBuffer.allocateDirect(64).order(ByteOrder.nativeOrder());
+    for (int i = 0; i < VALUES.length; i++) {
+      offsets.putLong(i * Long.BYTES, data.position());
+      data.put(VALUES[i].getBytes(StandardCharsets.UTF_8));
+    }
+    data.flip();
+    ByteBuffer bytemap = null;
+    if (validity != null) {
+      bytemap = ByteBuffer.allocateDirect(validity.length);
+      bytemap.put(validity).flip();
+    }
+    return new StringColumn(offsets, data, bytemap, VALUES.length);
+  }
+
+  @Test
+  public void testDecode() {
+    Assert.assertArrayEquals(VALUES, heapColumn().toArray());
+    Assert.assertArrayEquals(VALUES, directColumn(null).toArray());
+    Assert.assertEquals(5, directColumn(null).length(3));
+  }
+
+  @Test
+  public void testCompareWithoutDecoding() {
+    StringColumn column = directColumn(null);
+    Assert.assertTrue(column.equals(0, "alpha"));
+    Assert.assertFalse(column.equals(4, "alpha"));
+    Assert.assertTrue(column.equals(1, ""));
+    Assert.assertTrue(column.equals(3, "été"));
+    Assert.assertTrue(column.equals(2, "beta".getBytes(StandardCharsets.UTF_8)));
+
+    Assert.assertTrue(column.startsWith(4, "alpha"));
+    Assert.assertTrue(column.startsWith(3, "é"));
+    Assert.assertFalse(column.startsWith(0, "alphabet"));
+
+    Assert.assertTrue(column.compare(0, "alphabet".getBytes(StandardCharsets.UTF_8)) < 0);
+    Assert.assertTrue(column.compare(3, "z".getBytes(StandardCharsets.UTF_8)) > 0);
+    Assert.assertEquals(0, column.compare(2, "beta".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testHashMatchesArrays() {
+    StringColumn column = directColumn(null);
+    for (int i = 0; i < VALUES.length; i++) {
+      byte[] bytes = VALUES[i].getBytes(StandardCharsets.UTF_8);
+      Assert.assertEquals(Arrays.hashCode(bytes), column.hashCode(i));
+      Assert.assertArrayEquals(bytes, column.getBytes(i));
+    }
+  }
+
+  @Test
+  public void testSlices() {
+    StringColumn column = heapColumn();
+    Assert.assertEquals("beta", column.asciiSequence(2).toString());
+    Assert.assertEquals("ph", column.asciiSequence(0).subSequence(2, 4).toString());
+    ByteBuffer slice = column.slice(4);
+    Assert.assertEquals(8, slice.remaining());
+    Assert.assertEquals('a', slice.get(0));
+  }
+
+  @Test
+  public void testNulls() {
+    StringColumn column = directColumn(new byte[] {1, 0, 1, 1, 0});
+    Assert.assertFalse(column.isNull(0));
+    Assert.assertTrue(column.isNull(1));
+    Assert.assertNull(column.getString(4));
+    Assert.assertEquals("beta", column.getString(2));
+  }
+}
@@ -0,0 +1,152 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_SPARSE;
+import static io.tiledb.java.api.Constants.TILEDB_VAR_NUM;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.Layout.TILEDB_UNORDERED;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TwoPhaseReadTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final int CELLS = 100;
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("two_phase_array").toString();
+    arrayCreate();
+    arrayWrite();
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  private void arrayCreate() throws Exception {
+    Dimension<Integer> d1 = new Dimension<>(ctx, "d1", Integer.class, new Pair<>(1, CELLS), 10);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(d1);
+
+    Attribute payload = new Attribute(ctx, "payload", String.class);
+    payload.setCellValNum(TILEDB_VAR_NUM);
+
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_SPARSE);
+    schema.setTileOrder(TILEDB_ROW_MAJOR);
+    schema.setCellOrder(TILEDB_ROW_MAJOR);
+    schema.setCapacity(10);
+    schema.setDomain(domain);
+    schema.addAttribute(new Attribute(ctx, "a1", Integer.class));
+    schema.addAttribute(payload);
+    schema.check();
+    Array.create(arrayURI, schema);
+  }
+
+  private void arrayWrite() throws Exception {
+    int[] d1 = new int[CELLS];
+    int[] a1 = new int[CELLS];
+    long[] offsets = new long[CELLS];
+    StringBuilder payload = new StringBuilder();
+    for (int i = 0; i < CELLS; i++) {
+      d1[i] = i + 1;
+      a1[i] = i + 1;
+      offsets[i] = payload.length();
+      payload.append("p").append(i + 1);
+    }
+    try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+        Query query = new Query(array, TILEDB_WRITE)) {
+      query.setLayout(TILEDB_UNORDERED);
+      query.setBuffer("d1", new NativeArray(ctx, d1, Integer.class));
+      query.setBuffer("a1", new NativeArray(ctx, a1, Integer.class));
+      query.setBuffer(
+          "payload",
+          new NativeArray(ctx, offsets, Datatype.TILEDB_UINT64),
+          new NativeArray(ctx, payload.toString(), String.class));
+      query.submit();
+    }
+  }
+
+  private static String[] strings(TwoPhaseRead.Result result, String field) throws TileDBError {
+    return Util.bytesToStrings(result.getOffsets(field), (byte[]) result.getBuffer(field));
+  }
+
+  @Test
+  public void testSelectiveFilterReadsTwoPhases() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      Predicate predicate = Predicate.or(Predicate.eq("a1", 5), Predicate.eq("a1", 50));
+      TwoPhaseRead.Result result =
+          new TwoPhaseRead(array, predicate, Arrays.asList("d1", "payload"))
+              .setBatchCells(16)
+              .read();
+
+      Assert.assertTrue(result.isTwoPhase());
+      Assert.assertEquals(0.02, result.getSelectivity(), 1e-9);
+      Assert.assertEquals(2, result.size());
+      int[] d1 = (int[]) result.getBuffer("d1");
+      String[] payload = strings(result, "payload");
+      Assert.assertArrayEquals(new int[] {5, 50}, d1);
+      Assert.assertArrayEquals(new String[] {"p5", "p50"}, payload);
+    }
+  }
+
+  @Test
+  public void testUnselectiveFilterReadsOriginalRanges() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      Predicate predicate =
+          Predicate.and(
+              Predicate.le("d1", 10), Predicate.or(Predicate.lt("a1", 4), Predicate.gt("a1", 8)));
+      TwoPhaseRead.Result result =
+          new TwoPhaseRead(array, predicate, Arrays.asList("payload")).read();
+
+      Assert.assertFalse(result.isTwoPhase());
+      Assert.assertEquals(5, result.size());
+      Assert.assertArrayEquals(
+          new String[] {"p1", "p2", "p3", "p9", "p10"}, strings(result, "payload"));
+    }
+  }
+
+  @Test
+  public void testFullyPushedPredicateReadsOnce() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      TwoPhaseRead.Result result =
+          new TwoPhaseRead(
+                  array,
+                  Predicate.and(Predicate.between("d1", 20, 30), Predicate.ne("a1", 25)),
+                  Arrays.asList("a1"))
+              .read();
+
+      Assert.assertFalse(result.isTwoPhase());
+      Assert.assertTrue(Double.isNaN(result.getSelectivity()));
+      int[] a1 = (int[]) result.getBuffer("a1");
+      Arrays.sort(a1);
+      Assert.assertArrayEquals(new int[] {20, 21, 22, 23, 24, 26, 27, 28, 29, 30}, a1);
+    }
+  }
+
+  @Test
+  public void testNoMatches() throws Exception {
+    try (Array array = new Array(ctx, arrayURI)) {
+      TwoPhaseRead.Result result =
+          new TwoPhaseRead(
+                  array,
+                  Predicate.or(Predicate.eq("a1", 1000), Predicate.eq("a1", 2000)),
+                  Arrays.asList("payload"))
+              .read();
+      Assert.assertEquals(0, result.size());
+      Assert.assertEquals(0, ((byte[]) result.getBuffer("payload")).length);
+    }
+  }
+}
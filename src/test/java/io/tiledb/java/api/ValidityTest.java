@@ -0,0 +1,89 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ValidityTest {
+
+  private static final int SIZE = 203;
+
+  // Every 7th cell and the cells from 64 to 80 are null
+  private static boolean isNull(int i) {
+    return i % 7 == 0 || (i >= 64 && i < 80);
+  }
+
+  private static Validity validity() {
+    ByteBuffer bytemap = ByteBuffer.allocateDirect(SIZE);
+    for (int i = 0; i < SIZE; i++) {
+      // Any non-zero byte is valid
+      bytemap.put(i, isNull(i) ? (byte) 0 : (byte) (i % 3 + 1));
+    }
+    return Validity.of(bytemap);
+  }
+
+  @Test
+  public void testCounts() {
+    Validity validity = validity();
+    int nulls = 0;
+    for (int i = 0; i < SIZE; i++) {
+      Assert.assertEquals(isNull(i), validity.isNull(i));
+      Assert.assertEquals(!isNull(i), validity.isValid(i));
+      if (isNull(i)) {
+        nulls++;
+      }
+    }
+    Assert.assertEquals(SIZE, validity.size());
+    Assert.assertEquals(nulls, validity.nullCount());
+    Assert.assertTrue(validity.hasNulls());
+    Assert.assertFalse(Validity.allocate(SIZE).hasNulls());
+    Assert.assertEquals(0, Validity.allocate(SIZE).nullCount());
+  }
+
+  @Test
+  public void testScan() {
+    Validity validity = validity();
+    for (int from = 0; from <= SIZE; from++) {
+      int nextNull = -1;
+      int nextValid = -1;
+      for (int i = SIZE - 1; i >= from; i--) {
+        if (isNull(i)) {
+          nextNull = i;
+        } else {
+          nextValid = i;
+        }
+      }
+      Assert.assertEquals(nextNull, validity.nextNull(from));
+      Assert.assertEquals(nextValid, validity.nextValid(from));
+    }
+  }
+
+  @Test
+  public void testBitmaps() {
+    Validity validity = validity();
+    BitSet bits = validity.toBitSet();
+    for (int i = 0; i < SIZE; i++) {
+      Assert.assertEquals(!isNull(i), bits.get(i));
+    }
+    Assert.assertArrayEquals(bits.toLongArray(), validity.toLongArray());
+
+    Validity fromBits = Validity.fromBitSet(bits, SIZE);
+    Validity fromWords = Validity.fromLongArray(validity.toLongArray(), SIZE);
+    for (int i = 0; i < SIZE; i++) {
+      Assert.assertEquals(isNull(i), fromBits.isNull(i));
+      Assert.assertEquals(isNull(i), fromWords.isNull(i));
+    }
+  }
+
+  @Test
+  public void testByteMap() {
+    Validity validity = Validity.allocate(10);
+    validity.set(3, false);
+    ByteBuffer bytemap = validity.getByteMap();
+    Assert.assertEquals(10, bytemap.capacity());
+    Assert.assertEquals(0, bytemap.get(3));
+    Assert.assertEquals(1, bytemap.get(4));
+    Assert.assertEquals(3, validity.nextNull(0));
+  }
+}
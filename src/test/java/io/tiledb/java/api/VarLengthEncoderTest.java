@@ -0,0 +1,180 @@
+package io.tiledb.java.api;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VarLengthEncoderTest {
+
+  private static void assertDecodes(VarLengthEncoder encoder, List<? extends CharSequence> values) {
+    StringColumn column =
+        new StringColumn(
+            encoder.getOffsets(), encoder.getData(), encoder.getValidity(), encoder.size());
+    Assert.assertEquals(values.size(), column.size());
+    for (int i = 0; i < values.size(); i++) {
+      CharSequence value = values.get(i);
+      Assert.assertEquals(value == null ? null : value.toString(), column.getString(i));
+    }
+  }
+
+  @Test
+  public void testEncode() throws Exception {
+    List<String> values = Arrays.asList("aa", "", "été", null, "😀 smile", "z");
+    VarLengthEncoder encoder = new VarLengthEncoder().encode(values);
+
+    Assert.assertEquals(6, encoder.size());
+    Assert.assertTrue(encoder.hasNulls());
+    Assert.assertEquals(6 * Long.BYTES, encoder.getOffsets().capacity());
+    int bytes = 0;
+    for (String value : values) {
+      bytes += value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+    Assert.assertEquals(bytes, encoder.getData().capacity());
+    ByteBuffer validity = encoder.getValidity();
+    Assert.assertEquals(0, validity.get(3));
+    Assert.assertEquals(1, validity.get(4));
+    assertDecodes(encoder, values);
+  }
+
+  @Test
+  public void testOffsetsFormat() throws Exception {
+    List<String> values = Arrays.asList("a", null, "héllo", "", "xyz");
+    OffsetsFormat format = new OffsetsFormat(32, true, true);
+    VarLengthEncoder encoder =
+        new VarLengthEncoder().setOffsetsFormat(format).setChunkSize(2).setParallelism(2);
+    encoder.encode(values);
+    ByteBuffer offsets = encoder.getOffsets();
+    Assert.assertEquals(6 * Integer.BYTES, offsets.capacity());
+    int[] expected = {0, 1, 1, 7, 7, 10};
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i], offsets.getInt(i * Integer.BYTES));
+    }
+    StringColumn column =
+        new StringColumn(
+            OffsetsView.of(offsets, format, encoder.size(), encoder.getData().limit(), 1),
+            encoder.getData(),
+            encoder.getValidity());
+    for (int i = 0; i < values.size(); i++) {
+      Assert.assertEquals(values.get(i), column.getString(i));
+    }
+  }
+
+  @Test
+  public void testReformat() throws Exception {
+    List<String> values = Arrays.asList("ab", "c", null, "def");
+    VarLengthEncoder encoder = new VarLengthEncoder().encode(values);
+    OffsetsFormat format = new OffsetsFormat(32, false, true);
+    encoder.reformat(format);
+    Assert.assertEquals(format, encoder.getOffsetsFormat());
+    ByteBuffer offsets = encoder.getOffsets();
+    Assert.assertEquals(5 * Integer.BYTES, offsets.capacity());
+    int[] expected = {0, 2, 3, 3, 6};
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i], offsets.getInt(i * Integer.BYTES));
+    }
+
+    encoder.reformat(OffsetsFormat.DEFAULT);
+    assertDecodes(encoder, values);
+  }
+
+  @Test
+  public void testUnpairedSurrogate() throws Exception {
+    String value = "a\uD800b";
+    Assert.assertEquals(
+        value.getBytes(StandardCharsets.UTF_8).length, VarLengthEncoder.utf8Length(value));
+    VarLengthEncoder encoder = new VarLengthEncoder().encode(new String[] {value});
+    StringColumn column = new StringColumn(encoder.getOffsets(), encoder.getData(), null, 1);
+    Assert.assertEquals("a?b", column.getString(0));
+  }
+
+  @Test
+  public void testParallelChunks() throws Exception {
+    List<CharSequence> values = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      values.add(i % 97 == 0 ? null : new StringBuilder("value-").append(i).append("-ü"));
+    }
+    VarLengthEncoder encoder =
+        new VarLengthEncoder().setParallelism(4).setChunkSize(333).encode(values);
+    assertDecodes(encoder, values);
+
+    // The buffers are reused by a smaller input
+    List<String> small = new LinkedList<>(Arrays.asList("x", "yy"));
+    encoder.encode(small);
+    Assert.assertFalse(encoder.hasNulls());
+    Assert.assertEquals(3, encoder.getData().capacity());
+    assertDecodes(encoder, small);
+  }
+
+  @Test
+  public void testSuppliedExecutor() throws Exception {
+    List<CharSequence> values = new ArrayList<>();
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    for (int i = 0; i < 1000; i++) {
+      int index = i;
+      values.add(
+          new CharSequence() {
+            @Override
+            public int length() {
+              threads.add(Thread.currentThread().getName());
+              return Integer.toString(index).length();
+            }
+
+            @Override
+            public char charAt(int at) {
+              return Integer.toString(index).charAt(at);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+              return Integer.toString(index).subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+              return Integer.toString(index);
+            }
+          });
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            2,
+            r -> {
+              Thread t = new Thread(r, "supplied");
+              t.setDaemon(true);
+              return t;
+            });
+    try {
+      VarLengthEncoder encoder = new VarLengthEncoder().setExecutor(executor).setChunkSize(100);
+      assertDecodes(encoder.encode(values), values);
+      encoder.encode(values);
+      Assert.assertTrue(threads.toString(), threads.contains("supplied"));
+      Assert.assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBuffersWithinBudget() throws Exception {
+    NativeMemory.setBudget(1024, NativeMemory.Policy.FAIL_FAST, 0, TimeUnit.SECONDS);
+    try {
+      String[] values = new String[1000];
+      Arrays.fill(values, "value");
+      new VarLengthEncoder().encode(values);
+      Assert.fail("Expected the budget to be exceeded");
+    } catch (TileDBError expected) {
+    } finally {
+      NativeMemory.setBudget(0, NativeMemory.Policy.FAIL_FAST, 0, TimeUnit.SECONDS);
+    }
+  }
+}
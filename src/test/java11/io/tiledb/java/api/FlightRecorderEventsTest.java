@@ -0,0 +1,105 @@
+package io.tiledb.java.api;
+
+import static io.tiledb.java.api.ArrayType.TILEDB_DENSE;
+import static io.tiledb.java.api.Layout.TILEDB_ROW_MAJOR;
+import static io.tiledb.java.api.QueryType.TILEDB_READ;
+import static io.tiledb.java.api.QueryType.TILEDB_WRITE;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FlightRecorderEventsTest {
+
+  @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+  private Context ctx;
+  private String arrayURI;
+
+  @Before
+  public void setup() throws Exception {
+    ctx = new Context();
+    arrayURI = temp.getRoot().toPath().resolve("jfr").toString();
+    Dimension<Integer> rows =
+        new Dimension<>(ctx, "rows", Integer.class, new Pair<Integer, Integer>(1, 4), 2);
+    Domain domain = new Domain(ctx);
+    domain.addDimension(rows);
+    ArraySchema schema = new ArraySchema(ctx, TILEDB_DENSE);
+    schema.setDomain(domain);
+    schema.addAttribute(new Attribute(ctx, "a1", Integer.class));
+    Array.create(arrayURI, schema);
+  }
+
+  @After
+  public void teardown() {
+    ctx.close();
+  }
+
+  @Test
+  public void testArrayAndQueryEvents() throws Exception {
+    Path file = temp.getRoot().toPath().resolve("events.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("io.tiledb.Array");
+      recording.enable("io.tiledb.Query");
+      recording.start();
+
+      try (Array array = new Array(ctx, arrayURI, TILEDB_WRITE);
+          Query query = new Query(array)) {
+        query.setLayout(TILEDB_ROW_MAJOR);
+        query.setBuffer("a1", new NativeArray(ctx, new int[] {1, 2, 3, 4}, Integer.class));
+        query.submit();
+      }
+      try (Array array = new Array(ctx, arrayURI, TILEDB_READ);
+          Query query = new Query(array, TILEDB_READ)) {
+        query.addRange(0, 1, 4);
+        query.setLayout(TILEDB_ROW_MAJOR);
+        query.setBuffer("a1", new NativeArray(ctx, 4, Integer.class));
+        query.submit();
+      }
+
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    List<RecordedEvent> arrays = ofType(events, "io.tiledb.Array");
+    List<RecordedEvent> queries = ofType(events, "io.tiledb.Query");
+
+    Assert.assertTrue(
+        arrays.stream()
+            .anyMatch(
+                e ->
+                    "open".equals(e.getString("operation"))
+                        && arrayURI.equals(e.getString("uri"))
+                        && "TILEDB_READ".equals(e.getString("queryType"))));
+    Assert.assertTrue(arrays.stream().anyMatch(e -> "close".equals(e.getString("operation"))));
+
+    List<RecordedEvent> submits =
+        queries.stream()
+            .filter(e -> "submit".equals(e.getString("operation")))
+            .collect(Collectors.toList());
+    Assert.assertEquals(2, submits.size());
+    for (RecordedEvent submit : submits) {
+      Assert.assertEquals(arrayURI, submit.getString("uri"));
+      Assert.assertEquals("TILEDB_ROW_MAJOR", submit.getString("layout"));
+      Assert.assertEquals("TILEDB_COMPLETED", submit.getString("status"));
+      Assert.assertEquals("a1", submit.getString("fields"));
+      Assert.assertTrue(submit.getLong("bytes") > 0);
+    }
+  }
+
+  private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter(e -> name.equals(e.getEventType().getName()))
+        .collect(Collectors.toList());
+  }
+}